@@ -0,0 +1,157 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compara el blend anterior (HashMap de DTOs, razones concatenadas y sort
+ * completo) con RecommendationBlender. Correr con -prof gc para ver
+ * gc.alloc.rate.norm (bytes por operación).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecommendationBlenderBenchmark
+{
+    @Param({"50", "500"})
+    private int candidatesPerSource;
+
+    @Param({"10"})
+    private int limit;
+
+    private List<ProductRecommendation> collaborative;
+    private List<ProductRecommendation> contentBased;
+    private List<ProductRecommendation> localProducer;
+
+    private RecommendationBlender blender;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(42);
+        // Fuentes que se solapan parcialmente, como en producción
+        int productRange = candidatesPerSource * 2;
+        collaborative = candidates(random, productRange,
+                "Usuarios con gustos similares también compraron esto");
+        contentBased = candidates(random, productRange,
+                "Basado en tus categorías favoritas");
+        localProducer = candidates(random, productRange,
+                "De productores locales en tu área");
+        blender = new RecommendationBlender(0.4, 0.4, 0.2);
+    }
+
+    @Benchmark
+    public List<ProductRecommendation> legacyCombine()
+    {
+        return legacyCombine(collaborative, contentBased, localProducer, limit);
+    }
+
+    @Benchmark
+    public List<ProductRecommendation> blender()
+    {
+        return blender.blend(collaborative, contentBased, localProducer, limit);
+    }
+
+    private List<ProductRecommendation> candidates(Random random,
+            int productRange, String reason)
+    {
+        List<ProductRecommendation> list = new ArrayList<>(candidatesPerSource);
+        for (int i = 0; i < candidatesPerSource; i++)
+        {
+            long productId = 1 + random.nextInt(productRange);
+            list.add(new ProductRecommendation(productId, "Producto " + productId,
+                    "Descripción", 10.0 + random.nextInt(90), "Productor",
+                    "Categoría", random.nextDouble() * 10, reason));
+        }
+        return list;
+    }
+
+    /**
+     * combineRecommendations tal como estaba, salvo que copia cada DTO antes
+     * de modificarlo: el original mutaba las listas de entrada y en un loop
+     * de benchmark las razones crecerían sin límite.
+     */
+    private static List<ProductRecommendation> legacyCombine(
+            List<ProductRecommendation> collaborative,
+            List<ProductRecommendation> contentBased,
+            List<ProductRecommendation> localProducer, int limit)
+    {
+        Map<Long, ProductRecommendation> combinedMap = new HashMap<>();
+
+        for (ProductRecommendation source : collaborative)
+        {
+            ProductRecommendation rec = copy(source);
+            rec.setRecommendationScore(rec.getRecommendationScore() * 0.4);
+            combinedMap.put(rec.getProductId(), rec);
+        }
+
+        for (ProductRecommendation source : contentBased)
+        {
+            if (combinedMap.containsKey(source.getProductId()))
+            {
+                ProductRecommendation existing = combinedMap.get(
+                        source.getProductId());
+                existing.setRecommendationScore(
+                        existing.getRecommendationScore() + (source.getRecommendationScore() * 0.4));
+                existing.setReason(
+                        existing.getReason() + " y " + source.getReason()
+                                .toLowerCase());
+            } else
+            {
+                ProductRecommendation rec = copy(source);
+                rec.setRecommendationScore(rec.getRecommendationScore() * 0.4);
+                combinedMap.put(rec.getProductId(), rec);
+            }
+        }
+
+        for (ProductRecommendation source : localProducer)
+        {
+            if (combinedMap.containsKey(source.getProductId()))
+            {
+                ProductRecommendation existing = combinedMap.get(
+                        source.getProductId());
+                existing.setRecommendationScore(
+                        existing.getRecommendationScore() + (source.getRecommendationScore() * 0.2));
+                existing.setReason(existing.getReason() + " (productor local)");
+            } else
+            {
+                ProductRecommendation rec = copy(source);
+                rec.setRecommendationScore(rec.getRecommendationScore() * 0.2);
+                combinedMap.put(rec.getProductId(), rec);
+            }
+        }
+
+        return combinedMap.values().stream()
+                .sorted((r1, r2) -> Double.compare(r2.getRecommendationScore(),
+                        r1.getRecommendationScore())).limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static ProductRecommendation copy(ProductRecommendation rec)
+    {
+        return new ProductRecommendation(rec.getProductId(), rec.getProductName(),
+                rec.getDescription(), rec.getPrice(), rec.getProducerName(),
+                rec.getCategory(), rec.getRecommendationScore(), rec.getReason());
+    }
+}
@@ -0,0 +1,85 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring de candidatos de generateNeuralRecommendations para un usuario:
+ * lote completo más el top-K y los ProductScore del top-K. La mitad de los
+ * productos tiene embedding entrenado y el resto usa el vector dinámico,
+ * como después de un entrenamiento parcial. backend compara los kernels
+ * escalares con los SIMD.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class CandidateScoringBenchmark
+{
+    @Param({"100", "1000", "5000"})
+    private int candidates;
+
+    @Param({"10"})
+    private int topK;
+
+    @Param({"scalar", "simd"})
+    private String backend;
+
+    private NeuralCandidateScorer scorer;
+
+    private CandidateBatch batch;
+
+    private double[] userProfile;
+
+    private Map<Long, ProductCatalog.ProductInfo> catalog;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SyntheticMlData.SEED);
+        batch = CandidateBatch.fromRows(
+                SyntheticMlData.candidateRows(random, candidates));
+        catalog = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            catalog.put(batch.id(i), new ProductCatalog.ProductInfo(batch.id(i),
+                    "Producto " + batch.id(i), "Descripción", batch.price(i),
+                    batch.quantity(i), 1, "Productor", "Lima", true, "General"));
+        }
+
+        Map<Long, double[]> productEmbeddings = new HashMap<>();
+        for (int i = 0; i < candidates; i += 2)
+        {
+            productEmbeddings.put((long) (i + 1),
+                    SyntheticMlData.vector(random, 6));
+        }
+        userProfile = SyntheticMlData.vector(random, 8);
+        scorer = new NeuralCandidateScorer(new CustomNeuralNetwork(
+                VectorKernels.select("simd".equals(backend))), productEmbeddings);
+    }
+
+    @Benchmark
+    public List<ProductScore> score()
+    {
+        return scorer.toProductScores(batch,
+                scorer.score(userProfile, 2, batch, topK), catalog::get);
+    }
+}
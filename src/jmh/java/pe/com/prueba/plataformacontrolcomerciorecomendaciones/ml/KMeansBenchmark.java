@@ -0,0 +1,99 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomKMeansClusterer.cluster sobre `points` usuarios de 4 features
+ * (como getUserFeatures) agrupados alrededor de k centros, en modo FULL
+ * (Hamerly) y MINI_BATCH, con `threads` hilos de ForkJoinPool (0 = secuencial).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KMeansBenchmark
+{
+    @Param({"1000", "20000", "200000"})
+    private int points;
+
+    @Param({"5"})
+    private int k;
+
+    @Param({"FULL", "MINI_BATCH"})
+    private KMeansMode mode;
+
+    @Param({"0", "4"})
+    private int threads;
+
+    private ForkJoinPool pool;
+
+    private double[][] data;
+
+    private List<Long> userIds;
+
+    private CustomKMeansClusterer clusterer;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SyntheticMlData.SEED);
+        double[][] centers = new double[k][];
+        for (int c = 0; c < k; c++)
+        {
+            centers[c] = SyntheticMlData.vector(random, 4);
+        }
+
+        data = new double[points][4];
+        userIds = new ArrayList<>(points);
+        for (int i = 0; i < points; i++)
+        {
+            double[] center = centers[random.nextInt(k)];
+            for (int d = 0; d < 4; d++)
+            {
+                data[i][d] = center[d] + random.nextGaussian() * 0.1;
+            }
+            userIds.add((long) (i + 1));
+        }
+        pool = threads > 0 ? new ForkJoinPool(threads) : null;
+        KMeansOptions defaults = KMeansOptions.defaults();
+        clusterer = new CustomKMeansClusterer(ScalarKernels.INSTANCE, pool,
+                new KMeansOptions(mode, defaults.maxIterations(), 1,
+                        defaults.miniBatchSize(), defaults.miniBatchIterations(),
+                        defaults.miniBatchThreshold(), defaults.seed()));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, List<Long>> cluster()
+    {
+        return clusterer.cluster(data, userIds, k);
+    }
+}
@@ -0,0 +1,78 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una época de MiniBatchTrainer con distintos tamaños de pool, para comparar
+ * contra NeuralNetworkBenchmark.trainEpoch (sgd) y ver el escalado por núcleo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MiniBatchTrainerBenchmark
+{
+    @Param({"1000", "10000"})
+    private int samples;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"256"})
+    private int batchSize;
+
+    @Param({"64"})
+    private int shardSize;
+
+    private ForkJoinPool pool;
+
+    private MiniBatchTrainer trainer;
+
+    private CustomNeuralNetwork network;
+
+    private double[][] inputs;
+
+    private double[][] targets;
+
+    @Setup
+    public void setUp()
+    {
+        TrainingDataset dataset = TrainingDataset.fromRows(SyntheticMlData.trainingRows(
+                new Random(SyntheticMlData.SEED), samples));
+        inputs = dataset.getInputMatrix();
+        targets = dataset.getTargetMatrix();
+        pool = new ForkJoinPool(parallelism);
+        trainer = new MiniBatchTrainer(pool, batchSize, shardSize, 0.5,
+                SyntheticMlData.SEED);
+        network = new CustomNeuralNetwork();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double trainEpoch()
+    {
+        return trainer.train(network, inputs, targets, 1);
+    }
+}
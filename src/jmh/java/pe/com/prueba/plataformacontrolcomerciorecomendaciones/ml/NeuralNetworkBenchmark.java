@@ -0,0 +1,66 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * predict con la entrada de serving (perfil 8 + producto 6 + 2 derivadas) y
+ * una época de train sobre un dataset sintético de `samples` filas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeuralNetworkBenchmark
+{
+    @Param({"1000", "10000"})
+    private int samples;
+
+    private CustomNeuralNetwork network;
+
+    private double[] servingInput;
+
+    private double[][] inputs;
+
+    private double[][] targets;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(SyntheticMlData.SEED);
+        TrainingDataset dataset = TrainingDataset.fromRows(
+                SyntheticMlData.trainingRows(random, samples));
+        inputs = dataset.getInputMatrix();
+        targets = dataset.getTargetMatrix();
+        servingInput = SyntheticMlData.vector(random, 16);
+        network = new CustomNeuralNetwork();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double predict()
+    {
+        return network.predict(servingInput);
+    }
+
+    @Benchmark
+    public CustomNeuralNetwork trainEpoch()
+    {
+        network.train(inputs, targets, 1);
+        return network;
+    }
+}
@@ -0,0 +1,71 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Filas sintéticas con las mismas columnas y tipos que devuelven las
+ * consultas de MLRecommendationService, para correr los benchmarks sin base.
+ * Con la misma semilla los datos son idénticos entre corridas.
+ */
+final class SyntheticMlData
+{
+    static final long SEED = 42;
+
+    private SyntheticMlData()
+    {
+    }
+
+    // Filas de prepareTrainingDataset: un usuario interactúa con varios productos
+    static List<Map<String, Object>> trainingRows(Random random, int rows)
+    {
+        int users = Math.max(1, rows / 20);
+        int products = Math.max(1, rows / 10);
+        List<Map<String, Object>> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++)
+        {
+            long userId = 1 + random.nextInt(users);
+            // Rol y compras derivados del usuario, como en el join real
+            Random userRandom = new Random(userId);
+            Map<String, Object> row = new HashMap<>();
+            row.put("user_id", userId);
+            row.put("role", userRandom.nextInt(10) == 0 ? "PRODUCER" : "CUSTOMER");
+            row.put("product_id", 1L + random.nextInt(products));
+            row.put("price", 5.0 + random.nextInt(1995));
+            row.put("quantity", random.nextInt(100));
+            row.put("orders", (long) userRandom.nextInt(30));
+            row.put("avg_amount", userRandom.nextDouble() * 1500);
+            row.put("score", 1L + random.nextInt(9));
+            data.add(row);
+        }
+        return data;
+    }
+
+    // Filas de la consulta de candidatos de generateNeuralRecommendations
+    static List<Map<String, Object>> candidateRows(Random random, int candidates)
+    {
+        List<Map<String, Object>> data = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++)
+        {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) (i + 1));
+            row.put("price", 5.0 + random.nextInt(1995));
+            row.put("quantity", random.nextInt(100));
+            data.add(row);
+        }
+        return data;
+    }
+
+    static double[] vector(Random random, int size)
+    {
+        double[] vector = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            vector[i] = random.nextDouble();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,68 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de TrainingDataset (columnas primitivas vía Builder) y la
+ * extracción de matrices que hace el entrenamiento a partir de `rows` filas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrainingDatasetBenchmark
+{
+    @Param({"2000", "20000"})
+    private int rows;
+
+    private List<Map<String, Object>> rawData;
+
+    @Setup
+    public void setUp()
+    {
+        rawData = SyntheticMlData.trainingRows(new Random(SyntheticMlData.SEED),
+                rows);
+    }
+
+    @Benchmark
+    public TrainingDataset construct()
+    {
+        return TrainingDataset.fromRows(rawData);
+    }
+
+    // Lo que consume trainCustomAIModels en un ciclo completo
+    @Benchmark
+    public void constructAndExtract(Blackhole blackhole)
+    {
+        TrainingDataset dataset = TrainingDataset.fromRows(rawData);
+        blackhole.consume(dataset.getInputMatrix());
+        blackhole.consume(dataset.getTargetMatrix());
+        blackhole.consume(dataset.getUserFeatures());
+        for (Long userId : dataset.getUserIds())
+        {
+            blackhole.consume(dataset.getUserFeatures(userId));
+        }
+        for (Long productId : dataset.getProductIds())
+        {
+            blackhole.consume(dataset.getProductFeatures(productId));
+        }
+    }
+}
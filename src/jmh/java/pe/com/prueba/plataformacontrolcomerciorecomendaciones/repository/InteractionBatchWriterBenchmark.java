@@ -0,0 +1,124 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filas por segundo de InteractionBatchWriter (lotes transaccionales) contra
+ * un INSERT por fila con autocommit, que es lo que hace el save de JPA con
+ * IDENTITY. Necesita una base MySQL con el esquema de la aplicación:
+ * -Dbench.jdbc.url=... -Dbench.jdbc.user=... -Dbench.jdbc.password=...
+ * Las filas se marcan con session_id = 'jmh' y se borran al terminar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InteractionBatchWriterBenchmark
+{
+    private static final int ROWS = 1000;
+
+    private static final String SESSION = "jmh";
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private InteractionBatchWriter writer;
+
+    private List<UserInteraction> rows;
+
+    @Setup
+    public void setUp()
+    {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url",
+                        "jdbc:mysql://localhost:3306/PLATAFORMA_COMERCIO_ELETRONICO_V01?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true"),
+                System.getProperty("bench.jdbc.user", "root"),
+                System.getProperty("bench.jdbc.password", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writer = new InteractionBatchWriter(jdbcTemplate,
+                new DataSourceTransactionManager(dataSource),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6),
+                batchSize);
+
+        Random random = new Random(42);
+        InteractionType[] types = InteractionType.values();
+        LocalDateTime now = LocalDateTime.now();
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+        {
+            InteractionType type = types[random.nextInt(types.length)];
+            UserInteraction interaction = new UserInteraction(
+                    1L + random.nextInt(1000), 1L + random.nextInt(5000), type,
+                    type.getDefaultScore());
+            interaction.setSessionId(SESSION);
+            interaction.setCreatedAt(now);
+            rows.add(interaction);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp()
+    {
+        jdbcTemplate.update("DELETE FROM user_interactions WHERE session_id = ?",
+                SESSION);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<InteractionBatchWriter.ChunkResult> batch()
+    {
+        return writer.insertAll(rows);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int singleRow()
+    {
+        int inserted = 0;
+        for (UserInteraction interaction : rows)
+        {
+            inserted += jdbcTemplate.update("""
+                            INSERT INTO user_interactions
+                                (user_id, product_id, action_type, interaction_score, session_id, created_at)
+                            VALUES (?, ?, ?, ?, ?, ?)
+                            """, interaction.getUserId(),
+                    interaction.getProductId(),
+                    interaction.getActionType().name(),
+                    interaction.getInteractionScore(),
+                    interaction.getSessionId(),
+                    Timestamp.valueOf(interaction.getCreatedAt()));
+        }
+        return inserted;
+    }
+}
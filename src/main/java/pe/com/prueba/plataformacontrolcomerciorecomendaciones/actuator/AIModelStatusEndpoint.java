@@ -0,0 +1,30 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.actuator;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.service.MLRecommendationService;
+
+import java.util.Map;
+
+/**
+ * /actuator/ai-model-status: versión, entrenamiento, tamaños de embeddings,
+ * distribución de segmentos y memoria estimada del modelo ML.
+ */
+@Component
+@Endpoint(id = "ai-model-status")
+public class AIModelStatusEndpoint
+{
+    private final MLRecommendationService mlRecommendationService;
+
+    public AIModelStatusEndpoint(MLRecommendationService mlRecommendationService)
+    {
+        this.mlRecommendationService = mlRecommendationService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> modelStatus()
+    {
+        return mlRecommendationService.getModelStatus();
+    }
+}
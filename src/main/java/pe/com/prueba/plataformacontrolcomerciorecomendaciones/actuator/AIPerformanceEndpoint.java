@@ -0,0 +1,55 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.actuator;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest.InteractionWriteBuffer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedRecommendationStore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * /actuator/ai-performance: percentiles y throughput de la última ventana por
+ * motor y por tipo de request, ratios de cache y profundidad de la cola de
+ * escritura. Todo sale de contadores atómicos, sin consultas a la base.
+ */
+@Component
+@Endpoint(id = "ai-performance")
+public class AIPerformanceEndpoint
+{
+    private final RecommendationMetrics metrics;
+
+    private final RecommendationCache recommendationCache;
+
+    private final InteractionWriteBuffer interactionWriteBuffer;
+
+    private final PrecomputedRecommendationStore precomputedStore;
+
+    public AIPerformanceEndpoint(RecommendationMetrics metrics,
+            RecommendationCache recommendationCache,
+            InteractionWriteBuffer interactionWriteBuffer,
+            PrecomputedRecommendationStore precomputedStore)
+    {
+        this.metrics = metrics;
+        this.recommendationCache = recommendationCache;
+        this.interactionWriteBuffer = interactionWriteBuffer;
+        this.precomputedStore = precomputedStore;
+    }
+
+    @ReadOperation
+    public Map<String, Object> performance()
+    {
+        Map<String, Object> performance = new HashMap<>();
+        performance.put("windowSeconds", metrics.getWindowMillis() / 1000.0);
+        performance.put("engines", metrics.strategySnapshots());
+        performance.put("requests", metrics.requestSnapshots());
+        performance.put("cache", recommendationCache.getStats());
+        performance.put("precomputed", precomputedStore.getStats());
+        performance.put("writeQueueDepth", interactionWriteBuffer.getQueueDepth());
+        performance.put("writeBehind", interactionWriteBuffer.getStats());
+        return performance;
+    }
+}
@@ -0,0 +1,157 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend;
+
+import java.util.Arrays;
+
+/**
+ * Mapa productId -> (score acumulado, fuentes) con direccionamiento abierto
+ * sobre arrays primitivos. Guarda además, por fuente, la posición del
+ * candidato en su lista para armar el DTO final sin volver a buscarlo. Se
+ * reutiliza entre requests del mismo hilo: clear() solo limpia los slots
+ * usados.
+ */
+final class BlendTable
+{
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private double[] scores;
+    private int[] flags;
+    private int[][] positions;
+    private int mask;
+
+    // Slots ocupados, en orden de inserción
+    private int[] used;
+    private int size;
+
+    BlendTable(int sources, int expected)
+    {
+        allocate(sources, tableSizeFor(expected));
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    // Slot del i-ésimo producto insertado
+    int slotAt(int i)
+    {
+        return used[i];
+    }
+
+    long key(int slot)
+    {
+        return keys[slot];
+    }
+
+    double score(int slot)
+    {
+        return scores[slot];
+    }
+
+    int flags(int slot)
+    {
+        return flags[slot];
+    }
+
+    int position(int source, int slot)
+    {
+        return positions[source][slot];
+    }
+
+    /**
+     * Suma el score ponderado de una fuente. La posición que se recuerda es
+     * la primera vez que la fuente trae el producto.
+     */
+    void add(long productId, int source, int position, double weightedScore)
+    {
+        if ((size + 1) * 2 > keys.length)
+        {
+            grow();
+        }
+
+        int slot = indexOf(productId, keys, mask);
+        if (keys[slot] == EMPTY)
+        {
+            keys[slot] = productId;
+            used[size++] = slot;
+        }
+        scores[slot] += weightedScore;
+        int bit = 1 << source;
+        if ((flags[slot] & bit) == 0)
+        {
+            flags[slot] |= bit;
+            positions[source][slot] = position;
+        }
+    }
+
+    void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            int slot = used[i];
+            keys[slot] = EMPTY;
+            scores[slot] = 0;
+            flags[slot] = 0;
+        }
+        size = 0;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        double[] oldScores = scores;
+        int[] oldFlags = flags;
+        int[][] oldPositions = positions;
+        int[] oldUsed = used;
+        int oldSize = size;
+
+        allocate(positions.length, keys.length * 2);
+        for (int i = 0; i < oldSize; i++)
+        {
+            int from = oldUsed[i];
+            int to = indexOf(oldKeys[from], keys, mask);
+            keys[to] = oldKeys[from];
+            scores[to] = oldScores[from];
+            flags[to] = oldFlags[from];
+            for (int s = 0; s < positions.length; s++)
+            {
+                positions[s][to] = oldPositions[s][from];
+            }
+            used[i] = to;
+        }
+        size = oldSize;
+    }
+
+    private void allocate(int sources, int capacity)
+    {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        scores = new double[capacity];
+        flags = new int[capacity];
+        positions = new int[sources][capacity];
+        used = new int[capacity / 2 + 1];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int indexOf(long key, long[] keys, int mask)
+    {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int tableSizeFor(int expected)
+    {
+        int capacity = 16;
+        while (capacity < expected * 2)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
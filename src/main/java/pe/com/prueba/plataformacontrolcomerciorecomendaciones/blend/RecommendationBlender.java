@@ -0,0 +1,211 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mezcla de las fuentes del recomendador híbrido. Los scores ponderados se
+ * acumulan en una tabla primitiva productId -> score, las fuentes de cada
+ * producto se marcan como bits y el top-K sale de un heap acotado. Solo los K
+ * ganadores se convierten en DTOs nuevos con su texto de razón; las listas de
+ * entrada no se modifican. Los empates se resuelven por productId ascendente.
+ */
+@Component
+public class RecommendationBlender
+{
+    static final int COLLABORATIVE = 0;
+    static final int CONTENT_BASED = 1;
+    static final int LOCAL_PRODUCER = 2;
+
+    private static final int SOURCES = 3;
+
+    private final double[] weights;
+
+    // Una tabla por hilo, reutilizada entre requests
+    private final ThreadLocal<BlendTable> tables = ThreadLocal.withInitial(
+            () -> new BlendTable(SOURCES, 256));
+
+    public RecommendationBlender(
+            @Value("${ai.recommendation.weights.collaborative:0.4}") double collaborativeWeight,
+            @Value("${ai.recommendation.weights.content-based:0.4}") double contentBasedWeight,
+            @Value("${ai.recommendation.weights.local-producer:0.2}") double localProducerWeight)
+    {
+        this.weights = new double[] {collaborativeWeight, contentBasedWeight,
+                localProducerWeight};
+    }
+
+    public List<ProductRecommendation> blend(
+            List<ProductRecommendation> collaborative,
+            List<ProductRecommendation> contentBased,
+            List<ProductRecommendation> localProducer, int limit)
+    {
+        List<ProductRecommendation>[] sources = sourcesOf(collaborative,
+                contentBased, localProducer);
+        BlendTable table = tables.get();
+        table.clear();
+        try
+        {
+            for (int source = 0; source < SOURCES; source++)
+            {
+                List<ProductRecommendation> candidates = sources[source];
+                for (int i = 0; i < candidates.size(); i++)
+                {
+                    ProductRecommendation rec = candidates.get(i);
+                    Double score = rec.getRecommendationScore();
+                    table.add(rec.getProductId(), source, i,
+                            (score != null ? score : 0.0) * weights[source]);
+                }
+            }
+
+            int[] top = selectTop(table, Math.min(limit, table.size()));
+            List<ProductRecommendation> result = new ArrayList<>(top.length);
+            for (int slot : top)
+            {
+                result.add(materialize(table, slot, sources));
+            }
+            return result;
+        } finally
+        {
+            table.clear();
+        }
+    }
+
+    /**
+     * Min-heap de tamaño k con el peor candidato en la raíz; al final se
+     * vacía de atrás hacia adelante para dejar el mejor primero.
+     */
+    private static int[] selectTop(BlendTable table, int k)
+    {
+        if (k <= 0)
+        {
+            return new int[0];
+        }
+
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int i = 0; i < table.size(); i++)
+        {
+            int slot = table.slotAt(i);
+            if (heapSize < k)
+            {
+                heap[heapSize] = slot;
+                siftUp(table, heap, heapSize++);
+            } else if (isBetter(table, slot, heap[0]))
+            {
+                heap[0] = slot;
+                siftDown(table, heap, heapSize);
+            }
+        }
+
+        int[] ordered = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--)
+        {
+            ordered[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(table, heap, heapSize);
+        }
+        return ordered;
+    }
+
+    private static boolean isBetter(BlendTable table, int a, int b)
+    {
+        int byScore = Double.compare(table.score(a), table.score(b));
+        return byScore != 0 ? byScore > 0 : table.key(a) < table.key(b);
+    }
+
+    private static void siftUp(BlendTable table, int[] heap, int index)
+    {
+        int slot = heap[index];
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(table, heap[parent], slot))
+            {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private static void siftDown(BlendTable table, int[] heap, int size)
+    {
+        if (size == 0)
+        {
+            return;
+        }
+        int index = 0;
+        int slot = heap[0];
+        while (true)
+        {
+            int child = 2 * index + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if (child + 1 < size && isBetter(table, heap[child], heap[child + 1]))
+            {
+                child++;
+            }
+            if (!isBetter(table, slot, heap[child]))
+            {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    /**
+     * El DTO base es el de la primera fuente que trajo el producto; la razón
+     * se arma igual que antes: "A y b" si además vino por contenido y
+     * " (productor local)" si además es local.
+     */
+    private static ProductRecommendation materialize(BlendTable table, int slot,
+            List<ProductRecommendation>[] sources)
+    {
+        int flags = table.flags(slot);
+        int base = Integer.numberOfTrailingZeros(flags);
+        ProductRecommendation baseRec = sources[base].get(
+                table.position(base, slot));
+
+        String reason = baseRec.getReason();
+        if (base == COLLABORATIVE && (flags & (1 << CONTENT_BASED)) != 0)
+        {
+            String contentReason = sources[CONTENT_BASED].get(
+                    table.position(CONTENT_BASED, slot)).getReason();
+            if (contentReason != null)
+            {
+                reason = reason + " y " + contentReason.toLowerCase();
+            }
+        }
+        if (base != LOCAL_PRODUCER && (flags & (1 << LOCAL_PRODUCER)) != 0)
+        {
+            reason = reason + " (productor local)";
+        }
+
+        return new ProductRecommendation(baseRec.getProductId(),
+                baseRec.getProductName(), baseRec.getDescription(),
+                baseRec.getPrice(), baseRec.getProducerName(),
+                baseRec.getCategory(), table.score(slot), reason);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ProductRecommendation>[] sourcesOf(
+            List<ProductRecommendation> collaborative,
+            List<ProductRecommendation> contentBased,
+            List<ProductRecommendation> localProducer)
+    {
+        List<ProductRecommendation>[] sources = new List[SOURCES];
+        sources[COLLABORATIVE] = collaborative;
+        sources[CONTENT_BASED] = contentBased;
+        sources[LOCAL_PRODUCER] = localProducer;
+        return sources;
+    }
+}
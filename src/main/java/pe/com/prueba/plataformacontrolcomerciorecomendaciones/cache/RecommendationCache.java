@@ -0,0 +1,272 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de recomendaciones por usuario en Redis. Cada usuario tiene un hash
+ * con un campo por (tipo, límite) más uno para su perfil, así una interacción
+ * invalida todas las variantes del usuario con un solo DEL. Los aciertos del
+ * perfil se cuentan aparte para no mezclarlos con los de recomendaciones.
+ */
+@Component
+@Slf4j
+public class RecommendationCache
+{
+    private static final String KEY_PREFIX = "ai:recommendations:user:";
+
+    private static final String PROFILE_FIELD = "profile";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder profileHits = new LongAdder();
+    private final LongAdder profileMisses = new LongAdder();
+
+    @Value("${ai.recommendation.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.recommendation.cache-duration-minutes:30}")
+    private long ttlMinutes;
+
+    // Tras un error de Redis se deja de consultar durante este tiempo
+    @Value("${ai.recommendation.cache.retry-after-ms:30000}")
+    private long retryAfterMs;
+
+    private volatile long unavailableUntil = 0;
+
+    public RecommendationCache(
+            @Qualifier("recommendationRedisTemplate") RedisTemplate<String, Object> redisTemplate)
+    {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public List<ProductRecommendation> get(Long userId, String type, int limit)
+    {
+        if (!isUsable())
+        {
+            return null;
+        }
+
+        Object value = read(userId, field(type, limit));
+        if (value instanceof CachedRecommendations cached
+                && !cached.isExpired(ttlMinutes))
+        {
+            hits.increment();
+            return cached.recommendations();
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(Long userId, String type, int limit,
+            List<ProductRecommendation> recommendations)
+    {
+        if (!isUsable())
+        {
+            return;
+        }
+        write(userId, field(type, limit), new CachedRecommendations(
+                System.currentTimeMillis(), new ArrayList<>(recommendations)));
+    }
+
+    public Map<String, Object> getProfile(Long userId)
+    {
+        if (!isUsable())
+        {
+            return null;
+        }
+
+        Object value = read(userId, PROFILE_FIELD);
+        if (value instanceof CachedProfile cached
+                && !cached.isExpired(ttlMinutes))
+        {
+            profileHits.increment();
+            return new HashMap<>(cached.profile());
+        }
+
+        profileMisses.increment();
+        return null;
+    }
+
+    public void putProfile(Long userId, Map<String, Object> profile)
+    {
+        if (!isUsable())
+        {
+            return;
+        }
+        write(userId, PROFILE_FIELD, new CachedProfile(
+                System.currentTimeMillis(), new HashMap<>(profile)));
+    }
+
+    public void invalidate(Set<Long> userIds)
+    {
+        if (!isUsable() || userIds.isEmpty())
+        {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(userIds.size());
+        for (Long userId : userIds)
+        {
+            keys.add(key(userId));
+        }
+
+        try
+        {
+            redisTemplate.delete(keys);
+            invalidations.add(keys.size());
+        } catch (Exception e)
+        {
+            markUnavailable(e);
+        }
+    }
+
+    @EventListener
+    public void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (UserInteraction interaction : event.getInteractions())
+        {
+            userIds.add(interaction.getUserId());
+        }
+        invalidate(userIds);
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public double getHitRatio()
+    {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    public Map<String, Object> getStats()
+    {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("available", System.currentTimeMillis() >= unavailableUntil);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("profileHits", profileHits.sum());
+        stats.put("profileMisses", profileMisses.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("errors", errors.sum());
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    private Object read(Long userId, String field)
+    {
+        try
+        {
+            return redisTemplate.opsForHash().get(key(userId), field);
+        } catch (Exception e)
+        {
+            markUnavailable(e);
+            return null;
+        }
+    }
+
+    private void write(Long userId, String field, Serializable value)
+    {
+        String key = key(userId);
+        try
+        {
+            // HSET + EXPIRE en un solo round-trip
+            redisTemplate.executePipelined(new SessionCallback<Object>()
+            {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations)
+                {
+                    operations.opsForHash().put(key, field, value);
+                    operations.expire(key, Duration.ofMinutes(ttlMinutes));
+                    return null;
+                }
+            });
+        } catch (Exception e)
+        {
+            markUnavailable(e);
+        }
+    }
+
+    private boolean isUsable()
+    {
+        return enabled && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    private void markUnavailable(Exception e)
+    {
+        errors.increment();
+        unavailableUntil = System.currentTimeMillis() + retryAfterMs;
+        log.warn("Redis no disponible para el cache de recomendaciones: {}",
+                e.getMessage());
+    }
+
+    private static String key(Long userId)
+    {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String field(String type, int limit)
+    {
+        return type + ":" + limit;
+    }
+
+    private record CachedRecommendations(long createdAt,
+                                         ArrayList<ProductRecommendation> recommendations)
+            implements Serializable
+    {
+        boolean isExpired(long ttlMinutes)
+        {
+            return System.currentTimeMillis() - createdAt > ttlMinutes * 60_000;
+        }
+    }
+
+    private record CachedProfile(long createdAt, HashMap<String, Object> profile)
+            implements Serializable
+    {
+        boolean isExpired(long ttlMinutes)
+        {
+            return System.currentTimeMillis() - createdAt > ttlMinutes * 60_000;
+        }
+    }
+}
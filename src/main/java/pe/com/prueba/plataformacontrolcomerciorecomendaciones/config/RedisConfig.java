@@ -0,0 +1,31 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+@Configuration
+public class RedisConfig
+{
+
+    // Claves legibles; valores con serialización Java usando el classloader de
+    // la aplicación (evita ClassCastException con el reinicio de devtools)
+    @Bean(name = "recommendationRedisTemplate")
+    public RedisTemplate<String, Object> recommendationRedisTemplate(
+            RedisConnectionFactory connectionFactory)
+    {
+        JdkSerializationRedisSerializer valueSerializer = new JdkSerializationRedisSerializer(
+                getClass().getClassLoader());
+
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(StringRedisSerializer.UTF_8);
+        template.setHashKeySerializer(StringRedisSerializer.UTF_8);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
+        return template;
+    }
+}
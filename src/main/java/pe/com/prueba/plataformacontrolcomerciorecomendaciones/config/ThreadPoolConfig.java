@@ -0,0 +1,66 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ThreadPoolConfig
+{
+
+    // Pool acotado para las consultas de cada estrategia de recomendación
+    @Bean(name = "aiPredictionExecutor")
+    public ThreadPoolTaskExecutor aiPredictionExecutor(
+            @Value("${optimization.thread-pool.ai-prediction.core-size:4}") int coreSize,
+            @Value("${optimization.thread-pool.ai-prediction.max-size:8}") int maxSize,
+            @Value("${optimization.thread-pool.ai-prediction.queue-capacity:200}") int queueCapacity)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ai-prediction-");
+        // Saturado: se rechaza y el llamador usa su fallback (sin correr en el hilo del request)
+        executor.setRejectedExecutionHandler(
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    // Pool separado para el endpoint bulk, así no compite con el tráfico en vivo
+    @Bean(name = "bulkRecommendationExecutor")
+    public ThreadPoolTaskExecutor bulkRecommendationExecutor(
+            @Value("${optimization.thread-pool.bulk-recommendation.size:4}") int size,
+            @Value("${optimization.thread-pool.bulk-recommendation.queue-capacity:1000}") int queueCapacity)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bulk-recommendation-");
+        executor.setRejectedExecutionHandler(
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Presupuesto de núcleos para calcular gradientes del entrenamiento ML
+    @Bean(name = "aiTrainingPool", destroyMethod = "shutdown")
+    public ForkJoinPool aiTrainingPool(
+            @Value("${ai.recommendation.performance.thread-pool-size:4}") int parallelism)
+    {
+        return new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ai-training-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -0,0 +1,36 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.VectorKernels;
+
+@Configuration
+@Slf4j
+public class VectorKernelsConfig
+{
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    // Se elige una vez al arrancar: SIMD si está disponible, si no escalar
+    @Bean
+    public VectorKernels vectorKernels(
+            @Value("${ai.recommendation.ml.simd.enabled:true}") boolean simdEnabled)
+    {
+        VectorKernels kernels = VectorKernels.select(simdEnabled);
+        if (!simdEnabled || kernels.name().startsWith("simd"))
+        {
+            log.info("Kernels ML: {}", kernels.name());
+        } else if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+        {
+            log.warn("Kernels ML: {}. Falta --add-modules {} en la JVM "
+                    + "(JAVA_TOOL_OPTIONS)", kernels.name(), VECTOR_MODULE);
+        } else
+        {
+            log.warn("Kernels ML: {}. La CPU no tiene SIMD para doubles",
+                    kernels.name());
+        }
+        return kernels;
+    }
+}
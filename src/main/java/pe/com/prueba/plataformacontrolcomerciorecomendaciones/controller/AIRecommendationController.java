@@ -1,6 +1,8 @@
 package pe.com.prueba.plataformacontrolcomerciorecomendaciones.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,13 +12,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationRequest;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionBatchResponse;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionRequest;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.RecommendationRequest;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.RecommendationType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.service.BulkRecommendationService;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.service.IAIRecommendationService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -26,11 +34,18 @@ public class AIRecommendationController
 
     private final IAIRecommendationService aiRecommendationService;
 
+    private final BulkRecommendationService bulkRecommendationService;
+
+    @Value("${ai.recommendation.interactions.max-batch-size:5000}")
+    private int maxBatchSize;
+
     @Autowired
     public AIRecommendationController(
-            IAIRecommendationService aiRecommendationService)
+            IAIRecommendationService aiRecommendationService,
+            BulkRecommendationService bulkRecommendationService)
     {
         this.aiRecommendationService = aiRecommendationService;
+        this.bulkRecommendationService = bulkRecommendationService;
     }
 
     @GetMapping("/recommendations/{userId}")
@@ -48,12 +63,43 @@ public class AIRecommendationController
     public ResponseEntity<List<ProductRecommendation>> getCustomRecommendations(
             @RequestBody RecommendationRequest request)
     {
+        RecommendationType type;
+        try
+        {
+            type = RecommendationType.from(request.getRecommendationType());
+        } catch (IllegalArgumentException e)
+        {
+            return ResponseEntity.badRequest().build();
+        }
 
         List<ProductRecommendation> recommendations = aiRecommendationService.generateRecommendations(
-                request.getUserId(), request.getLimit());
+                request.getUserId(), request.getLimit(), type);
         return ResponseEntity.ok(recommendations);
     }
 
+    // NDJSON: una línea por usuario a medida que termina y una línea final de resumen
+    @PostMapping(value = "/recommendations/bulk", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getBulkRecommendations(
+            @RequestBody BulkRecommendationRequest request)
+    {
+        PrimitiveIterator.OfLong userIds;
+        int limit;
+        try
+        {
+            userIds = bulkRecommendationService.userIdsOf(request);
+            limit = bulkRecommendationService.limitOf(request);
+        } catch (IllegalArgumentException e)
+        {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> bulkRecommendationService.writeRecommendations(
+                userIds, limit, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @PostMapping("/interactions")
     public ResponseEntity<String> trackInteraction(
             @RequestBody InteractionRequest request)
@@ -62,6 +108,18 @@ public class AIRecommendationController
         return ResponseEntity.ok("Interaction tracked successfully");
     }
 
+    @PostMapping("/interactions/batch")
+    public ResponseEntity<InteractionBatchResponse> trackInteractions(
+            @RequestBody List<InteractionRequest> requests)
+    {
+        if (requests.size() > maxBatchSize)
+        {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(
+                aiRecommendationService.trackUserInteractions(requests));
+    }
+
     @GetMapping("/recommendations/popular")
     public ResponseEntity<List<ProductRecommendation>> getPopularRecommendations(
             @RequestParam(defaultValue = "10") int limit)
@@ -78,22 +136,22 @@ public class AIRecommendationController
         return ResponseEntity.ok("AI Recommendation Service is running");
     }
 
-    @GetMapping("/profile/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserProfile(@PathVariable Long userId) {
-        Map<String, Object> profile = aiRecommendationService.analyzeUserProfile(userId);
-
-        // Enriquecer con estadísticas adicionales
-        Long totalViews = aiRecommendationService.getTotalInteractionsByType(userId, "VIEW");
-        Long totalPurchases = aiRecommendationService.getTotalInteractionsByType(userId, "PURCHASE");
-        Long totalCartAdds = aiRecommendationService.getTotalInteractionsByType(userId, "ADD_TO_CART");
-        String favoriteCategory = aiRecommendationService.getMostFrequentCategory(userId);
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats()
+    {
+        return ResponseEntity.ok(aiRecommendationService.getCacheStatistics());
+    }
 
-        profile.put("totalViews", totalViews);
-        profile.put("totalPurchases", totalPurchases);
-        profile.put("totalCartAdds", totalCartAdds);
-        profile.put("favoriteCategory", favoriteCategory);
+    @GetMapping("/index/stats")
+    public ResponseEntity<Map<String, Object>> getIndexStats()
+    {
+        return ResponseEntity.ok(aiRecommendationService.getIndexStatistics());
+    }
 
-        return ResponseEntity.ok(profile);
+    @GetMapping("/profile/{userId}")
+    public ResponseEntity<Map<String, Object>> getUserProfile(@PathVariable Long userId) {
+        // Incluye totales por tipo y categoría favorita
+        return ResponseEntity.ok(aiRecommendationService.getUserProfile(userId));
     }
 
 }
\ No newline at end of file
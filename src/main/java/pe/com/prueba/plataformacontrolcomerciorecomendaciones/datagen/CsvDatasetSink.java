@@ -0,0 +1,145 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Un CSV por tabla más un load.sql con los LOAD DATA LOCAL INFILE para
+ * MySQL. Formato: separador coma, texto entre comillas dobles (duplicadas
+ * dentro del valor), NULL como \N, booleanos como 1/0 y fechas
+ * yyyy-MM-dd HH:mm:ss.
+ */
+@Slf4j
+public class CsvDatasetSink implements DatasetSink
+{
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path directory;
+
+    private final Map<DatagenTable, BufferedWriter> writers =
+            new EnumMap<>(DatagenTable.class);
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    public CsvDatasetSink(Path directory) throws IOException
+    {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public void write(DatagenTable table, Object... values) throws IOException
+    {
+        BufferedWriter writer = writers.get(table);
+        if (writer == null)
+        {
+            writer = Files.newBufferedWriter(fileOf(table),
+                    StandardCharsets.UTF_8);
+            writer.write(String.join(",", table.getColumns()));
+            writer.newLine();
+            writers.put(table, writer);
+        }
+
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0)
+            {
+                line.append(',');
+            }
+            appendValue(values[i]);
+        }
+        line.append('\n');
+        writer.append(line);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        IOException failure = null;
+        for (BufferedWriter writer : writers.values())
+        {
+            try
+            {
+                writer.close();
+            } catch (IOException e)
+            {
+                failure = e;
+            }
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        StringBuilder script = new StringBuilder();
+        for (DatagenTable table : writers.keySet())
+        {
+            script.append("LOAD DATA LOCAL INFILE '")
+                    .append(fileOf(table).toAbsolutePath().toString()
+                            .replace("\\", "/"))
+                    .append("'\n    INTO TABLE ").append(table.getTableName())
+                    .append("\n    CHARACTER SET utf8mb4")
+                    .append("\n    FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"'")
+                    .append("\n    LINES TERMINATED BY '\\n'")
+                    .append("\n    IGNORE 1 LINES")
+                    .append("\n    (").append(String.join(", ", table.getColumns()))
+                    .append(");\n\n");
+        }
+        Path loadScript = directory.resolve("load.sql");
+        Files.writeString(loadScript, script, StandardCharsets.UTF_8);
+        log.info("CSV escritos en {} (cargar con {})", directory, loadScript);
+    }
+
+    private Path fileOf(DatagenTable table)
+    {
+        return directory.resolve(table.getTableName() + ".csv");
+    }
+
+    private void appendValue(Object value)
+    {
+        if (value == null)
+        {
+            line.append("\\N");
+        } else if (value instanceof String text)
+        {
+            line.append('"');
+            for (int i = 0; i < text.length(); i++)
+            {
+                char c = text.charAt(i);
+                if (c == '"')
+                {
+                    line.append('"');
+                } else if (c == '\\')
+                {
+                    line.append('\\');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        } else if (value instanceof Boolean flag)
+        {
+            line.append(flag ? '1' : '0');
+        } else if (value instanceof Double number)
+        {
+            line.append(BigDecimal.valueOf(number).toPlainString());
+        } else if (value instanceof LocalDateTime time)
+        {
+            TIMESTAMP.formatTo(time, line);
+        } else
+        {
+            line.append(value);
+        }
+    }
+}
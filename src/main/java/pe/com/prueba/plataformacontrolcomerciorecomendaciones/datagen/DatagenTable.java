@@ -0,0 +1,82 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import java.util.List;
+
+/**
+ * Tablas que escribe el generador, en orden de dependencia. Las columnas son
+ * las que leen los índices y consultas de este servicio; el DDL solo se usa
+ * para levantar un esquema de prueba vacío (MySQL o H2), no reemplaza al de
+ * la plataforma.
+ */
+public enum DatagenTable
+{
+    USERS("users", List.of("id", "username", "email", "role", "verified",
+            "created_at"), """
+            id BIGINT PRIMARY KEY, username VARCHAR(64), email VARCHAR(128),
+            role VARCHAR(20), verified BOOLEAN, created_at TIMESTAMP"""),
+    CATEGORIES("categories", List.of("id", "name", "description"), """
+            id BIGINT PRIMARY KEY, name VARCHAR(100), description VARCHAR(255)"""),
+    PRODUCERS("producers", List.of("id", "business_name", "location",
+            "approved"), """
+            id BIGINT PRIMARY KEY, business_name VARCHAR(128),
+            location VARCHAR(100), approved BOOLEAN"""),
+    PRODUCT("product", List.of("id", "name", "description", "price",
+            "producer_id", "quantity"), """
+            id BIGINT PRIMARY KEY, name VARCHAR(128), description VARCHAR(255),
+            price DOUBLE, producer_id BIGINT, quantity INT"""),
+    PRODUCT_CATEGORIES("product_categories", List.of("id", "product_id",
+            "category_id"), """
+            id BIGINT PRIMARY KEY, product_id BIGINT, category_id BIGINT"""),
+    ORDERS("orders", List.of("id", "user_id", "total_amount", "created_at"), """
+            id BIGINT PRIMARY KEY, user_id BIGINT, total_amount DOUBLE,
+            created_at TIMESTAMP"""),
+    ORDER_ITEMS("order_items", List.of("id", "order_id", "product_id",
+            "quantity", "price"), """
+            id BIGINT PRIMARY KEY, order_id BIGINT, product_id BIGINT,
+            quantity INT, price DOUBLE"""),
+    CART_ITEMS("cart_items", List.of("id", "user_id", "product_id", "quantity",
+            "created_at"), """
+            id BIGINT PRIMARY KEY, user_id BIGINT, product_id BIGINT,
+            quantity INT, created_at TIMESTAMP"""),
+    USER_INTERACTIONS("user_interactions", List.of("id", "user_id",
+            "product_id", "action_type", "interaction_score", "session_id",
+            "created_at"), """
+            id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL,
+            product_id BIGINT NOT NULL, action_type VARCHAR(20) NOT NULL,
+            interaction_score DOUBLE NOT NULL, session_id VARCHAR(64),
+            created_at TIMESTAMP""");
+
+    private final String tableName;
+    private final List<String> columns;
+    private final String columnDefinitions;
+
+    DatagenTable(String tableName, List<String> columns,
+            String columnDefinitions)
+    {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.columnDefinitions = columnDefinitions;
+    }
+
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    public List<String> getColumns()
+    {
+        return columns;
+    }
+
+    public String createTableSql()
+    {
+        return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                + columnDefinitions.replace('\n', ' ') + ")";
+    }
+
+    public String insertSql()
+    {
+        return "INSERT INTO " + tableName + " (" + String.join(", ", columns)
+                + ") VALUES (" + "?, ".repeat(columns.size() - 1) + "?)";
+    }
+}
@@ -0,0 +1,16 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import java.io.IOException;
+
+/**
+ * Destino de las filas generadas. Los valores llegan en el orden de
+ * DatagenTable.getColumns(); las fechas como LocalDateTime.
+ */
+public interface DatasetSink extends AutoCloseable
+{
+    void write(DatagenTable table, Object... values) throws IOException;
+
+    // Vacía lo pendiente y libera recursos
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,94 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserta por JDBC en lotes de batchSize filas por tabla. Con MySQL conviene
+ * rewriteBatchedStatements=true en la URL (ya está en application.yml) para
+ * que cada lote viaje como un solo INSERT multi-fila. Antes de enviar el lote
+ * de una tabla se vacían las tablas anteriores en DatagenTable, así ninguna
+ * fila hija llega antes que su padre aunque haya claves foráneas.
+ */
+@Slf4j
+public class JdbcDatasetSink implements DatasetSink
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    private final Map<DatagenTable, List<Object[]>> pending =
+            new EnumMap<>(DatagenTable.class);
+
+    public JdbcDatasetSink(JdbcTemplate jdbcTemplate, int batchSize,
+            boolean createSchema)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        if (createSchema)
+        {
+            for (DatagenTable table : DatagenTable.values())
+            {
+                jdbcTemplate.execute(table.createTableSql());
+            }
+            log.info("Esquema de prueba verificado ({} tablas)",
+                    DatagenTable.values().length);
+        }
+    }
+
+    @Override
+    public void write(DatagenTable table, Object... values)
+    {
+        Object[] row = new Object[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            row[i] = values[i] instanceof LocalDateTime time ?
+                    Timestamp.valueOf(time) :
+                    values[i];
+        }
+        List<Object[]> rows = pending.computeIfAbsent(table,
+                k -> new ArrayList<>(batchSize));
+        rows.add(row);
+        if (rows.size() >= batchSize)
+        {
+            flushThrough(table);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        // En orden del enum: padres antes que hijos
+        pending.forEach(this::flush);
+        pending.clear();
+    }
+
+    // EnumMap itera en orden del enum: padres antes que hijos
+    private void flushThrough(DatagenTable table)
+    {
+        for (Map.Entry<DatagenTable, List<Object[]>> entry : pending.entrySet())
+        {
+            if (entry.getKey().ordinal() > table.ordinal())
+            {
+                break;
+            }
+            flush(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void flush(DatagenTable table, List<Object[]> rows)
+    {
+        if (!rows.isEmpty())
+        {
+            jdbcTemplate.batchUpdate(table.insertSql(), rows);
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de datos de comercio sintéticos para pruebas de escala. Se activa
+ * con el perfil "datagen", escribe todas las tablas que lee el servicio y
+ * termina la aplicación al acabar (exit-on-complete).
+ *
+ * Modelo: la popularidad de productos y la actividad de usuarios siguen Zipf;
+ * cada usuario tiene una categoría preferida de la que elige con probabilidad
+ * category-affinity. La actividad se genera por sesiones: vistas, algunas
+ * pasan al carrito y el carrito termina en orden (con sus PURCHASE) o queda
+ * en cart_items. Las fechas se reparten en time-span-days hacia atrás desde
+ * end-date, más densas cerca del final según recency-skew.
+ *
+ * Con la misma semilla, end-date y parámetros la salida es idéntica: cada
+ * fase usa su propio generador derivado de la semilla.
+ */
+@Component
+@Profile("datagen")
+@Slf4j
+public class SyntheticDataGenerator implements ApplicationRunner
+{
+    private static final String[] CATEGORY_NAMES = {
+            "Frutas", "Verduras", "Lácteos", "Carnes", "Panadería", "Bebidas",
+            "Café", "Cacao", "Granos andinos", "Miel", "Hierbas", "Conservas",
+            "Artesanía", "Textiles", "Cerámica", "Cosmética natural",
+            "Especias", "Frutos secos", "Snacks", "Orgánicos"};
+
+    // Semillas por fase, para que cambiar una fase no altere las demás
+    private static final long CATALOG_PHASE = 1;
+    private static final long USER_PHASE = 2;
+    private static final long ACTIVITY_PHASE = 3;
+
+    private static final double OUT_OF_STOCK_RATE = 0.05;
+    private static final double SECOND_CATEGORY_RATE = 0.2;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConfigurableApplicationContext context;
+
+    @Value("${ai.datagen.seed:42}")
+    private long seed;
+
+    @Value("${ai.datagen.scale:1.0}")
+    private double scale;
+
+    @Value("${ai.datagen.users:10000}")
+    private long baseUsers;
+
+    @Value("${ai.datagen.producers:200}")
+    private int baseProducers;
+
+    @Value("${ai.datagen.products:5000}")
+    private int baseProducts;
+
+    @Value("${ai.datagen.categories:20}")
+    private int categoryCount;
+
+    @Value("${ai.datagen.sessions-per-user:8}")
+    private double sessionsPerUser;
+
+    @Value("${ai.datagen.views-per-session:5}")
+    private double viewsPerSession;
+
+    @Value("${ai.datagen.cart-rate:0.15}")
+    private double cartRate;
+
+    @Value("${ai.datagen.purchase-rate:0.35}")
+    private double purchaseRate;
+
+    @Value("${ai.datagen.favorite-rate:0.05}")
+    private double favoriteRate;
+
+    @Value("${ai.datagen.product-zipf-exponent:1.1}")
+    private double productZipfExponent;
+
+    @Value("${ai.datagen.user-zipf-exponent:0.8}")
+    private double userZipfExponent;
+
+    @Value("${ai.datagen.category-affinity:0.6}")
+    private double categoryAffinity;
+
+    @Value("${ai.datagen.producer-rate:0.05}")
+    private double producerRoleRate;
+
+    @Value("${ai.datagen.locations:Lima:0.45,Arequipa:0.12,Cusco:0.1,Trujillo:0.1,Piura:0.08,Chiclayo:0.08,Huancayo:0.07}")
+    private String locations;
+
+    @Value("${ai.datagen.time-span-days:365}")
+    private int timeSpanDays;
+
+    @Value("${ai.datagen.recency-skew:1.5}")
+    private double recencySkew;
+
+    // Vacío = hoy; fijarla para obtener la misma salida en días distintos
+    @Value("${ai.datagen.end-date:}")
+    private String endDate;
+
+    // jdbc o csv
+    @Value("${ai.datagen.sink:csv}")
+    private String sinkType;
+
+    @Value("${ai.datagen.output-dir:./data/datagen}")
+    private String outputDir;
+
+    @Value("${ai.datagen.batch-size:5000}")
+    private int batchSize;
+
+    // Solo para un esquema de prueba vacío; nunca contra la base de la plataforma
+    @Value("${ai.datagen.create-schema:false}")
+    private boolean createSchema;
+
+    @Value("${ai.datagen.exit-on-complete:true}")
+    private boolean exitOnComplete;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate,
+            ConfigurableApplicationContext context)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException
+    {
+        long start = System.nanoTime();
+        Map<DatagenTable, Long> counts;
+        try (DatasetSink sink = openSink())
+        {
+            counts = generate(sink);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long rows = counts.values().stream().mapToLong(Long::longValue).sum();
+        log.info("Datos sintéticos generados en {} s ({} filas/s): {}",
+                String.format("%.1f", seconds),
+                String.format("%.0f", rows / Math.max(seconds, 1e-9)), counts);
+
+        if (exitOnComplete)
+        {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private DatasetSink openSink() throws IOException
+    {
+        return switch (sinkType.toLowerCase())
+        {
+            case "jdbc" -> new JdbcDatasetSink(jdbcTemplate, batchSize,
+                    createSchema);
+            case "csv" -> new CsvDatasetSink(Paths.get(outputDir));
+            default -> throw new IllegalArgumentException(
+                    "ai.datagen.sink debe ser jdbc o csv: " + sinkType);
+        };
+    }
+
+    Map<DatagenTable, Long> generate(DatasetSink sink) throws IOException
+    {
+        Counter counter = new Counter(sink);
+        LocalDateTime end = (endDate == null || endDate.isBlank() ?
+                LocalDate.now() :
+                LocalDate.parse(endDate)).atStartOfDay();
+
+        long users = Math.max(1, Math.round(baseUsers * scale));
+        int producers = Math.max(1, (int) Math.round(baseProducers * scale));
+        int products = Math.max(1, (int) Math.round(baseProducts * scale));
+        int categories = Math.max(1, categoryCount);
+        log.info("Generando datos sintéticos: semilla={}, fin={}, usuarios={}, productores={}, productos={}, categorías={}, destino={}",
+                seed, end.toLocalDate(), users, producers, products,
+                categories, sinkType);
+
+        Catalog catalog = writeCatalog(counter, producers, products,
+                categories);
+        writeUsers(counter, users, end);
+        writeActivity(counter, catalog, users, end);
+        return counter.counts;
+    }
+
+    private Catalog writeCatalog(Counter out, int producers, int products,
+            int categories) throws IOException
+    {
+        SplittableRandom random = new SplittableRandom(seed * 31 + CATALOG_PHASE);
+
+        for (int c = 1; c <= categories; c++)
+        {
+            String name = CATEGORY_NAMES[(c - 1) % CATEGORY_NAMES.length];
+            if (c > CATEGORY_NAMES.length)
+            {
+                name += " " + ((c - 1) / CATEGORY_NAMES.length + 1);
+            }
+            out.write(DatagenTable.CATEGORIES, (long) c, name,
+                    "Categoría " + name);
+        }
+
+        String[] locationNames = parseLocations();
+        double[] locationCdf = locationCdf(locationNames.length);
+        for (int p = 1; p <= producers; p++)
+        {
+            String location = locationNames[pick(locationCdf, random.nextDouble())];
+            out.write(DatagenTable.PRODUCERS, (long) p, "Productor " + p,
+                    location, random.nextDouble() < 0.9);
+        }
+
+        Catalog catalog = new Catalog(products, categories);
+        int[] categoryOf = new int[products];
+        long productCategoryId = 0;
+        for (int i = 0; i < products; i++)
+        {
+            long id = i + 1;
+            // Precio log-normal: mediana ~33, cola larga hasta 5000
+            double price = Math.round(Math.min(5000.0, Math.max(1.0,
+                    Math.exp(3.5 + random.nextGaussian()))) * 100) / 100.0;
+            int quantity = random.nextDouble() < OUT_OF_STOCK_RATE ?
+                    0 :
+                    1 + random.nextInt(200);
+            out.write(DatagenTable.PRODUCT, id, "Producto " + id,
+                    "Producto sintético " + id, price,
+                    1L + random.nextInt(producers), quantity);
+            catalog.prices[i] = price;
+
+            categoryOf[i] = random.nextInt(categories);
+            out.write(DatagenTable.PRODUCT_CATEGORIES, ++productCategoryId, id,
+                    (long) categoryOf[i] + 1);
+            if (categories > 1 && random.nextDouble() < SECOND_CATEGORY_RATE)
+            {
+                int second = (categoryOf[i] + 1 + random.nextInt(categories - 1))
+                        % categories;
+                out.write(DatagenTable.PRODUCT_CATEGORIES, ++productCategoryId,
+                        id, (long) second + 1);
+            }
+        }
+        catalog.indexByCategory(categoryOf);
+        return catalog;
+    }
+
+    private void writeUsers(Counter out, long users, LocalDateTime end)
+            throws IOException
+    {
+        SplittableRandom random = new SplittableRandom(seed * 31 + USER_PHASE);
+        for (long id = 1; id <= users; id++)
+        {
+            out.write(DatagenTable.USERS, id, "user" + id,
+                    "user" + id + "@example.com",
+                    random.nextDouble() < producerRoleRate ? "PRODUCER" : "CUSTOMER",
+                    random.nextDouble() < 0.95, sampleTime(random, end));
+        }
+    }
+
+    private void writeActivity(Counter out, Catalog catalog, long users,
+            LocalDateTime end) throws IOException
+    {
+        SplittableRandom random = new SplittableRandom(seed * 31 + ACTIVITY_PHASE);
+        ZipfSampler userSampler = new ZipfSampler(users, userZipfExponent);
+        ZipfSampler productSampler = new ZipfSampler(catalog.size(),
+                productZipfExponent);
+        RankScrambler userRanks = new RankScrambler(users);
+        RankScrambler productRanks = new RankScrambler(catalog.size());
+
+        long sessions = Math.round(users * sessionsPerUser);
+        long progressStep = Math.max(1, sessions / 10);
+        long interactionId = 0;
+        long orderId = 0;
+        long orderItemId = 0;
+        long cartItemId = 0;
+        List<long[]> cart = new ArrayList<>();
+
+        for (long session = 0; session < sessions; session++)
+        {
+            // El rango Zipf se mezcla para que los activos no sean los ids bajos
+            long userId = userRanks.map(userSampler.sample(random));
+            int preferred = (int) Long.remainderUnsigned(
+                    mix(seed ^ userId), catalog.categories);
+            String sessionId = "s" + Long.toString(session, 36);
+            LocalDateTime time = sampleTime(random, end);
+            cart.clear();
+
+            int views = geometric(random, viewsPerSession);
+            for (int v = 0; v < views; v++)
+            {
+                long productId = random.nextDouble() < categoryAffinity ?
+                        catalog.sampleInCategory(preferred, random, productZipfExponent) :
+                        productRanks.map(productSampler.sample(random));
+                if (productId < 0)
+                {
+                    productId = productRanks.map(productSampler.sample(random));
+                }
+                time = time.plusSeconds(5 + random.nextInt(120));
+
+                out.write(DatagenTable.USER_INTERACTIONS, ++interactionId,
+                        userId, productId, InteractionType.VIEW.name(),
+                        InteractionType.VIEW.getDefaultScore(), sessionId, time);
+                if (random.nextDouble() < favoriteRate)
+                {
+                    out.write(DatagenTable.USER_INTERACTIONS, ++interactionId,
+                            userId, productId, InteractionType.FAVORITE.name(),
+                            InteractionType.FAVORITE.getDefaultScore(),
+                            sessionId, time);
+                }
+                if (random.nextDouble() < cartRate)
+                {
+                    out.write(DatagenTable.USER_INTERACTIONS, ++interactionId,
+                            userId, productId, InteractionType.ADD_TO_CART.name(),
+                            InteractionType.ADD_TO_CART.getDefaultScore(),
+                            sessionId, time);
+                    cart.add(new long[]{productId, 1 + random.nextInt(3)});
+                }
+            }
+
+            if (cart.isEmpty())
+            {
+                continue;
+            }
+            time = time.plusSeconds(30 + random.nextInt(300));
+            if (random.nextDouble() < purchaseRate)
+            {
+                double total = 0;
+                for (long[] item : cart)
+                {
+                    total += catalog.priceOf(item[0]) * item[1];
+                }
+                out.write(DatagenTable.ORDERS, ++orderId, userId,
+                        Math.round(total * 100) / 100.0, time);
+                for (long[] item : cart)
+                {
+                    out.write(DatagenTable.ORDER_ITEMS, ++orderItemId, orderId,
+                            item[0], (int) item[1], catalog.priceOf(item[0]));
+                    out.write(DatagenTable.USER_INTERACTIONS, ++interactionId,
+                            userId, item[0], InteractionType.PURCHASE.name(),
+                            InteractionType.PURCHASE.getDefaultScore(),
+                            sessionId, time);
+                }
+            } else
+            {
+                for (long[] item : cart)
+                {
+                    out.write(DatagenTable.CART_ITEMS, ++cartItemId, userId,
+                            item[0], (int) item[1], time);
+                }
+            }
+
+            if ((session + 1) % progressStep == 0)
+            {
+                log.info("Sesiones generadas: {}/{} ({} interacciones)",
+                        session + 1, sessions, interactionId);
+            }
+        }
+    }
+
+    private String[] parseLocations()
+    {
+        String[] entries = locations.split(",");
+        String[] names = new String[entries.length];
+        for (int i = 0; i < entries.length; i++)
+        {
+            names[i] = entries[i].split(":")[0].trim();
+        }
+        return names;
+    }
+
+    private double[] locationCdf(int size)
+    {
+        String[] entries = locations.split(",");
+        double[] cdf = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++)
+        {
+            String[] parts = entries[i].split(":");
+            sum += parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0;
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int pick(double[] cdf, double u)
+    {
+        for (int i = 0; i < cdf.length - 1; i++)
+        {
+            if (u < cdf[i])
+            {
+                return i;
+            }
+        }
+        return cdf.length - 1;
+    }
+
+    private LocalDateTime sampleTime(SplittableRandom random, LocalDateTime end)
+    {
+        // u^skew con skew > 1 concentra las fechas cerca de end
+        double age = Math.pow(random.nextDouble(), recencySkew);
+        return end.minusSeconds((long) (age * timeSpanDays * 86_400L));
+    }
+
+    // Geométrica >= 1 con media mean
+    private static int geometric(SplittableRandom random, double mean)
+    {
+        if (mean <= 1.0)
+        {
+            return 1;
+        }
+        double p = 1.0 / mean;
+        return 1 + (int) (Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - p));
+    }
+
+    // Finalizador de SplitMix64: hash estable para la categoría preferida
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Biyección rango -> id (1..n) por multiplicación modular, sin guardar una
+     * permutación de n elementos.
+     */
+    private static final class RankScrambler
+    {
+        private final long n;
+        private final long multiplier;
+        private final long offset;
+
+        RankScrambler(long n)
+        {
+            this.n = n;
+            this.offset = Long.remainderUnsigned(mix(n), n);
+            long candidate = n > 1 ? 2_654_435_761L % n : 1;
+            while (candidate < 1 || gcd(candidate, n) != 1)
+            {
+                candidate++;
+            }
+            this.multiplier = candidate;
+        }
+
+        long map(long rank)
+        {
+            // rank - 1 < n y multiplier < n; con n hasta ~3e9 no desborda
+            return ((rank - 1) * multiplier + offset) % n + 1;
+        }
+
+        private static long gcd(long a, long b)
+        {
+            while (b != 0)
+            {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+
+    /**
+     * Precios e índice categoría -> productos (CSR) para muestrear dentro de
+     * la categoría preferida con la misma forma Zipf.
+     */
+    private static final class Catalog
+    {
+        private final double[] prices;
+        private final int categories;
+        private int[] categoryStart;
+        private int[] categoryProducts;
+        private ZipfSampler[] samplers;
+
+        Catalog(int products, int categories)
+        {
+            this.prices = new double[products];
+            this.categories = categories;
+        }
+
+        int size()
+        {
+            return prices.length;
+        }
+
+        double priceOf(long productId)
+        {
+            return prices[(int) productId - 1];
+        }
+
+        void indexByCategory(int[] categoryOf)
+        {
+            categoryStart = new int[categories + 1];
+            for (int category : categoryOf)
+            {
+                categoryStart[category + 1]++;
+            }
+            for (int c = 0; c < categories; c++)
+            {
+                categoryStart[c + 1] += categoryStart[c];
+            }
+            categoryProducts = new int[categoryOf.length];
+            int[] next = categoryStart.clone();
+            for (int i = 0; i < categoryOf.length; i++)
+            {
+                categoryProducts[next[categoryOf[i]]++] = i + 1;
+            }
+            samplers = new ZipfSampler[categories];
+        }
+
+        // -1 si la categoría no tiene productos
+        long sampleInCategory(int category, SplittableRandom random,
+                double exponent)
+        {
+            int size = categoryStart[category + 1] - categoryStart[category];
+            if (size == 0)
+            {
+                return -1;
+            }
+            if (samplers[category] == null)
+            {
+                samplers[category] = new ZipfSampler(size, exponent);
+            }
+            int offset = (int) samplers[category].sample(random) - 1;
+            return categoryProducts[categoryStart[category] + offset];
+        }
+    }
+
+    // Cuenta filas por tabla para el resumen final
+    private static final class Counter
+    {
+        private final DatasetSink sink;
+        private final Map<DatagenTable, Long> counts =
+                new EnumMap<>(DatagenTable.class);
+
+        Counter(DatasetSink sink)
+        {
+            this.sink = sink;
+        }
+
+        void write(DatagenTable table, Object... values) throws IOException
+        {
+            sink.write(table, values);
+            counts.merge(table, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Muestreo Zipf de rangos 1..n por rechazo-inversión (Hörmann y Derflinger):
+ * memoria constante y O(1) esperado por muestra, así sirve igual para diez
+ * mil productos que para diez millones de usuarios. Con exponente 0 la
+ * distribución es uniforme.
+ */
+public final class ZipfSampler
+{
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfSampler(long n, double exponent)
+    {
+        if (n < 1 || exponent < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Zipf requiere n >= 1 y exponente >= 0: n=" + n
+                            + ", exponente=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    public long sample(SplittableRandom random)
+    {
+        while (true)
+        {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1)
+            {
+                k = 1;
+            } else if (k > n)
+            {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k))
+            {
+                return k;
+            }
+        }
+    }
+
+    public long size()
+    {
+        return n;
+    }
+
+    private double h(double x)
+    {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x)
+    {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x)
+    {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0)
+        {
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log1p(x)/x, estable cerca de 0
+    private static double helper1(double x)
+    {
+        if (Math.abs(x) > 1e-8)
+        {
+            return Math.log1p(x) / x;
+        }
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // expm1(x)/x, estable cerca de 0
+    private static double helper2(double x)
+    {
+        if (Math.abs(x) > 1e-8)
+        {
+            return Math.expm1(x) / x;
+        }
+        return 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}
@@ -0,0 +1,56 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto;
+
+import java.util.List;
+
+public class BulkRecommendationRequest
+{
+    // Lista explícita de usuarios o rango [fromUserId, toUserId]
+    private List<Long> userIds;
+    private Long fromUserId;
+    private Long toUserId;
+    private Integer limit = 10;
+
+    public BulkRecommendationRequest()
+    {
+    }
+
+    public List<Long> getUserIds()
+    {
+        return userIds;
+    }
+
+    public void setUserIds(List<Long> userIds)
+    {
+        this.userIds = userIds;
+    }
+
+    public Long getFromUserId()
+    {
+        return fromUserId;
+    }
+
+    public void setFromUserId(Long fromUserId)
+    {
+        this.fromUserId = fromUserId;
+    }
+
+    public Long getToUserId()
+    {
+        return toUserId;
+    }
+
+    public void setToUserId(Long toUserId)
+    {
+        this.toUserId = toUserId;
+    }
+
+    public Integer getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit(Integer limit)
+    {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,20 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Una línea NDJSON del endpoint bulk: recomendaciones o error de un usuario
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRecommendationResult
+{
+    private Long userId;
+    private List<ProductRecommendation> recommendations;
+    private String error;
+}
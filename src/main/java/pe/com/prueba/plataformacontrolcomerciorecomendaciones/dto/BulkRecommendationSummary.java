@@ -0,0 +1,17 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Última línea del stream bulk
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRecommendationSummary
+{
+    private long users;
+    private long failed;
+    private long elapsedMs;
+    private double usersPerSecond;
+}
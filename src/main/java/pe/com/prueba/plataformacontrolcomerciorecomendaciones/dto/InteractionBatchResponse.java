@@ -0,0 +1,20 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InteractionBatchResponse
+{
+    private int accepted;
+    private int rejected;
+    private int failed;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    private List<InteractionBatchResult> results;
+}
@@ -4,7 +4,7 @@ public class RecommendationRequest
 {
     private Long userId;
     private Integer limit = 10;
-    private String recommendationType = "HYBRID"; // COLLABORATIVE, CONTENT_BASED, HYBRID
+    private String recommendationType = "HYBRID"; // ver RecommendationType
 
     // Constructors, getters, setters
     public RecommendationRequest()
@@ -0,0 +1,40 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto;
+
+import java.util.Locale;
+
+/**
+ * Motor pedido en POST /api/ai/recommendations. Cada tipo usa su propio campo
+ * en el cache del usuario.
+ */
+public enum RecommendationType
+{
+    // Las tres fuentes combinadas, con fallback a populares
+    HYBRID,
+    COLLABORATIVE,
+    CONTENT_BASED,
+    LOCAL_PRODUCER,
+    // Red neuronal + segmentos de MLRecommendationService
+    ML,
+    // No depende del usuario
+    POPULAR;
+
+    /**
+     * Sin tipo se usa HYBRID; un tipo desconocido lanza
+     * IllegalArgumentException.
+     */
+    public static RecommendationType from(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return HYBRID;
+        }
+        try
+        {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException(
+                    "Tipo de recomendación desconocido: " + value);
+        }
+    }
+}
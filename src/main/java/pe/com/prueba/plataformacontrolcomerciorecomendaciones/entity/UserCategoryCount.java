@@ -0,0 +1,73 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Interacciones de un usuario con productos de una categoría. Una fila por
+ * par, así UserProfileStore la actualiza sumando deltas en la base.
+ */
+@Entity
+@IdClass(UserCategoryCount.Key.class)
+@Table(name = "user_category_counts")
+public class UserCategoryCount
+{
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "interactions", nullable = false)
+    private long interactions;
+
+    public UserCategoryCount()
+    {
+    }
+
+    public Long getUserId()
+    {
+        return userId;
+    }
+
+    public Long getCategoryId()
+    {
+        return categoryId;
+    }
+
+    public long getInteractions()
+    {
+        return interactions;
+    }
+
+    public static class Key implements Serializable
+    {
+        private Long userId;
+        private Long categoryId;
+
+        public Key()
+        {
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key key && Objects.equals(userId, key.userId)
+                    && Objects.equals(categoryId, key.categoryId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(userId, categoryId);
+        }
+    }
+}
@@ -7,13 +7,15 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_interactions")
+@Table(name = "user_interactions", indexes = @Index(
+        name = "idx_user_interactions_user_created", columnList = "user_id, created_at"))
 public class UserInteraction
 {
     @Id
@@ -0,0 +1,139 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resumen del historial de un usuario, mantenido incrementalmente con cada
+ * interacción. Los conteos por categoría están en user_category_counts.
+ */
+@Entity
+@Table(name = "user_profile_aggregates")
+public class UserProfileAggregate
+{
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "view_count", nullable = false)
+    private long viewCount;
+
+    @Column(name = "cart_count", nullable = false)
+    private long cartCount;
+
+    @Column(name = "purchase_count", nullable = false)
+    private long purchaseCount;
+
+    @Column(name = "favorite_count", nullable = false)
+    private long favoriteCount;
+
+    @Column(name = "last_activity")
+    private LocalDateTime lastActivity;
+
+    @Column(name = "spend_sum", nullable = false)
+    private double spendSum;
+
+    @Column(name = "spend_count", nullable = false)
+    private long spendCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public UserProfileAggregate()
+    {
+    }
+
+    public Long getUserId()
+    {
+        return userId;
+    }
+
+    public void setUserId(Long userId)
+    {
+        this.userId = userId;
+    }
+
+    public long getViewCount()
+    {
+        return viewCount;
+    }
+
+    public void setViewCount(long viewCount)
+    {
+        this.viewCount = viewCount;
+    }
+
+    public long getCartCount()
+    {
+        return cartCount;
+    }
+
+    public void setCartCount(long cartCount)
+    {
+        this.cartCount = cartCount;
+    }
+
+    public long getPurchaseCount()
+    {
+        return purchaseCount;
+    }
+
+    public void setPurchaseCount(long purchaseCount)
+    {
+        this.purchaseCount = purchaseCount;
+    }
+
+    public long getFavoriteCount()
+    {
+        return favoriteCount;
+    }
+
+    public void setFavoriteCount(long favoriteCount)
+    {
+        this.favoriteCount = favoriteCount;
+    }
+
+    public LocalDateTime getLastActivity()
+    {
+        return lastActivity;
+    }
+
+    public void setLastActivity(LocalDateTime lastActivity)
+    {
+        this.lastActivity = lastActivity;
+    }
+
+    public double getSpendSum()
+    {
+        return spendSum;
+    }
+
+    public void setSpendSum(double spendSum)
+    {
+        this.spendSum = spendSum;
+    }
+
+    public long getSpendCount()
+    {
+        return spendCount;
+    }
+
+    public void setSpendCount(long spendCount)
+    {
+        this.spendCount = spendCount;
+    }
+
+    public LocalDateTime getUpdatedAt()
+    {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt)
+    {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,20 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.event;
+
+/**
+ * Publicado cuando el catálogo en memoria se recarga, para que los índices que
+ * filtran por stock o por productor aprobado se reconstruyan.
+ */
+public class CatalogRefreshedEvent
+{
+    private final int productCount;
+
+    public CatalogRefreshedEvent(int productCount)
+    {
+        this.productCount = productCount;
+    }
+
+    public int getProductCount()
+    {
+        return productCount;
+    }
+}
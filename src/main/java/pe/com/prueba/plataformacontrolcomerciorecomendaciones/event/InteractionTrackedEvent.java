@@ -0,0 +1,29 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.event;
+
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+
+import java.util.List;
+
+/**
+ * Publicado cada vez que se registran interacciones, para que los índices en
+ * memoria se actualicen sin volver a consultar la base de datos.
+ */
+public class InteractionTrackedEvent
+{
+    private final List<UserInteraction> interactions;
+
+    public InteractionTrackedEvent(List<UserInteraction> interactions)
+    {
+        this.interactions = interactions;
+    }
+
+    public InteractionTrackedEvent(UserInteraction interaction)
+    {
+        this(List.of(interaction));
+    }
+
+    public List<UserInteraction> getInteractions()
+    {
+        return interactions;
+    }
+}
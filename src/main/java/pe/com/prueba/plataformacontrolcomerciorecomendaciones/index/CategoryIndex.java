@@ -0,0 +1,360 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.CatalogRefreshedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Índice invertido categoría -> productos disponibles (con stock y de
+ * productores aprobados) más un vector de afinidad por categoría para cada
+ * usuario. Reemplaza el self-join sobre product_categories de
+ * findContentBasedRecommendations por una mezcla ponderada de posting lists.
+ * Cada afinidad cacheada guarda cuántas interacciones tenía el usuario en
+ * InteractionMatrix (más las que se le sumaron por evento) y solo se
+ * recalcula cuando la matriz cuenta otras para ese usuario; el cache es un
+ * LRU acotado.
+ */
+@Component
+@Slf4j
+public class CategoryIndex
+{
+    private static final String REASON = "Basado en tus categorías favoritas";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ProductCatalog productCatalog;
+
+    private final InteractionMatrix interactionMatrix;
+
+    private final RecommendationMetrics metrics;
+
+    @Value("${ai.recommendation.category-index.max-cached-affinities:10000}")
+    private int maxCachedAffinities;
+
+    private volatile Postings postings;
+
+    private final Map<Long, Affinity> affinities = LruMap.create(
+            () -> maxCachedAffinities);
+
+    private volatile long lastRefreshMillis;
+
+    public CategoryIndex(JdbcTemplate jdbcTemplate,
+            ProductCatalog productCatalog, InteractionMatrix interactionMatrix,
+            RecommendationMetrics metrics)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productCatalog = productCatalog;
+        this.interactionMatrix = interactionMatrix;
+        this.metrics = metrics;
+    }
+
+    @EventListener(CatalogRefreshedEvent.class)
+    public void rebuild()
+    {
+        String sql = "SELECT product_id, category_id FROM product_categories";
+
+        try
+        {
+            long start = System.currentTimeMillis();
+            Map<Long, List<Long>> productCategoryLists = new HashMap<>();
+            Map<Long, List<Long>> postingLists = new HashMap<>();
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> jdbcTemplate.query(sql, rs -> {
+                        long productId = rs.getLong("product_id");
+                        long categoryId = rs.getLong("category_id");
+                        productCategoryLists.computeIfAbsent(productId,
+                                k -> new ArrayList<>(2)).add(categoryId);
+                        if (productCatalog.isAvailable(productId))
+                        {
+                            postingLists.computeIfAbsent(categoryId,
+                                    k -> new ArrayList<>()).add(productId);
+                        }
+                    }), "query", "product-categories");
+
+            Map<Long, long[]> productCategories = new HashMap<>();
+            productCategoryLists.forEach((productId, categories) -> productCategories.put(
+                    productId, toSortedArray(categories)));
+            Map<Long, long[]> categoryPostings = new HashMap<>();
+            postingLists.forEach((categoryId, products) -> categoryPostings.put(
+                    categoryId, toSortedArray(products)));
+
+            Map<Long, String> categoryNames = new HashMap<>();
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> jdbcTemplate.query("SELECT id, name FROM categories",
+                            rs -> {
+                                categoryNames.put(rs.getLong("id"),
+                                        rs.getString("name"));
+                            }), "query", "categories");
+
+            postings = new Postings(productCategories, categoryPostings,
+                    categoryNames);
+            affinities.clear();
+            lastRefreshMillis = System.currentTimeMillis() - start;
+
+            log.debug("Índice de categorías: {} categorías, {} entradas, {} KB en {} ms",
+                    categoryPostings.size(), postings.postingEntries(),
+                    postings.memoryBytes() / 1024, lastRefreshMillis);
+        } catch (Exception e)
+        {
+            log.warn("No se pudo construir el índice de categorías: {}",
+                    e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        Postings current = postings;
+        if (current == null)
+        {
+            return;
+        }
+
+        for (UserInteraction interaction : event.getInteractions())
+        {
+            long[] categories = current.productCategories.get(
+                    interaction.getProductId());
+            affinities.computeIfPresent(interaction.getUserId(),
+                    (userId, affinity) -> affinity.plus(
+                            interaction.getProductId(),
+                            interaction.getInteractionScore(), categories));
+        }
+    }
+
+    public boolean isReady()
+    {
+        return postings != null && interactionMatrix.isReady();
+    }
+
+    // Categorías del producto (vacío si no tiene o el índice no está listo)
+    public long[] categoriesOf(long productId)
+    {
+        Postings current = postings;
+        long[] categories = current != null ?
+                current.productCategories.get(productId) :
+                null;
+        return categories != null ? categories : new long[0];
+    }
+
+    public String categoryName(long categoryId)
+    {
+        Postings current = postings;
+        return current != null ? current.categoryNames.get(categoryId) : null;
+    }
+
+    public List<ProductRecommendation> recommend(Long userId, int limit)
+    {
+        Postings current = postings;
+        if (current == null)
+        {
+            return Collections.emptyList();
+        }
+
+        Affinity affinity = affinities.get(userId);
+        if (affinity == null
+                || affinity.userEvents != interactionMatrix.eventCount(userId))
+        {
+            affinity = computeAffinity(userId, current);
+            affinities.put(userId, affinity);
+        }
+
+        // Mezcla ponderada: cada producto suma la afinidad de sus categorías
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < affinity.categoryIds.length; i++)
+        {
+            long[] products = current.categoryPostings.get(
+                    affinity.categoryIds[i]);
+            if (products == null)
+            {
+                continue;
+            }
+            double weight = affinity.weights[i];
+            for (long productId : products)
+            {
+                if (!affinity.hasTouched(productId))
+                {
+                    scores.merge(productId, weight, Double::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(
+                limit + 1, Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey()
+                        .reversed()));
+        for (Map.Entry<Long, Double> entry : scores.entrySet())
+        {
+            heap.offer(entry);
+            if (heap.size() > limit)
+            {
+                heap.poll();
+            }
+        }
+
+        List<ProductRecommendation> recommendations = new ArrayList<>(heap.size());
+        while (!heap.isEmpty())
+        {
+            Map.Entry<Long, Double> entry = heap.poll();
+            ProductRecommendation rec = productCatalog.toRecommendation(
+                    entry.getKey(), entry.getValue(), REASON);
+            if (rec != null)
+            {
+                recommendations.add(rec);
+            }
+        }
+        Collections.reverse(recommendations);
+        return recommendations;
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Postings current = postings;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", current != null);
+        stats.put("cachedAffinities", affinities.size());
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        if (current != null)
+        {
+            stats.put("categories", current.categoryPostings.size());
+            stats.put("postingEntries", current.postingEntries());
+            stats.put("memoryBytes", current.memoryBytes());
+        }
+        return stats;
+    }
+
+    private Affinity computeAffinity(long userId, Postings current)
+    {
+        // El conteo sale de la misma fila: no puede desfasarse de los scores
+        InteractionMatrix.UserRow row = interactionMatrix.row(userId);
+        Map<Long, Double> weights = new HashMap<>();
+        for (int i = 0; i < row.size(); i++)
+        {
+            long[] categories = current.productCategories.get(
+                    row.productIds()[i]);
+            if (categories != null)
+            {
+                for (long categoryId : categories)
+                {
+                    weights.merge(categoryId, (double) row.scores()[i],
+                            Double::sum);
+                }
+            }
+        }
+        return Affinity.of(weights, row.productIds(), row.events());
+    }
+
+    private static long[] toSortedArray(List<Long> values)
+    {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = values.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    private record Postings(Map<Long, long[]> productCategories,
+                            Map<Long, long[]> categoryPostings,
+                            Map<Long, String> categoryNames)
+    {
+        long postingEntries()
+        {
+            long entries = 0;
+            for (long[] products : categoryPostings.values())
+            {
+                entries += products.length;
+            }
+            return entries;
+        }
+
+        // Estimación: arrays + entradas de HashMap con su clave Long
+        long memoryBytes()
+        {
+            long bytes = 0;
+            for (long[] categories : productCategories.values())
+            {
+                bytes += 16 + 8L * categories.length + 48;
+            }
+            for (long[] products : categoryPostings.values())
+            {
+                bytes += 16 + 8L * products.length + 48;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Afinidad del usuario por categoría (suma de scores de sus interacciones)
+     * y productos ya tocados, ordenados para búsqueda binaria. userEvents es
+     * el conteo de la fila más cada evento sumado después: cuando la matriz
+     * incorpora esos eventos, el conteo coincide y no hace falta recalcular.
+     */
+    private record Affinity(long[] categoryIds, double[] weights,
+                            long[] touchedProducts, int userEvents)
+    {
+        static Affinity of(Map<Long, Double> weights, long[] touchedProducts,
+                int userEvents)
+        {
+            long[] categoryIds = new long[weights.size()];
+            double[] values = new double[weights.size()];
+            int i = 0;
+            for (Map.Entry<Long, Double> entry : weights.entrySet())
+            {
+                categoryIds[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            return new Affinity(categoryIds, values, touchedProducts,
+                    userEvents);
+        }
+
+        boolean hasTouched(long productId)
+        {
+            return Arrays.binarySearch(touchedProducts, productId) >= 0;
+        }
+
+        Affinity plus(long productId, double score, long[] categories)
+        {
+            Map<Long, Double> updated = new HashMap<>();
+            for (int i = 0; i < categoryIds.length; i++)
+            {
+                updated.put(categoryIds[i], weights[i]);
+            }
+            if (categories != null)
+            {
+                for (long categoryId : categories)
+                {
+                    updated.merge(categoryId, score, Double::sum);
+                }
+            }
+
+            long[] touched = touchedProducts;
+            int position = Arrays.binarySearch(touched, productId);
+            if (position < 0)
+            {
+                int insertAt = -position - 1;
+                touched = new long[touchedProducts.length + 1];
+                System.arraycopy(touchedProducts, 0, touched, 0, insertAt);
+                touched[insertAt] = productId;
+                System.arraycopy(touchedProducts, insertAt, touched,
+                        insertAt + 1, touchedProducts.length - insertAt);
+            }
+            return of(updated, touched, userEvents + 1);
+        }
+    }
+}
@@ -0,0 +1,828 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StreamingJdbc;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Matriz dispersa usuarios x productos con el score acumulado de
+ * user_interactions, en formato CSR (por usuario) y CSC (por producto) sobre
+ * arrays primitivos. Se carga al iniciar con una lectura en streaming y se
+ * actualiza periódicamente con las filas nuevas por id. Como ids de
+ * transacciones concurrentes pueden confirmarse fuera de orden, cada refresh
+ * relee desde una marca "asentada" de hace overlap-ms y descarta los ids ya
+ * aplicados. Los deltas viven en un overlay pequeño hasta que se compactan en
+ * la base.
+ */
+@Component
+@Slf4j
+public class InteractionMatrix
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RecommendationMetrics metrics;
+
+    @Value("${ai.recommendation.matrix.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    @Value("${ai.recommendation.matrix.compact-min-entries:50000}")
+    private int compactMinEntries;
+
+    @Value("${ai.recommendation.matrix.compact-ratio:0.05}")
+    private double compactRatio;
+
+    // Mayor demora esperable entre asignar un id y confirmar la transacción
+    @Value("${ai.recommendation.matrix.overlap-ms:120000}")
+    private long overlapMillis;
+
+    private volatile State state;
+
+    // {instante, marca de agua} de cada carga; solo los usa el hilo de load/refresh
+    private final ArrayDeque<long[]> watermarkHistory = new ArrayDeque<>();
+
+    // Ids ya aplicados por encima de la marca asentada, ordenados
+    private long[] recentIds = new long[0];
+
+    public InteractionMatrix(JdbcTemplate jdbcTemplate,
+            RecommendationMetrics metrics)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+    }
+
+    public static byte maskOf(InteractionType type)
+    {
+        return (byte) (1 << type.ordinal());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void load()
+    {
+        String sql = """
+                SELECT id, user_id, product_id, action_type, interaction_score,
+                       created_at
+                FROM user_interactions
+                """;
+
+        try
+        {
+            long start = System.currentTimeMillis();
+            long cutoff = start - overlapMillis;
+            Builder builder = new Builder(1 << 16);
+            long[] watermark = {0L};
+            // Mayor id creado antes de la ventana: lo anterior ya está confirmado
+            long[] settled = {0L};
+            IdList recent = new IdList();
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> StreamingJdbc.stream(jdbcTemplate, sql, fetchSize, rs -> {
+                        long id = rs.getLong("id");
+                        watermark[0] = Math.max(watermark[0], id);
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        if (createdAt != null && createdAt.getTime() < cutoff)
+                        {
+                            settled[0] = Math.max(settled[0], id);
+                        } else
+                        {
+                            recent.add(id);
+                        }
+                        builder.add(rs.getLong("user_id"), rs.getLong("product_id"),
+                                rs.getFloat("interaction_score"),
+                                maskOf(InteractionType.valueOf(
+                                        rs.getString("action_type"))), 1);
+                    }), "query", "matrix-load");
+
+            Snapshot snapshot = builder.build();
+            recentIds = recent.sortedAbove(settled[0]);
+            watermarkHistory.clear();
+            watermarkHistory.addLast(new long[] {cutoff, settled[0]});
+            watermarkHistory.addLast(new long[] {start, watermark[0]});
+            State previous = state;
+            state = new State(snapshot, Overlay.EMPTY, watermark[0],
+                    previous != null ? previous.version + 1 : 1);
+
+            log.info("Matriz de interacciones cargada: {} usuarios, {} productos, {} celdas, {} KB en {} ms",
+                    snapshot.userIds.length, snapshot.productIds.length,
+                    snapshot.nnz(), snapshot.memoryBytes() / 1024,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e)
+        {
+            log.warn("No se pudo cargar la matriz de interacciones: {}",
+                    e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.recommendation.matrix.refresh-interval-ms:30000}")
+    public void refresh()
+    {
+        State current = state;
+        if (current == null)
+        {
+            return;
+        }
+
+        String sql = """
+                SELECT id, user_id, product_id, action_type, interaction_score
+                FROM user_interactions
+                WHERE id > ?
+                ORDER BY id
+                """;
+
+        try
+        {
+            long now = System.currentTimeMillis();
+            long settled = settledWatermark(now);
+            long[] known = recentIds;
+            Builder delta = new Builder(256);
+            IdList applied = new IdList();
+            long[] watermark = {current.watermark};
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> StreamingJdbc.stream(jdbcTemplate, sql, fetchSize, rs -> {
+                        long id = rs.getLong("id");
+                        if (Arrays.binarySearch(known, id) >= 0)
+                        {
+                            return;
+                        }
+                        applied.add(id);
+                        watermark[0] = Math.max(watermark[0], id);
+                        delta.add(rs.getLong("user_id"), rs.getLong("product_id"),
+                                rs.getFloat("interaction_score"),
+                                maskOf(InteractionType.valueOf(
+                                        rs.getString("action_type"))), 1);
+                    }, settled), "query", "matrix-delta");
+
+            recentIds = IdList.merge(known, settled, applied);
+            watermarkHistory.addLast(new long[] {now, watermark[0]});
+            if (delta.size == 0)
+            {
+                return;
+            }
+
+            Overlay overlay = current.overlay.merge(delta);
+            if (overlay.cells > Math.max(compactMinEntries,
+                    current.base.nnz() * compactRatio))
+            {
+                long start = System.currentTimeMillis();
+                Builder builder = new Builder(current.base.nnz() + overlay.cells);
+                current.base.forEach(builder::add);
+                overlay.forEach(builder::add);
+                state = new State(builder.build(), Overlay.EMPTY, watermark[0],
+                        current.version + 1);
+                log.debug("Matriz compactada en {} ms",
+                        System.currentTimeMillis() - start);
+            } else
+            {
+                state = new State(current.base, overlay, watermark[0],
+                        current.version + 1);
+            }
+        } catch (Exception e)
+        {
+            log.warn("No se pudo refrescar la matriz de interacciones: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Marca de agua de la carga más reciente hecha hace al menos overlap-ms:
+     * cualquier id menor ya se confirmó o no existirá. Descarta la historia
+     * más vieja.
+     */
+    private long settledWatermark(long now)
+    {
+        long[] head = watermarkHistory.pollFirst();
+        while (!watermarkHistory.isEmpty()
+                && watermarkHistory.peekFirst()[0] <= now - overlapMillis)
+        {
+            head = watermarkHistory.pollFirst();
+        }
+        watermarkHistory.addFirst(head);
+        return head[1];
+    }
+
+    public boolean isReady()
+    {
+        return state != null;
+    }
+
+    public long getWatermark()
+    {
+        State current = state;
+        return current != null ? current.watermark : 0L;
+    }
+
+    // Cambia cada vez que se publica un estado con interacciones nuevas
+    public long getVersion()
+    {
+        State current = state;
+        return current != null ? current.version : 0L;
+    }
+
+    /**
+     * Número de interacciones registradas por el usuario. Solo cambia cuando
+     * llegan interacciones suyas: los caches por usuario lo guardan como
+     * sello en vez de la versión global.
+     */
+    public int eventCount(long userId)
+    {
+        State current = state;
+        if (current == null)
+        {
+            return 0;
+        }
+        int events = current.base.userEvents(userId);
+        Map<Long, Cell> delta = current.overlay.rows.get(userId);
+        if (delta != null)
+        {
+            for (Cell cell : delta.values())
+            {
+                events += cell.events();
+            }
+        }
+        return events;
+    }
+
+    public UserRow row(long userId)
+    {
+        State current = state;
+        if (current == null)
+        {
+            return UserRow.EMPTY;
+        }
+        Map<Long, Cell> delta = current.overlay.rows.getOrDefault(userId,
+                Collections.emptyMap());
+        return current.base.row(userId, delta);
+    }
+
+    // Si el par tiene alguna interacción, sin armar la fila del usuario
+    public boolean contains(long userId, long productId)
+    {
+        State current = state;
+        if (current == null)
+        {
+            return false;
+        }
+        Map<Long, Cell> delta = current.overlay.rows.get(userId);
+        return (delta != null && delta.containsKey(productId))
+                || current.base.contains(userId, productId);
+    }
+
+    public ProductColumn column(long productId)
+    {
+        State current = state;
+        if (current == null)
+        {
+            return ProductColumn.EMPTY;
+        }
+        Map<Long, Cell> delta = current.overlay.columns.getOrDefault(
+                productId, Collections.emptyMap());
+        return current.base.column(productId, delta);
+    }
+
+    // Usuarios con alguna celda (base + overlay), ordenados
+    public long[] userIds()
+    {
+        State current = state;
+        if (current == null)
+        {
+            return new long[0];
+        }
+        if (current.overlay.rows.isEmpty())
+        {
+            return current.base.userIds.clone();
+        }
+        long[] ids = Arrays.copyOf(current.base.userIds,
+                current.base.userIds.length + current.overlay.rows.size());
+        int size = current.base.userIds.length;
+        for (Long userId : current.overlay.rows.keySet())
+        {
+            ids[size++] = userId;
+        }
+        return Builder.distinctSorted(ids, size);
+    }
+
+    // Recorre todas las celdas (base + overlay); una celda puede repetirse
+    public void forEach(CellConsumer consumer)
+    {
+        State current = state;
+        if (current != null)
+        {
+            current.base.forEach(consumer);
+            current.overlay.forEach(consumer);
+        }
+    }
+
+    public Map<String, Object> getStats()
+    {
+        State current = state;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", current != null);
+        if (current != null)
+        {
+            stats.put("users", current.base.userIds.length);
+            stats.put("products", current.base.productIds.length);
+            stats.put("cells", current.base.nnz());
+            stats.put("overlayCells", current.overlay.cells);
+            stats.put("watermark", current.watermark);
+            stats.put("memoryBytes", current.base.memoryBytes());
+            stats.put("bytesPerCell", current.base.nnz() == 0 ?
+                    0 :
+                    (double) current.base.memoryBytes() / current.base.nnz());
+        }
+        return stats;
+    }
+
+    @FunctionalInterface
+    public interface CellConsumer
+    {
+        void accept(long userId, long productId, float score, byte mask,
+                int events);
+    }
+
+    public record UserRow(long[] productIds, float[] scores, byte[] masks,
+                          int events)
+    {
+        static final UserRow EMPTY = new UserRow(new long[0], new float[0],
+                new byte[0], 0);
+
+        public int size()
+        {
+            return productIds.length;
+        }
+
+        public boolean contains(long productId)
+        {
+            return indexOf(productId) >= 0;
+        }
+
+        // Los productIds están ordenados
+        public int indexOf(long productId)
+        {
+            return Arrays.binarySearch(productIds, productId);
+        }
+    }
+
+    public record ProductColumn(long[] userIds, float[] scores)
+    {
+        static final ProductColumn EMPTY = new ProductColumn(new long[0],
+                new float[0]);
+
+        public int size()
+        {
+            return userIds.length;
+        }
+    }
+
+    private record State(Snapshot base, Overlay overlay, long watermark,
+                         long version)
+    {
+    }
+
+    // Ids en un array creciente
+    private static final class IdList
+    {
+        private long[] ids = new long[64];
+        private int size;
+
+        void add(long id)
+        {
+            if (size == ids.length)
+            {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] sortedAbove(long floor)
+        {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            int from = 0;
+            while (from < sorted.length && sorted[from] <= floor)
+            {
+                from++;
+            }
+            return Arrays.copyOfRange(sorted, from, sorted.length);
+        }
+
+        // known (ordenado) sin lo que quedó bajo floor, más added (ordenado por la consulta)
+        static long[] merge(long[] known, long floor, IdList added)
+        {
+            int from = 0;
+            while (from < known.length && known[from] <= floor)
+            {
+                from++;
+            }
+            long[] merged = new long[known.length - from + added.size];
+            int i = from;
+            int j = 0;
+            int k = 0;
+            while (i < known.length || j < added.size)
+            {
+                if (j == added.size || (i < known.length && known[i] < added.ids[j]))
+                {
+                    merged[k++] = known[i++];
+                } else
+                {
+                    merged[k++] = added.ids[j++];
+                }
+            }
+            return merged;
+        }
+    }
+
+    private record Cell(float score, byte mask, int events)
+    {
+        Cell plus(float score, byte mask, int events)
+        {
+            return new Cell(this.score + score, (byte) (this.mask | mask),
+                    this.events + events);
+        }
+    }
+
+    /**
+     * Deltas desde la última compactación. Es inmutable: cada refresh crea
+     * una copia, así los lectores nunca ven un estado a medias.
+     */
+    private static final class Overlay
+    {
+        static final Overlay EMPTY = new Overlay(Collections.emptyMap(),
+                Collections.emptyMap(), 0);
+
+        private final Map<Long, Map<Long, Cell>> rows;
+        private final Map<Long, Map<Long, Cell>> columns;
+        private final int cells;
+
+        private Overlay(Map<Long, Map<Long, Cell>> rows,
+                Map<Long, Map<Long, Cell>> columns, int cells)
+        {
+            this.rows = rows;
+            this.columns = columns;
+            this.cells = cells;
+        }
+
+        Overlay merge(Builder delta)
+        {
+            Map<Long, Map<Long, Cell>> newRows = new HashMap<>();
+            rows.forEach((user, cellsByProduct) -> newRows.put(user,
+                    new HashMap<>(cellsByProduct)));
+
+            for (int i = 0; i < delta.size; i++)
+            {
+                Cell add = new Cell(delta.scores[i], delta.masks[i],
+                        delta.events[i]);
+                newRows.computeIfAbsent(delta.users[i], k -> new HashMap<>())
+                        .merge(delta.products[i], add,
+                                (a, b) -> a.plus(b.score(), b.mask(),
+                                        b.events()));
+            }
+
+            Map<Long, Map<Long, Cell>> newColumns = new HashMap<>();
+            int count = 0;
+            for (Map.Entry<Long, Map<Long, Cell>> row : newRows.entrySet())
+            {
+                for (Map.Entry<Long, Cell> cell : row.getValue().entrySet())
+                {
+                    newColumns.computeIfAbsent(cell.getKey(),
+                            k -> new HashMap<>()).put(row.getKey(),
+                            cell.getValue());
+                    count++;
+                }
+            }
+            return new Overlay(newRows, newColumns, count);
+        }
+
+        void forEach(CellConsumer consumer)
+        {
+            rows.forEach((user, cellsByProduct) -> cellsByProduct.forEach(
+                    (product, cell) -> consumer.accept(user, product,
+                            cell.score(), cell.mask(), cell.events())));
+        }
+    }
+
+    /**
+     * Tripletas (usuario, producto, score) en arrays crecientes; build()
+     * agrega duplicados y genera las vistas CSR y CSC.
+     */
+    private static final class Builder
+    {
+        private long[] users;
+        private long[] products;
+        private float[] scores;
+        private byte[] masks;
+        private int[] events;
+        private int size;
+
+        Builder(int capacity)
+        {
+            capacity = Math.max(16, capacity);
+            users = new long[capacity];
+            products = new long[capacity];
+            scores = new float[capacity];
+            masks = new byte[capacity];
+            events = new int[capacity];
+        }
+
+        void add(long userId, long productId, float score, byte mask,
+                int eventCount)
+        {
+            if (size == users.length)
+            {
+                int capacity = size + (size >> 1);
+                users = Arrays.copyOf(users, capacity);
+                products = Arrays.copyOf(products, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+                events = Arrays.copyOf(events, capacity);
+            }
+            users[size] = userId;
+            products[size] = productId;
+            scores[size] = score;
+            masks[size] = mask;
+            events[size] = eventCount;
+            size++;
+        }
+
+        Snapshot build()
+        {
+            long[] userIds = distinctSorted(users, size);
+            long[] productIds = distinctSorted(products, size);
+
+            // Conteo por fila para ordenar las tripletas por usuario
+            int[] rowOf = new int[size];
+            int[] rowStart = new int[userIds.length + 1];
+            for (int i = 0; i < size; i++)
+            {
+                rowOf[i] = Arrays.binarySearch(userIds, users[i]);
+                rowStart[rowOf[i] + 1]++;
+            }
+            for (int r = 0; r < userIds.length; r++)
+            {
+                rowStart[r + 1] += rowStart[r];
+            }
+            int[] order = new int[size];
+            int[] fill = Arrays.copyOf(rowStart, userIds.length);
+            for (int i = 0; i < size; i++)
+            {
+                order[fill[rowOf[i]]++] = i;
+            }
+
+            int[] rowPtr = new int[userIds.length + 1];
+            int[] colIdx = new int[size];
+            float[] values = new float[size];
+            byte[] cellMasks = new byte[size];
+            int[] userEvents = new int[userIds.length];
+            long[] scratch = new long[16];
+            int nnz = 0;
+
+            for (int r = 0; r < userIds.length; r++)
+            {
+                int from = rowStart[r];
+                int length = rowStart[r + 1] - from;
+                if (scratch.length < length)
+                {
+                    scratch = new long[length];
+                }
+                // (columna << 32 | tripleta) para ordenar la fila por producto
+                for (int k = 0; k < length; k++)
+                {
+                    int t = order[from + k];
+                    int col = Arrays.binarySearch(productIds, products[t]);
+                    scratch[k] = ((long) col << 32) | t;
+                }
+                Arrays.sort(scratch, 0, length);
+
+                rowPtr[r] = nnz;
+                int lastCol = -1;
+                for (int k = 0; k < length; k++)
+                {
+                    int col = (int) (scratch[k] >>> 32);
+                    int t = (int) scratch[k];
+                    userEvents[r] += events[t];
+                    if (col == lastCol)
+                    {
+                        values[nnz - 1] += scores[t];
+                        cellMasks[nnz - 1] |= masks[t];
+                    } else
+                    {
+                        colIdx[nnz] = col;
+                        values[nnz] = scores[t];
+                        cellMasks[nnz] = masks[t];
+                        nnz++;
+                        lastCol = col;
+                    }
+                }
+            }
+            rowPtr[userIds.length] = nnz;
+
+            colIdx = Arrays.copyOf(colIdx, nnz);
+            values = Arrays.copyOf(values, nnz);
+            cellMasks = Arrays.copyOf(cellMasks, nnz);
+
+            // Vista CSC por conteo sobre las columnas
+            int[] colPtr = new int[productIds.length + 1];
+            for (int k = 0; k < nnz; k++)
+            {
+                colPtr[colIdx[k] + 1]++;
+            }
+            for (int c = 0; c < productIds.length; c++)
+            {
+                colPtr[c + 1] += colPtr[c];
+            }
+            int[] rowIdx = new int[nnz];
+            float[] colValues = new float[nnz];
+            int[] colFill = Arrays.copyOf(colPtr, productIds.length);
+            for (int r = 0; r < userIds.length; r++)
+            {
+                for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++)
+                {
+                    int position = colFill[colIdx[k]]++;
+                    rowIdx[position] = r;
+                    colValues[position] = values[k];
+                }
+            }
+
+            return new Snapshot(userIds, rowPtr, colIdx, values, cellMasks,
+                    userEvents, productIds, colPtr, rowIdx, colValues);
+        }
+
+        private static long[] distinctSorted(long[] source, int size)
+        {
+            long[] sorted = Arrays.copyOf(source, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++)
+            {
+                if (i == 0 || sorted[i] != sorted[i - 1])
+                {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private final long[] userIds;
+        private final int[] rowPtr;
+        private final int[] colIdx;
+        private final float[] values;
+        private final byte[] masks;
+        private final int[] userEvents;
+        private final long[] productIds;
+        private final int[] colPtr;
+        private final int[] rowIdx;
+        private final float[] colValues;
+
+        Snapshot(long[] userIds, int[] rowPtr, int[] colIdx, float[] values,
+                byte[] masks, int[] userEvents, long[] productIds,
+                int[] colPtr, int[] rowIdx, float[] colValues)
+        {
+            this.userIds = userIds;
+            this.rowPtr = rowPtr;
+            this.colIdx = colIdx;
+            this.values = values;
+            this.masks = masks;
+            this.userEvents = userEvents;
+            this.productIds = productIds;
+            this.colPtr = colPtr;
+            this.rowIdx = rowIdx;
+            this.colValues = colValues;
+        }
+
+        int nnz()
+        {
+            return colIdx.length;
+        }
+
+        long memoryBytes()
+        {
+            return 8L * (userIds.length + productIds.length)
+                    + 4L * (rowPtr.length + userEvents.length + colPtr.length)
+                    + 4L * (colIdx.length + values.length + rowIdx.length + colValues.length)
+                    + masks.length;
+        }
+
+        int userEvents(long userId)
+        {
+            int r = Arrays.binarySearch(userIds, userId);
+            return r >= 0 ? userEvents[r] : 0;
+        }
+
+        // Los índices de producto de cada fila están ordenados
+        boolean contains(long userId, long productId)
+        {
+            int r = Arrays.binarySearch(userIds, userId);
+            int c = Arrays.binarySearch(productIds, productId);
+            return r >= 0 && c >= 0
+                    && Arrays.binarySearch(colIdx, rowPtr[r], rowPtr[r + 1], c) >= 0;
+        }
+
+        UserRow row(long userId, Map<Long, Cell> delta)
+        {
+            int r = Arrays.binarySearch(userIds, userId);
+            int from = r >= 0 ? rowPtr[r] : 0;
+            int to = r >= 0 ? rowPtr[r + 1] : 0;
+            int events = r >= 0 ? userEvents[r] : 0;
+
+            if (delta.isEmpty())
+            {
+                long[] ids = new long[to - from];
+                for (int k = from; k < to; k++)
+                {
+                    ids[k - from] = productIds[colIdx[k]];
+                }
+                return new UserRow(ids, Arrays.copyOfRange(values, from, to),
+                        Arrays.copyOfRange(masks, from, to), events);
+            }
+
+            Map<Long, Cell> merged = new HashMap<>(delta);
+            for (int k = from; k < to; k++)
+            {
+                merged.merge(productIds[colIdx[k]],
+                        new Cell(values[k], masks[k], 0),
+                        (a, b) -> a.plus(b.score(), b.mask(), b.events()));
+            }
+            long[] ids = new long[merged.size()];
+            int i = 0;
+            for (Long productId : merged.keySet())
+            {
+                ids[i++] = productId;
+            }
+            Arrays.sort(ids);
+            float[] rowScores = new float[ids.length];
+            byte[] rowMasks = new byte[ids.length];
+            for (i = 0; i < ids.length; i++)
+            {
+                Cell cell = merged.get(ids[i]);
+                rowScores[i] = cell.score();
+                rowMasks[i] = cell.mask();
+                events += delta.containsKey(ids[i]) ? delta.get(ids[i]).events() : 0;
+            }
+            return new UserRow(ids, rowScores, rowMasks, events);
+        }
+
+        ProductColumn column(long productId, Map<Long, Cell> delta)
+        {
+            int c = Arrays.binarySearch(productIds, productId);
+            int from = c >= 0 ? colPtr[c] : 0;
+            int to = c >= 0 ? colPtr[c + 1] : 0;
+
+            Map<Long, Float> merged = new HashMap<>();
+            delta.forEach((user, cell) -> merged.put(user, cell.score()));
+            if (merged.isEmpty())
+            {
+                long[] ids = new long[to - from];
+                for (int k = from; k < to; k++)
+                {
+                    ids[k - from] = userIds[rowIdx[k]];
+                }
+                return new ProductColumn(ids,
+                        Arrays.copyOfRange(colValues, from, to));
+            }
+
+            for (int k = from; k < to; k++)
+            {
+                merged.merge(userIds[rowIdx[k]], colValues[k], Float::sum);
+            }
+            long[] ids = new long[merged.size()];
+            float[] scores = new float[merged.size()];
+            int i = 0;
+            for (Map.Entry<Long, Float> entry : merged.entrySet())
+            {
+                ids[i] = entry.getKey();
+                scores[i++] = entry.getValue();
+            }
+            return new ProductColumn(ids, scores);
+        }
+
+        void forEach(CellConsumer consumer)
+        {
+            for (int r = 0; r < userIds.length; r++)
+            {
+                // Los eventos del usuario se asignan a su primera celda
+                int events = userEvents[r];
+                for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++)
+                {
+                    consumer.accept(userIds[r], productIds[colIdx[k]],
+                            values[k], masks[k], k == rowPtr[r] ? events : 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice item-item de co-ocurrencias entre productos comprados o agregados al
+ * carrito por un mismo usuario. Reemplaza el self-join de
+ * findCollaborativeRecommendations: en tiempo de request solo se mezclan las
+ * listas de vecinos de los productos del usuario. Cada producto guarda a lo
+ * sumo max-pairs-per-product conteos: al pasar el doble se podan los más
+ * bajos, así la memoria crece con los productos y no con sus pares.
+ */
+@Component
+@Slf4j
+public class ItemCooccurrenceIndex
+{
+    private static final String REASON = "Usuarios con gustos similares también compraron esto";
+
+    private static final byte COLLABORATIVE_MASK = (byte) (
+            InteractionMatrix.maskOf(InteractionType.PURCHASE)
+                    | InteractionMatrix.maskOf(InteractionType.ADD_TO_CART));
+
+    private final InteractionMatrix interactionMatrix;
+
+    private final ProductCatalog productCatalog;
+
+    @Value("${ai.recommendation.cooccurrence.top-k:50}")
+    private int topK;
+
+    @Value("${ai.recommendation.cooccurrence.max-items-per-user:200}")
+    private int maxItemsPerUser;
+
+    @Value("${ai.recommendation.cooccurrence.max-pairs-per-product:500}")
+    private int maxPairsPerProduct;
+
+    private volatile State state;
+
+    // Interacciones que llegan mientras el índice se construye
+    private final List<UserInteraction> pending = new ArrayList<>();
+
+    public ItemCooccurrenceIndex(InteractionMatrix interactionMatrix,
+            ProductCatalog productCatalog)
+    {
+        this.interactionMatrix = interactionMatrix;
+        this.productCatalog = productCatalog;
+    }
+
+    // Se construye después de que la matriz de interacciones termina de cargar
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(10)
+    public void build()
+    {
+        if (!interactionMatrix.isReady())
+        {
+            log.warn("Matriz de interacciones no disponible, el índice de co-ocurrencia no se construye");
+            return;
+        }
+
+        try
+        {
+            long start = System.currentTimeMillis();
+            State loaded = new State(maxItemsPerUser,
+                    Math.max(topK, maxPairsPerProduct));
+            interactionMatrix.forEach((userId, productId, score, mask, events) -> {
+                if ((mask & COLLABORATIVE_MASK) != 0)
+                {
+                    loaded.addItem(userId, productId);
+                }
+            });
+
+            synchronized (this)
+            {
+                for (UserInteraction interaction : pending)
+                {
+                    loaded.addItem(interaction.getUserId(),
+                            interaction.getProductId());
+                }
+                pending.clear();
+                state = loaded;
+            }
+
+            log.info("Índice de co-ocurrencia construido: {} usuarios, {} productos, {} pares (~{} KB) en {} ms",
+                    loaded.userItems.size(), loaded.cooccurrences.size(),
+                    loaded.pairs, loaded.pairs * State.PAIR_BYTES / 1024,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e)
+        {
+            log.warn("No se pudo construir el índice de co-ocurrencia: {}",
+                    e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        synchronized (this)
+        {
+            for (UserInteraction interaction : event.getInteractions())
+            {
+                if (!isCollaborativeSignal(interaction.getActionType()))
+                {
+                    continue;
+                }
+                if (state == null)
+                {
+                    pending.add(interaction);
+                } else
+                {
+                    state.addItem(interaction.getUserId(),
+                            interaction.getProductId());
+                }
+            }
+        }
+    }
+
+    public boolean isReady()
+    {
+        return state != null && !productCatalog.isEmpty();
+    }
+
+    public synchronized Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", state != null);
+        if (state != null)
+        {
+            stats.put("users", state.userItems.size());
+            stats.put("products", state.cooccurrences.size());
+            stats.put("pairs", state.pairs);
+            stats.put("prunedPairs", state.prunedPairs);
+            stats.put("approxPairBytes", state.pairs * State.PAIR_BYTES);
+        }
+        return stats;
+    }
+
+    public List<ProductRecommendation> recommend(Long userId, int limit)
+    {
+        State current = state;
+        Set<Long> userItems = current != null ? current.userItems.get(userId) : null;
+        if (userItems == null || userItems.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        // Mezclar las listas de vecinos de todos los productos del usuario
+        Map<Long, Double> scores = new HashMap<>();
+        for (Long item : userItems)
+        {
+            for (Neighbour neighbour : current.neighbours(item, topK))
+            {
+                if (!userItems.contains(neighbour.productId()))
+                {
+                    scores.merge(neighbour.productId(), neighbour.weight(),
+                            Double::sum);
+                }
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<ProductRecommendation> recommendations = new ArrayList<>(limit);
+        for (Map.Entry<Long, Double> entry : ranked)
+        {
+            ProductRecommendation rec = productCatalog.toRecommendation(
+                    entry.getKey(), entry.getValue(), REASON);
+            if (rec != null)
+            {
+                recommendations.add(rec);
+                if (recommendations.size() >= limit)
+                {
+                    break;
+                }
+            }
+        }
+        return recommendations;
+    }
+
+    private static boolean isCollaborativeSignal(InteractionType type)
+    {
+        return type == InteractionType.PURCHASE || type == InteractionType.ADD_TO_CART;
+    }
+
+    public record Neighbour(long productId, double weight)
+    {
+    }
+
+    private static class State
+    {
+        // Nodo de ConcurrentHashMap más la clave Long y el valor Integer
+        static final long PAIR_BYTES = 64;
+
+        private final int maxItemsPerUser;
+        private final int maxPairsPerProduct;
+        private final Map<Long, Set<Long>> userItems = new ConcurrentHashMap<>();
+        private final Map<Long, Map<Long, Integer>> cooccurrences = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> itemUsers = new ConcurrentHashMap<>();
+        // Versión por producto; sube con cada cambio que afecta sus vecinos
+        private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+        private final Map<Long, CachedNeighbours> neighbourCache = new ConcurrentHashMap<>();
+        // Se escriben bajo el lock del índice
+        private long pairs;
+        private long prunedPairs;
+
+        State(int maxItemsPerUser, int maxPairsPerProduct)
+        {
+            this.maxItemsPerUser = maxItemsPerUser;
+            this.maxPairsPerProduct = maxPairsPerProduct;
+        }
+
+        // Solo se llama bajo el lock del índice (o antes de publicar el estado)
+        void addItem(long userId, long productId)
+        {
+            Set<Long> items = userItems.computeIfAbsent(userId,
+                    k -> ConcurrentHashMap.newKeySet());
+            if (items.contains(productId))
+            {
+                return;
+            }
+
+            itemUsers.merge(productId, 1, Integer::sum);
+            invalidate(productId);
+            if (items.size() < maxItemsPerUser)
+            {
+                for (Long other : items)
+                {
+                    increment(productId, other);
+                    increment(other, productId);
+                }
+            }
+            items.add(productId);
+        }
+
+        private void increment(long productId, long other)
+        {
+            Map<Long, Integer> counts = cooccurrences.computeIfAbsent(productId,
+                    k -> new ConcurrentHashMap<>());
+            if (counts.merge(other, 1, Integer::sum) == 1)
+            {
+                pairs++;
+                if (counts.size() > 2 * maxPairsPerProduct)
+                {
+                    prune(counts);
+                }
+            }
+            invalidate(productId);
+        }
+
+        /**
+         * Deja los maxPairsPerProduct conteos más altos (a igual conteo, el
+         * de menor id). Cada poda descarta la mitad, así su costo se reparte
+         * entre las inserciones que la llenaron.
+         */
+        private void prune(Map<Long, Integer> counts)
+        {
+            List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(
+                    counts.entrySet());
+            ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            for (Map.Entry<Long, Integer> entry : ranked.subList(
+                    maxPairsPerProduct, ranked.size()))
+            {
+                counts.remove(entry.getKey());
+            }
+            pairs -= ranked.size() - maxPairsPerProduct;
+            prunedPairs += ranked.size() - maxPairsPerProduct;
+        }
+
+        private void invalidate(long productId)
+        {
+            versions.merge(productId, 1L, Long::sum);
+        }
+
+        /**
+         * Top-K vecinos por similitud coseno sobre conteos de co-ocurrencia.
+         * La entrada cacheada lleva la versión del producto con la que se
+         * calculó: si una escritura concurrente la invalida mientras se
+         * recalcula, la versión ya no coincide y se vuelve a calcular. El
+         * peso depende también del soporte de cada vecino, que cambia sin
+         * tocar esta versión; la entrada guarda el de sus K vecinos. Un soporte
+         * que sube solo baja el peso, así que fuera del top-K no hace falta.
+         */
+        Neighbour[] neighbours(long productId, int topK)
+        {
+            long version = versions.getOrDefault(productId, 0L);
+            CachedNeighbours cached = neighbourCache.get(productId);
+            if (cached != null && cached.version() == version
+                    && cached.hasSupports(itemUsers))
+            {
+                return cached.neighbours();
+            }
+
+            Map<Long, Integer> counts = cooccurrences.get(productId);
+            if (counts == null)
+            {
+                return new Neighbour[0];
+            }
+
+            int support = itemUsers.getOrDefault(productId, 1);
+            PriorityQueue<Scored> heap = new PriorityQueue<>(topK + 1,
+                    (a, b) -> Double.compare(a.neighbour().weight(),
+                            b.neighbour().weight()));
+            for (Map.Entry<Long, Integer> entry : counts.entrySet())
+            {
+                int otherSupport = itemUsers.getOrDefault(entry.getKey(), 1);
+                double weight = entry.getValue() / Math.sqrt(
+                        (double) support * otherSupport);
+                heap.offer(new Scored(new Neighbour(entry.getKey(), weight),
+                        otherSupport));
+                if (heap.size() > topK)
+                {
+                    heap.poll();
+                }
+            }
+
+            Neighbour[] result = new Neighbour[heap.size()];
+            int[] supports = new int[result.length];
+            for (int i = result.length - 1; i >= 0; i--)
+            {
+                Scored scored = heap.poll();
+                result[i] = scored.neighbour();
+                supports[i] = scored.support();
+            }
+            // No pisa una entrada calculada con una versión más nueva
+            neighbourCache.compute(productId, (id, existing) ->
+                    existing != null && existing.version() > version ?
+                            existing :
+                            new CachedNeighbours(version, result, supports));
+            return result;
+        }
+    }
+
+    // Vecino con el soporte con el que se calculó su peso
+    private record Scored(Neighbour neighbour, int support)
+    {
+    }
+
+    private record CachedNeighbours(long version, Neighbour[] neighbours,
+            int[] supports)
+    {
+        boolean hasSupports(Map<Long, Integer> itemUsers)
+        {
+            for (int i = 0; i < neighbours.length; i++)
+            {
+                if (itemUsers.getOrDefault(neighbours[i].productId(), 1)
+                        != supports[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.CatalogRefreshedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice ubicación -> productos disponibles de productores aprobados en esa
+ * ubicación. Reemplaza el join producers x producers por location de
+ * findLocalProducerRecommendations. Las "ubicaciones de origen" de cada
+ * usuario (derivadas de sus interacciones) se cachean aparte en un LRU
+ * acotado, junto con el conteo de interacciones del usuario en
+ * InteractionMatrix del que salieron.
+ */
+@Component
+@Slf4j
+public class LocationIndex
+{
+    private static final String REASON = "De productores locales en tu área";
+
+    private static final byte EXCLUDED_MASK = (byte) (
+            InteractionMatrix.maskOf(InteractionType.PURCHASE)
+                    | InteractionMatrix.maskOf(InteractionType.ADD_TO_CART));
+
+    private final ProductCatalog productCatalog;
+
+    private final InteractionMatrix interactionMatrix;
+
+    @Value("${ai.recommendation.location-index.max-cached-users:10000}")
+    private int maxCachedUsers;
+
+    // ubicación -> productos disponibles ordenados; se reemplaza por copia
+    private volatile Map<String, long[]> productsByLocation;
+
+    private final Map<Long, HomeLocations> homeLocations = LruMap.create(
+            () -> maxCachedUsers);
+
+    public LocationIndex(ProductCatalog productCatalog,
+            InteractionMatrix interactionMatrix)
+    {
+        this.productCatalog = productCatalog;
+        this.interactionMatrix = interactionMatrix;
+    }
+
+    @EventListener(CatalogRefreshedEvent.class)
+    public synchronized void rebuild()
+    {
+        Map<String, List<Long>> grouped = new HashMap<>();
+        for (ProductCatalog.ProductInfo info : productCatalog.all())
+        {
+            if (info.isAvailable() && info.location() != null)
+            {
+                grouped.computeIfAbsent(info.location(),
+                        k -> new ArrayList<>()).add(info.id());
+            }
+        }
+
+        Map<String, long[]> rebuilt = new HashMap<>();
+        grouped.forEach((location, products) -> {
+            long[] ids = products.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(ids);
+            rebuilt.put(location, ids);
+        });
+        productsByLocation = rebuilt;
+        // La ubicación de un producto pudo cambiar
+        homeLocations.clear();
+    }
+
+    @EventListener
+    public void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        for (UserInteraction interaction : event.getInteractions())
+        {
+            ProductCatalog.ProductInfo info = productCatalog.get(
+                    interaction.getProductId());
+            homeLocations.computeIfPresent(interaction.getUserId(),
+                    (userId, home) -> home.plus(interaction.getProductId(),
+                            info != null ? info.location() : null,
+                            interaction.getActionType() == InteractionType.PURCHASE
+                                    || interaction.getActionType() == InteractionType.ADD_TO_CART));
+        }
+    }
+
+    public boolean isReady()
+    {
+        return productsByLocation != null && interactionMatrix.isReady();
+    }
+
+    public List<ProductRecommendation> recommend(Long userId, int limit)
+    {
+        Map<String, long[]> index = productsByLocation;
+        if (index == null)
+        {
+            return Collections.emptyList();
+        }
+
+        HomeLocations home = homeLocations.get(userId);
+        if (home == null
+                || home.userEvents() != interactionMatrix.eventCount(userId))
+        {
+            home = computeHomeLocations(userId);
+            homeLocations.put(userId, home);
+        }
+
+        // Todos los productos de una ubicación comparten el peso de esa
+        // ubicación (menos el propio producto si el usuario ya lo tocó)
+        List<ProductRecommendation> recommendations = new ArrayList<>(limit);
+        for (String location : home.rankedLocations())
+        {
+            long[] products = index.get(location);
+            if (products == null)
+            {
+                continue;
+            }
+            int weight = home.weights().get(location);
+            for (long productId : products)
+            {
+                if (Arrays.binarySearch(home.excluded(), productId) >= 0)
+                {
+                    continue;
+                }
+                double score = Arrays.binarySearch(home.touched(), productId) >= 0 ?
+                        weight - 1 :
+                        weight;
+                if (score <= 0)
+                {
+                    continue;
+                }
+                ProductRecommendation rec = productCatalog.toRecommendation(
+                        productId, score, REASON);
+                if (rec != null)
+                {
+                    recommendations.add(rec);
+                    if (recommendations.size() >= limit)
+                    {
+                        return recommendations;
+                    }
+                }
+            }
+        }
+        return recommendations;
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, long[]> index = productsByLocation;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("ready", index != null);
+        stats.put("cachedUsers", homeLocations.size());
+        if (index != null)
+        {
+            stats.put("locations", index.size());
+            stats.put("products", index.values().stream()
+                    .mapToLong(ids -> ids.length).sum());
+        }
+        return stats;
+    }
+
+    private HomeLocations computeHomeLocations(long userId)
+    {
+        InteractionMatrix.UserRow row = interactionMatrix.row(userId);
+        Map<String, Integer> weights = new HashMap<>();
+        long[] excluded = new long[row.size()];
+        int excludedCount = 0;
+        for (int i = 0; i < row.size(); i++)
+        {
+            ProductCatalog.ProductInfo info = productCatalog.get(
+                    row.productIds()[i]);
+            if (info != null && info.location() != null)
+            {
+                weights.merge(info.location(), 1, Integer::sum);
+            }
+            if ((row.masks()[i] & EXCLUDED_MASK) != 0)
+            {
+                excluded[excludedCount++] = row.productIds()[i];
+            }
+        }
+        return HomeLocations.of(weights, row.productIds(),
+                Arrays.copyOf(excluded, excludedCount), row.events());
+    }
+
+    private static long[] insert(long[] ids, long productId)
+    {
+        int position = Arrays.binarySearch(ids, productId);
+        if (position >= 0)
+        {
+            return ids;
+        }
+        int insertAt = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertAt);
+        result[insertAt] = productId;
+        System.arraycopy(ids, insertAt, result, insertAt + 1,
+                ids.length - insertAt);
+        return result;
+    }
+
+    /**
+     * Ubicaciones de los productos con los que interactuó el usuario, con la
+     * cantidad de productos en cada una. touched y excluded están ordenados.
+     * userEvents cuenta los eventos sumados con plus, como en CategoryIndex.
+     */
+    private record HomeLocations(Map<String, Integer> weights,
+                                 List<String> rankedLocations, long[] touched,
+                                 long[] excluded, int userEvents)
+    {
+        static HomeLocations of(Map<String, Integer> weights, long[] touched,
+                long[] excluded, int userEvents)
+        {
+            List<String> ranked = new ArrayList<>(weights.keySet());
+            ranked.sort((a, b) -> {
+                int byWeight = Integer.compare(weights.get(b), weights.get(a));
+                return byWeight != 0 ? byWeight : a.compareTo(b);
+            });
+            return new HomeLocations(weights, ranked, touched, excluded,
+                    userEvents);
+        }
+
+        HomeLocations plus(long productId, String location, boolean exclude)
+        {
+            boolean isNew = Arrays.binarySearch(touched, productId) < 0;
+            Map<String, Integer> updated = new HashMap<>(weights);
+            if (isNew && location != null)
+            {
+                updated.merge(location, 1, Integer::sum);
+            }
+            return of(updated, isNew ? insert(touched, productId) : touched,
+                    exclude ? insert(excluded, productId) : excluded,
+                    userEvents + 1);
+        }
+    }
+}
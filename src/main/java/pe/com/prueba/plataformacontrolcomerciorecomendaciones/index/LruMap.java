@@ -0,0 +1,31 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Mapa acotado que desaloja la entrada usada hace más tiempo. El tope se lee
+ * en cada inserción, así puede venir de un campo @Value que Spring asigna
+ * después del constructor. Todas las operaciones (incluido
+ * computeIfPresent) se sincronizan sobre el mapa.
+ */
+final class LruMap
+{
+    private LruMap()
+    {
+    }
+
+    static <K, V> Map<K, V> create(IntSupplier maxSize)
+    {
+        return Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                return size() > maxSize.getAsInt();
+            }
+        });
+    }
+}
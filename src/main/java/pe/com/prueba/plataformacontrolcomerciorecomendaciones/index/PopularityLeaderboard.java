@@ -0,0 +1,255 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ranking de popularidad en memoria con la misma fórmula que
+ * findPopularRecommendations (count * 0.3 + avg * 0.7). Se actualiza con cada
+ * interacción registrada y se reconcilia contra la base periódicamente: la
+ * reconciliación reemplaza el ranking por una foto acotada a un id máximo y
+ * solo vuelve a sumar las interacciones posteriores a esa foto. El ranking
+ * recuerda ese id: un evento que llega tarde, con la fila ya en la foto, no
+ * se vuelve a contar.
+ */
+@Component
+@Slf4j
+public class PopularityLeaderboard
+{
+    private static final String REASON = "Producto popular";
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble(Entry::score).reversed()
+            .thenComparing(Comparator.comparingLong(Entry::count).reversed())
+            .thenComparingLong(Entry::productId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ProductCatalog productCatalog;
+
+    private final RecommendationMetrics metrics;
+
+    private volatile Board board;
+
+    // Interacciones recibidas mientras corre la reconciliación
+    private List<UserInteraction> pending;
+
+    public PopularityLeaderboard(JdbcTemplate jdbcTemplate,
+            ProductCatalog productCatalog, RecommendationMetrics metrics)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productCatalog = productCatalog;
+        this.metrics = metrics;
+    }
+
+    public static double score(long count, double scoreSum)
+    {
+        return count * 0.3 + (count == 0 ? 0.0 : scoreSum / count) * 0.7;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize()
+    {
+        reconcile();
+    }
+
+    @Scheduled(initialDelayString = "${ai.recommendation.popularity.reconcile-interval-ms:300000}",
+            fixedDelayString = "${ai.recommendation.popularity.reconcile-interval-ms:300000}")
+    public void reconcile()
+    {
+        String sql = """
+                SELECT product_id, COUNT(*) AS interactions,
+                       SUM(interaction_score) AS score_sum
+                FROM user_interactions
+                WHERE id <= ?
+                GROUP BY product_id
+                """;
+
+        synchronized (this)
+        {
+            pending = new ArrayList<>();
+        }
+
+        try
+        {
+            long start = System.currentTimeMillis();
+            // Tope de la foto: lo que llegue después se suma desde pending
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(id), 0) FROM user_interactions",
+                    Long.class);
+            long snapshotId = maxId != null ? maxId : 0L;
+            Board loaded = new Board(snapshotId);
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> jdbcTemplate.query(sql, rs -> {
+                        loaded.add(rs.getLong("product_id"),
+                                rs.getLong("interactions"),
+                                rs.getDouble("score_sum"));
+                    }, snapshotId), "query", "popularity");
+
+            synchronized (this)
+            {
+                Set<Long> applied = new HashSet<>();
+                for (UserInteraction interaction : pending)
+                {
+                    if (isInSnapshot(interaction, snapshotId, applied))
+                    {
+                        continue;
+                    }
+                    loaded.add(interaction.getProductId(), 1,
+                            interaction.getInteractionScore());
+                }
+                board = loaded;
+            }
+
+            log.debug("Ranking de popularidad reconciliado: {} productos en {} ms",
+                    loaded.stats.size(), System.currentTimeMillis() - start);
+        } catch (Exception e)
+        {
+            log.warn("No se pudo reconciliar el ranking de popularidad: {}",
+                    e.getMessage());
+        } finally
+        {
+            synchronized (this)
+            {
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * Una interacción con id hasta snapshotId viene en la foto; las que se
+     * repiten se cuentan una sola vez. Los eventos se publican después de
+     * confirmar la fila y tanto save() como InteractionBatchWriter asignan el
+     * id, así que no debería llegar uno sin id; si llega, se cuenta.
+     */
+    private static boolean isInSnapshot(UserInteraction interaction,
+            long snapshotId, Set<Long> applied)
+    {
+        Long id = interaction.getId();
+        if (id == null)
+        {
+            log.debug("Interacción sin id durante la reconciliación del ranking");
+            return false;
+        }
+        return id <= snapshotId || !applied.add(id);
+    }
+
+    @EventListener
+    public synchronized void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        for (UserInteraction interaction : event.getInteractions())
+        {
+            if (pending != null)
+            {
+                pending.add(interaction);
+            }
+            if (board != null && !board.covers(interaction))
+            {
+                board.add(interaction.getProductId(), 1,
+                        interaction.getInteractionScore());
+            }
+        }
+    }
+
+    public boolean isReady()
+    {
+        return board != null && !productCatalog.isEmpty();
+    }
+
+    // Recorre el ranking desde arriba hasta juntar `limit` productos disponibles
+    public List<ProductRecommendation> top(int limit)
+    {
+        Board current = board;
+        List<ProductRecommendation> recommendations = new ArrayList<>(limit);
+        if (current == null)
+        {
+            return recommendations;
+        }
+
+        for (Entry entry : current.ranking)
+        {
+            ProductRecommendation rec = productCatalog.toRecommendation(
+                    entry.productId(), entry.score(), REASON);
+            if (rec != null)
+            {
+                recommendations.add(rec);
+                if (recommendations.size() >= limit)
+                {
+                    break;
+                }
+            }
+        }
+        return recommendations;
+    }
+
+    public int size()
+    {
+        Board current = board;
+        return current != null ? current.stats.size() : 0;
+    }
+
+    private record Entry(long productId, double score, long count)
+    {
+    }
+
+    private static final class Board
+    {
+        // Id máximo de la foto de la que salió (0 antes de la primera)
+        private final long snapshotId;
+
+        private final Map<Long, Entry> stats = new HashMap<>();
+        private final Map<Long, Double> scoreSums = new HashMap<>();
+        private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(
+                RANKING);
+
+        Board(long snapshotId)
+        {
+            this.snapshotId = snapshotId;
+        }
+
+        // La fila ya venía en la foto (mismo criterio que isInSnapshot)
+        boolean covers(UserInteraction interaction)
+        {
+            Long id = interaction.getId();
+            return id != null && id <= snapshotId;
+        }
+
+        // Solo se modifica bajo el lock del ranking
+        void add(long productId, long count, double scoreSum)
+        {
+            Entry previous = stats.get(productId);
+            long newCount = count;
+            double newSum = scoreSum;
+            if (previous != null)
+            {
+                ranking.remove(previous);
+                newCount += previous.count();
+                newSum += scoreSums.get(productId);
+            }
+
+            Entry entry = new Entry(productId, score(newCount, newSum),
+                    newCount);
+            stats.put(productId, entry);
+            scoreSums.put(productId, newSum);
+            ranking.add(entry);
+        }
+    }
+}
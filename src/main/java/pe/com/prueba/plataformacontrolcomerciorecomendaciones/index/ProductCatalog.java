@@ -0,0 +1,131 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.CatalogRefreshedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copia en memoria de los datos de producto necesarios para armar una
+ * recomendación, para que los índices no tengan que volver a la base.
+ */
+@Component
+@Slf4j
+public class ProductCatalog
+{
+    private static final String SELECT_PRODUCTS = """
+            SELECT p.id, p.name, p.description, p.price, p.quantity,
+                   p.producer_id, pr.business_name, pr.location, pr.approved,
+                   (SELECT MIN(c.name) FROM product_categories pc
+                    JOIN categories c ON pc.category_id = c.id
+                    WHERE pc.product_id = p.id) AS category
+            FROM product p
+            JOIN producers pr ON p.producer_id = pr.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final RecommendationMetrics metrics;
+
+    private volatile Map<Long, ProductInfo> products = new ConcurrentHashMap<>();
+
+    public ProductCatalog(JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            RecommendationMetrics metrics)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${ai.recommendation.catalog.refresh-interval-ms:60000}")
+    public void refresh()
+    {
+        try
+        {
+            long start = System.currentTimeMillis();
+            Map<Long, ProductInfo> loaded = new ConcurrentHashMap<>();
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> jdbcTemplate.query(SELECT_PRODUCTS, collectInto(loaded)),
+                    "query", "catalog");
+            products = loaded;
+            log.debug("Catálogo cargado: {} productos en {} ms", loaded.size(),
+                    System.currentTimeMillis() - start);
+            eventPublisher.publishEvent(new CatalogRefreshedEvent(loaded.size()));
+        } catch (Exception e)
+        {
+            log.warn("No se pudo refrescar el catálogo: {}", e.getMessage());
+        }
+    }
+
+    public ProductInfo get(Long productId)
+    {
+        return products.get(productId);
+    }
+
+    public boolean isAvailable(Long productId)
+    {
+        ProductInfo info = products.get(productId);
+        return info != null && info.isAvailable();
+    }
+
+    public Collection<ProductInfo> all()
+    {
+        return products.values();
+    }
+
+    public boolean isEmpty()
+    {
+        return products.isEmpty();
+    }
+
+    // Devuelve null si el producto no existe, está agotado o su productor no está aprobado
+    public ProductRecommendation toRecommendation(Long productId, double score,
+            String reason)
+    {
+        ProductInfo info = products.get(productId);
+        if (info == null || !info.isAvailable())
+        {
+            return null;
+        }
+        return new ProductRecommendation(info.id(), info.name(),
+                info.description(), info.price(), info.producerName(),
+                info.category(), score, reason);
+    }
+
+    private static RowCallbackHandler collectInto(Map<Long, ProductInfo> target)
+    {
+        return rs -> {
+            String category = rs.getString("category");
+            ProductInfo info = new ProductInfo(rs.getLong("id"),
+                    rs.getString("name"), rs.getString("description"),
+                    rs.getDouble("price"), rs.getInt("quantity"),
+                    rs.getLong("producer_id"), rs.getString("business_name"),
+                    rs.getString("location"), rs.getBoolean("approved"),
+                    category != null ? category : "Sin categoría");
+            target.put(info.id(), info);
+        };
+    }
+
+    public record ProductInfo(long id, String name, String description,
+                              double price, int quantity, long producerId,
+                              String producerName, String location,
+                              boolean approved, String category)
+    {
+        public boolean isAvailable()
+        {
+            return quantity > 0 && approved;
+        }
+    }
+}
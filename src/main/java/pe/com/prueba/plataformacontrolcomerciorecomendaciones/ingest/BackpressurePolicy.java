@@ -0,0 +1,14 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+/**
+ * Qué hacer cuando el buffer de escritura diferida está lleno.
+ */
+public enum BackpressurePolicy
+{
+    // Esperar espacio (hasta block-timeout-ms) y luego rechazar
+    BLOCK,
+    // Descartar VIEWs al pasar la marca de agua; el resto espera como BLOCK
+    DROP_VIEWS,
+    // Rechazar de inmediato
+    REJECT
+}
@@ -0,0 +1,14 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+/**
+ * Cuándo forzar a disco las páginas del journal de interacciones.
+ */
+public enum FsyncPolicy
+{
+    // Forzar cada registro antes de responder (sobrevive a caídas del SO)
+    ALWAYS,
+    // Forzar cada fsync-interval-ms; se pierde como mucho ese intervalo
+    INTERVAL,
+    // Dejarlo al SO: sobrevive a caídas del proceso, no a las de la máquina
+    NONE
+}
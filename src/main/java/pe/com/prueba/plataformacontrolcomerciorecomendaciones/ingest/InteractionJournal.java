@@ -0,0 +1,630 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal local append-only de interacciones, en segmentos mapeados en
+ * memoria con registros de ancho fijo. El buffer de escritura diferida anota
+ * cada interacción aquí antes de encolarla; el checkpoint avanza cuando las
+ * filas llegan a la base. Al arrancar se reinsertan en la base los registros
+ * posteriores al checkpoint, segmento por segmento y antes de que los índices
+ * en memoria carguen; cada lote confirmado se publica como
+ * InteractionTrackedEvent. Las filas que no se pudieron insertar se copian a
+ * quarantine/ para que el checkpoint siga avanzando, y se reintentan en el
+ * próximo arranque. El checkpoint avanza después del commit, así que tras una
+ * caída puede haber registros que ya están en la base: el replay los busca
+ * antes de insertar (InteractionBatchWriter.findPersisted) y los salta.
+ *
+ * Registro (37 bytes): userId 8, productId 8, tipo 1, score 4, timestamp 8,
+ * hash de sesión 4, CRC32 4. El primer registro con CRC inválido marca el
+ * final del segmento.
+ */
+@Component
+@Slf4j
+public class InteractionJournal
+{
+    static final int RECORD_SIZE = 37;
+
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - 4;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String QUARANTINE_DIR = "quarantine";
+
+    private static final long CHECKPOINT_MAGIC = 0x4A524E4C43484B50L;
+
+    private static final InteractionType[] TYPES = InteractionType.values();
+
+    private final InteractionBatchWriter batchWriter;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ai.recommendation.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.recommendation.journal.directory:./data/journal}")
+    private String directory;
+
+    @Value("${ai.recommendation.journal.segment-size-bytes:67108864}")
+    private int segmentSizeBytes;
+
+    @Value("${ai.recommendation.journal.fsync:INTERVAL}")
+    private FsyncPolicy fsyncPolicy;
+
+    private Path journalDir;
+
+    private MappedByteBuffer checkpointBuffer;
+
+    // Segmento activo; solo se modifica bajo el lock del journal
+    private MappedByteBuffer segment;
+    private long segmentSeq;
+    private int segmentOffset;
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer recordView = ByteBuffer.wrap(record);
+    private final CRC32 crc = new CRC32();
+
+    // Segmentos ya cerrados, en orden, pendientes de borrar tras el checkpoint
+    private final Deque<Long> closedSegments = new ArrayDeque<>();
+
+    // Posiciones anotadas que todavía no están en la base
+    private final NavigableSet<Long> unpersisted = new ConcurrentSkipListSet<>();
+
+    // Segmentos a reinsertar al arrancar y dónde empieza el primero
+    private final Deque<Long> replaySegments = new ArrayDeque<>();
+    private long replayFrom;
+
+    // El checkpoint no pasa de aquí mientras queden segmentos por reinsertar
+    private volatile long replayFloor = Long.MAX_VALUE;
+
+    private long checkpoint;
+
+    private long appended;
+    private long replayed;
+    private long alreadyPersisted;
+    private long replayFailed;
+    private long quarantined;
+
+    public InteractionJournal(InteractionBatchWriter batchWriter,
+            ApplicationEventPublisher eventPublisher)
+    {
+        this.batchWriter = batchWriter;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Posición = número de segmento en los 32 bits altos y offset dentro del
+     * segmento en los bajos, así las posiciones se comparan como long.
+     */
+    static long position(long seq, int offset)
+    {
+        return (seq << 32) | offset;
+    }
+
+    @PostConstruct
+    public void open()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        try
+        {
+            journalDir = Paths.get(directory);
+            Files.createDirectories(journalDir);
+            try (FileChannel channel = FileChannel.open(
+                    journalDir.resolve("checkpoint"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                checkpointBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        16);
+            }
+
+            long lastSeq = scheduleReplay(readCheckpoint());
+            synchronized (this)
+            {
+                openSegment(lastSeq + 1);
+                advanceCheckpoint();
+            }
+            log.info("Journal de interacciones en {} (fsync {}, segmentos de {} MB)",
+                    journalDir.toAbsolutePath(), fsyncPolicy,
+                    segmentSizeBytes / (1024 * 1024));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("No se pudo abrir el journal de interacciones", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close()
+    {
+        if (segment == null)
+        {
+            return;
+        }
+        segment.force();
+        advanceCheckpoint();
+        checkpointBuffer.force();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Anota la interacción y devuelve su posición, que luego se pasa a
+     * markPersisted cuando la fila quedó en la base.
+     */
+    public synchronized long append(UserInteraction interaction)
+    {
+        if (segmentOffset + RECORD_SIZE > segmentSizeBytes)
+        {
+            roll();
+        }
+
+        recordView.clear();
+        recordView.putLong(interaction.getUserId());
+        recordView.putLong(interaction.getProductId());
+        recordView.put((byte) interaction.getActionType().ordinal());
+        recordView.putFloat(interaction.getInteractionScore().floatValue());
+        recordView.putLong(interaction.getCreatedAt()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        recordView.putInt(interaction.getSessionId() != null ?
+                interaction.getSessionId().hashCode() :
+                0);
+        crc.reset();
+        crc.update(record, 0, PAYLOAD_SIZE);
+        recordView.putInt((int) crc.getValue());
+
+        segment.put(segmentOffset, record);
+        if (fsyncPolicy == FsyncPolicy.ALWAYS)
+        {
+            segment.force(segmentOffset, RECORD_SIZE);
+        }
+
+        long position = position(segmentSeq, segmentOffset);
+        unpersisted.add(position);
+        segmentOffset += RECORD_SIZE;
+        appended++;
+        return position;
+    }
+
+    public void markPersisted(List<Long> positions)
+    {
+        if (positions.isEmpty())
+        {
+            return;
+        }
+        for (Long position : positions)
+        {
+            unpersisted.remove(position);
+        }
+        synchronized (this)
+        {
+            advanceCheckpoint();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.recommendation.journal.fsync-interval-ms:1000}")
+    public void sync()
+    {
+        MappedByteBuffer current;
+        synchronized (this)
+        {
+            current = segment;
+        }
+        if (current != null && fsyncPolicy == FsyncPolicy.INTERVAL)
+        {
+            current.force();
+            checkpointBuffer.force();
+        }
+    }
+
+    public synchronized Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("fsync", fsyncPolicy);
+        stats.put("segment", segmentSeq);
+        stats.put("segmentOffset", segmentOffset);
+        stats.put("closedSegments", closedSegments.size());
+        stats.put("unpersisted", unpersisted.size());
+        stats.put("appended", appended);
+        stats.put("replayed", replayed);
+        stats.put("alreadyPersisted", alreadyPersisted);
+        stats.put("replayFailed", replayFailed);
+        stats.put("quarantined", quarantined);
+        return stats;
+    }
+
+    // Anota los segmentos posteriores al checkpoint; devuelve el último número visto
+    private long scheduleReplay(long from) throws IOException
+    {
+        long fromSeq = from >>> 32;
+        long lastSeq = fromSeq - 1;
+        for (Path path : listSegments())
+        {
+            long seq = seqOf(path);
+            lastSeq = Math.max(lastSeq, seq);
+            if (seq < fromSeq)
+            {
+                Files.deleteIfExists(path);
+                continue;
+            }
+            replaySegments.addLast(seq);
+            closedSegments.addLast(seq);
+        }
+        replayFrom = from;
+        if (!replaySegments.isEmpty())
+        {
+            replayFloor = from;
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Reinserta lo posterior al checkpoint. Corre antes que las cargas de los
+     * índices (que también escuchan ApplicationReadyEvent) y cuando los
+     * listeners de InteractionTrackedEvent ya están registrados. Cada segmento
+     * procesado, aunque haya filas en cuarentena, deja avanzar el checkpoint.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void replay()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        replayQuarantine();
+        long fromSeq = replayFrom >>> 32;
+        while (!replaySegments.isEmpty())
+        {
+            long seq = replaySegments.peekFirst();
+            Path path = segmentPath(seq);
+            int offset = seq == fromSeq ? (int) replayFrom : 0;
+            try
+            {
+                List<Long> failed = replayFile(path, seq, offset);
+                if (!failed.isEmpty())
+                {
+                    quarantine(path, failed, quarantinePath(seq));
+                }
+            } catch (IOException e)
+            {
+                log.error("No se pudo reprocesar el segmento {} del journal: {}",
+                        seq, e.getMessage());
+                try
+                {
+                    Files.copy(path, quarantinePath(seq),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    quarantined++;
+                } catch (IOException copyError)
+                {
+                    // Sin copia no se puede soltar el segmento: el checkpoint queda aquí
+                    log.error("No se pudo poner en cuarentena el segmento {}: {}",
+                            seq, copyError.getMessage());
+                    return;
+                }
+            }
+
+            replaySegments.pollFirst();
+            replayFloor = replaySegments.isEmpty() ?
+                    Long.MAX_VALUE :
+                    position(replaySegments.peekFirst(), 0);
+            synchronized (this)
+            {
+                advanceCheckpoint();
+            }
+        }
+
+        if (replayFailed > 0)
+        {
+            log.error("Replay del journal: {} interacciones no se pudieron insertar; quedaron en {}",
+                    replayFailed, journalDir.resolve(QUARANTINE_DIR));
+        } else if (replayed > 0 || alreadyPersisted > 0)
+        {
+            log.info("Replay del journal: {} interacciones reinsertadas ({} ya estaban en la base) en {} ms",
+                    replayed, alreadyPersisted, System.currentTimeMillis() - start);
+        }
+    }
+
+    // Reintenta la cuarentena de arranques anteriores; lo que vuelve a fallar se queda
+    private void replayQuarantine()
+    {
+        Path dir = journalDir.resolve(QUARANTINE_DIR);
+        if (!Files.isDirectory(dir))
+        {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir))
+        {
+            for (Path path : files.filter(p -> p.getFileName().toString()
+                    .endsWith(SEGMENT_SUFFIX)).sorted().toList())
+            {
+                List<Long> failed = replayFile(path, 0, 0);
+                if (failed.isEmpty())
+                {
+                    Files.delete(path);
+                } else
+                {
+                    quarantine(path, failed, path);
+                }
+            }
+        } catch (IOException e)
+        {
+            log.error("No se pudo reprocesar la cuarentena del journal: {}",
+                    e.getMessage());
+        }
+    }
+
+    // Inserta los registros del archivo y publica cada lote confirmado; devuelve las posiciones fallidas
+    private List<Long> replayFile(Path path, long seq, int offset)
+            throws IOException
+    {
+        List<UserInteraction> pending = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        readSegment(path, seq, offset, pending, positions);
+        try
+        {
+            dropPersisted(pending, positions);
+        } catch (DataAccessException e)
+        {
+            // Sin saber qué llegó a la base no se inserta: queda para el próximo arranque
+            log.warn("No se pudo verificar qué interacciones del journal ya están en la base: {}",
+                    e.getMessage());
+            replayFailed += positions.size();
+            return positions;
+        }
+        if (pending.isEmpty())
+        {
+            return List.of();
+        }
+
+        List<Long> failed = new ArrayList<>();
+        for (InteractionBatchWriter.ChunkResult chunk : batchWriter.insertAll(pending))
+        {
+            if (!chunk.committed())
+            {
+                failed.addAll(positions.subList(chunk.from(), chunk.to()));
+                replayFailed += chunk.to() - chunk.from();
+                continue;
+            }
+            replayed += chunk.to() - chunk.from();
+            try
+            {
+                eventPublisher.publishEvent(new InteractionTrackedEvent(
+                        new ArrayList<>(pending.subList(chunk.from(), chunk.to()))));
+            } catch (Exception e)
+            {
+                log.warn("Error notificando interacciones reinsertadas: {}",
+                        e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    // Quita las filas que llegaron a la base antes de que el checkpoint las pasara
+    private void dropPersisted(List<UserInteraction> pending, List<Long> positions)
+    {
+        boolean[] persisted = batchWriter.findPersisted(pending);
+        int kept = 0;
+        for (int i = 0; i < pending.size(); i++)
+        {
+            if (persisted[i])
+            {
+                alreadyPersisted++;
+                continue;
+            }
+            pending.set(kept, pending.get(i));
+            positions.set(kept, positions.get(i));
+            kept++;
+        }
+        pending.subList(kept, pending.size()).clear();
+        positions.subList(kept, positions.size()).clear();
+    }
+
+    // Copia los registros fallidos de source a target (puede ser el mismo archivo)
+    private void quarantine(Path source, List<Long> positions, Path target)
+            throws IOException
+    {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+            for (long position : positions)
+            {
+                buffer.clear();
+                in.read(buffer, (int) position);
+                buffer.flip();
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        quarantined += positions.size();
+    }
+
+    private void readSegment(Path path, long seq, int offset,
+            List<UserInteraction> target, List<Long> positions) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            byte[] bytes = new byte[RECORD_SIZE];
+            ByteBuffer view = ByteBuffer.wrap(bytes);
+            CRC32 checksum = new CRC32();
+            while (offset + RECORD_SIZE <= buffer.capacity())
+            {
+                buffer.get(offset, bytes);
+                checksum.reset();
+                checksum.update(bytes, 0, PAYLOAD_SIZE);
+                if ((int) checksum.getValue() != view.getInt(PAYLOAD_SIZE))
+                {
+                    break;
+                }
+
+                int type = bytes[16];
+                if (type >= 0 && type < TYPES.length)
+                {
+                    UserInteraction interaction = new UserInteraction(
+                            view.getLong(0), view.getLong(8), TYPES[type],
+                            (double) view.getFloat(17));
+                    interaction.setCreatedAt(LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(view.getLong(21)),
+                            ZoneId.systemDefault()));
+                    target.add(interaction);
+                    positions.add(position(seq, offset));
+                }
+                offset += RECORD_SIZE;
+            }
+        }
+    }
+
+    private void roll()
+    {
+        segment.force();
+        closedSegments.addLast(segmentSeq);
+        try
+        {
+            openSegment(segmentSeq + 1);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException("No se pudo abrir un nuevo segmento del journal", e);
+        }
+    }
+
+    private void openSegment(long seq) throws IOException
+    {
+        Path path = segmentPath(seq);
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE))
+        {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    segmentSizeBytes);
+        }
+        segmentSeq = seq;
+        segmentOffset = 0;
+    }
+
+    // Llamar con el lock del journal tomado
+    private void advanceCheckpoint()
+    {
+        Long oldest = unpersisted.isEmpty() ? null : unpersisted.first();
+        long next = Math.min(oldest != null ?
+                oldest :
+                position(segmentSeq, segmentOffset), replayFloor);
+        if (next <= checkpoint)
+        {
+            return;
+        }
+        checkpoint = next;
+        checkpointBuffer.putLong(0, next);
+        checkpointBuffer.putLong(8, next ^ CHECKPOINT_MAGIC);
+
+        long checkpointSeq = next >>> 32;
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst() < checkpointSeq)
+        {
+            long seq = closedSegments.pollFirst();
+            try
+            {
+                Files.deleteIfExists(segmentPath(seq));
+            } catch (IOException e)
+            {
+                log.warn("No se pudo borrar el segmento {} del journal: {}", seq,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private long readCheckpoint()
+    {
+        long value = checkpointBuffer.getLong(0);
+        if ((value ^ CHECKPOINT_MAGIC) != checkpointBuffer.getLong(8))
+        {
+            // Checkpoint nuevo o dañado: se reprocesa todo lo que haya
+            return 0;
+        }
+        checkpoint = value;
+        return value;
+    }
+
+    private List<Path> listSegments() throws IOException
+    {
+        try (Stream<Path> files = Files.list(journalDir))
+        {
+            return files.filter(p -> p.getFileName().toString()
+                            .endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long seq)
+    {
+        return journalDir.resolve(String.format("%020d%s", seq, SEGMENT_SUFFIX));
+    }
+
+    // Nombre único: un segmento puede volver a reprocesarse si el arranque se cortó
+    private Path quarantinePath(long seq) throws IOException
+    {
+        Path dir = Files.createDirectories(journalDir.resolve(QUARANTINE_DIR));
+        return dir.resolve(String.format("%020d-%d%s", seq,
+                System.currentTimeMillis(), SEGMENT_SUFFIX));
+    }
+
+    private static long seqOf(Path path)
+    {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0,
+                name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,13 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class InteractionRejectedException extends RuntimeException
+{
+    public InteractionRejectedException(String message)
+    {
+        super(message);
+    }
+}
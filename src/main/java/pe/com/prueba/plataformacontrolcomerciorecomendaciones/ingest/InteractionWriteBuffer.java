@@ -0,0 +1,358 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Escritura diferida (write-behind) de interacciones. El request solo encola;
+ * un hilo de fondo agrupa las filas y las inserta por lotes cada flush-size
+ * filas o cada flush-interval-ms. Cada lote se escribe en una transacción,
+ * así un lote fallido no dejó filas y reintentarlo no duplica. Las filas de
+ * lotes revertidos se reintentan y siguen ocupando capacidad, así una base
+ * caída termina aplicando backpressure; si el lote falló por integridad se
+ * reintenta fila por fila y las filas inválidas se descartan.
+ * Con el journal activo cada interacción se anota en disco antes de encolarla.
+ */
+@Component
+@Slf4j
+public class InteractionWriteBuffer
+{
+    private final InteractionBatchWriter batchWriter;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final InteractionJournal journal;
+
+    @Value("${ai.recommendation.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.recommendation.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${ai.recommendation.write-behind.flush-size:500}")
+    private int flushSize;
+
+    @Value("${ai.recommendation.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${ai.recommendation.write-behind.backpressure:BLOCK}")
+    private BackpressurePolicy backpressure;
+
+    @Value("${ai.recommendation.write-behind.view-watermark:0.8}")
+    private double viewWatermark;
+
+    @Value("${ai.recommendation.write-behind.block-timeout-ms:1000}")
+    private long blockTimeoutMs;
+
+    // Cola sin locks; el tamaño se reserva con CAS antes de encolar
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder droppedViews = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public InteractionWriteBuffer(InteractionBatchWriter batchWriter,
+            ApplicationEventPublisher eventPublisher, InteractionJournal journal)
+    {
+        this.batchWriter = batchWriter;
+        this.eventPublisher = eventPublisher;
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        if (!enabled)
+        {
+            if (journal.isEnabled())
+            {
+                log.warn("El journal de interacciones solo se usa con write-behind activo");
+            }
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "interaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Write-behind de interacciones activo: capacidad {}, lote {}, intervalo {} ms, backpressure {}",
+                capacity, flushSize, flushIntervalMs, backpressure);
+    }
+
+    // Al apagar se vacía la cola antes de que se cierre el DataSource
+    @PreDestroy
+    public void shutdown()
+    {
+        if (writer == null)
+        {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try
+        {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (size.get() > 0)
+        {
+            log.warn("{} interacciones pendientes no se escribieron al apagar",
+                    size.get());
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void submit(UserInteraction interaction)
+    {
+        boolean isView = interaction.getActionType() == InteractionType.VIEW;
+        if (backpressure == BackpressurePolicy.DROP_VIEWS && isView
+                && size.get() >= capacity * viewWatermark)
+        {
+            droppedViews.increment();
+            return;
+        }
+
+        if (!tryReserve())
+        {
+            if (backpressure == BackpressurePolicy.REJECT || !awaitReserve())
+            {
+                rejected.increment();
+                throw new InteractionRejectedException(
+                        "Buffer de interacciones lleno");
+            }
+        }
+
+        long position = -1;
+        if (journal.isEnabled())
+        {
+            try
+            {
+                position = journal.append(interaction);
+            } catch (RuntimeException e)
+            {
+                size.decrementAndGet();
+                throw e;
+            }
+        }
+        queue.offer(new Pending(interaction, position));
+        enqueued.increment();
+        if (size.get() >= flushSize)
+        {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public int getQueueDepth()
+    {
+        return size.get();
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queueDepth", size.get());
+        stats.put("capacity", capacity);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("written", written.sum());
+        stats.put("droppedViews", droppedViews.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failedWrites", failedWrites.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("journal", journal.getStats());
+        return stats;
+    }
+
+    private boolean tryReserve()
+    {
+        while (true)
+        {
+            int current = size.get();
+            if (current >= capacity)
+            {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    private boolean awaitReserve()
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                blockTimeoutMs);
+        while (System.nanoTime() < deadline)
+        {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (tryReserve())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWriter()
+    {
+        List<Pending> batch = new ArrayList<>(flushSize);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        int failuresAfterShutdown = 0;
+
+        while (running || !queue.isEmpty() || !batch.isEmpty())
+        {
+            Pending next;
+            while (batch.size() < flushSize && (next = queue.poll()) != null)
+            {
+                batch.add(next);
+            }
+
+            if (batch.isEmpty())
+            {
+                LockSupport.parkNanos(intervalNanos);
+                continue;
+            }
+            if (batch.size() < flushSize && running)
+            {
+                // Esperar a completar el lote o a que venza el intervalo
+                LockSupport.parkNanos(intervalNanos);
+                while (batch.size() < flushSize && (next = queue.poll()) != null)
+                {
+                    batch.add(next);
+                }
+            }
+
+            batch = flush(batch);
+            if (!batch.isEmpty())
+            {
+                // Error de escritura: esperar antes de reintentar
+                if (!running && ++failuresAfterShutdown > 3)
+                {
+                    break;
+                }
+                LockSupport.parkNanos(intervalNanos * 5);
+            }
+        }
+    }
+
+    // Devuelve las filas que no se pudieron escribir
+    private List<Pending> flush(List<Pending> batch)
+    {
+        List<UserInteraction> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch)
+        {
+            rows.add(pending.interaction());
+        }
+
+        List<UserInteraction> done = new ArrayList<>(batch.size());
+        List<Long> positions = new ArrayList<>(batch.size());
+        List<Pending> retry = new ArrayList<>();
+        int dropped = 0;
+        for (InteractionBatchWriter.ChunkResult chunk : batchWriter.insertAll(rows))
+        {
+            for (int i = chunk.from(); i < chunk.to(); i++)
+            {
+                if (chunk.committed())
+                {
+                    done.add(rows.get(i));
+                    positions.add(batch.get(i).journalPosition());
+                    continue;
+                }
+                InteractionBatchWriter.ChunkResult result = chunk.retryable() ?
+                        chunk :
+                        insertAlone(rows.get(i));
+                if (result.committed())
+                {
+                    done.add(rows.get(i));
+                    positions.add(batch.get(i).journalPosition());
+                } else if (result.retryable())
+                {
+                    retry.add(batch.get(i));
+                } else
+                {
+                    // Fila inválida: reintentarla bloquearía la cola para siempre
+                    positions.add(batch.get(i).journalPosition());
+                    dropped++;
+                }
+            }
+        }
+        if (journal.isEnabled())
+        {
+            journal.markPersisted(positions);
+        }
+
+        flushes.increment();
+        written.add(done.size());
+        failedWrites.add(retry.size());
+        discarded.add(dropped);
+        size.addAndGet(-done.size() - dropped);
+        if (dropped > 0)
+        {
+            log.warn("Se descartaron {} interacciones que violan restricciones de integridad",
+                    dropped);
+        }
+
+        if (!done.isEmpty())
+        {
+            try
+            {
+                eventPublisher.publishEvent(new InteractionTrackedEvent(done));
+            } catch (Exception e)
+            {
+                log.warn("Error notificando interacciones escritas: {}",
+                        e.getMessage());
+            }
+        }
+
+        List<Pending> next = new ArrayList<>(flushSize);
+        next.addAll(retry);
+        return next;
+    }
+
+    // Reintento aislado de una fila de un lote revertido por integridad
+    private InteractionBatchWriter.ChunkResult insertAlone(
+            UserInteraction interaction)
+    {
+        return batchWriter.insertAll(List.of(interaction)).get(0);
+    }
+
+    // Interacción encolada y su posición en el journal (-1 sin journal)
+    private record Pending(UserInteraction interaction, long journalPosition)
+    {
+    }
+}
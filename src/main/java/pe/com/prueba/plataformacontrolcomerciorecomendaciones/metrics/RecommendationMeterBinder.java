@@ -0,0 +1,47 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest.InteractionWriteBuffer;
+
+/**
+ * Expone como métricas los contadores que los componentes ya llevan, sin
+ * tocar su camino caliente: se leen recién cuando Prometheus hace el scrape.
+ */
+@Component
+public class RecommendationMeterBinder implements MeterBinder
+{
+    private final RecommendationCache recommendationCache;
+
+    private final InteractionWriteBuffer interactionWriteBuffer;
+
+    public RecommendationMeterBinder(RecommendationCache recommendationCache,
+            InteractionWriteBuffer interactionWriteBuffer)
+    {
+        this.recommendationCache = recommendationCache;
+        this.interactionWriteBuffer = interactionWriteBuffer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        FunctionCounter.builder("ai.recommendation.cache.requests",
+                        recommendationCache, RecommendationCache::getHitCount)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("ai.recommendation.cache.requests",
+                        recommendationCache, RecommendationCache::getMissCount)
+                .tag("result", "miss").register(registry);
+        Gauge.builder("ai.recommendation.cache.hit.ratio", recommendationCache,
+                        RecommendationCache::getHitRatio)
+                .register(registry);
+
+        Gauge.builder("ai.interactions.write.queue.depth",
+                        interactionWriteBuffer,
+                        InteractionWriteBuffer::getQueueDepth)
+                .register(registry);
+    }
+}
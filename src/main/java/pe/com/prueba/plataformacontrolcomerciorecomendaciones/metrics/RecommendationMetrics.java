@@ -0,0 +1,172 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers de Micrometer para cada etapa del recomendador. Todos llevan el tag
+ * outcome (success, empty o error) además de los tags propios de la etapa,
+ * así en Prometheus se separa la latencia de las respuestas vacías o fallidas.
+ * Los motores y los tipos de request además alimentan una ventana móvil
+ * propia que lee el endpoint ai-performance sin pasar por el registry.
+ */
+@Component
+public class RecommendationMetrics
+{
+    public static final String QUERY = "ai.repository.query";
+    public static final String STRATEGY = "ai.recommendation.strategy";
+    public static final String REQUEST = "ai.recommendation.request";
+    public static final String BLEND = "ai.recommendation.blend";
+    public static final String PROFILE_BUILD = "ai.profile.build";
+    public static final String INTERACTION_WRITE = "ai.interactions.write";
+    public static final String ML_CANDIDATES = "ai.ml.candidates";
+    public static final String ML_SCORING = "ai.ml.scoring";
+    public static final String ML_TRAINING = "ai.ml.training";
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry registry;
+
+    private final long windowMillis;
+
+    private final int windowSlots;
+
+    private final Map<String, RollingLatencyHistogram> strategyLatencies = new ConcurrentHashMap<>();
+
+    private final Map<String, RollingLatencyHistogram> requestLatencies = new ConcurrentHashMap<>();
+
+    // name|tags|outcome -> Timer: evita el builder y la búsqueda en el registry por llamada
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public RecommendationMetrics(MeterRegistry registry,
+            @Value("${ai.recommendation.metrics.window-ms:60000}") long windowMillis,
+            @Value("${ai.recommendation.metrics.window-slots:6}") int windowSlots)
+    {
+        this.registry = registry;
+        this.windowMillis = windowMillis;
+        this.windowSlots = windowSlots;
+    }
+
+    public RollingLatencyHistogram newRollingHistogram()
+    {
+        return new RollingLatencyHistogram(windowMillis, windowSlots);
+    }
+
+    public long getWindowMillis()
+    {
+        return windowMillis;
+    }
+
+    // Timer ai.recommendation.strategy más la ventana móvil del motor
+    public <T> T timeStrategy(String strategy, String source, Supplier<T> work)
+    {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try
+        {
+            T result = work.get();
+            outcome = outcomeOf(result);
+            return result;
+        } finally
+        {
+            long elapsedNanos = System.nanoTime() - start;
+            record(STRATEGY, elapsedNanos, outcome, "strategy", strategy,
+                    "source", source);
+            strategyLatencies.computeIfAbsent(strategy,
+                    key -> newRollingHistogram()).record(elapsedNanos);
+        }
+    }
+
+    public Map<String, RollingLatencyHistogram.Snapshot> strategySnapshots()
+    {
+        Map<String, RollingLatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        strategyLatencies.forEach(
+                (strategy, histogram) -> snapshots.put(strategy,
+                        histogram.snapshot()));
+        return snapshots;
+    }
+
+    // Timer ai.recommendation.request más la ventana móvil del tipo pedido
+    public void recordRequest(String type, long elapsedNanos, boolean failed)
+    {
+        record(REQUEST, elapsedNanos, failed ? "error" : "success", "type", type);
+        requestLatencies.computeIfAbsent(type, key -> newRollingHistogram())
+                .record(elapsedNanos);
+    }
+
+    public Map<String, RollingLatencyHistogram.Snapshot> requestSnapshots()
+    {
+        Map<String, RollingLatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        requestLatencies.forEach(
+                (type, histogram) -> snapshots.put(type, histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Mide work bajo el timer name. Un resultado que es una colección vacía
+     * se registra como outcome=empty.
+     */
+    public <T> T time(String name, Supplier<T> work, String... tags)
+    {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try
+        {
+            T result = work.get();
+            outcome = outcomeOf(result);
+            return result;
+        } finally
+        {
+            record(name, System.nanoTime() - start, outcome, tags);
+        }
+    }
+
+    public void time(String name, Runnable work, String... tags)
+    {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try
+        {
+            work.run();
+            outcome = "success";
+        } finally
+        {
+            record(name, System.nanoTime() - start, outcome, tags);
+        }
+    }
+
+    private static String outcomeOf(Object result)
+    {
+        return result instanceof Collection<?> collection
+                && collection.isEmpty() ? "empty" : "success";
+    }
+
+    public void record(String name, long elapsedNanos, String outcome,
+            String... tags)
+    {
+        timers.computeIfAbsent(timerKey(name, outcome, tags),
+                        key -> Timer.builder(name).tags(tags).tag(OUTCOME, outcome)
+                                .register(registry))
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String timerKey(String name, String outcome, String... tags)
+    {
+        StringBuilder key = new StringBuilder(64).append(name).append('|')
+                .append(outcome);
+        for (String tag : tags)
+        {
+            key.append('|').append(tag);
+        }
+        return key.toString();
+    }
+}
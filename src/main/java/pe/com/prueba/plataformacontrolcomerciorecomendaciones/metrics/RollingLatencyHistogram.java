@@ -0,0 +1,151 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias sobre una ventana deslizante, sin locks. La ventana
+ * se divide en slots de tiempo; cada slot guarda conteos por bucket
+ * logarítmico: 4 sub-buckets por potencia de 2 de microsegundos.
+ * Los percentiles se informan con el límite superior del bucket, hasta 25%
+ * arriba del valor real. Al rotar, el primer hilo que gana el CAS limpia el
+ * slot y las muestras que llegan mientras tanto se descartan.
+ */
+public class RollingLatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^32 µs ~ 71 minutos; lo que pase de ahí cae en el último bucket
+    private static final int BUCKETS = 32 * SUB_BUCKETS;
+
+    private static final long RESETTING = -1;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    // Antes de completar la primera ventana el throughput se divide por lo transcurrido
+    private final long createdMillis = System.currentTimeMillis();
+
+    public RollingLatencyHistogram(long windowMillis, int slotCount)
+    {
+        this.slotMillis = Math.max(1, windowMillis / slotCount);
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++)
+        {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void record(long elapsedNanos)
+    {
+        long epoch = System.currentTimeMillis() / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+
+        long current = slot.epoch.get();
+        if (current != epoch)
+        {
+            if (current == RESETTING || current > epoch
+                    || !slot.epoch.compareAndSet(current, RESETTING))
+            {
+                return;
+            }
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                slot.counts.set(i, 0);
+            }
+            slot.maxNanos.set(0);
+            slot.epoch.set(epoch);
+        }
+
+        slot.counts.incrementAndGet(bucketOf(elapsedNanos));
+        long max = slot.maxNanos.get();
+        while (elapsedNanos > max
+                && !slot.maxNanos.compareAndSet(max, elapsedNanos))
+        {
+            max = slot.maxNanos.get();
+        }
+    }
+
+    public Snapshot snapshot()
+    {
+        long now = System.currentTimeMillis();
+        long epoch = now / slotMillis;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long maxNanos = 0;
+        for (Slot slot : slots)
+        {
+            long slotEpoch = slot.epoch.get();
+            if (slotEpoch == RESETTING || slotEpoch <= epoch - slots.length)
+            {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                long count = slot.counts.get(i);
+                counts[i] += count;
+                total += count;
+            }
+            maxNanos = Math.max(maxNanos, slot.maxNanos.get());
+        }
+
+        // Desde el inicio del slot vivo más antiguo posible hasta ahora: el
+        // slot actual cuenta solo lo que lleva transcurrido
+        long windowStart = Math.max(createdMillis,
+                (epoch - slots.length + 1) * slotMillis);
+        double elapsedSeconds = Math.max(1, now - windowStart) / 1000.0;
+        return new Snapshot(total, total / elapsedSeconds,
+                percentile(counts, total, 0.50), percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99), maxNanos / 1_000_000.0);
+    }
+
+    static int bucketOf(long elapsedNanos)
+    {
+        long micros = Math.max(1, elapsedNanos / 1000);
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = exponent < SUB_BUCKET_BITS ?
+                (int) (micros << (SUB_BUCKET_BITS - exponent)) & (SUB_BUCKETS - 1) :
+                (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, exponent * SUB_BUCKETS + sub);
+    }
+
+    // Límite superior del bucket, en milisegundos
+    static double upperBoundMillis(int bucket)
+    {
+        int exponent = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        double micros = Math.pow(2, exponent) * (1 + (sub + 1) / (double) SUB_BUCKETS);
+        return micros / 1000.0;
+    }
+
+    private static double percentile(long[] counts, long total, double quantile)
+    {
+        if (total == 0)
+        {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return upperBoundMillis(i);
+            }
+        }
+        return upperBoundMillis(counts.length - 1);
+    }
+
+    public record Snapshot(long count, double throughputPerSecond, double p50Ms,
+                           double p95Ms, double p99Ms, double maxMs)
+    {
+    }
+
+    private static final class Slot
+    {
+        private final AtomicLong epoch = new AtomicLong();
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,74 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Candidatos del scoring neuronal en arreglos paralelos (SoA): solo los
+ * campos numéricos que usa el modelo, en primitivos contiguos. Los textos
+ * del top-K salen de ProductCatalog.
+ */
+public class CandidateBatch
+{
+    private long[] ids;
+    private double[] prices;
+    private int[] quantities;
+    private int size;
+
+    public CandidateBatch(int expectedSize)
+    {
+        int capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        prices = new double[capacity];
+        quantities = new int[capacity];
+    }
+
+    // Filas con las columnas de la consulta de candidatos
+    public static CandidateBatch fromRows(List<Map<String, Object>> rows)
+    {
+        CandidateBatch batch = new CandidateBatch(rows.size());
+        for (Map<String, Object> row : rows)
+        {
+            batch.add(((Number) row.get("id")).longValue(),
+                    ((Number) row.get("price")).doubleValue(),
+                    ((Number) row.get("quantity")).intValue());
+        }
+        return batch;
+    }
+
+    public void add(long id, double price, int quantity)
+    {
+        if (size == ids.length)
+        {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        ids[size] = id;
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long id(int index)
+    {
+        return ids[index];
+    }
+
+    public double price(int index)
+    {
+        return prices[index];
+    }
+
+    public int quantity(int index)
+    {
+        return quantities[index];
+    }
+}
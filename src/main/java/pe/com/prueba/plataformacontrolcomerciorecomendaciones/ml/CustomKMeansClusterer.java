@@ -0,0 +1,553 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * CLUSTERING K-MEANS CUSTOM
+ *
+ * Siembra k-means++ y luego, según KMeansOptions.mode:
+ * - FULL: Lloyd con las cotas de Hamerly (cota superior al centroide
+ *   asignado, inferior al segundo más cercano y media distancia al centroide
+ *   vecino), que evitan recalcular la mayoría de distancias en las últimas
+ *   iteraciones.
+ * - MINI_BATCH: Sculley (2010), centroides movidos con tasa 1/n por muestras
+ *   de miniBatchSize puntos; la siembra usa una muestra de los datos.
+ *
+ * Las asignaciones y sumas se reparten en bloques de CHUNK_SIZE puntos sobre
+ * el ForkJoinPool (null = en el hilo actual). Los parciales se reducen en
+ * orden de bloque, así que con la misma semilla el resultado no depende del
+ * número de hilos. Al final se disuelven los clusters con menos de
+ * minClusterSize usuarios y los segmentos se renumeran 0..k'-1.
+ */
+public class CustomKMeansClusterer
+{
+    // Puntos por tarea; fijo para que la reducción sea determinista
+    private static final int CHUNK_SIZE = 2048;
+
+    // Puntos usados para sembrar en modo mini-batch
+    private static final int SEED_SAMPLE = 20_000;
+
+    private final VectorKernels kernels;
+
+    private final ForkJoinPool pool;
+
+    private final KMeansOptions options;
+
+    private volatile Stats lastStats;
+
+    public CustomKMeansClusterer()
+    {
+        this(ScalarKernels.INSTANCE, null, KMeansOptions.defaults());
+    }
+
+    public CustomKMeansClusterer(VectorKernels kernels, ForkJoinPool pool,
+            KMeansOptions options)
+    {
+        this.kernels = kernels;
+        this.pool = pool;
+        this.options = options;
+    }
+
+    public Map<Integer, List<Long>> cluster(double[][] data,
+            List<Long> userIds, int k)
+    {
+        Map<Integer, List<Long>> clusters = new HashMap<>();
+        if (data.length == 0)
+        {
+            return clusters;
+        }
+
+        Run run = new Run(data, Math.max(1, Math.min(k, data.length)));
+        boolean miniBatch = options.mode() == KMeansMode.MINI_BATCH
+                || (options.mode() == KMeansMode.AUTO
+                && data.length >= options.miniBatchThreshold());
+        if (miniBatch)
+        {
+            run.miniBatch();
+        } else
+        {
+            run.full();
+        }
+        run.dropSmallClusters(miniBatch);
+
+        for (int c = 0; c < run.k; c++)
+        {
+            clusters.put(c, new ArrayList<>());
+        }
+        for (int i = 0; i < run.n; i++)
+        {
+            clusters.get(run.assign[i]).add(userIds.get(i));
+        }
+
+        long naive = (long) run.n * run.assignmentPasses * Math.max(1, run.kInitial);
+        lastStats = new Stats(miniBatch ? KMeansMode.MINI_BATCH : KMeansMode.FULL,
+                run.k, run.iterations, run.distanceComputations,
+                naive > 0 ? Math.max(0.0, 1.0 - (double) run.distanceComputations / naive) : 0.0);
+        return clusters;
+    }
+
+    // Datos de la última ejecución, para ai-model-status
+    public Stats getLastStats()
+    {
+        return lastStats;
+    }
+
+    private void forEachChunk(int count, IntConsumer body)
+    {
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (pool == null || chunks <= 1)
+        {
+            for (int c = 0; c < chunks; c++)
+            {
+                body.accept(c);
+            }
+            return;
+        }
+        // Los streams paralelos lanzados dentro del pool usan sus hilos
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(body))
+                .join();
+    }
+
+    /**
+     * Estado de una ejecución: puntos aplanados (n x d), centroides (k x d)
+     * y asignaciones.
+     */
+    private final class Run
+    {
+        private final int n;
+        private final int d;
+        private final double[] points;
+        private final SplittableRandom random = new SplittableRandom(options.seed());
+        private final int kInitial;
+
+        private int k;
+        private double[] centroids;
+        private final int[] assign;
+        private int iterations;
+        private int assignmentPasses;
+        private long distanceComputations;
+
+        Run(double[][] data, int k)
+        {
+            this.n = data.length;
+            this.d = data[0].length;
+            this.k = k;
+            this.kInitial = k;
+            this.points = new double[n * d];
+            for (int i = 0; i < n; i++)
+            {
+                System.arraycopy(data[i], 0, points, i * d, d);
+            }
+            this.assign = new int[n];
+        }
+
+        private double squaredDistance(int point, int centroid)
+        {
+            return kernels.squaredDistance(points, point * d, centroids,
+                    centroid * d, d);
+        }
+
+        // ---- Siembra k-means++ ----
+
+        void seed(int[] sample)
+        {
+            int m = sample.length;
+            centroids = new double[k * d];
+            double[] minD2 = new double[m];
+
+            copyPoint(sample[random.nextInt(m)], 0);
+            forEachChunk(m, chunk -> {
+                for (int s = chunk * CHUNK_SIZE; s < Math.min(m, (chunk + 1) * CHUNK_SIZE); s++)
+                {
+                    minD2[s] = squaredDistance(sample[s], 0);
+                }
+            });
+
+            for (int c = 1; c < k; c++)
+            {
+                double total = 0;
+                for (double value : minD2)
+                {
+                    total += value;
+                }
+                int chosen;
+                if (total <= 0)
+                {
+                    // Todos los puntos coinciden con algún centroide
+                    chosen = random.nextInt(m);
+                } else
+                {
+                    // Probabilidad proporcional a D(x)^2
+                    double target = random.nextDouble() * total;
+                    chosen = m - 1;
+                    double cumulative = 0;
+                    for (int s = 0; s < m; s++)
+                    {
+                        cumulative += minD2[s];
+                        if (cumulative > target)
+                        {
+                            chosen = s;
+                            break;
+                        }
+                    }
+                }
+                copyPoint(sample[chosen], c);
+
+                int centroid = c;
+                forEachChunk(m, chunk -> {
+                    for (int s = chunk * CHUNK_SIZE; s < Math.min(m, (chunk + 1) * CHUNK_SIZE); s++)
+                    {
+                        minD2[s] = Math.min(minD2[s], squaredDistance(sample[s], centroid));
+                    }
+                });
+            }
+            distanceComputations += (long) m * k;
+        }
+
+        private void copyPoint(int point, int centroid)
+        {
+            System.arraycopy(points, point * d, centroids, centroid * d, d);
+        }
+
+        // ---- Lloyd + Hamerly ----
+
+        void full()
+        {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++)
+            {
+                all[i] = i;
+            }
+            seed(all);
+            hamerly();
+        }
+
+        void hamerly()
+        {
+            double[] upper = new double[n];
+            double[] lower = new double[n];
+            int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            long[] chunkDistances = new long[chunks];
+            int[] chunkChanges = new int[chunks];
+
+            // Asignación inicial completa
+            forEachChunk(n, chunk -> {
+                for (int i = chunk * CHUNK_SIZE; i < Math.min(n, (chunk + 1) * CHUNK_SIZE); i++)
+                {
+                    scanAll(i, upper, lower);
+                }
+            });
+            distanceComputations += (long) n * k;
+            assignmentPasses++;
+
+            double[] half = new double[k];
+            double[] move = new double[k];
+            double[] sums = new double[chunks * k * d];
+            int[] counts = new int[chunks * k];
+
+            for (iterations = 0; iterations < options.maxIterations(); )
+            {
+                iterations++;
+
+                // Nuevos centroides y cuánto se movió cada uno
+                double[] previous = centroids.clone();
+                recomputeCentroids(sums, counts);
+                int farthest = 0;
+                double maxMove = 0;
+                double secondMove = 0;
+                for (int c = 0; c < k; c++)
+                {
+                    move[c] = Math.sqrt(kernels.squaredDistance(previous, c * d,
+                            centroids, c * d, d));
+                    if (move[c] > maxMove)
+                    {
+                        secondMove = maxMove;
+                        maxMove = move[c];
+                        farthest = c;
+                    } else if (move[c] > secondMove)
+                    {
+                        secondMove = move[c];
+                    }
+                }
+
+                // Media distancia de cada centroide a su vecino más cercano
+                Arrays.fill(half, Double.MAX_VALUE);
+                for (int a = 0; a < k; a++)
+                {
+                    for (int b = a + 1; b < k; b++)
+                    {
+                        double distance = 0.5 * Math.sqrt(kernels.squaredDistance(
+                                centroids, a * d, centroids, b * d, d));
+                        half[a] = Math.min(half[a], distance);
+                        half[b] = Math.min(half[b], distance);
+                    }
+                }
+                distanceComputations += (long) k * (k - 1) / 2;
+
+                int moved = farthest;
+                double maxShift = maxMove;
+                double secondShift = secondMove;
+                forEachChunk(n, chunk -> {
+                    long computed = 0;
+                    int changes = 0;
+                    for (int i = chunk * CHUNK_SIZE; i < Math.min(n, (chunk + 1) * CHUNK_SIZE); i++)
+                    {
+                        int current = assign[i];
+                        upper[i] += move[current];
+                        lower[i] -= current == moved ? secondShift : maxShift;
+
+                        double bound = Math.max(half[current], lower[i]);
+                        if (upper[i] <= bound)
+                        {
+                            continue;
+                        }
+                        upper[i] = Math.sqrt(squaredDistance(i, current));
+                        computed++;
+                        if (upper[i] <= bound)
+                        {
+                            continue;
+                        }
+                        scanAll(i, upper, lower);
+                        computed += k;
+                        if (assign[i] != current)
+                        {
+                            changes++;
+                        }
+                    }
+                    chunkDistances[chunk] = computed;
+                    chunkChanges[chunk] = changes;
+                });
+                assignmentPasses++;
+
+                int changed = 0;
+                for (int c = 0; c < chunks; c++)
+                {
+                    distanceComputations += chunkDistances[c];
+                    changed += chunkChanges[c];
+                }
+                if (changed == 0)
+                {
+                    break;
+                }
+            }
+        }
+
+        // Centroide más cercano y distancias al primero y al segundo
+        private void scanAll(int i, double[] upper, double[] lower)
+        {
+            double best = Double.MAX_VALUE;
+            double second = Double.MAX_VALUE;
+            int closest = 0;
+            for (int c = 0; c < k; c++)
+            {
+                double distance = squaredDistance(i, c);
+                if (distance < best)
+                {
+                    second = best;
+                    best = distance;
+                    closest = c;
+                } else if (distance < second)
+                {
+                    second = distance;
+                }
+            }
+            assign[i] = closest;
+            upper[i] = Math.sqrt(best);
+            lower[i] = k > 1 ? Math.sqrt(second) : Double.MAX_VALUE;
+        }
+
+        /**
+         * Sumas por bloque y reducción en orden de bloque. Un cluster vacío
+         * conserva su centroide anterior.
+         */
+        private void recomputeCentroids(double[] sums, int[] counts)
+        {
+            Arrays.fill(sums, 0.0);
+            Arrays.fill(counts, 0);
+            forEachChunk(n, chunk -> {
+                int sumBase = chunk * k * d;
+                int countBase = chunk * k;
+                for (int i = chunk * CHUNK_SIZE; i < Math.min(n, (chunk + 1) * CHUNK_SIZE); i++)
+                {
+                    int c = assign[i];
+                    counts[countBase + c]++;
+                    kernels.axpy(1.0, points, i * d, sums, sumBase + c * d, d);
+                }
+            });
+
+            int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            double[] total = new double[k * d];
+            long[] size = new long[k];
+            for (int chunk = 0; chunk < chunks; chunk++)
+            {
+                kernels.axpy(1.0, sums, chunk * k * d, total, 0, k * d);
+                for (int c = 0; c < k; c++)
+                {
+                    size[c] += counts[chunk * k + c];
+                }
+            }
+            for (int c = 0; c < k; c++)
+            {
+                if (size[c] > 0)
+                {
+                    for (int j = 0; j < d; j++)
+                    {
+                        centroids[c * d + j] = total[c * d + j] / size[c];
+                    }
+                }
+            }
+        }
+
+        // ---- Mini-batch ----
+
+        void miniBatch()
+        {
+            int sampleSize = Math.min(n, SEED_SAMPLE);
+            int[] sample = new int[sampleSize];
+            for (int s = 0; s < sampleSize; s++)
+            {
+                sample[s] = sampleSize == n ? s : random.nextInt(n);
+            }
+            seed(sample);
+
+            int batchSize = Math.min(n, Math.max(1, options.miniBatchSize()));
+            int[] batch = new int[batchSize];
+            int[] batchAssign = new int[batchSize];
+            long[] seen = new long[k];
+            for (iterations = 0; iterations < options.miniBatchIterations(); iterations++)
+            {
+                for (int s = 0; s < batchSize; s++)
+                {
+                    batch[s] = random.nextInt(n);
+                }
+                forEachChunk(batchSize, chunk -> {
+                    for (int s = chunk * CHUNK_SIZE; s < Math.min(batchSize, (chunk + 1) * CHUNK_SIZE); s++)
+                    {
+                        batchAssign[s] = nearest(batch[s]);
+                    }
+                });
+                distanceComputations += (long) batchSize * k;
+
+                // Actualización secuencial en orden de muestra (tasa 1/vistos)
+                for (int s = 0; s < batchSize; s++)
+                {
+                    int c = batchAssign[s];
+                    double eta = 1.0 / ++seen[c];
+                    int base = c * d;
+                    int point = batch[s] * d;
+                    for (int j = 0; j < d; j++)
+                    {
+                        centroids[base + j] += eta * (points[point + j] - centroids[base + j]);
+                    }
+                }
+            }
+            assignAll();
+        }
+
+        private int nearest(int point)
+        {
+            int closest = 0;
+            double best = Double.MAX_VALUE;
+            for (int c = 0; c < k; c++)
+            {
+                double distance = squaredDistance(point, c);
+                if (distance < best)
+                {
+                    best = distance;
+                    closest = c;
+                }
+            }
+            return closest;
+        }
+
+        private void assignAll()
+        {
+            forEachChunk(n, chunk -> {
+                for (int i = chunk * CHUNK_SIZE; i < Math.min(n, (chunk + 1) * CHUNK_SIZE); i++)
+                {
+                    assign[i] = nearest(i);
+                }
+            });
+            distanceComputations += (long) n * k;
+            assignmentPasses++;
+        }
+
+        // ---- min-cluster-size ----
+
+        /**
+         * Quita los centroides con menos de minClusterSize puntos (siempre
+         * queda al menos el más grande) y reasigna. En modo FULL se vuelve a
+         * iterar desde los centroides restantes; puede repetirse si la
+         * reasignación deja otro cluster por debajo del mínimo.
+         */
+        void dropSmallClusters(boolean miniBatch)
+        {
+            while (true)
+            {
+                int[] sizes = new int[k];
+                for (int i = 0; i < n; i++)
+                {
+                    sizes[assign[i]]++;
+                }
+
+                int largest = 0;
+                int keep = 0;
+                for (int c = 0; c < k; c++)
+                {
+                    if (sizes[c] > sizes[largest])
+                    {
+                        largest = c;
+                    }
+                    if (sizes[c] >= Math.max(1, options.minClusterSize()))
+                    {
+                        keep++;
+                    }
+                }
+                if (keep == k)
+                {
+                    return;
+                }
+
+                double[] kept = new double[Math.max(1, keep) * d];
+                int next = 0;
+                for (int c = 0; c < k; c++)
+                {
+                    if (sizes[c] >= Math.max(1, options.minClusterSize())
+                            || (keep == 0 && c == largest))
+                    {
+                        System.arraycopy(centroids, c * d, kept, next++ * d, d);
+                    }
+                }
+                centroids = kept;
+                k = next;
+
+                if (miniBatch)
+                {
+                    assignAll();
+                } else
+                {
+                    int done = iterations;
+                    hamerly();
+                    iterations += done;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resumen de una ejecución. prunedFraction es la fracción de distancias
+     * punto-centroide que se evitó frente a recalcular todas en cada pasada.
+     */
+    public record Stats(KMeansMode mode, int clusters, int iterations,
+                        long distanceComputations, double prunedFraction)
+    {
+    }
+}
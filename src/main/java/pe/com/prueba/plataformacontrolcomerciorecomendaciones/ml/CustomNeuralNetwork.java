@@ -0,0 +1,246 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * RED NEURONAL CUSTOM
+ *
+ * Todos los parámetros viven en un único double[] contiguo (ver offsets
+ * W1/B1/W2/B2). W1 se guarda por neurona oculta ([hidden][input]) y W2 por
+ * salida ([output][hidden]), así los productos internos recorren memoria
+ * secuencial. El entrenamiento trabaja sobre una copia y la publica al
+ * terminar, de modo que predict nunca ve pesos a medio actualizar.
+ * Los productos internos y el lote de predictBatch van por VectorKernels.
+ */
+@Slf4j
+public class CustomNeuralNetwork
+{
+    private final int inputSize = 14; // userVector(8) + productVector(6)
+    private final int hiddenSize = 10;
+    private final int outputSize = 1;
+    private final double learningRate = 0.01;
+
+    // Offsets dentro de params
+    final int W1 = 0;
+    final int B1 = W1 + hiddenSize * inputSize;
+    final int W2 = B1 + hiddenSize;
+    final int B2 = W2 + outputSize * hiddenSize;
+
+    private final VectorKernels kernels;
+
+    private volatile double[] params;
+
+    public CustomNeuralNetwork()
+    {
+        this(ScalarKernels.INSTANCE);
+    }
+
+    public CustomNeuralNetwork(VectorKernels kernels)
+    {
+        this.kernels = kernels;
+        initializeWeights();
+    }
+
+    private void initializeWeights()
+    {
+        Random random = new Random();
+        double[] initial = new double[parameterCount()];
+
+        // Inicialización Xavier
+        double limit1 = Math.sqrt(6.0 / (inputSize + hiddenSize));
+        double limit2 = Math.sqrt(6.0 / (hiddenSize + outputSize));
+
+        for (int k = W1; k < B1; k++)
+        {
+            initial[k] = (random.nextDouble() - 0.5) * 2 * limit1;
+        }
+        for (int k = W2; k < B2; k++)
+        {
+            initial[k] = (random.nextDouble() - 0.5) * 2 * limit2;
+        }
+        params = initial;
+    }
+
+    /**
+     * SGD por muestra (modo "sgd"): mismo orden de actualización que la
+     * versión original, sin reservar memoria por muestra.
+     */
+    public void train(double[][] inputs, double[][] targets, int epochs)
+    {
+        double[] p = params.clone();
+        double[] hidden = new double[hiddenSize];
+        double[] output = new double[outputSize];
+        double[] outputGradients = new double[outputSize];
+
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            double totalLoss = 0;
+
+            for (int s = 0; s < inputs.length; s++)
+            {
+                double[] input = inputs[s];
+                int width = Math.min(input.length, inputSize);
+                forward(p, input, 0, width, hidden, output);
+
+                // Gradientes de salida y loss
+                for (int o = 0; o < outputSize; o++)
+                {
+                    double error = targets[s][o] - output[o];
+                    totalLoss += error * error;
+                    outputGradients[o] = error * (1 - output[o] * output[o]); // Derivada tanh
+                }
+
+                // Actualizar pesos capa de salida
+                for (int o = 0; o < outputSize; o++)
+                {
+                    int row = W2 + o * hiddenSize;
+                    for (int j = 0; j < hiddenSize; j++)
+                    {
+                        p[row + j] += learningRate * outputGradients[o] * hidden[j];
+                    }
+                }
+
+                // Gradientes capa oculta (con W2 ya actualizado) y pesos
+                for (int j = 0; j < hiddenSize; j++)
+                {
+                    double error = 0;
+                    for (int o = 0; o < outputSize; o++)
+                    {
+                        error += outputGradients[o] * p[W2 + o * hiddenSize + j];
+                    }
+                    double gradient = error * (1 - hidden[j] * hidden[j]);
+                    int row = W1 + j * inputSize;
+                    for (int i = 0; i < width; i++)
+                    {
+                        p[row + i] += learningRate * gradient * input[i];
+                    }
+                }
+            }
+
+            if (epoch % 20 == 0)
+            {
+                log.debug("Epoch {}: Loss = {}", epoch,
+                        totalLoss / inputs.length);
+            }
+        }
+        params = p;
+    }
+
+    /**
+     * Forward de una muestra que empieza en x[offset] y tiene width
+     * componentes (las que falten hasta inputSize cuentan como 0).
+     */
+    void forward(double[] p, double[] x, int offset, int width,
+            double[] hidden, double[] output)
+    {
+        kernels.matVec(p, W1, hiddenSize, width, inputSize, x, offset, hidden);
+        for (int j = 0; j < hiddenSize; j++)
+        {
+            hidden[j] = Math.tanh(hidden[j] + p[B1 + j]); // Función de activación
+        }
+        kernels.matVec(p, W2, outputSize, hiddenSize, hiddenSize, hidden, 0,
+                output);
+        for (int o = 0; o < outputSize; o++)
+        {
+            output[o] = Math.tanh(output[o] + p[B2 + o]);
+        }
+    }
+
+    // Copia de los parámetros actuales, para entrenar sin tocar los publicados
+    double[] copyParams()
+    {
+        return params.clone();
+    }
+
+    void publish(double[] trained)
+    {
+        if (trained.length != parameterCount())
+        {
+            throw new IllegalArgumentException("Se esperaban "
+                    + parameterCount() + " parámetros: " + trained.length);
+        }
+        params = trained;
+    }
+
+    public int inputSize()
+    {
+        return inputSize;
+    }
+
+    public int hiddenSize()
+    {
+        return hiddenSize;
+    }
+
+    public int outputSize()
+    {
+        return outputSize;
+    }
+
+    public int parameterCount()
+    {
+        return inputSize * hiddenSize + hiddenSize * outputSize + hiddenSize
+                + outputSize;
+    }
+
+    /**
+     * Predicción por lotes. La entrada de cada candidato es
+     * [shared | columns[0][c], columns[1][c], ...]: la parte común (el perfil
+     * del usuario) aporta lo mismo a la capa oculta de todos, así que se
+     * calcula una vez; las columnas por candidato van en SoA (columns[f] es
+     * un arreglo de count valores) y la capa oculta se resuelve fila por fila
+     * sobre los count candidatos. Igual que predict, solo cuentan las
+     * primeras inputSize componentes; la activación es la tanh aproximada
+     * de VectorKernels, así que puede diferir de predict en ~1e-5.
+     *
+     * @param out recibe la predicción (0..1) de cada candidato
+     */
+    public void predictBatch(double[] shared, double[][] columns, int count,
+            double[] out)
+    {
+        double[] p = params;
+        int sharedWidth = Math.min(shared.length, inputSize);
+        int columnWidth = Math.min(columns.length, inputSize - sharedWidth);
+        double[] hidden = new double[count];
+
+        Arrays.fill(out, 0, count, p[B2]);
+        for (int j = 0; j < hiddenSize; j++)
+        {
+            int row = W1 + j * inputSize;
+            double base = p[B1 + j] + kernels.dot(p, row, shared, 0, sharedWidth);
+            Arrays.fill(hidden, 0, count, base);
+            for (int f = 0; f < columnWidth; f++)
+            {
+                kernels.axpy(p[row + sharedWidth + f], columns[f], 0, hidden, 0,
+                        count);
+            }
+            kernels.tanh(hidden, 0, count);
+            kernels.axpy(p[W2 + j], hidden, 0, out, 0, count);
+        }
+        kernels.tanh(out, 0, count);
+        for (int c = 0; c < count; c++)
+        {
+            out[c] = Math.max(0, out[c]);
+        }
+    }
+
+    public double predict(double[] input)
+    {
+        double[] p = params;
+        int width = Math.min(input.length, inputSize);
+
+        // outputSize == 1: se acumula la salida sin guardar la capa oculta
+        double out = p[B2];
+        for (int j = 0; j < hiddenSize; j++)
+        {
+            double sum = p[B1 + j] + kernels.dot(p, W1 + j * inputSize, input, 0,
+                    width);
+            out += Math.tanh(sum) * p[W2 + j];
+        }
+        return Math.max(0,
+                Math.min(1, Math.tanh(out))); // Normalizar entre 0 y 1
+    }
+}
@@ -0,0 +1,14 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+/**
+ * Variante de k-means de CustomKMeansClusterer.
+ */
+public enum KMeansMode
+{
+    // FULL hasta mini-batch-threshold usuarios, MINI_BATCH desde ahí
+    AUTO,
+    // Lloyd con cotas de Hamerly sobre todos los puntos
+    FULL,
+    // Mini-batch de Sculley: actualizaciones con muestras, para millones de usuarios
+    MINI_BATCH
+}
@@ -0,0 +1,18 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+/**
+ * Parámetros de CustomKMeansClusterer (ai.recommendation.algorithms.k-means).
+ *
+ * @param minClusterSize los clusters más chicos se disuelven y sus puntos
+ *                       pasan al centroide más cercano que quede
+ */
+public record KMeansOptions(KMeansMode mode, int maxIterations,
+                            int minClusterSize, int miniBatchSize,
+                            int miniBatchIterations, int miniBatchThreshold,
+                            long seed)
+{
+    public static KMeansOptions defaults()
+    {
+        return new KMeansOptions(KMeansMode.AUTO, 50, 1, 1024, 200, 100_000, 42);
+    }
+}
@@ -0,0 +1,280 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Entrenamiento por mini-batch (modo "mini-batch") de CustomNeuralNetwork.
+ *
+ * Las muestras se copian una vez a arreglos planos. Cada batch se parte en
+ * shards de shardSize muestras que calculan su gradiente en paralelo sobre
+ * el ForkJoinPool, cada uno en su propio buffer preasignado. Los buffers se
+ * suman en orden de shard, así el resultado no depende de cuántos hilos
+ * haya ni de cuál termina primero: misma semilla, mismos pesos. Con un solo
+ * shard se calcula en el hilo actual.
+ *
+ * A diferencia del modo sgd también se entrenan los bias y se usa el
+ * gradiente promedio del batch, por eso el learning rate es otro.
+ */
+@Slf4j
+public class MiniBatchTrainer
+{
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final int shardSize;
+    private final double learningRate;
+    private final long seed;
+
+    public MiniBatchTrainer(ForkJoinPool pool, int batchSize, int shardSize,
+            double learningRate, long seed)
+    {
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+        this.shardSize = Math.max(1, Math.min(shardSize, this.batchSize));
+        this.learningRate = learningRate;
+        this.seed = seed;
+    }
+
+    /**
+     * Entrena y publica los pesos nuevos en la red.
+     *
+     * @return loss medio (error cuadrático) de la última época
+     */
+    public double train(CustomNeuralNetwork network, double[][] inputs,
+            double[][] targets, int epochs)
+    {
+        int samples = inputs.length;
+        if (samples == 0 || epochs <= 0)
+        {
+            return 0.0;
+        }
+
+        // Se empaqueta con el ancho real de las features (el dataset trae
+        // menos de inputSize columnas y el resto cuenta como 0)
+        int width = 0;
+        for (double[] input : inputs)
+        {
+            width = Math.max(width, Math.min(input.length, network.inputSize()));
+        }
+        int outputSize = network.outputSize();
+        double[] x = new double[samples * width];
+        double[] y = new double[samples * outputSize];
+        for (int s = 0; s < samples; s++)
+        {
+            System.arraycopy(inputs[s], 0, x, s * width,
+                    Math.min(inputs[s].length, width));
+            System.arraycopy(targets[s], 0, y, s * outputSize, outputSize);
+        }
+        return train(network, x, width, y, samples, epochs);
+    }
+
+    /**
+     * Igual que train(network, inputs, targets, epochs) con las muestras ya
+     * empaquetadas por filas: x tiene samples * width valores (width <=
+     * inputSize) e y samples * outputSize. Los arrays no se modifican.
+     */
+    public double train(CustomNeuralNetwork network, double[] x, int width,
+            double[] y, int samples, int epochs)
+    {
+        if (samples == 0 || epochs <= 0)
+        {
+            return 0.0;
+        }
+
+        double[] params = network.copyParams();
+        int maxShards = (Math.min(batchSize, samples) + shardSize - 1) / shardSize;
+        Shard[] shards = new Shard[maxShards];
+        for (int k = 0; k < maxShards; k++)
+        {
+            shards[k] = new Shard(network, params, x, width, y);
+        }
+        double[] gradient = new double[params.length];
+
+        int[] order = new int[samples];
+        for (int s = 0; s < samples; s++)
+        {
+            order[s] = s;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+
+        double epochLoss = 0;
+        for (int epoch = 0; epoch < epochs; epoch++)
+        {
+            shuffle(order, random);
+            epochLoss = 0;
+            for (int start = 0; start < samples; start += batchSize)
+            {
+                int end = Math.min(samples, start + batchSize);
+                int shardCount = (end - start + shardSize - 1) / shardSize;
+                for (int k = 0; k < shardCount; k++)
+                {
+                    int from = start + k * shardSize;
+                    shards[k].prepare(order, from, Math.min(end, from + shardSize));
+                }
+                runShards(shards, shardCount);
+
+                // Reducción determinista: siempre en orden de shard
+                Arrays.fill(gradient, 0.0);
+                for (int k = 0; k < shardCount; k++)
+                {
+                    double[] partial = shards[k].gradient;
+                    for (int p = 0; p < gradient.length; p++)
+                    {
+                        gradient[p] += partial[p];
+                    }
+                    epochLoss += shards[k].loss;
+                }
+
+                double step = learningRate / (end - start);
+                for (int p = 0; p < params.length; p++)
+                {
+                    params[p] += step * gradient[p];
+                }
+            }
+
+            if (epoch % 20 == 0)
+            {
+                log.debug("Epoch {}: Loss = {}", epoch, epochLoss / samples);
+            }
+        }
+
+        network.publish(params);
+        return epochLoss / samples;
+    }
+
+    private void runShards(Shard[] shards, int shardCount)
+    {
+        if (shardCount == 1 || pool == null)
+        {
+            for (int k = 0; k < shardCount; k++)
+            {
+                shards[k].compute();
+            }
+            return;
+        }
+        for (int k = 0; k < shardCount; k++)
+        {
+            shards[k].reinitialize();
+        }
+        pool.invoke(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                ForkJoinTask.invokeAll(Arrays.asList(shards).subList(0, shardCount));
+            }
+        });
+    }
+
+    private static void shuffle(int[] order, SplittableRandom random)
+    {
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    /**
+     * Gradiente de un rango de muestras del batch. Los buffers se reservan
+     * una vez por entrenamiento y se reutilizan en cada batch.
+     */
+    private static final class Shard extends RecursiveAction
+    {
+        private final CustomNeuralNetwork network;
+        private final double[] params;
+        private final double[] x;
+        private final int width;
+        private final double[] y;
+        private final double[] gradient;
+        private final double[] hidden;
+        private final double[] output;
+        private final double[] outputGradients;
+
+        private int[] order;
+        private int from;
+        private int to;
+        private double loss;
+
+        Shard(CustomNeuralNetwork network, double[] params, double[] x,
+                int width, double[] y)
+        {
+            this.network = network;
+            this.params = params;
+            this.x = x;
+            this.width = width;
+            this.y = y;
+            this.gradient = new double[params.length];
+            this.hidden = new double[network.hiddenSize()];
+            this.output = new double[network.outputSize()];
+            this.outputGradients = new double[network.outputSize()];
+        }
+
+        void prepare(int[] order, int from, int to)
+        {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int inputSize = network.inputSize();
+            int hiddenSize = hidden.length;
+            int outputSize = output.length;
+            int w1 = network.W1;
+            int b1 = network.B1;
+            int w2 = network.W2;
+            int b2 = network.B2;
+
+            Arrays.fill(gradient, 0.0);
+            double shardLoss = 0;
+            for (int n = from; n < to; n++)
+            {
+                int sample = order[n];
+                int xOffset = sample * width;
+                network.forward(params, x, xOffset, width, hidden, output);
+
+                // Signo: error = target - output, el paso suma el gradiente
+                for (int o = 0; o < outputSize; o++)
+                {
+                    double error = y[sample * outputSize + o] - output[o];
+                    shardLoss += error * error;
+                    double g = error * (1 - output[o] * output[o]);
+                    outputGradients[o] = g;
+                    gradient[b2 + o] += g;
+                    int row = w2 + o * hiddenSize;
+                    for (int j = 0; j < hiddenSize; j++)
+                    {
+                        gradient[row + j] += g * hidden[j];
+                    }
+                }
+
+                for (int j = 0; j < hiddenSize; j++)
+                {
+                    double error = 0;
+                    for (int o = 0; o < outputSize; o++)
+                    {
+                        error += outputGradients[o] * params[w2 + o * hiddenSize + j];
+                    }
+                    double g = error * (1 - hidden[j] * hidden[j]);
+                    gradient[b1 + j] += g;
+                    int row = w1 + j * inputSize;
+                    for (int i = 0; i < width; i++)
+                    {
+                        gradient[row + i] += g * x[xOffset + i];
+                    }
+                }
+            }
+            loss = shardLoss;
+        }
+    }
+}
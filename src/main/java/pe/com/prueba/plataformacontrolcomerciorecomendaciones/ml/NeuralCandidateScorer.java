@@ -0,0 +1,223 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Scoring de candidatos con la red neuronal: arma las features de producto,
+ * predice todo el lote con CustomNeuralNetwork.predictBatch y aplica el
+ * boost por segmento. Separado del servicio para poder medirlo sin base de
+ * datos.
+ *
+ * La entrada de la red es perfil (8) + producto (6); la similitud y la
+ * distancia que antes se agregaban al final quedaban fuera de las 14
+ * entradas de la red, por eso ya no se calculan.
+ */
+public class NeuralCandidateScorer
+{
+    private static final String REASON = "AI Neural Network Prediction (Custom)";
+
+    static final int PRODUCT_FEATURES = 6;
+
+    private final CustomNeuralNetwork neuralNetwork;
+
+    private final Map<Long, double[]> productEmbeddings;
+
+    public NeuralCandidateScorer(CustomNeuralNetwork neuralNetwork,
+            Map<Long, double[]> productEmbeddings)
+    {
+        this.neuralNetwork = neuralNetwork;
+        this.productEmbeddings = productEmbeddings;
+    }
+
+    /**
+     * Scores de todos los candidatos (en el orden del lote) y los índices de
+     * los topK mejores, de mayor a menor; a igual score gana el que vino
+     * primero.
+     */
+    public ScoredCandidates score(double[] userProfile, int userSegment,
+            CandidateBatch batch, int topK)
+    {
+        int count = batch.size();
+        double[][] columns = new double[PRODUCT_FEATURES][count];
+        for (int c = 0; c < count; c++)
+        {
+            double[] embedding = productEmbeddings.get(batch.id(c));
+            if (embedding != null)
+            {
+                for (int f = 0; f < PRODUCT_FEATURES && f < embedding.length; f++)
+                {
+                    columns[f][c] = embedding[f];
+                }
+            } else
+            {
+                // Vector dinámico del producto
+                writeDynamicProductVector(columns, c, batch.price(c),
+                        batch.quantity(c));
+            }
+        }
+
+        double[] scores = new double[count];
+        neuralNetwork.predictBatch(userProfile, columns, count, scores);
+        for (int c = 0; c < count; c++)
+        {
+            // Aplicar boost por segmento
+            scores[c] = applySegmentBoost(scores[c] * 100, userSegment,
+                    batch.price(c));
+        }
+        return new ScoredCandidates(scores, topK(scores, count, topK));
+    }
+
+    /**
+     * Solo se materializan objetos para el top-K; nombre, descripción,
+     * productor y categoría salen de products. Un candidato que todavía no
+     * está en el catálogo se omite.
+     */
+    public List<ProductScore> toProductScores(CandidateBatch batch,
+            ScoredCandidates scored,
+            Function<Long, ProductCatalog.ProductInfo> products)
+    {
+        List<ProductScore> result = new ArrayList<>(scored.top().length);
+        for (int index : scored.top())
+        {
+            ProductCatalog.ProductInfo info = products.apply(batch.id(index));
+            if (info == null)
+            {
+                continue;
+            }
+            result.add(new ProductScore(batch.id(index), info.name(),
+                    info.description(), batch.price(index), info.producerName(),
+                    info.category(), scored.scores()[index], REASON));
+        }
+        return result;
+    }
+
+    private static void writeDynamicProductVector(double[][] columns, int c,
+            double price, int quantity)
+    {
+        columns[0][c] = normalizeValue(price, 0, 2000);
+        columns[1][c] = normalizeValue(quantity, 0, 100);
+        columns[2][c] = Math.log(price + 1) / 10; // Característica logarítmica
+        columns[3][c] = Math.sqrt(quantity) / 10; // Característica raíz
+        columns[4][c] = Math.sin(price / 100); // Patrón cíclico
+        columns[5][c] = ThreadLocalRandom.current().nextDouble() * 0.1; // Ruido para diversidad
+    }
+
+    /**
+     * Selección top-K con un min-heap de índices: O(n log k) sin ordenar
+     * todo el lote ni crear objetos por candidato.
+     */
+    static int[] topK(double[] scores, int count, int k)
+    {
+        int size = Math.min(Math.max(k, 0), count);
+        int[] heap = new int[size];
+        int filled = 0;
+        for (int c = 0; c < count; c++)
+        {
+            if (filled < size)
+            {
+                heap[filled] = c;
+                siftUp(heap, filled++, scores);
+            } else if (size > 0 && better(c, heap[0], scores))
+            {
+                heap[0] = c;
+                siftDown(heap, 0, size, scores);
+            }
+        }
+
+        // Vaciar el heap deja los peores primero; se llena desde el final
+        int[] ordered = new int[size];
+        for (int n = size; n > 0; n--)
+        {
+            ordered[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, 0, n - 1, scores);
+        }
+        return ordered;
+    }
+
+    private static boolean better(int a, int b, double[] scores)
+    {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int index, double[] scores)
+    {
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], heap[index], scores))
+            {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int index, int size,
+            double[] scores)
+    {
+        while (true)
+        {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && better(heap[worst], heap[left], scores))
+            {
+                worst = left;
+            }
+            if (right < size && better(heap[worst], heap[right], scores))
+            {
+                worst = right;
+            }
+            if (worst == index)
+            {
+                return;
+            }
+            swap(heap, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b)
+    {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private static double applySegmentBoost(double baseScore, int userSegment,
+            double price)
+    {
+        switch (userSegment)
+        {
+        case 0: // Usuario casual - productos económicos
+            return price < 200 ? baseScore * 1.2 : baseScore * 0.8;
+        case 1: // Productor - herramientas y equipos
+            return price > 100 ? baseScore * 1.3 : baseScore;
+        case 2: // Comprador premium - productos de calidad
+            return price > 500 ? baseScore * 1.4 : baseScore * 0.9;
+        default: // Usuario general
+            return baseScore;
+        }
+    }
+
+    private static double normalizeValue(double value, double min, double max)
+    {
+        return Math.max(0.0, Math.min(1.0, (value - min) / (max - min)));
+    }
+
+    /**
+     * Scores primitivos por candidato y el índice top-K (posiciones en el
+     * lote, de mayor a menor score).
+     */
+    public record ScoredCandidates(double[] scores, int[] top)
+    {
+    }
+}
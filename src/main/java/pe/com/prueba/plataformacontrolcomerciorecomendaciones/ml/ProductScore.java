@@ -0,0 +1,71 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+/**
+ * SCORE DE PRODUCTOS
+ */
+public class ProductScore
+{
+    private final Long productId;
+    private final String name;
+    private final String description;
+    private final Double price;
+    private final String producerName;
+    private final String category;
+    private final Double score;
+    private final String reason;
+
+    public ProductScore(Long productId, String name, String description,
+            Double price, String producerName, String category,
+            Double score, String reason)
+    {
+        this.productId = productId;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.producerName = producerName;
+        this.category = category;
+        this.score = score;
+        this.reason = reason;
+    }
+
+    // Getters
+    public Long getProductId()
+    {
+        return productId;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public Double getPrice()
+    {
+        return price;
+    }
+
+    public String getProducerName()
+    {
+        return producerName;
+    }
+
+    public String getCategory()
+    {
+        return category;
+    }
+
+    public Double getScore()
+    {
+        return score;
+    }
+
+    public String getReason()
+    {
+        return reason;
+    }
+}
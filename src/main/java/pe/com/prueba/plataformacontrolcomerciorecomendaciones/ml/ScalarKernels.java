@@ -0,0 +1,155 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+/**
+ * Implementación escalar de VectorKernels; es el fallback cuando no hay
+ * Vector API y la referencia para los benchmarks.
+ */
+public final class ScalarKernels implements VectorKernels
+{
+    public static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    // Coeficientes de la aproximación de tanh (ver VectorKernels)
+    static final double TANH_CLAMP = 9.0;
+    static final double N0 = 135135.0;
+    static final double N1 = 17325.0;
+    static final double N2 = 378.0;
+    static final double D1 = 62370.0;
+    static final double D2 = 3150.0;
+    static final double D3 = 28.0;
+
+    private ScalarKernels()
+    {
+    }
+
+    @Override
+    public String name()
+    {
+        return "scalar";
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset,
+            int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(double[] a, int aOffset, double[] b,
+            int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b,
+            int bOffset, int length)
+    {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void matVec(double[] matrix, int offset, int rows, int cols,
+            int stride, double[] x, int xOffset, double[] out)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            out[r] = dot(matrix, offset + r * stride, x, xOffset, cols);
+        }
+    }
+
+    @Override
+    public void matVec(float[] matrix, int offset, int rows, int cols,
+            int stride, float[] x, int xOffset, float[] out)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            out[r] = dot(matrix, offset + r * stride, x, xOffset, cols);
+        }
+    }
+
+    @Override
+    public void axpy(double a, double[] x, int xOffset, double[] y,
+            int yOffset, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            y[yOffset + i] += a * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(float a, float[] x, int xOffset, float[] y, int yOffset,
+            int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            y[yOffset + i] += a * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void tanh(double[] values, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            values[i] = tanh(values[i]);
+        }
+    }
+
+    @Override
+    public void tanh(float[] values, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            values[i] = tanh(values[i]);
+        }
+    }
+
+    // En float, igual que la variante SIMD (sin pasar por double)
+    static float tanh(float value)
+    {
+        float x = Math.max((float) -TANH_CLAMP, Math.min((float) TANH_CLAMP, value));
+        float x2 = x * x;
+        float p = ((x2 + (float) N2) * x2 + (float) N1) * x2 + (float) N0;
+        float q = (((float) D3 * x2 + (float) D2) * x2 + (float) D1) * x2 + (float) N0;
+        return Math.max(-1f, Math.min(1f, x * p / q));
+    }
+
+    static double tanh(double value)
+    {
+        double x = Math.max(-TANH_CLAMP, Math.min(TANH_CLAMP, value));
+        double x2 = x * x;
+        double p = ((x2 + N2) * x2 + N1) * x2 + N0;
+        double q = ((D3 * x2 + D2) * x2 + D1) * x2 + N0;
+        return Math.max(-1.0, Math.min(1.0, x * p / q));
+    }
+}
@@ -0,0 +1,237 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.D1;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.D2;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.D3;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.N0;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.N1;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.N2;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels.TANH_CLAMP;
+
+/**
+ * VectorKernels con jdk.incubator.vector usando el ancho preferido de la
+ * CPU (4 doubles / 8 floats con AVX2). El resto que no llena un vector se
+ * hace escalar. Solo se instancia desde VectorKernels.select.
+ */
+final class SimdKernels implements VectorKernels, VectorKernels.SimdCapable
+{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public String name()
+    {
+        return "simd(" + DOUBLES.length() + "x double, " + FLOATS.length()
+                + "x float)";
+    }
+
+    @Override
+    public int doubleLanes()
+    {
+        return DOUBLES.length();
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset,
+            int length)
+    {
+        int i = 0;
+        double sum = 0;
+        int bound = DOUBLES.loopBound(length);
+        if (bound > 0)
+        {
+            DoubleVector acc = DoubleVector.zero(DOUBLES);
+            for (; i < bound; i += DOUBLES.length())
+            {
+                acc = DoubleVector.fromArray(DOUBLES, a, aOffset + i).fma(
+                        DoubleVector.fromArray(DOUBLES, b, bOffset + i), acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++)
+        {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        int i = 0;
+        float sum = 0;
+        int bound = FLOATS.loopBound(length);
+        if (bound > 0)
+        {
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < bound; i += FLOATS.length())
+            {
+                acc = FloatVector.fromArray(FLOATS, a, aOffset + i).fma(
+                        FloatVector.fromArray(FLOATS, b, bOffset + i), acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++)
+        {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredDistance(double[] a, int aOffset, double[] b,
+            int bOffset, int length)
+    {
+        int i = 0;
+        double sum = 0;
+        int bound = DOUBLES.loopBound(length);
+        if (bound > 0)
+        {
+            DoubleVector acc = DoubleVector.zero(DOUBLES);
+            for (; i < bound; i += DOUBLES.length())
+            {
+                DoubleVector diff = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                        .sub(DoubleVector.fromArray(DOUBLES, b, bOffset + i));
+                acc = diff.fma(diff, acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(float[] a, int aOffset, float[] b,
+            int bOffset, int length)
+    {
+        int i = 0;
+        float sum = 0;
+        int bound = FLOATS.loopBound(length);
+        if (bound > 0)
+        {
+            FloatVector acc = FloatVector.zero(FLOATS);
+            for (; i < bound; i += FLOATS.length())
+            {
+                FloatVector diff = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                        .sub(FloatVector.fromArray(FLOATS, b, bOffset + i));
+                acc = diff.fma(diff, acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++)
+        {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public void matVec(double[] matrix, int offset, int rows, int cols,
+            int stride, double[] x, int xOffset, double[] out)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            out[r] = dot(matrix, offset + r * stride, x, xOffset, cols);
+        }
+    }
+
+    @Override
+    public void matVec(float[] matrix, int offset, int rows, int cols,
+            int stride, float[] x, int xOffset, float[] out)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            out[r] = dot(matrix, offset + r * stride, x, xOffset, cols);
+        }
+    }
+
+    @Override
+    public void axpy(double a, double[] x, int xOffset, double[] y,
+            int yOffset, int length)
+    {
+        int i = 0;
+        int bound = DOUBLES.loopBound(length);
+        DoubleVector factor = DoubleVector.broadcast(DOUBLES, a);
+        for (; i < bound; i += DOUBLES.length())
+        {
+            DoubleVector.fromArray(DOUBLES, x, xOffset + i)
+                    .fma(factor, DoubleVector.fromArray(DOUBLES, y, yOffset + i))
+                    .intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++)
+        {
+            y[yOffset + i] += a * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(float a, float[] x, int xOffset, float[] y, int yOffset,
+            int length)
+    {
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        FloatVector factor = FloatVector.broadcast(FLOATS, a);
+        for (; i < bound; i += FLOATS.length())
+        {
+            FloatVector.fromArray(FLOATS, x, xOffset + i)
+                    .fma(factor, FloatVector.fromArray(FLOATS, y, yOffset + i))
+                    .intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++)
+        {
+            y[yOffset + i] += a * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void tanh(double[] values, int offset, int length)
+    {
+        int i = 0;
+        int bound = DOUBLES.loopBound(length);
+        for (; i < bound; i += DOUBLES.length())
+        {
+            DoubleVector x = DoubleVector.fromArray(DOUBLES, values, offset + i)
+                    .max(-TANH_CLAMP).min(TANH_CLAMP);
+            DoubleVector x2 = x.mul(x);
+            DoubleVector p = x2.add(N2).mul(x2).add(N1).mul(x2).add(N0);
+            DoubleVector q = x2.mul(D3).add(D2).mul(x2).add(D1).mul(x2).add(N0);
+            x.mul(p).div(q).max(-1.0).min(1.0).intoArray(values, offset + i);
+        }
+        for (; i < length; i++)
+        {
+            values[offset + i] = ScalarKernels.tanh(values[offset + i]);
+        }
+    }
+
+    @Override
+    public void tanh(float[] values, int offset, int length)
+    {
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length())
+        {
+            FloatVector x = FloatVector.fromArray(FLOATS, values, offset + i)
+                    .max((float) -TANH_CLAMP).min((float) TANH_CLAMP);
+            FloatVector x2 = x.mul(x);
+            FloatVector p = x2.add((float) N2).mul(x2).add((float) N1).mul(x2)
+                    .add((float) N0);
+            FloatVector q = x2.mul((float) D3).add((float) D2).mul(x2)
+                    .add((float) D1).mul(x2).add((float) N0);
+            x.mul(p).div(q).max(-1f).min(1f).intoArray(values, offset + i);
+        }
+        for (; i < length; i++)
+        {
+            values[offset + i] = ScalarKernels.tanh(values[offset + i]);
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * DATASET DE ENTRENAMIENTO
+ *
+ * Columnas primitivas: usuarios y productos ordenados por id (búsqueda
+ * binaria) y muestras (usuario, producto, score). Las positivas llegan fila a
+ * fila desde la base con un Builder; las negativas (score 0) se muestrean en
+ * memoria. Usuarios y productos entrenados son los que tienen alguna
+ * positiva, y sus scores medios se calculan solo sobre positivas.
+ *
+ * Las entradas de la red no incluyen el score de la muestra: es el target.
+ */
+public class TrainingDataset
+{
+    // Columnas de getInputMatrix: pedidos, gasto medio, precio, productor
+    public static final int INPUT_WIDTH = 4;
+
+    private final long[] userIds;
+    private final double[] userOrders;
+    private final double[] userAvgAmount;
+    private final boolean[] userProducer;
+    private final double[] userScoreSum;
+    private final int[] userPositives;
+
+    private final long[] productIds;
+    private final double[] productPrice;
+    private final double[] productQuantity;
+    private final double[] productScoreSum;
+    private final int[] productPositives;
+
+    private final int[] sampleUser;
+    private final int[] sampleProduct;
+    private final float[] sampleScore;
+    private final int samples;
+    private final int positives;
+
+    private TrainingDataset(Builder builder, int[] sampleUser,
+            int[] sampleProduct, float[] sampleScore, int samples)
+    {
+        this.userIds = Arrays.copyOf(builder.userIds, builder.users);
+        this.userOrders = Arrays.copyOf(builder.userOrders, builder.users);
+        this.userAvgAmount = Arrays.copyOf(builder.userAvgAmount, builder.users);
+        this.userProducer = Arrays.copyOf(builder.userProducer, builder.users);
+        this.productIds = Arrays.copyOf(builder.productIds, builder.products);
+        this.productPrice = Arrays.copyOf(builder.productPrice, builder.products);
+        this.productQuantity = Arrays.copyOf(builder.productQuantity,
+                builder.products);
+        this.sampleUser = sampleUser;
+        this.sampleProduct = sampleProduct;
+        this.sampleScore = sampleScore;
+        this.samples = samples;
+        this.positives = builder.positives;
+
+        this.userScoreSum = new double[userIds.length];
+        this.userPositives = new int[userIds.length];
+        this.productScoreSum = new double[productIds.length];
+        this.productPositives = new int[productIds.length];
+        for (int s = 0; s < positives; s++)
+        {
+            userScoreSum[sampleUser[s]] += sampleScore[s];
+            userPositives[sampleUser[s]]++;
+            productScoreSum[sampleProduct[s]] += sampleScore[s];
+            productPositives[sampleProduct[s]]++;
+        }
+    }
+
+    /**
+     * Filas con las columnas de la consulta antigua (user_id, role,
+     * product_id, price, quantity, orders, avg_amount, score), todas como
+     * positivas y sin negativas. Para benchmarks y datos ya en memoria.
+     */
+    public static TrainingDataset fromRows(List<Map<String, Object>> rows)
+    {
+        Map<Long, Map<String, Object>> users = new LinkedHashMap<>();
+        Map<Long, Map<String, Object>> products = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows)
+        {
+            users.putIfAbsent(((Number) row.get("user_id")).longValue(), row);
+            products.putIfAbsent(((Number) row.get("product_id")).longValue(), row);
+        }
+
+        Builder builder = new Builder(Integer.MAX_VALUE, 0);
+        users.forEach((id, row) -> builder.addUser(id,
+                "PRODUCER".equals(row.get("role")),
+                ((Number) row.get("orders")).doubleValue(),
+                ((Number) row.get("avg_amount")).doubleValue()));
+        products.forEach((id, row) -> builder.addProduct(id,
+                ((Number) row.get("price")).doubleValue(),
+                ((Number) row.get("quantity")).doubleValue()));
+        for (Map<String, Object> row : rows)
+        {
+            builder.addPositive(((Number) row.get("user_id")).longValue(),
+                    ((Number) row.get("product_id")).longValue(),
+                    ((Number) row.get("score")).doubleValue());
+        }
+        return builder.build(0);
+    }
+
+    public boolean isEmpty()
+    {
+        return samples == 0;
+    }
+
+    public int size()
+    {
+        return samples;
+    }
+
+    public int positiveCount()
+    {
+        return positives;
+    }
+
+    public List<Long> getUserIds()
+    {
+        List<Long> ids = new ArrayList<>();
+        for (int u = 0; u < userIds.length; u++)
+        {
+            if (userPositives[u] > 0)
+            {
+                ids.add(userIds[u]);
+            }
+        }
+        return ids;
+    }
+
+    public List<Long> getProductIds()
+    {
+        List<Long> ids = new ArrayList<>();
+        for (int p = 0; p < productIds.length; p++)
+        {
+            if (productPositives[p] > 0)
+            {
+                ids.add(productIds[p]);
+            }
+        }
+        return ids;
+    }
+
+    public double[][] getInputMatrix()
+    {
+        double[][] inputs = new double[samples][];
+        double[] packed = getPackedInputs();
+        for (int s = 0; s < samples; s++)
+        {
+            inputs[s] = Arrays.copyOfRange(packed, s * INPUT_WIDTH,
+                    (s + 1) * INPUT_WIDTH);
+        }
+        return inputs;
+    }
+
+    /**
+     * Entradas empaquetadas por filas (samples * INPUT_WIDTH), como las
+     * consume MiniBatchTrainer, sin un double[] por muestra.
+     */
+    public double[] getPackedInputs()
+    {
+        double[] inputs = new double[samples * INPUT_WIDTH];
+        for (int s = 0; s < samples; s++)
+        {
+            int u = sampleUser[s];
+            int base = s * INPUT_WIDTH;
+            inputs[base] = userOrders[u] / 10.0;
+            inputs[base + 1] = userAvgAmount[u] / 1000.0;
+            inputs[base + 2] = productPrice[sampleProduct[s]] / 1000.0;
+            inputs[base + 3] = userProducer[u] ? 1.0 : 0.0;
+        }
+        return inputs;
+    }
+
+    public double[][] getTargetMatrix()
+    {
+        double[][] targets = new double[samples][];
+        double[] packed = getPackedTargets();
+        for (int s = 0; s < samples; s++)
+        {
+            targets[s] = new double[]{packed[s]};
+        }
+        return targets;
+    }
+
+    public double[] getPackedTargets()
+    {
+        double[] targets = new double[samples];
+        for (int s = 0; s < samples; s++)
+        {
+            targets[s] = Math.min(1.0, sampleScore[s] / 10.0); // Normalizar
+        }
+        return targets;
+    }
+
+    // En el mismo orden que getUserIds
+    public double[][] getUserFeatures()
+    {
+        List<double[]> features = new ArrayList<>();
+        for (int u = 0; u < userIds.length; u++)
+        {
+            if (userPositives[u] > 0)
+            {
+                features.add(new double[]{userOrders[u], userAvgAmount[u],
+                        userProducer[u] ? 1.0 : 0.0,
+                        userScoreSum[u] / userPositives[u]});
+            }
+        }
+        return features.toArray(new double[0][]);
+    }
+
+    public double[] getUserFeatures(Long userId)
+    {
+        int u = Arrays.binarySearch(userIds, userId);
+        if (u < 0 || userPositives[u] == 0)
+            return null;
+
+        double[] features = new double[4];
+        features[0] = userOrders[u] / 10.0;
+        features[1] = userAvgAmount[u] / 1000.0;
+        features[2] = userProducer[u] ? 1.0 : 0.0;
+        features[3] = userScoreSum[u] / userPositives[u] / 10.0;
+        return features;
+    }
+
+    public double[] getProductFeatures(Long productId)
+    {
+        int p = Arrays.binarySearch(productIds, productId);
+        if (p < 0 || productPositives[p] == 0)
+            return null;
+
+        double[] features = new double[3];
+        features[0] = productPrice[p] / 1000.0;
+        features[1] = productQuantity[p] / 100.0;
+        features[2] = productScoreSum[p] / productPositives[p] / 10.0;
+        return features;
+    }
+
+    public long memoryBytes()
+    {
+        return userIds.length * 37L + productIds.length * 36L + samples * 12L;
+    }
+
+    /**
+     * Acumula el dataset fila a fila: primero usuarios y productos (ids
+     * ascendentes, como los devuelve ORDER BY id; si no, se ordenan al llegar
+     * la primera positiva) y luego las positivas. Las positivas de usuarios o
+     * productos desconocidos se descartan. Pasadas maxPositives se sigue con
+     * reservoir sampling, así la memoria queda acotada y la muestra es
+     * uniforme sobre todo el historial.
+     */
+    public static final class Builder
+    {
+        // 128 KB: alcanza para datasets en memoria y benchmarks
+        private static final int DEFAULT_FILTER_BITS = 1 << 20;
+
+        private final int maxPositives;
+        private final SplittableRandom random;
+
+        private long[] userIds = new long[1024];
+        private double[] userOrders = new double[1024];
+        private double[] userAvgAmount = new double[1024];
+        private boolean[] userProducer = new boolean[1024];
+        private int users;
+
+        private long[] productIds = new long[1024];
+        private double[] productPrice = new double[1024];
+        private double[] productQuantity = new double[1024];
+        private int products;
+
+        private boolean sorted;
+        private int[] sampleUser = new int[1024];
+        private int[] sampleProduct = new int[1024];
+        private float[] sampleScore = new float[1024];
+        private int positives;
+        private long seenPositives;
+        private long unknown;
+
+        // Positivas que el filtro de build no conoce, como pair(usuario, producto)
+        private final PairFilter extraPairs;
+
+        public Builder(int maxPositives, long seed)
+        {
+            this(maxPositives, seed, DEFAULT_FILTER_BITS);
+        }
+
+        /**
+         * filterBits acota la memoria del filtro de positivas fuera del
+         * reservoir; con más pares que bits / 10 crecen los falsos positivos
+         * y se pierden algunas negativas, nunca se cuela una positiva.
+         */
+        public Builder(int maxPositives, long seed, int filterBits)
+        {
+            this.maxPositives = Math.max(1, maxPositives);
+            this.random = new SplittableRandom(seed);
+            this.extraPairs = new PairFilter(filterBits);
+        }
+
+        public void addUser(long id, boolean producer, double orders,
+                double avgAmount)
+        {
+            if (users == userIds.length)
+            {
+                int capacity = users * 2;
+                userIds = Arrays.copyOf(userIds, capacity);
+                userOrders = Arrays.copyOf(userOrders, capacity);
+                userAvgAmount = Arrays.copyOf(userAvgAmount, capacity);
+                userProducer = Arrays.copyOf(userProducer, capacity);
+            }
+            userIds[users] = id;
+            userOrders[users] = orders;
+            userAvgAmount[users] = avgAmount;
+            userProducer[users] = producer;
+            users++;
+        }
+
+        public void addProduct(long id, double price, double quantity)
+        {
+            if (products == productIds.length)
+            {
+                int capacity = products * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                productPrice = Arrays.copyOf(productPrice, capacity);
+                productQuantity = Arrays.copyOf(productQuantity, capacity);
+            }
+            productIds[products] = id;
+            productPrice[products] = price;
+            productQuantity[products] = quantity;
+            products++;
+        }
+
+        public void addPositive(long userId, long productId, double score)
+        {
+            addPositive(userId, productId, score, false);
+        }
+
+        /**
+         * indexed indica que el filtro que recibe build ya conoce el par (por
+         * ejemplo, una celda de InteractionMatrix). Si no, el par se marca
+         * en extraPairs para que ninguna negativa lo repita aunque quede
+         * fuera del reservoir.
+         */
+        public void addPositive(long userId, long productId, double score,
+                boolean indexed)
+        {
+            if (!sorted)
+            {
+                sortEntities();
+            }
+            int u = Arrays.binarySearch(userIds, 0, users, userId);
+            int p = Arrays.binarySearch(productIds, 0, products, productId);
+            if (u < 0 || p < 0)
+            {
+                unknown++;
+                return;
+            }
+
+            if (!indexed)
+            {
+                extraPairs.add(pair(u, p));
+            }
+
+            seenPositives++;
+            int slot;
+            if (positives < maxPositives)
+            {
+                if (positives == sampleUser.length)
+                {
+                    int capacity = (int) Math.min(maxPositives, positives * 2L);
+                    sampleUser = Arrays.copyOf(sampleUser, capacity);
+                    sampleProduct = Arrays.copyOf(sampleProduct, capacity);
+                    sampleScore = Arrays.copyOf(sampleScore, capacity);
+                }
+                slot = positives++;
+            } else
+            {
+                long candidate = random.nextLong(seenPositives);
+                if (candidate >= maxPositives)
+                {
+                    return;
+                }
+                slot = (int) candidate;
+            }
+            sampleUser[slot] = u;
+            sampleProduct[slot] = p;
+            sampleScore[slot] = (float) score;
+        }
+
+        // Positivas leídas, incluidas las que quedaron fuera del reservoir
+        public long seenPositives()
+        {
+            return seenPositives;
+        }
+
+        public long unknownPositives()
+        {
+            return unknown;
+        }
+
+        // Probabilidad estimada de descartar una negativa válida por el filtro
+        public double filterFalsePositiveRate()
+        {
+            return extraPairs.falsePositiveRate();
+        }
+
+        public TrainingDataset build(int negativesPerPositive)
+        {
+            return build(negativesPerPositive, (userId, productId) -> false);
+        }
+
+        /**
+         * Agrega negativesPerPositive negativas por positiva: el usuario de la
+         * positiva con un producto elegido en proporción a su popularidad (el
+         * de otra positiva al azar), para que la red no aprenda solo
+         * popularidad. Se descartan los pares positivos de todo el historial,
+         * no solo los del reservoir: los de extraPairs y los que indexed
+         * contiene.
+         */
+        public TrainingDataset build(int negativesPerPositive,
+                PositivePairs indexed)
+        {
+            if (!sorted)
+            {
+                sortEntities();
+            }
+            int negatives = positives > 0 ?
+                    (int) Math.min(Integer.MAX_VALUE - 8 - positives,
+                            (long) positives * Math.max(0, negativesPerPositive)) :
+                    0;
+            int capacity = positives + negatives;
+            int[] users = Arrays.copyOf(sampleUser, capacity);
+            int[] products = Arrays.copyOf(sampleProduct, capacity);
+            float[] scores = Arrays.copyOf(sampleScore, capacity);
+
+            int count = positives;
+            if (negatives > 0)
+            {
+                for (int s = 0; s < positives && count < capacity; s++)
+                {
+                    for (int r = 0; r < negativesPerPositive && count < capacity; r++)
+                    {
+                        // Pocos intentos: un usuario que compró casi todo se queda sin negativas
+                        for (int attempt = 0; attempt < 4; attempt++)
+                        {
+                            int product = sampleProduct[random.nextInt(positives)];
+                            if (!extraPairs.mightContain(pair(sampleUser[s], product))
+                                    && !indexed.contains(userIds[sampleUser[s]],
+                                    productIds[product]))
+                            {
+                                users[count] = sampleUser[s];
+                                products[count] = product;
+                                scores[count] = 0f;
+                                count++;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            return new TrainingDataset(this, users, products, scores, count);
+        }
+
+        private static long pair(int user, int product)
+        {
+            return ((long) user << 32) | (product & 0xFFFFFFFFL);
+        }
+
+        private void sortEntities()
+        {
+            sorted = true;
+            if (!isAscending(userIds, users))
+            {
+                int[] order = sortedOrder(userIds, users);
+                userIds = permute(userIds, order);
+                userOrders = permute(userOrders, order);
+                userAvgAmount = permute(userAvgAmount, order);
+                boolean[] producer = new boolean[users];
+                for (int i = 0; i < users; i++)
+                {
+                    producer[i] = userProducer[order[i]];
+                }
+                userProducer = producer;
+            }
+            if (!isAscending(productIds, products))
+            {
+                int[] order = sortedOrder(productIds, products);
+                productIds = permute(productIds, order);
+                productPrice = permute(productPrice, order);
+                productQuantity = permute(productQuantity, order);
+            }
+        }
+
+        private static boolean isAscending(long[] ids, int count)
+        {
+            for (int i = 1; i < count; i++)
+            {
+                if (ids[i - 1] >= ids[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int[] sortedOrder(long[] ids, int count)
+        {
+            return IntStream.range(0, count).boxed()
+                    .sorted((a, b) -> Long.compare(ids[a], ids[b]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        private static long[] permute(long[] values, int[] order)
+        {
+            long[] result = new long[order.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                result[i] = values[order[i]];
+            }
+            return result;
+        }
+
+        private static double[] permute(double[] values, int[] order)
+        {
+            double[] result = new double[order.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                result[i] = values[order[i]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Filtro de Bloom de tamaño fijo sobre pair(usuario, producto), con
+     * HASHES posiciones por doble hashing. Sin falsos negativos.
+     */
+    private static final class PairFilter
+    {
+        private static final int HASHES = 4;
+
+        private final long[] words;
+        private final long bits;
+        private long added;
+
+        PairFilter(int bits)
+        {
+            this.words = new long[(Math.max(64, bits) + 63) >>> 6];
+            this.bits = words.length * 64L;
+        }
+
+        void add(long pair)
+        {
+            long hash = mix(pair);
+            long step = mix(hash) | 1;
+            for (int i = 0; i < HASHES; i++)
+            {
+                long bit = Math.floorMod(hash + i * step, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            added++;
+        }
+
+        boolean mightContain(long pair)
+        {
+            long hash = mix(pair);
+            long step = mix(hash) | 1;
+            for (int i = 0; i < HASHES; i++)
+            {
+                long bit = Math.floorMod(hash + i * step, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double falsePositiveRate()
+        {
+            return Math.pow(1 - Math.exp(-HASHES * (double) added / bits),
+                    HASHES);
+        }
+
+        // Finalizador de SplitMix64
+        private static long mix(long value)
+        {
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            return value ^ (value >>> 31);
+        }
+    }
+
+    // Pares usuario-producto positivos conocidos fuera del Builder
+    @FunctionalInterface
+    public interface PositivePairs
+    {
+        boolean contains(long userId, long productId);
+    }
+}
@@ -0,0 +1,83 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+/**
+ * Kernels numéricos del scoring y el clustering, en variantes double y
+ * float. Hay dos implementaciones con las mismas fórmulas: ScalarKernels y
+ * SimdKernels (jdk.incubator.vector). Los resultados pueden diferir en el
+ * último bit por el orden de las sumas y el uso de FMA.
+ *
+ * tanh es una aproximación racional (fracción continua de Lambert, grado
+ * 7/6) recortada a [-1, 1]: error absoluto < 2e-5 hasta |x| = 4 y < 1e-4
+ * para cualquier x. Sirve para rankear, no para el gradiente del
+ * entrenamiento, que sigue usando Math.tanh.
+ */
+public interface VectorKernels
+{
+    String name();
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    double squaredDistance(double[] a, int aOffset, double[] b, int bOffset,
+            int length);
+
+    float squaredDistance(float[] a, int aOffset, float[] b, int bOffset,
+            int length);
+
+    /**
+     * out[r] = sum(matrix[offset + r * stride + c] * x[xOffset + c]) para
+     * c en 0..cols-1.
+     */
+    void matVec(double[] matrix, int offset, int rows, int cols, int stride,
+            double[] x, int xOffset, double[] out);
+
+    void matVec(float[] matrix, int offset, int rows, int cols, int stride,
+            float[] x, int xOffset, float[] out);
+
+    // y[yOffset + i] += a * x[xOffset + i]
+    void axpy(double a, double[] x, int xOffset, double[] y, int yOffset,
+            int length);
+
+    void axpy(float a, float[] x, int xOffset, float[] y, int yOffset,
+            int length);
+
+    // tanh aproximada en el lugar
+    void tanh(double[] values, int offset, int length);
+
+    void tanh(float[] values, int offset, int length);
+
+    /**
+     * SimdKernels si se pide, el módulo jdk.incubator.vector está cargado
+     * (--add-modules jdk.incubator.vector) y la CPU tiene más de un carril
+     * por vector; si no, ScalarKernels. La clase SIMD se carga por reflexión
+     * para que su ausencia no rompa el arranque.
+     */
+    static VectorKernels select(boolean simd)
+    {
+        if (simd)
+        {
+            try
+            {
+                Class<?> type = Class.forName(
+                        VectorKernels.class.getPackageName() + ".SimdKernels");
+                VectorKernels kernels = (VectorKernels) type
+                        .getDeclaredConstructor().newInstance();
+                if (((SimdCapable) kernels).doubleLanes() > 1)
+                {
+                    return kernels;
+                }
+            } catch (ReflectiveOperationException | LinkageError e)
+            {
+                // Módulo no disponible: se queda la versión escalar
+            }
+        }
+        return ScalarKernels.INSTANCE;
+    }
+
+    // Para preguntar el ancho de vector sin tocar clases del módulo incubator
+    interface SimdCapable
+    {
+        int doubleLanes();
+    }
+}
@@ -0,0 +1,37 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute;
+
+/**
+ * Formato del archivo de recomendaciones precalculadas (big-endian).
+ *
+ * <pre>
+ * header  (40 B)  magic int, versión int, createdAt long, topN int,
+ *                 userCount int, indexOffset long, reasonsOffset long
+ * entries (14 B)  productId long, score float, reasonCode short
+ * index   (20 B)  userId long, primera entrada int, cantidad int,
+ *                 eventos int; ordenado por userId para búsqueda binaria
+ * reasons         cantidad int, luego por razón: largo short + UTF-8
+ * </pre>
+ *
+ * createdAt es el inicio del job. eventos es el número de interacciones del
+ * usuario en InteractionMatrix a esa hora: si al servir la matriz cuenta
+ * otro número, el slice quedó viejo.
+ */
+final class PrecomputedFormat
+{
+    static final int MAGIC = 0x52454353;
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 40;
+    static final int ENTRY_SIZE = 14;
+    static final int INDEX_ENTRY_SIZE = 20;
+
+    static final int CREATED_AT_OFFSET = 8;
+    static final int TOP_N_OFFSET = 16;
+    static final int USER_COUNT_OFFSET = 20;
+    static final int INDEX_OFFSET_OFFSET = 24;
+    static final int REASONS_OFFSET_OFFSET = 32;
+
+    private PrecomputedFormat()
+    {
+    }
+}
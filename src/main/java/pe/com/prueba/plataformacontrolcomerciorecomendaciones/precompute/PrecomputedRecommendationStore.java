@@ -0,0 +1,306 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.CREATED_AT_OFFSET;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.ENTRY_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.HEADER_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.INDEX_ENTRY_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.INDEX_OFFSET_OFFSET;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.MAGIC;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.REASONS_OFFSET_OFFSET;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.TOP_N_OFFSET;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.USER_COUNT_OFFSET;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.VERSION;
+
+/**
+ * Lado de serving del precálculo: mapea en memoria el archivo que genera
+ * RecommendationPrecomputeJob y resuelve el top-N de un usuario con una
+ * búsqueda binaria. Los datos del producto salen de ProductCatalog, así los
+ * productos agotados o de productores no aprobados se filtran al servir.
+ * Un usuario con interacciones posteriores al archivo cae al cálculo en vivo:
+ * el archivo guarda cuántas interacciones tenía y se compara con
+ * InteractionMatrix, que se refresca desde user_interactions y por eso ve
+ * también las de otras instancias, sin consultar la base en cada request.
+ */
+@Component
+@Slf4j
+public class PrecomputedRecommendationStore
+{
+    private final ProductCatalog productCatalog;
+
+    private final InteractionMatrix interactionMatrix;
+
+    @Value("${ai.recommendation.precompute.serving-enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.recommendation.precompute.file:./data/precompute/recommendations.bin}")
+    private String file;
+
+    // Un MappedByteBuffer llega a 2 GB: el archivo se mapea por segmentos
+    private int segmentBytes = 1 << 30;
+
+    private volatile Snapshot snapshot;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleUsers = new LongAdder();
+
+    public PrecomputedRecommendationStore(ProductCatalog productCatalog,
+            InteractionMatrix interactionMatrix)
+    {
+        this.productCatalog = productCatalog;
+        this.interactionMatrix = interactionMatrix;
+    }
+
+    // Remapea cuando el job publica un archivo nuevo
+    @Scheduled(initialDelay = 0, fixedDelayString = "${ai.recommendation.precompute.reload-interval-ms:60000}")
+    public void reload()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        Path path = Paths.get(file);
+        try
+        {
+            if (!Files.exists(path))
+            {
+                return;
+            }
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            Snapshot current = snapshot;
+            if (current != null && current.modified == modified)
+            {
+                return;
+            }
+
+            Snapshot loaded = Snapshot.map(path, modified, segmentBytes);
+            snapshot = loaded;
+            log.info("Recomendaciones precalculadas cargadas: {} usuarios, top {}, generadas {}",
+                    loaded.userCount, loaded.topN,
+                    Instant.ofEpochMilli(loaded.createdAt));
+        } catch (Exception e)
+        {
+            log.warn("No se pudo cargar {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve null si no hay slice utilizable: sin archivo, usuario ausente,
+     * con slice vacío o con actividad nueva, o si tras filtrar disponibilidad
+     * quedan menos de los que el slice podía dar.
+     */
+    public List<ProductRecommendation> lookup(Long userId, int limit)
+    {
+        Snapshot current = snapshot;
+        if (current == null || limit > current.topN)
+        {
+            return null;
+        }
+
+        int slot = current.find(userId);
+        if (slot < 0)
+        {
+            misses.increment();
+            return null;
+        }
+
+        long slotPosition = current.indexOffset + (long) slot * INDEX_ENTRY_SIZE;
+        int first = current.getInt(slotPosition + 8);
+        int count = current.getInt(slotPosition + 12);
+        if (count == 0)
+        {
+            misses.increment();
+            return null;
+        }
+
+        int events = current.getInt(slotPosition + 16);
+        if (!interactionMatrix.isReady()
+                || interactionMatrix.eventCount(userId) != events)
+        {
+            staleUsers.increment();
+            return null;
+        }
+
+        List<ProductRecommendation> recommendations = new ArrayList<>(
+                Math.min(limit, count));
+        for (int i = 0; i < count && recommendations.size() < limit; i++)
+        {
+            long position = HEADER_SIZE + ((long) first + i) * ENTRY_SIZE;
+            long productId = current.getLong(position);
+            float score = Float.intBitsToFloat(current.getInt(position + 8));
+            short reasonCode = current.getShort(position + 12);
+            ProductRecommendation rec = productCatalog.toRecommendation(
+                    productId, score, current.reasons[reasonCode]);
+            if (rec != null)
+            {
+                recommendations.add(rec);
+            }
+        }
+
+        if (recommendations.size() < Math.min(limit, count))
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return recommendations;
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loaded", current != null);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("staleUsers", staleUsers.sum());
+        if (current != null)
+        {
+            stats.put("users", current.userCount);
+            stats.put("topN", current.topN);
+            stats.put("createdAt", current.createdAt);
+        }
+        return stats;
+    }
+
+    /**
+     * Segmentos de segmentBytes que se solapan en 8 bytes: cualquier long,
+     * int o short que empieza en un segmento se lee entero de ese segmento.
+     */
+    private static final class Snapshot
+    {
+        private static final int OVERLAP = 8;
+
+        private final MappedByteBuffer[] segments;
+        private final int segmentBytes;
+        private final long modified;
+        private final long createdAt;
+        private final int topN;
+        private final int userCount;
+        private final long indexOffset;
+        private final String[] reasons;
+
+        private Snapshot(MappedByteBuffer[] segments, int segmentBytes,
+                long modified)
+        {
+            this.segments = segments;
+            this.segmentBytes = segmentBytes;
+            if (getInt(0) != MAGIC || getInt(4) != VERSION)
+            {
+                throw new IllegalStateException("Formato de archivo desconocido");
+            }
+            this.modified = modified;
+            this.createdAt = getLong(CREATED_AT_OFFSET);
+            this.topN = getInt(TOP_N_OFFSET);
+            this.userCount = getInt(USER_COUNT_OFFSET);
+            this.indexOffset = getLong(INDEX_OFFSET_OFFSET);
+
+            long position = getLong(REASONS_OFFSET_OFFSET);
+            reasons = new String[getInt(position)];
+            position += 4;
+            for (int i = 0; i < reasons.length; i++)
+            {
+                int length = getShort(position) & 0xFFFF;
+                position += 2;
+                byte[] bytes = new byte[length];
+                for (int k = 0; k < length; k++)
+                {
+                    bytes[k] = segment(position + k).get(offset(position + k));
+                }
+                reasons[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+
+        static Snapshot map(Path path, long modified, int segmentBytes)
+                throws IOException
+        {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.READ))
+            {
+                long size = channel.size();
+                MappedByteBuffer[] segments = new MappedByteBuffer[
+                        (int) Math.max(1, (size + segmentBytes - 1) / segmentBytes)];
+                for (int i = 0; i < segments.length; i++)
+                {
+                    long start = (long) i * segmentBytes;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            start, Math.min(segmentBytes + OVERLAP, size - start));
+                }
+                return new Snapshot(segments, segmentBytes, modified);
+            }
+        }
+
+        long getLong(long position)
+        {
+            return segment(position).getLong(offset(position));
+        }
+
+        int getInt(long position)
+        {
+            return segment(position).getInt(offset(position));
+        }
+
+        short getShort(long position)
+        {
+            return segment(position).getShort(offset(position));
+        }
+
+        private MappedByteBuffer segment(long position)
+        {
+            return segments[(int) (position / segmentBytes)];
+        }
+
+        private int offset(long position)
+        {
+            return (int) (position % segmentBytes);
+        }
+
+        int find(long userId)
+        {
+            int low = 0;
+            int high = userCount - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                long value = getLong(indexOffset + (long) mid * INDEX_ENTRY_SIZE);
+                if (value < userId)
+                {
+                    low = mid + 1;
+                } else if (value > userId)
+                {
+                    high = mid - 1;
+                } else
+                {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationResult;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationSummary;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StreamingJdbc;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.service.BulkRecommendationService;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.ENTRY_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.HEADER_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.INDEX_ENTRY_SIZE;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.MAGIC;
+import static pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedFormat.VERSION;
+
+/**
+ * Job batch que calcula el top-N híbrido de todos los usuarios activos y lo
+ * escribe en el formato de PrecomputedFormat. Las entradas se escriben a
+ * medida que cada usuario termina; el índice ordenado y la tabla de razones
+ * van al final y el header se completa al cerrar. El archivo se publica con
+ * un rename atómico, así los nodos nunca mapean un archivo a medio escribir.
+ */
+@Component
+@Slf4j
+public class RecommendationPrecomputeJob
+{
+    private static final String ACTIVE_USERS_SQL = """
+            SELECT DISTINCT user_id
+            FROM user_interactions
+            WHERE created_at >= ?
+            ORDER BY user_id
+            """;
+
+    private final BulkRecommendationService bulkRecommendationService;
+
+    private final InteractionMatrix interactionMatrix;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ai.recommendation.precompute.job-enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.recommendation.precompute.file:./data/precompute/recommendations.bin}")
+    private String file;
+
+    @Value("${ai.recommendation.precompute.top-n:20}")
+    private int topN;
+
+    @Value("${ai.recommendation.precompute.active-days:90}")
+    private int activeDays;
+
+    @Value("${ai.recommendation.matrix.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RecommendationPrecomputeJob(
+            BulkRecommendationService bulkRecommendationService,
+            InteractionMatrix interactionMatrix, JdbcTemplate jdbcTemplate)
+    {
+        this.bulkRecommendationService = bulkRecommendationService;
+        this.interactionMatrix = interactionMatrix;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "${ai.recommendation.precompute.cron:0 0 3 * * *}")
+    public void scheduledRun()
+    {
+        if (enabled)
+        {
+            run();
+        }
+    }
+
+    public void run()
+    {
+        if (!running.compareAndSet(false, true))
+        {
+            log.info("Precálculo de recomendaciones ya en curso");
+            return;
+        }
+        try
+        {
+            // Sin índices listos el cálculo bulk volvería a pasar por el serving
+            if (!interactionMatrix.isReady())
+            {
+                log.warn("Precálculo omitido: la matriz de interacciones no está lista");
+                return;
+            }
+            precompute();
+        } catch (Exception e)
+        {
+            log.error("Falló el precálculo de recomendaciones: {}", e.getMessage(), e);
+        } finally
+        {
+            running.set(false);
+        }
+    }
+
+    private void precompute() throws IOException
+    {
+        long createdAt = System.currentTimeMillis();
+        long[] userIds = activeUsers();
+        // Conteos antes de calcular: lo que llegue durante el job invalida el slice
+        int[] events = new int[userIds.length];
+        for (int i = 0; i < userIds.length; i++)
+        {
+            events[i] = interactionMatrix.eventCount(userIds[i]);
+        }
+
+        Path target = Paths.get(file);
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "recommendations", ".tmp");
+
+        PrecomputeWriter writer = new PrecomputeWriter(userIds, events);
+        BulkRecommendationSummary summary;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16)))
+        {
+            out.write(new byte[HEADER_SIZE]);
+            summary = bulkRecommendationService.process(
+                    Arrays.stream(userIds).iterator(), topN,
+                    result -> writer.writeEntries(out, result));
+            writer.writeIndexAndReasons(out);
+        } catch (IOException | RuntimeException e)
+        {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try (RandomAccessFile header = new RandomAccessFile(temp.toFile(), "rw"))
+        {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(createdAt);
+            header.writeInt(topN);
+            header.writeInt(writer.userCount);
+            header.writeLong(writer.indexOffset);
+            header.writeLong(writer.reasonsOffset);
+            header.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("Precálculo publicado en {}: {} usuarios, {} entradas, {} KB, {} usuarios/s",
+                target, writer.userCount, writer.entries,
+                Files.size(target) / 1024,
+                String.format("%.1f", summary.getUsersPerSecond()));
+    }
+
+    private long[] activeUsers()
+    {
+        long[][] holder = {new long[1024]};
+        int[] count = {0};
+        StreamingJdbc.stream(jdbcTemplate, ACTIVE_USERS_SQL, fetchSize, rs -> {
+            if (count[0] == holder[0].length)
+            {
+                holder[0] = Arrays.copyOf(holder[0], count[0] * 2);
+            }
+            holder[0][count[0]++] = rs.getLong("user_id");
+        }, Timestamp.valueOf(LocalDateTime.now().minusDays(activeDays)));
+        return Arrays.copyOf(holder[0], count[0]);
+    }
+
+    /**
+     * Estado de escritura: las entradas van en orden de finalización y el
+     * índice se ordena por userId al final.
+     */
+    private static final class PrecomputeWriter
+    {
+        private final long[] activeUserIds;
+        private final int[] activeEvents;
+
+        private long[] indexUserIds;
+        private int[] indexFirst;
+        private int[] indexCount;
+        private int[] indexEvents;
+        private int userCount;
+        private int entries;
+
+        private final Map<String, Integer> reasonCodes = new HashMap<>();
+        private final List<String> reasons = new ArrayList<>();
+
+        private long indexOffset;
+        private long reasonsOffset;
+
+        // activeUserIds viene ordenado por la consulta
+        PrecomputeWriter(long[] activeUserIds, int[] activeEvents)
+        {
+            this.activeUserIds = activeUserIds;
+            this.activeEvents = activeEvents;
+            int capacity = Math.max(16, activeUserIds.length);
+            indexUserIds = new long[capacity];
+            indexFirst = new int[capacity];
+            indexCount = new int[capacity];
+            indexEvents = new int[capacity];
+        }
+
+        void writeEntries(DataOutputStream out, BulkRecommendationResult result)
+                throws IOException
+        {
+            // Un usuario con error o sin candidatos no tiene slice y se calcula en vivo
+            if (result.getRecommendations() == null
+                    || result.getRecommendations().isEmpty())
+            {
+                return;
+            }
+            if (userCount == indexUserIds.length)
+            {
+                indexUserIds = Arrays.copyOf(indexUserIds, userCount * 2);
+                indexFirst = Arrays.copyOf(indexFirst, userCount * 2);
+                indexCount = Arrays.copyOf(indexCount, userCount * 2);
+                indexEvents = Arrays.copyOf(indexEvents, userCount * 2);
+            }
+
+            // El índice guarda la primera entrada como int
+            if (entries > Integer.MAX_VALUE - result.getRecommendations().size())
+            {
+                throw new IllegalStateException("Demasiadas entradas");
+            }
+            indexUserIds[userCount] = result.getUserId();
+            indexFirst[userCount] = entries;
+            for (ProductRecommendation rec : result.getRecommendations())
+            {
+                out.writeLong(rec.getProductId());
+                out.writeFloat(rec.getRecommendationScore() != null ?
+                        rec.getRecommendationScore().floatValue() :
+                        0f);
+                out.writeShort(reasonCode(rec.getReason()));
+                entries++;
+            }
+            indexCount[userCount] = entries - indexFirst[userCount];
+            // Un usuario fuera de la lista no coincide nunca: siempre en vivo
+            int active = Arrays.binarySearch(activeUserIds, result.getUserId());
+            indexEvents[userCount] = active >= 0 ? activeEvents[active] : -1;
+            userCount++;
+        }
+
+        void writeIndexAndReasons(DataOutputStream out) throws IOException
+        {
+            // DataOutputStream.size() es int y se satura en 2 GB
+            indexOffset = HEADER_SIZE + (long) entries * ENTRY_SIZE;
+
+            Integer[] order = new Integer[userCount];
+            for (int i = 0; i < userCount; i++)
+            {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(indexUserIds[a],
+                    indexUserIds[b]));
+            for (int i : order)
+            {
+                out.writeLong(indexUserIds[i]);
+                out.writeInt(indexFirst[i]);
+                out.writeInt(indexCount[i]);
+                out.writeInt(indexEvents[i]);
+            }
+
+            reasonsOffset = indexOffset + (long) userCount * INDEX_ENTRY_SIZE;
+            out.writeInt(reasons.size());
+            for (String reason : reasons)
+            {
+                byte[] bytes = reason.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private int reasonCode(String reason)
+        {
+            String text = reason != null ? reason : "";
+            return reasonCodes.computeIfAbsent(text, key -> {
+                if (reasons.size() > Short.MAX_VALUE)
+                {
+                    throw new IllegalStateException("Demasiadas razones distintas");
+                }
+                reasons.add(key);
+                return reasons.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,1035 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.profile;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserProfileAggregate;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.CategoryIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserProfileAggregateRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Perfiles de usuario agregados: conteos por tipo de interacción, última
+ * actividad, conteos por categoría y gasto en compras. Cada interacción suma
+ * un delta pendiente por usuario (y actualiza el perfil si está en memoria);
+ * el flush toma los deltas y los suma en la base con col = col + ?, así
+ * varias instancias pueden escribir el mismo usuario sin pisarse. Un usuario
+ * sin fila agregada se siembra con su historial completo (que ya incluye el
+ * delta) y solo desde ahí se suman deltas; una reconciliación periódica
+ * recalcula desde user_interactions a los usuarios sin actividad reciente.
+ * Siembra y reconciliación leen el historial hasta un id máximo; los eventos
+ * de esas filas que llegan después no se vuelven a sumar (ver Cover).
+ */
+@Component
+@Slf4j
+public class UserProfileStore
+{
+    private static final String UPSERT_SQL = """
+            INSERT INTO user_profile_aggregates
+                (user_id, view_count, cart_count, purchase_count, favorite_count,
+                 last_activity, spend_sum, spend_count, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                view_count = view_count + VALUES(view_count),
+                cart_count = cart_count + VALUES(cart_count),
+                purchase_count = purchase_count + VALUES(purchase_count),
+                favorite_count = favorite_count + VALUES(favorite_count),
+                last_activity = GREATEST(COALESCE(last_activity, VALUES(last_activity)),
+                                         COALESCE(VALUES(last_activity), last_activity)),
+                spend_sum = spend_sum + VALUES(spend_sum),
+                spend_count = spend_count + VALUES(spend_count),
+                updated_at = VALUES(updated_at)
+            """;
+
+    // Siembra con el historial: valores absolutos, por si otra instancia insertó antes
+    private static final String SEED_SQL = """
+            INSERT INTO user_profile_aggregates
+                (user_id, view_count, cart_count, purchase_count, favorite_count,
+                 last_activity, spend_sum, spend_count, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                view_count = VALUES(view_count),
+                cart_count = VALUES(cart_count),
+                purchase_count = VALUES(purchase_count),
+                favorite_count = VALUES(favorite_count),
+                last_activity = VALUES(last_activity),
+                spend_sum = VALUES(spend_sum),
+                spend_count = VALUES(spend_count),
+                updated_at = VALUES(updated_at)
+            """;
+
+    private static final String EXISTING_SQL = """
+            SELECT user_id FROM user_profile_aggregates WHERE user_id IN (%s)
+            """;
+
+    private static final String CATEGORY_UPSERT_SQL = """
+            INSERT INTO user_category_counts (user_id, category_id, interactions)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE interactions = interactions + VALUES(interactions)
+            """;
+
+    private static final String CATEGORY_SEED_SQL = """
+            INSERT INTO user_category_counts (user_id, category_id, interactions)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE interactions = VALUES(interactions)
+            """;
+
+    // Productos cuyas categorías no se conocían al recibir la interacción
+    private static final String PRODUCT_CATEGORY_UPSERT_SQL = """
+            INSERT INTO user_category_counts (user_id, category_id, interactions)
+            SELECT ?, pc.category_id, ? FROM product_categories pc
+            WHERE pc.product_id = ?
+            ON DUPLICATE KEY UPDATE interactions = interactions + VALUES(interactions)
+            """;
+
+    private static final String RECONCILE_SQL = """
+            UPDATE user_profile_aggregates
+            SET view_count = ?, cart_count = ?, purchase_count = ?, favorite_count = ?,
+                last_activity = ?, spend_sum = ?, spend_count = ?, updated_at = ?
+            WHERE user_id = ?
+            """;
+
+    private static final String RECONCILE_CANDIDATES_SQL = """
+            SELECT user_id FROM user_profile_aggregates
+            WHERE user_id > ? AND updated_at < ?
+              AND (last_activity IS NULL OR last_activity < ?)
+            ORDER BY user_id
+            LIMIT ?
+            """;
+
+    private static final String CATEGORY_COUNTS_SQL = """
+            SELECT category_id, interactions FROM user_category_counts
+            WHERE user_id = ?
+            """;
+
+    private static final String HISTORY_SQL = """
+            SELECT ui.user_id,
+                   SUM(CASE WHEN ui.action_type = 'VIEW' THEN 1 ELSE 0 END) AS view_count,
+                   SUM(CASE WHEN ui.action_type = 'ADD_TO_CART' THEN 1 ELSE 0 END) AS cart_count,
+                   SUM(CASE WHEN ui.action_type = 'PURCHASE' THEN 1 ELSE 0 END) AS purchase_count,
+                   SUM(CASE WHEN ui.action_type = 'FAVORITE' THEN 1 ELSE 0 END) AS favorite_count,
+                   MAX(ui.created_at) AS last_activity,
+                   SUM(CASE WHEN ui.action_type = 'PURCHASE' THEN COALESCE(p.price, 0) ELSE 0 END) AS spend_sum,
+                   SUM(CASE WHEN ui.action_type = 'PURCHASE' AND p.id IS NOT NULL THEN 1 ELSE 0 END) AS spend_count
+            FROM user_interactions ui
+            LEFT JOIN product p ON ui.product_id = p.id
+            WHERE ui.user_id IN (%s) AND ui.id <= ?
+            GROUP BY ui.user_id
+            """;
+
+    private static final String HISTORY_CATEGORIES_SQL = """
+            SELECT ui.user_id, pc.category_id, COUNT(*) AS interactions
+            FROM user_interactions ui
+            JOIN product_categories pc ON ui.product_id = pc.product_id
+            WHERE ui.user_id IN (%s) AND ui.id <= ?
+            GROUP BY ui.user_id, pc.category_id
+            """;
+
+    private static final String MAX_ID_SQL = """
+            SELECT COALESCE(MAX(id), 0) FROM user_interactions
+            """;
+
+    private static final int PREFERRED_CATEGORIES = 5;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserProfileAggregateRepository aggregateRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ProductCatalog productCatalog;
+
+    private final CategoryIndex categoryIndex;
+
+    private final Executor aiPredictionExecutor;
+
+    private final RecommendationMetrics metrics;
+
+    @Value("${ai.recommendation.profile.max-cached-profiles:50000}")
+    private int maxCachedProfiles;
+
+    // Solo se reconcilian usuarios sin flush ni actividad en este lapso
+    @Value("${ai.recommendation.profile.reconcile-idle-ms:600000}")
+    private long reconcileIdleMs;
+
+    @Value("${ai.recommendation.profile.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    // Cuánto se recuerda la foto de un usuario recalculado para descartar eventos tardíos
+    @Value("${ai.recommendation.profile.late-event-window-ms:60000}")
+    private long lateEventWindowMs;
+
+    private final Map<Long, Profile> profiles = new ConcurrentHashMap<>();
+
+    // Cambios aún no sumados en la base, por usuario
+    private final Map<Long, Delta> pending = new ConcurrentHashMap<>();
+
+    // Usuarios recalculados desde user_interactions (o recalculándose)
+    private final Map<Long, Cover> covers = new ConcurrentHashMap<>();
+
+    /**
+     * Lectura: armar un perfil desde la base. Escritura: flush y reconciliación.
+     * Así una carga nunca ve la base sin un delta que ya salió de pending.
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    // Aplicar una interacción y publicar un perfil recién cargado no se cruzan
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+
+    private long reconcileCursor;
+
+    private final LongAdder reconciled = new LongAdder();
+
+    public UserProfileStore(UserProfileAggregateRepository aggregateRepository,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ProductCatalog productCatalog, CategoryIndex categoryIndex,
+            @Qualifier("aiPredictionExecutor") Executor aiPredictionExecutor,
+            RecommendationMetrics metrics)
+    {
+        this.aggregateRepository = aggregateRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productCatalog = productCatalog;
+        this.categoryIndex = categoryIndex;
+        this.aiPredictionExecutor = aiPredictionExecutor;
+        this.metrics = metrics;
+        for (int i = 0; i < stripes.length; i++)
+        {
+            stripes[i] = new Object();
+        }
+    }
+
+    @EventListener
+    public void onInteractionTracked(InteractionTrackedEvent event)
+    {
+        for (UserInteraction interaction : event.getInteractions())
+        {
+            Long userId = interaction.getUserId();
+            ProductCatalog.ProductInfo info = productCatalog.get(
+                    interaction.getProductId());
+            long[] categories = categoryIndex.categoriesOf(
+                    interaction.getProductId());
+            synchronized (stripe(userId))
+            {
+                Cover cover = covers.get(userId);
+                if (cover != null && cover.absorbs(interaction))
+                {
+                    continue;
+                }
+                pending.computeIfAbsent(userId, id -> new Delta())
+                        .add(interaction, info, categories);
+                Profile profile = profiles.get(userId);
+                if (profile != null)
+                {
+                    if (categories.length == 0 && !categoryIndex.isReady())
+                    {
+                        // Sin categorías en memoria: se vuelve a cargar con las de la base
+                        profiles.remove(userId);
+                    } else
+                    {
+                        profile.apply(interaction, info, categories);
+                    }
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot(Long userId)
+    {
+        Profile profile = profiles.get(userId);
+        if (profile == null)
+        {
+            profile = load(userId);
+        }
+        return profile.toMap(categoryIndex);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.recommendation.profile.flush-interval-ms:5000}")
+    public void flush()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+
+        flushLock.writeLock().lock();
+        try
+        {
+            flushPending();
+        } finally
+        {
+            flushLock.writeLock().unlock();
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Recalcula desde user_interactions un lote de usuarios sin actividad ni
+     * flush en reconcile-idle-ms y reemplaza sus agregados. Corrige lo que los
+     * deltas hayan dejado de lado (un flush perdido, otra instancia caída).
+     */
+    @Scheduled(initialDelayString = "${ai.recommendation.profile.reconcile-interval-ms:600000}",
+            fixedDelayString = "${ai.recommendation.profile.reconcile-interval-ms:600000}")
+    public void reconcile()
+    {
+        flushLock.writeLock().lock();
+        try
+        {
+            flushPending();
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now()
+                    .minus(Duration.ofMillis(reconcileIdleMs)));
+            List<Long> userIds = jdbcTemplate.queryForList(
+                    RECONCILE_CANDIDATES_SQL, Long.class, reconcileCursor,
+                    cutoff, cutoff, reconcileBatchSize);
+            reconcileCursor = userIds.size() < reconcileBatchSize ?
+                    0 :
+                    userIds.get(userIds.size() - 1);
+            if (userIds.isEmpty())
+            {
+                return;
+            }
+
+            List<Long> idle = new ArrayList<>(userIds.size());
+            Set<Long> written = Set.of();
+            long snapshotId = 0;
+            beginCover(userIds);
+            try
+            {
+                snapshotId = maxInteractionId();
+                long bound = snapshotId;
+                Map<Long, Delta> history = metrics.time(
+                        RecommendationMetrics.PROFILE_BUILD,
+                        () -> history(userIds, bound), "source", "reconcile");
+                for (Long userId : userIds)
+                {
+                    Delta delta = history.get(userId);
+                    // Si algo llegó mientras tanto, queda para la próxima vuelta
+                    if (delta == null || delta.lastActivity == null
+                            || delta.lastActivity.isBefore(cutoff.toLocalDateTime()))
+                    {
+                        idle.add(userId);
+                    }
+                }
+                LocalDateTime now = LocalDateTime.now();
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(RECONCILE_SQL, idle, idle.size(),
+                            (ps, userId) -> {
+                                Delta delta = history.getOrDefault(userId,
+                                        new Delta());
+                                setCounts(ps, 1, delta);
+                                ps.setTimestamp(8, Timestamp.valueOf(now));
+                                ps.setLong(9, userId);
+                            });
+                    jdbcTemplate.update("DELETE FROM user_category_counts WHERE user_id IN ("
+                            + placeholders(idle.size()) + ")", idle.toArray());
+                    writeCategories(CATEGORY_UPSERT_SQL, idle, history);
+                });
+                written = new HashSet<>(idle);
+            } finally
+            {
+                endCover(userIds, written, snapshotId);
+            }
+            reconciled.add(written.size());
+        } catch (Exception e)
+        {
+            log.warn("No se pudieron reconciliar los perfiles: {}", e.getMessage());
+        } finally
+        {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flush();
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedProfiles", profiles.size());
+        stats.put("pendingProfiles", pending.size());
+        stats.put("reconciledProfiles", reconciled.sum());
+        stats.put("coveredProfiles", covers.size());
+        return stats;
+    }
+
+    // Llamar con el lock de escritura tomado; si falla, los deltas vuelven a pending
+    private void flushPending()
+    {
+        if (pending.isEmpty())
+        {
+            return;
+        }
+
+        Map<Long, Delta> batch = new HashMap<>();
+        for (Long userId : new ArrayList<>(pending.keySet()))
+        {
+            synchronized (stripe(userId))
+            {
+                Delta delta = pending.remove(userId);
+                if (delta != null)
+                {
+                    batch.put(userId, delta);
+                }
+            }
+        }
+
+        pruneCovers();
+        List<Long> missing = List.of();
+        Set<Long> written = Set.of();
+        long snapshotId = 0;
+        try
+        {
+            missing = missing(new ArrayList<>(batch.keySet()));
+            beginCover(missing);
+            snapshotId = missing.isEmpty() ? 0 : maxInteractionId();
+            Map<Long, Delta> seeds = seeds(missing, snapshotId);
+            List<Long> seeded = new ArrayList<>(seeds.keySet());
+            List<Long> userIds = new ArrayList<>(batch.keySet());
+            userIds.removeAll(seeds.keySet());
+            LocalDateTime now = LocalDateTime.now();
+            metrics.time(RecommendationMetrics.QUERY,
+                    () -> transactionTemplate.executeWithoutResult(status -> {
+                        writeAggregates(SEED_SQL, seeded, seeds, now);
+                        writeCategories(CATEGORY_SEED_SQL, seeded, seeds);
+                        writeAggregates(UPSERT_SQL, userIds, batch, now);
+                        writeCategories(CATEGORY_UPSERT_SQL, userIds, batch);
+                        writeProductCategories(userIds, batch);
+                    }), "query", "profile-flush");
+            written = seeds.keySet();
+        } catch (Exception e)
+        {
+            batch.forEach((userId, delta) -> {
+                synchronized (stripe(userId))
+                {
+                    pending.merge(userId, delta, Delta::merge);
+                }
+            });
+            log.warn("No se pudieron persistir {} perfiles: {}", batch.size(),
+                    e.getMessage());
+        } finally
+        {
+            endCover(missing, written, snapshotId);
+        }
+    }
+
+    // Usuarios del lote que todavía no tienen fila agregada
+    private List<Long> missing(List<Long> userIds)
+    {
+        List<Long> missing = new ArrayList<>();
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize)
+        {
+            List<Long> chunk = userIds.subList(from,
+                    Math.min(userIds.size(), from + reconcileBatchSize));
+            Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    EXISTING_SQL.formatted(placeholders(chunk.size())),
+                    Long.class, chunk.toArray()));
+            for (Long userId : chunk)
+            {
+                if (!existing.contains(userId))
+                {
+                    missing.add(userId);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Historial hasta snapshotId de los usuarios sin fila agregada. Sus
+     * interacciones ya están confirmadas en user_interactions, así que el
+     * historial cubre el delta; sumarlo sobre una fila vacía dejaría el
+     * perfil con solo lo último. Un usuario cuyas filas aún no se ven sigue
+     * por el camino aditivo.
+     */
+    private Map<Long, Delta> seeds(List<Long> missing, long snapshotId)
+    {
+        Map<Long, Delta> seeds = new HashMap<>();
+        for (int from = 0; from < missing.size(); from += reconcileBatchSize)
+        {
+            List<Long> chunk = missing.subList(from,
+                    Math.min(missing.size(), from + reconcileBatchSize));
+            seeds.putAll(metrics.time(RecommendationMetrics.PROFILE_BUILD,
+                    () -> history(chunk, snapshotId), "source", "seed"));
+        }
+        return seeds;
+    }
+
+    /**
+     * Abre la cobertura de usuarios que se van a recalcular desde
+     * user_interactions. Lo pendiente ya está confirmado y lo va a incluir el
+     * historial; se aparta por si al final no se escribe. Los eventos que
+     * lleguen mientras tanto quedan retenidos en la cobertura.
+     */
+    private void beginCover(List<Long> userIds)
+    {
+        for (Long userId : userIds)
+        {
+            synchronized (stripe(userId))
+            {
+                covers.put(userId, new Cover(pending.remove(userId)));
+            }
+        }
+    }
+
+    /**
+     * Cierra la cobertura. Para los usuarios escritos desde el historial
+     * hasta snapshotId solo pasa a pending lo retenido posterior a la foto y
+     * la cobertura se conserva para descartar los eventos tardíos; para los
+     * demás todo vuelve a pending. El perfil en memoria se vuelve a cargar.
+     */
+    private void endCover(List<Long> userIds, Set<Long> written,
+            long snapshotId)
+    {
+        long now = System.nanoTime();
+        for (Long userId : userIds)
+        {
+            synchronized (stripe(userId))
+            {
+                Cover cover = covers.remove(userId);
+                if (cover == null)
+                {
+                    continue;
+                }
+                boolean applied = written.contains(userId);
+                if (applied)
+                {
+                    cover.finish(snapshotId, now);
+                    covers.put(userId, cover);
+                } else if (cover.before != null)
+                {
+                    pending.merge(userId, cover.before, Delta::merge);
+                }
+                for (UserInteraction interaction : cover.held)
+                {
+                    if (!applied || !cover.covers(interaction))
+                    {
+                        pending.computeIfAbsent(userId, id -> new Delta()).add(
+                                interaction,
+                                productCatalog.get(interaction.getProductId()),
+                                categoryIndex.categoriesOf(
+                                        interaction.getProductId()));
+                    }
+                }
+                cover.held.clear();
+                profiles.remove(userId);
+            }
+        }
+    }
+
+    // Las fotos viejas ya no esperan eventos tardíos
+    private void pruneCovers()
+    {
+        long now = System.nanoTime();
+        long window = TimeUnit.MILLISECONDS.toNanos(lateEventWindowMs);
+        covers.values().removeIf(cover -> cover.expired(now, window));
+    }
+
+    private long maxInteractionId()
+    {
+        Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    private void writeAggregates(String sql, List<Long> userIds,
+            Map<Long, Delta> deltas, LocalDateTime now)
+    {
+        jdbcTemplate.batchUpdate(sql, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, userId);
+            setCounts(ps, 2, deltas.get(userId));
+            ps.setTimestamp(9, Timestamp.valueOf(now));
+        });
+    }
+
+    private void writeCategories(String sql, List<Long> userIds,
+            Map<Long, Delta> deltas)
+    {
+        List<long[]> rows = new ArrayList<>();
+        for (Long userId : userIds)
+        {
+            Delta delta = deltas.get(userId);
+            if (delta != null)
+            {
+                delta.categoryCounts.forEach((categoryId, count) -> rows.add(
+                        new long[] {userId, categoryId, count}));
+            }
+        }
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row[0]);
+                    ps.setLong(2, row[1]);
+                    ps.setLong(3, row[2]);
+                });
+    }
+
+    private void writeProductCategories(List<Long> userIds,
+            Map<Long, Delta> deltas)
+    {
+        List<long[]> rows = new ArrayList<>();
+        for (Long userId : userIds)
+        {
+            deltas.get(userId).productCounts.forEach((productId, count) -> rows.add(
+                    new long[] {userId, count, productId}));
+        }
+        jdbcTemplate.batchUpdate(PRODUCT_CATEGORY_UPSERT_SQL, rows, rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, row[0]);
+                    ps.setLong(2, row[1]);
+                    ps.setLong(3, row[2]);
+                });
+    }
+
+    // Columnas de conteos, última actividad y gasto desde la posición first
+    private static void setCounts(PreparedStatement ps, int first, Delta delta)
+            throws SQLException
+    {
+        ps.setLong(first, delta.counts[InteractionType.VIEW.ordinal()]);
+        ps.setLong(first + 1, delta.counts[InteractionType.ADD_TO_CART.ordinal()]);
+        ps.setLong(first + 2, delta.counts[InteractionType.PURCHASE.ordinal()]);
+        ps.setLong(first + 3, delta.counts[InteractionType.FAVORITE.ordinal()]);
+        ps.setTimestamp(first + 4, delta.lastActivity != null ?
+                Timestamp.valueOf(delta.lastActivity) :
+                null);
+        ps.setDouble(first + 5, delta.spendSum);
+        ps.setLong(first + 6, delta.spendCount);
+    }
+
+    private void evictOverflow()
+    {
+        if (profiles.size() <= maxCachedProfiles)
+        {
+            return;
+        }
+        for (Long userId : profiles.keySet())
+        {
+            // Los deltas viven en pending: desalojar no pierde cambios
+            profiles.remove(userId);
+            if (profiles.size() <= maxCachedProfiles * 0.9)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Perfil = fila agregada + sus categorías + el delta pendiente. Con el
+     * lock de lectura ningún flush mueve deltas de pending a la base mientras
+     * se lee.
+     */
+    private Profile load(Long userId)
+    {
+        flushLock.readLock().lock();
+        try
+        {
+            Profile profile = metrics.time(RecommendationMetrics.QUERY,
+                            () -> aggregateRepository.findById(userId),
+                            "query", "profile-aggregate")
+                    .map(entity -> Profile.fromEntity(entity,
+                            categoryCounts(userId)))
+                    .orElse(null);
+            Delta seed = null;
+            if (profile == null)
+            {
+                // Lo pendiente ya está confirmado en user_interactions: lo cubre el historial
+                synchronized (stripe(userId))
+                {
+                    pending.remove(userId);
+                }
+                // Sin tope: el flush lo vuelve a sembrar con uno
+                seed = metrics.time(RecommendationMetrics.PROFILE_BUILD,
+                        () -> history(List.of(userId), Long.MAX_VALUE))
+                        .getOrDefault(userId, new Delta());
+                profile = new Profile();
+            }
+
+            synchronized (stripe(userId))
+            {
+                Profile cached = profiles.get(userId);
+                if (cached != null)
+                {
+                    return cached;
+                }
+                if (seed != null)
+                {
+                    // Historial más lo llegado durante la consulta; el flush lo inserta
+                    Delta arrived = pending.remove(userId);
+                    if (arrived != null)
+                    {
+                        seed.merge(arrived);
+                    }
+                    profile.plus(seed, categoryIndex);
+                    if (seed.total() > 0)
+                    {
+                        pending.put(userId, seed);
+                    }
+                } else
+                {
+                    Delta delta = pending.get(userId);
+                    if (delta != null)
+                    {
+                        profile.plus(delta, categoryIndex);
+                    }
+                }
+                if (categoryIndex.isReady())
+                {
+                    profiles.put(userId, profile);
+                }
+                return profile;
+            }
+        } finally
+        {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Long> categoryCounts(Long userId)
+    {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(CATEGORY_COUNTS_SQL, rs -> {
+            counts.put(rs.getLong("category_id"), rs.getLong("interactions"));
+        }, userId);
+        return counts;
+    }
+
+    /**
+     * Agregados de los usuarios recalculados desde user_interactions hasta
+     * snapshotId: conteos, gasto y última actividad en una consulta y, en
+     * paralelo, las categorías.
+     */
+    private Map<Long, Delta> history(List<Long> userIds, long snapshotId)
+    {
+        List<Object> params = new ArrayList<>(userIds);
+        params.add(snapshotId);
+        Object[] args = params.toArray();
+        String in = placeholders(userIds.size());
+        CompletableFuture<List<long[]>> categories = supplyAsync(() -> {
+            List<long[]> rows = new ArrayList<>();
+            jdbcTemplate.query(HISTORY_CATEGORIES_SQL.formatted(in), rs -> {
+                rows.add(new long[] {rs.getLong("user_id"),
+                        rs.getLong("category_id"), rs.getLong("interactions")});
+            }, args);
+            return rows;
+        });
+
+        Map<Long, Delta> deltas = new HashMap<>();
+        jdbcTemplate.query(HISTORY_SQL.formatted(in), rs -> {
+            Delta delta = new Delta();
+            delta.counts[InteractionType.VIEW.ordinal()] = rs.getLong("view_count");
+            delta.counts[InteractionType.ADD_TO_CART.ordinal()] = rs.getLong("cart_count");
+            delta.counts[InteractionType.PURCHASE.ordinal()] = rs.getLong("purchase_count");
+            delta.counts[InteractionType.FAVORITE.ordinal()] = rs.getLong("favorite_count");
+            Timestamp last = rs.getTimestamp("last_activity");
+            delta.lastActivity = last != null ? last.toLocalDateTime() : null;
+            delta.spendSum = rs.getDouble("spend_sum");
+            delta.spendCount = rs.getLong("spend_count");
+            deltas.put(rs.getLong("user_id"), delta);
+        }, args);
+
+        for (long[] row : categories.join())
+        {
+            deltas.computeIfAbsent(row[0], id -> new Delta())
+                    .categoryCounts.merge(row[1], row[2], Long::sum);
+        }
+        return deltas;
+    }
+
+    // El pool rechaza cuando está saturado; la consulta corre entonces en este hilo
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier)
+    {
+        try
+        {
+            return CompletableFuture.supplyAsync(supplier, aiPredictionExecutor);
+        } catch (TaskRejectedException e)
+        {
+            return CompletableFuture.completedFuture(supplier.get());
+        }
+    }
+
+    private Object stripe(Long userId)
+    {
+        return stripes[(int) Math.floorMod(userId, (long) LOCK_STRIPES)];
+    }
+
+    private static String placeholders(int count)
+    {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Cambios de un usuario aún no persistidos. Las interacciones con
+     * productos cuyas categorías no se conocían se guardan por producto y la
+     * base las resuelve contra product_categories al hacer flush.
+     */
+    private static final class Delta
+    {
+        private final long[] counts = new long[InteractionType.values().length];
+        private final Map<Long, Long> categoryCounts = new HashMap<>();
+        private final Map<Long, Long> productCounts = new HashMap<>();
+        private LocalDateTime lastActivity;
+        private double spendSum;
+        private long spendCount;
+
+        void add(UserInteraction interaction, ProductCatalog.ProductInfo info,
+                long[] categories)
+        {
+            counts[interaction.getActionType().ordinal()]++;
+            lastActivity = latest(lastActivity, interaction.getCreatedAt());
+            if (categories.length == 0)
+            {
+                productCounts.merge(interaction.getProductId(), 1L, Long::sum);
+            }
+            for (long categoryId : categories)
+            {
+                categoryCounts.merge(categoryId, 1L, Long::sum);
+            }
+            if (interaction.getActionType() == InteractionType.PURCHASE
+                    && info != null)
+            {
+                spendSum += info.price();
+                spendCount++;
+            }
+        }
+
+        Delta merge(Delta other)
+        {
+            for (int i = 0; i < counts.length; i++)
+            {
+                counts[i] += other.counts[i];
+            }
+            other.categoryCounts.forEach((id, count) -> categoryCounts.merge(id,
+                    count, Long::sum));
+            other.productCounts.forEach((id, count) -> productCounts.merge(id,
+                    count, Long::sum));
+            lastActivity = latest(lastActivity, other.lastActivity);
+            spendSum += other.spendSum;
+            spendCount += other.spendCount;
+            return this;
+        }
+
+        long total()
+        {
+            long total = 0;
+            for (long count : counts)
+            {
+                total += count;
+            }
+            return total;
+        }
+
+        static LocalDateTime latest(LocalDateTime a, LocalDateTime b)
+        {
+            if (a == null)
+            {
+                return b;
+            }
+            return b != null && b.isAfter(a) ? b : a;
+        }
+    }
+
+    /**
+     * Usuario recalculado desde user_interactions hasta un id máximo. Mientras
+     * corre la consulta los eventos se retienen; después, los de filas hasta
+     * ese id ya están en el historial y se descartan aunque lleguen tarde.
+     * Se modifica bajo el lock de franja del usuario.
+     */
+    private static final class Cover
+    {
+        // Lo pendiente al abrir la cobertura
+        private final Delta before;
+        private final List<UserInteraction> held = new ArrayList<>();
+        // -1 mientras corre la consulta
+        private long snapshotId = -1;
+        private long finishedAt;
+
+        Cover(Delta before)
+        {
+            this.before = before;
+        }
+
+        // true si el evento no se suma ahora: queda retenido o ya está en la foto
+        boolean absorbs(UserInteraction interaction)
+        {
+            if (snapshotId < 0)
+            {
+                held.add(interaction);
+                return true;
+            }
+            return covers(interaction);
+        }
+
+        // Mismo criterio que el ranking de popularidad: sin id, se cuenta
+        boolean covers(UserInteraction interaction)
+        {
+            Long id = interaction.getId();
+            return id != null && id <= snapshotId;
+        }
+
+        void finish(long snapshotId, long now)
+        {
+            this.snapshotId = snapshotId;
+            this.finishedAt = now;
+        }
+
+        boolean expired(long now, long window)
+        {
+            return snapshotId >= 0 && now - finishedAt > window;
+        }
+    }
+
+    /**
+     * Perfil en memoria. Las escrituras llegan bajo el lock de franja del
+     * usuario; las lecturas se sincronizan sobre el propio perfil.
+     */
+    private static final class Profile
+    {
+        private final long[] counts = new long[InteractionType.values().length];
+        private final Map<Long, Long> categoryCounts = new HashMap<>();
+        private LocalDateTime lastActivity;
+        private double spendSum;
+        private long spendCount;
+
+        static Profile fromEntity(UserProfileAggregate entity,
+                Map<Long, Long> categoryCounts)
+        {
+            Profile profile = new Profile();
+            profile.counts[InteractionType.VIEW.ordinal()] = entity.getViewCount();
+            profile.counts[InteractionType.ADD_TO_CART.ordinal()] = entity.getCartCount();
+            profile.counts[InteractionType.PURCHASE.ordinal()] = entity.getPurchaseCount();
+            profile.counts[InteractionType.FAVORITE.ordinal()] = entity.getFavoriteCount();
+            profile.lastActivity = entity.getLastActivity();
+            profile.spendSum = entity.getSpendSum();
+            profile.spendCount = entity.getSpendCount();
+            profile.categoryCounts.putAll(categoryCounts);
+            return profile;
+        }
+
+        synchronized void apply(UserInteraction interaction,
+                ProductCatalog.ProductInfo info, long[] categories)
+        {
+            counts[interaction.getActionType().ordinal()]++;
+            lastActivity = Delta.latest(lastActivity, interaction.getCreatedAt());
+            for (long categoryId : categories)
+            {
+                categoryCounts.merge(categoryId, 1L, Long::sum);
+            }
+            if (interaction.getActionType() == InteractionType.PURCHASE
+                    && info != null)
+            {
+                spendSum += info.price();
+                spendCount++;
+            }
+        }
+
+        synchronized void plus(Delta delta, CategoryIndex categoryIndex)
+        {
+            for (int i = 0; i < counts.length; i++)
+            {
+                counts[i] += delta.counts[i];
+            }
+            delta.categoryCounts.forEach((id, count) -> categoryCounts.merge(id,
+                    count, Long::sum));
+            delta.productCounts.forEach((productId, count) -> {
+                for (long categoryId : categoryIndex.categoriesOf(productId))
+                {
+                    categoryCounts.merge(categoryId, count, Long::sum);
+                }
+            });
+            lastActivity = Delta.latest(lastActivity, delta.lastActivity);
+            spendSum += delta.spendSum;
+            spendCount += delta.spendCount;
+        }
+
+        synchronized long total()
+        {
+            long total = 0;
+            for (long count : counts)
+            {
+                total += count;
+            }
+            return total;
+        }
+
+        synchronized Map<String, Object> toMap(CategoryIndex categoryIndex)
+        {
+            long total = total();
+            long purchases = counts[InteractionType.PURCHASE.ordinal()];
+            List<String> preferred = preferredCategories(categoryIndex);
+
+            Map<String, Object> profile = new HashMap<>();
+            profile.put("totalInteractions", total);
+            profile.put("purchaseFrequency",
+                    purchases > 0 ? (double) total / purchases : 0);
+            profile.put("preferredCategories", preferred);
+            profile.put("totalViews", counts[InteractionType.VIEW.ordinal()]);
+            profile.put("totalPurchases", purchases);
+            profile.put("totalCartAdds",
+                    counts[InteractionType.ADD_TO_CART.ordinal()]);
+            profile.put("favoriteCategory",
+                    preferred.isEmpty() ? "Sin datos" : preferred.get(0));
+            profile.put("averageSpending",
+                    spendCount > 0 ? spendSum / spendCount : 0.0);
+            profile.put("lastActivity", lastActivity);
+            return profile;
+        }
+
+        private List<String> preferredCategories(CategoryIndex categoryIndex)
+        {
+            List<Map.Entry<Long, Long>> ranked = new ArrayList<>(
+                    categoryCounts.entrySet());
+            ranked.sort(Map.Entry.<Long, Long>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            List<String> names = new ArrayList<>(PREFERRED_CATEGORIES);
+            for (Map.Entry<Long, Long> entry : ranked)
+            {
+                String name = categoryIndex.categoryName(entry.getKey());
+                if (name != null && !names.contains(name))
+                {
+                    names.add(name);
+                    if (names.size() >= PREFERRED_CATEGORIES)
+                    {
+                        break;
+                    }
+                }
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserción de interacciones por lotes JDBC. Con GenerationType.IDENTITY
+ * Hibernate no puede agrupar inserts, así que este camino no pasa por JPA:
+ * el id lo asigna AUTO_INCREMENT y con rewriteBatchedStatements=true el
+ * driver de MySQL envía cada lote como un INSERT multi-fila.
+ * Cada lote va en su propia transacción: o quedan todas sus filas o ninguna,
+ * aunque el driver lo parta en varios INSERT por max_allowed_packet.
+ * Los ids generados se asignan a las entidades, igual que con save(), para
+ * que los consumidores del evento puedan ubicarlas respecto de una foto.
+ */
+@Repository
+@Slf4j
+public class InteractionBatchWriter
+{
+    private static final String INSERT_SQL = """
+            INSERT INTO user_interactions
+                (user_id, product_id, action_type, interaction_score, session_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String PERSISTED_SQL = """
+            SELECT user_id, product_id, action_type, created_at
+            FROM user_interactions
+            WHERE user_id IN (%s) AND created_at >= ? AND created_at < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final RecommendationMetrics metrics;
+
+    private final int batchSize;
+
+    public InteractionBatchWriter(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            RecommendationMetrics metrics,
+            @Value("${ai.recommendation.performance.batch-size:1000}") int batchSize)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "ai.recommendation.performance.batch-size debe ser mayor que 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserta en lotes de batch-size filas, cada uno en su transacción, y
+     * devuelve el resultado de cada lote en orden. Un lote que falla no deja
+     * filas escritas y no afecta a los demás.
+     */
+    public List<ChunkResult> insertAll(List<UserInteraction> interactions)
+    {
+        List<ChunkResult> results = new ArrayList<>(
+                (interactions.size() + batchSize - 1) / batchSize);
+
+        for (int from = 0; from < interactions.size(); from += batchSize)
+        {
+            int to = Math.min(from + batchSize, interactions.size());
+            List<UserInteraction> chunk = interactions.subList(from, to);
+            long start = System.nanoTime();
+            try
+            {
+                transactionTemplate.executeWithoutResult(
+                        status -> insertChunk(chunk));
+                metrics.record(RecommendationMetrics.INTERACTION_WRITE,
+                        System.nanoTime() - start, "success", "mode", "batch");
+                results.add(new ChunkResult(from, to, true, false));
+            } catch (Exception e)
+            {
+                // Ids de filas revertidas: no existen en la base
+                chunk.forEach(interaction -> interaction.setId(null));
+                metrics.record(RecommendationMetrics.INTERACTION_WRITE,
+                        System.nanoTime() - start, "error", "mode", "batch");
+                log.warn("Falló el lote de interacciones [{}, {}): {}", from, to,
+                        e.getMessage());
+                results.add(new ChunkResult(from, to, false,
+                        !(e instanceof DataIntegrityViolationException)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Marca las filas que ya están en la base, para que un replay del journal
+     * no las inserte de nuevo. La clave es usuario, producto, tipo y
+     * created_at al milisegundo, que es lo que guarda el journal (la columna
+     * es datetime(6)). Se cuenta por clave: dos eventos iguales en el mismo
+     * milisegundo solo se marcan si la base tiene los dos. Consulta por
+     * grupos de batch-size usuarios sobre el índice (user_id, created_at).
+     */
+    public boolean[] findPersisted(List<UserInteraction> interactions)
+    {
+        boolean[] persisted = new boolean[interactions.size()];
+        if (interactions.isEmpty())
+        {
+            return persisted;
+        }
+
+        LocalDateTime from = LocalDateTime.MAX;
+        LocalDateTime to = LocalDateTime.MIN;
+        LinkedHashSet<Long> userIds = new LinkedHashSet<>();
+        for (UserInteraction interaction : interactions)
+        {
+            LocalDateTime createdAt = RowKey.millis(interaction.getCreatedAt());
+            from = createdAt.isBefore(from) ? createdAt : from;
+            to = createdAt.isAfter(to) ? createdAt : to;
+            userIds.add(interaction.getUserId());
+        }
+
+        Map<RowKey, Integer> existing = new HashMap<>();
+        List<Long> users = new ArrayList<>(userIds);
+        for (int start = 0; start < users.size(); start += batchSize)
+        {
+            List<Long> group = users.subList(start,
+                    Math.min(start + batchSize, users.size()));
+            List<Object> args = new ArrayList<>(group);
+            args.add(Timestamp.valueOf(from));
+            args.add(Timestamp.valueOf(to.plus(1, ChronoUnit.MILLIS)));
+            jdbcTemplate.query(PERSISTED_SQL.formatted(
+                            String.join(", ", Collections.nCopies(group.size(), "?"))),
+                    rs -> {
+                        existing.merge(new RowKey(rs.getLong("user_id"),
+                                rs.getLong("product_id"),
+                                rs.getString("action_type"),
+                                RowKey.millis(rs.getTimestamp("created_at")
+                                        .toLocalDateTime())), 1, Integer::sum);
+                    }, args.toArray());
+        }
+
+        for (int i = 0; i < persisted.length; i++)
+        {
+            UserInteraction interaction = interactions.get(i);
+            RowKey key = new RowKey(interaction.getUserId(),
+                    interaction.getProductId(), interaction.getActionType().name(),
+                    RowKey.millis(interaction.getCreatedAt()));
+            Integer count = existing.get(key);
+            if (count != null && count > 0)
+            {
+                existing.put(key, count - 1);
+                persisted[i] = true;
+            }
+        }
+        return persisted;
+    }
+
+    private void insertChunk(List<UserInteraction> chunk)
+    {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(
+                INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter()
+                {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i)
+                            throws SQLException
+                    {
+                        UserInteraction interaction = chunk.get(i);
+                        ps.setLong(1, interaction.getUserId());
+                        ps.setLong(2, interaction.getProductId());
+                        ps.setString(3, interaction.getActionType().name());
+                        ps.setDouble(4, interaction.getInteractionScore());
+                        ps.setString(5, interaction.getSessionId());
+                        ps.setTimestamp(6, Timestamp.valueOf(
+                                interaction.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize()
+                    {
+                        return chunk.size();
+                    }
+                }, keys);
+
+        // Una clave por fila y en orden; si el driver no las da, quedan sin id
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != chunk.size())
+        {
+            log.warn("El lote devolvió {} claves para {} filas", generated.size(),
+                    chunk.size());
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++)
+        {
+            Object key = generated.get(i).values().iterator().next();
+            chunk.get(i).setId(((Number) key).longValue());
+        }
+    }
+
+    // Identidad de una fila para el replay; el score no entra porque el journal lo guarda como float
+    private record RowKey(long userId, long productId, String actionType,
+                          LocalDateTime createdAt)
+    {
+        static LocalDateTime millis(LocalDateTime value)
+        {
+            return value.truncatedTo(ChronoUnit.MILLIS);
+        }
+    }
+
+    /**
+     * Filas [from, to) de la lista recibida y si su transacción confirmó. Un
+     * lote revertido por una violación de integridad no es reintentable: al
+     * menos una de sus filas va a fallar igual la próxima vez.
+     */
+    public record ChunkResult(int from, int to, boolean committed,
+                              boolean retryable)
+    {
+    }
+}
@@ -0,0 +1,33 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Lecturas forward-only fila por fila. Con MySQL un fetch size de
+ * Integer.MIN_VALUE hace que el driver no cargue todo el resultado en memoria.
+ */
+public final class StreamingJdbc
+{
+    private StreamingJdbc()
+    {
+    }
+
+    public static void stream(JdbcTemplate jdbcTemplate, String sql,
+            int fetchSize, RowCallbackHandler handler, Object... args)
+    {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++)
+            {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, handler);
+    }
+}
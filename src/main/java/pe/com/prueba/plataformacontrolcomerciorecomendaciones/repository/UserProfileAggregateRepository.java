@@ -0,0 +1,11 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserProfileAggregate;
+
+@Repository
+public interface UserProfileAggregateRepository
+        extends JpaRepository<UserProfileAggregate, Long>
+{
+}
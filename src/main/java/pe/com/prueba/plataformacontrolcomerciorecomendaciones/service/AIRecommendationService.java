@@ -1,21 +1,50 @@
 package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend.RecommendationBlender;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionBatchResponse;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionBatchResult;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionRequest;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
-import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.RecommendationType;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.CategoryIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ItemCooccurrenceIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.LocationIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.PopularityLeaderboard;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest.InteractionWriteBuffer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedRecommendationStore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.profile.UserProfileStore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserInteractionRepository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -26,181 +55,463 @@ public class AIRecommendationService implements IAIRecommendationService
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final PlatformTransactionManager transactionManager;
+
+    private final AsyncTaskExecutor aiPredictionExecutor;
+
+    private final ItemCooccurrenceIndex cooccurrenceIndex;
+
+    private final InteractionMatrix interactionMatrix;
+
+    private final RecommendationCache recommendationCache;
+
+    private final PopularityLeaderboard popularityLeaderboard;
+
+    private final CategoryIndex categoryIndex;
+
+    private final LocationIndex locationIndex;
+
+    private final InteractionBatchWriter interactionBatchWriter;
+
+    private final InteractionWriteBuffer interactionWriteBuffer;
+
+    private final UserProfileStore userProfileStore;
+
+    private final RecommendationBlender recommendationBlender;
+
+    private final PrecomputedRecommendationStore precomputedStore;
+
+    private final MLRecommendationService mlRecommendationService;
+
+    private final RecommendationMetrics metrics;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Value("${ai.recommendation.min-interactions:3}")
     private int minInteractionsForPersonalized;
 
+    @Value("${ai.recommendation.source-timeout-ms:1500}")
+    private long sourceTimeoutMs;
+
     public AIRecommendationService(
             UserInteractionRepository interactionRepository,
-            JdbcTemplate jdbcTemplate)
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("aiPredictionExecutor") AsyncTaskExecutor aiPredictionExecutor,
+            ItemCooccurrenceIndex cooccurrenceIndex,
+            InteractionMatrix interactionMatrix,
+            RecommendationCache recommendationCache,
+            PopularityLeaderboard popularityLeaderboard,
+            CategoryIndex categoryIndex,
+            LocationIndex locationIndex,
+            InteractionBatchWriter interactionBatchWriter,
+            InteractionWriteBuffer interactionWriteBuffer,
+            UserProfileStore userProfileStore,
+            RecommendationBlender recommendationBlender,
+            PrecomputedRecommendationStore precomputedStore,
+            MLRecommendationService mlRecommendationService,
+            RecommendationMetrics metrics,
+            ApplicationEventPublisher eventPublisher)
     {
         this.interactionRepository = interactionRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.aiPredictionExecutor = aiPredictionExecutor;
+        this.cooccurrenceIndex = cooccurrenceIndex;
+        this.interactionMatrix = interactionMatrix;
+        this.recommendationCache = recommendationCache;
+        this.popularityLeaderboard = popularityLeaderboard;
+        this.categoryIndex = categoryIndex;
+        this.locationIndex = locationIndex;
+        this.interactionBatchWriter = interactionBatchWriter;
+        this.interactionWriteBuffer = interactionWriteBuffer;
+        this.userProfileStore = userProfileStore;
+        this.recommendationBlender = recommendationBlender;
+        this.precomputedStore = precomputedStore;
+        this.mlRecommendationService = mlRecommendationService;
+        this.metrics = metrics;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<ProductRecommendation> generateRecommendations(Long userId,
             int limit)
     {
-        List<UserInteraction> userInteractions = interactionRepository.findByUserIdOrderByCreatedAtDesc(
-                userId);
+        // El slice precalculado no necesita ni Redis ni los índices
+        List<ProductRecommendation> precomputed = precomputedStore.lookup(userId,
+                limit);
+        if (precomputed != null)
+        {
+            return precomputed;
+        }
+
+        List<ProductRecommendation> cached = recommendationCache.get(userId,
+                "HYBRID", limit);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        List<ProductRecommendation> recommendations = metrics.timeStrategy(
+                "hybrid", "blend",
+                () -> computeHybridRecommendations(userId, limit));
+        recommendationCache.put(userId, "HYBRID", limit, recommendations);
+        return recommendations;
+    }
+
+    // Corre solo el motor pedido; HYBRID es el mismo camino que GET /recommendations
+    public List<ProductRecommendation> generateRecommendations(Long userId,
+            int limit, RecommendationType type)
+    {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try
+        {
+            return switch (type)
+            {
+                case HYBRID -> generateRecommendations(userId, limit);
+                case COLLABORATIVE -> cached(userId, type, limit,
+                        () -> getCollaborativeFilteringRecommendations(userId,
+                                limit));
+                case CONTENT_BASED -> cached(userId, type, limit,
+                        () -> getContentBasedRecommendations(userId, limit));
+                case LOCAL_PRODUCER -> cached(userId, type, limit,
+                        () -> getLocalProducerRecommendations(userId, limit));
+                // Cachea por su cuenta bajo "ML"
+                case ML -> mlRecommendationService.generateRecommendations(
+                        userId, limit);
+                // El leaderboard ya está en memoria, no vale la pena cachearlo por usuario
+                case POPULAR -> getPopularityBasedRecommendations(limit);
+            };
+        } catch (RuntimeException e)
+        {
+            failed = true;
+            throw e;
+        } finally
+        {
+            metrics.recordRequest(type.name(), System.nanoTime() - start, failed);
+        }
+    }
 
-        log.info("Generating Recommendations for " + userInteractions.size() + " users");
-        for (UserInteraction userInteraction : userInteractions) {
-            log.info("UserInteraction: " + userInteraction.getId());
+    private List<ProductRecommendation> cached(Long userId,
+            RecommendationType type, int limit,
+            Supplier<List<ProductRecommendation>> engine)
+    {
+        List<ProductRecommendation> cached = recommendationCache.get(userId,
+                type.name(), limit);
+        if (cached != null)
+        {
+            return cached;
         }
 
-        if (userInteractions.size() < minInteractionsForPersonalized)
+        List<ProductRecommendation> recommendations = engine.get();
+        recommendationCache.put(userId, type.name(), limit, recommendations);
+        return recommendations;
+    }
+
+    private List<ProductRecommendation> computeHybridRecommendations(
+            Long userId, int limit)
+    {
+        int interactionCount = countUserInteractions(userId);
+        log.debug("Generating recommendations for user {} with {} interactions",
+                userId, interactionCount);
+
+        if (interactionCount < minInteractionsForPersonalized)
         {
             return getPopularityBasedRecommendations(limit);
         }
 
-        List<ProductRecommendation> collaborativeRecs = getCollaborativeFilteringRecommendations(
-                userId, limit);
-        List<ProductRecommendation> contentRecs = getContentBasedRecommendations(
-                userId, limit);
-        List<ProductRecommendation> localRecs = getLocalProducerRecommendations(
-                userId, limit);
+        // Las tres fuentes corren en paralelo con un plazo común; la latencia
+        // es la de la más lenta o el timeout
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(sourceTimeoutMs);
+        Future<List<ProductRecommendation>> collaborativeRecs = submitSource(
+                "collaborative",
+                () -> getCollaborativeFilteringRecommendations(userId, limit));
+        Future<List<ProductRecommendation>> contentRecs = submitSource(
+                "content-based",
+                () -> getContentBasedRecommendations(userId, limit));
+        Future<List<ProductRecommendation>> localRecs = submitSource(
+                "local-producer",
+                () -> getLocalProducerRecommendations(userId, limit));
+
+        // IA: Combinar múltiples algoritmos con pesos (ai.recommendation.weights.*)
+        List<ProductRecommendation> collaborative = awaitSource("collaborative",
+                collaborativeRecs, deadline);
+        List<ProductRecommendation> contentBased = awaitSource("content-based",
+                contentRecs, deadline);
+        List<ProductRecommendation> localProducer = awaitSource("local-producer",
+                localRecs, deadline);
+        return metrics.time(RecommendationMetrics.BLEND,
+                () -> recommendationBlender.blend(collaborative, contentBased,
+                        localProducer, limit));
+    }
 
-        return combineRecommendations(collaborativeRecs, contentRecs, localRecs,
-                limit);
+    private int countUserInteractions(Long userId)
+    {
+        if (interactionMatrix.isReady())
+        {
+            return interactionMatrix.eventCount(userId);
+        }
+        return metrics.time(RecommendationMetrics.QUERY,
+                () -> interactionRepository.findByUserIdOrderByCreatedAtDesc(userId),
+                "query", "user-interactions").size();
+    }
+
+    // Con el pool saturado la fuente se descarta en vez de correr en el hilo del request
+    private Future<List<ProductRecommendation>> submitSource(String source,
+            Supplier<List<ProductRecommendation>> supplier)
+    {
+        try
+        {
+            return aiPredictionExecutor.submit(supplier::get);
+        } catch (TaskRejectedException e)
+        {
+            log.warn("Fuente {} descartada: pool de predicción saturado",
+                    source);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+    }
+
+    /**
+     * Una fuente que falla o excede el plazo se descarta del blend. Al vencer
+     * se cancela con interrupción para liberar el hilo; la consulta que
+     * estuviera corriendo la aborta el query timeout de sourceQuery.
+     */
+    private List<ProductRecommendation> awaitSource(String source,
+            Future<List<ProductRecommendation>> future, long deadline)
+    {
+        try
+        {
+            return future.get(Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e)
+        {
+            future.cancel(true);
+            log.warn("Fuente {} descartada: excedió {} ms", source,
+                    sourceTimeoutMs);
+        } catch (InterruptedException e)
+        {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e)
+        {
+            log.warn("Fuente {} descartada: {}", source,
+                    e.getCause().toString());
+        }
+        return Collections.emptyList();
     }
 
     public List<ProductRecommendation> getCollaborativeFilteringRecommendations(
             Long userId, int limit)
     {
+        if (cooccurrenceIndex.isReady())
+        {
+            return metrics.timeStrategy("collaborative", "index",
+                    () -> cooccurrenceIndex.recommend(userId, limit));
+        }
+
+        // Mientras el índice se construye se usa la consulta original
         Pageable pageable = PageRequest.of(0, limit);
-        return interactionRepository.findCollaborativeRecommendations(userId,
-                pageable);
+        return metrics.timeStrategy("collaborative", "query",
+                () -> sourceQuery(() -> interactionRepository
+                        .findCollaborativeRecommendations(userId, pageable)));
     }
 
     public List<ProductRecommendation> getContentBasedRecommendations(
             Long userId, int limit)
     {
+        if (categoryIndex.isReady())
+        {
+            return metrics.timeStrategy("content-based", "index",
+                    () -> categoryIndex.recommend(userId, limit));
+        }
+
         Pageable pageable = PageRequest.of(0, limit);
-        return interactionRepository.findContentBasedRecommendations(userId,
-                pageable);
+        return metrics.timeStrategy("content-based", "query",
+                () -> sourceQuery(() -> interactionRepository
+                        .findContentBasedRecommendations(userId, pageable)));
     }
 
     public List<ProductRecommendation> getLocalProducerRecommendations(
             Long userId, int limit)
     {
+        if (locationIndex.isReady())
+        {
+            return metrics.timeStrategy("local-producer", "index",
+                    () -> locationIndex.recommend(userId, limit));
+        }
+
         Pageable pageable = PageRequest.of(0, limit);
-        return interactionRepository.findLocalProducerRecommendations(userId,
-                pageable);
+        return metrics.timeStrategy("local-producer", "query",
+                () -> sourceQuery(() -> interactionRepository
+                        .findLocalProducerRecommendations(userId, pageable)));
+    }
+
+    /**
+     * Corre la consulta de respaldo de una fuente en una transacción de solo
+     * lectura con timeout source-timeout-ms, redondeado a segundos. Hibernate
+     * lo aplica como query timeout de cada sentencia: interrumpir el hilo no
+     * detiene al driver JDBC, pero así la base aborta la consulta por su cuenta.
+     */
+    private List<ProductRecommendation> sourceQuery(
+            Supplier<List<ProductRecommendation>> query)
+    {
+        TransactionTemplate transaction = new TransactionTemplate(
+                transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setTimeout((int) Math.max(1, (sourceTimeoutMs + 999) / 1000));
+        return transaction.execute(status -> query.get());
     }
 
     public List<ProductRecommendation> getPopularityBasedRecommendations(
             int limit)
     {
+        if (popularityLeaderboard.isReady())
+        {
+            return metrics.timeStrategy("popular", "index",
+                    () -> popularityLeaderboard.top(limit));
+        }
+
         Pageable pageable = PageRequest.of(0, limit);
-        return interactionRepository.findPopularRecommendations(pageable);
+        return metrics.timeStrategy("popular", "query",
+                () -> interactionRepository.findPopularRecommendations(pageable));
     }
 
-    // IA: Combinar múltiples algoritmos con pesos
-    private List<ProductRecommendation> combineRecommendations(
-            List<ProductRecommendation> collaborative,
-            List<ProductRecommendation> contentBased,
-            List<ProductRecommendation> localProducer, int limit)
+    // Registrar interacción del usuario
+    public void trackUserInteraction(InteractionRequest request)
     {
+        UserInteraction interaction = new UserInteraction(request.getUserId(),
+                request.getProductId(), request.getActionType(),
+                request.getActionType().getDefaultScore());
+        interaction.setSessionId(request.getSessionId());
 
-        Map<Long, ProductRecommendation> combinedMap = new HashMap<>();
-
-        // Peso para filtrado colaborativo: 0.4
-        for (ProductRecommendation rec : collaborative)
+        // Write-behind: se encola y el hilo escritor inserta y notifica
+        if (interactionWriteBuffer.isEnabled())
         {
-            rec.setRecommendationScore(rec.getRecommendationScore() * 0.4);
-            combinedMap.put(rec.getProductId(), rec);
+            interaction.setCreatedAt(LocalDateTime.now());
+            metrics.time(RecommendationMetrics.INTERACTION_WRITE,
+                    () -> interactionWriteBuffer.submit(interaction), "mode",
+                    "write-behind");
+            return;
         }
 
-        // Peso para filtrado basado en contenido: 0.4
-        for (ProductRecommendation rec : contentBased)
+        metrics.time(RecommendationMetrics.INTERACTION_WRITE,
+                () -> interactionRepository.save(interaction), "mode", "single");
+        eventPublisher.publishEvent(new InteractionTrackedEvent(interaction));
+    }
+
+    // Registrar un lote de interacciones con inserts JDBC por lotes
+    public InteractionBatchResponse trackUserInteractions(
+            List<InteractionRequest> requests)
+    {
+        long start = System.nanoTime();
+        List<InteractionBatchResult> results = new ArrayList<>(requests.size());
+        List<UserInteraction> valid = new ArrayList<>(requests.size());
+        List<Integer> validIndexes = new ArrayList<>(requests.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < requests.size(); i++)
         {
-            if (combinedMap.containsKey(rec.getProductId()))
+            InteractionRequest request = requests.get(i);
+            String error = validate(request);
+            if (error != null)
             {
-                ProductRecommendation existing = combinedMap.get(
-                        rec.getProductId());
-                existing.setRecommendationScore(
-                        existing.getRecommendationScore() + (rec.getRecommendationScore() * 0.4));
-                existing.setReason(
-                        existing.getReason() + " y " + rec.getReason()
-                                .toLowerCase());
-            } else
-            {
-                rec.setRecommendationScore(rec.getRecommendationScore() * 0.4);
-                combinedMap.put(rec.getProductId(), rec);
+                results.add(new InteractionBatchResult(i,
+                        InteractionBatchResult.REJECTED, error));
+                continue;
             }
+
+            UserInteraction interaction = new UserInteraction(
+                    request.getUserId(), request.getProductId(),
+                    request.getActionType(),
+                    request.getActionType().getDefaultScore());
+            interaction.setSessionId(request.getSessionId());
+            interaction.setCreatedAt(now);
+            valid.add(interaction);
+            validIndexes.add(i);
+            results.add(null);
         }
 
-        // Peso para productores locales: 0.2
-        for (ProductRecommendation rec : localProducer)
+        List<UserInteraction> tracked = new ArrayList<>(valid.size());
+        for (InteractionBatchWriter.ChunkResult chunk : interactionBatchWriter.insertAll(valid))
         {
-            if (combinedMap.containsKey(rec.getProductId()))
+            for (int k = chunk.from(); k < chunk.to(); k++)
             {
-                ProductRecommendation existing = combinedMap.get(
-                        rec.getProductId());
-                existing.setRecommendationScore(
-                        existing.getRecommendationScore() + (rec.getRecommendationScore() * 0.2));
-                existing.setReason(existing.getReason() + " (productor local)");
-            } else
-            {
-                rec.setRecommendationScore(rec.getRecommendationScore() * 0.2);
-                combinedMap.put(rec.getProductId(), rec);
+                int index = validIndexes.get(k);
+                if (chunk.committed())
+                {
+                    tracked.add(valid.get(k));
+                    results.set(index, new InteractionBatchResult(index,
+                            InteractionBatchResult.ACCEPTED, null));
+                } else
+                {
+                    results.set(index, new InteractionBatchResult(index,
+                            InteractionBatchResult.FAILED, "Error de escritura"));
+                }
             }
         }
 
-        return combinedMap.values().stream()
-                .sorted((r1, r2) -> Double.compare(r2.getRecommendationScore(),
-                        r1.getRecommendationScore())).limit(limit)
-                .collect(Collectors.toList());
-    }
+        if (!tracked.isEmpty())
+        {
+            eventPublisher.publishEvent(new InteractionTrackedEvent(tracked));
+        }
 
-    // Registrar interacción del usuario
-    public void trackUserInteraction(InteractionRequest request)
-    {
-        UserInteraction interaction = new UserInteraction(request.getUserId(),
-                request.getProductId(), request.getActionType(),
-                request.getActionType().getDefaultScore());
-        interaction.setSessionId(request.getSessionId());
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = elapsedNanos == 0 ?
+                0 :
+                tracked.size() / (elapsedNanos / 1_000_000_000.0);
+        log.debug("Lote de {} interacciones: {} insertadas, {} filas/s",
+                requests.size(), tracked.size(), Math.round(rowsPerSecond));
 
-        interactionRepository.save(interaction);
+        return new InteractionBatchResponse(tracked.size(),
+                requests.size() - valid.size(), valid.size() - tracked.size(),
+                elapsedNanos / 1_000_000, rowsPerSecond, results);
     }
 
-    public Map<String, Object> analyzeUserProfile(Long userId)
+    private static String validate(InteractionRequest request)
     {
-        List<UserInteraction> interactions = interactionRepository.findByUserIdOrderByCreatedAtDesc(
-                userId);
-
-        Map<String, Object> profile = new HashMap<>();
-        profile.put("totalInteractions", interactions.size());
-        profile.put("purchaseFrequency",
-                calculatePurchaseFrequency(interactions));
-        profile.put("preferredCategories", getPreferredCategories(userId));
-        profile.put("averageSpending", calculateAverageSpending(userId));
-        profile.put("lastActivity", interactions.isEmpty() ?
-                null :
-                interactions.get(0).getCreatedAt());
-
-        return profile;
+        if (request == null)
+        {
+            return "Interacción vacía";
+        }
+        if (request.getUserId() == null)
+        {
+            return "userId es obligatorio";
+        }
+        if (request.getProductId() == null)
+        {
+            return "productId es obligatorio";
+        }
+        if (request.getActionType() == null)
+        {
+            return "actionType es obligatorio";
+        }
+        return null;
     }
 
-    private double calculatePurchaseFrequency(
-            List<UserInteraction> interactions)
+    // IA: El perfil sale del agregado incremental, sin recorrer el historial
+    public Map<String, Object> analyzeUserProfile(Long userId)
     {
-        long purchases = interactions.stream()
-                .filter(i -> i.getActionType() == InteractionType.PURCHASE)
-                .count();
-        return purchases > 0 ? (double) interactions.size() / purchases : 0;
+        return userProfileStore.snapshot(userId);
     }
 
-    private List<String> getPreferredCategories(Long userId)
+    /**
+     * Perfil completo para el endpoint, cacheado en el hash del usuario: lo
+     * comparten las instancias y cada interacción registrada lo borra junto
+     * con sus recomendaciones. Un perfil que UserProfileStore no tiene en
+     * memoria se arma con consultas a la base.
+     */
+    public Map<String, Object> getUserProfile(Long userId)
     {
-        Pageable pageable = PageRequest.of(0, 5);
-        return interactionRepository.findTopCategoriesByUser(userId, pageable);
-    }
+        Map<String, Object> cached = recommendationCache.getProfile(userId);
+        if (cached != null)
+        {
+            return cached;
+        }
 
-    private double calculateAverageSpending(Long userId)
-    {
-        Double result = interactionRepository.findAverageSpending(userId);
-        return result != null ? result : 0.0;
+        Map<String, Object> profile = analyzeUserProfile(userId);
+        recommendationCache.putProfile(userId, profile);
+        return profile;
     }
 
 
@@ -228,4 +539,23 @@ public class AIRecommendationService implements IAIRecommendationService
             return "Sin datos";
         }
     }
+
+    public Map<String, Object> getCacheStatistics()
+    {
+        return recommendationCache.getStats();
+    }
+
+    public Map<String, Object> getIndexStatistics()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("interactionMatrix", interactionMatrix.getStats());
+        stats.put("categoryIndex", categoryIndex.getStats());
+        stats.put("locationIndex", locationIndex.getStats());
+        stats.put("cooccurrence", cooccurrenceIndex.getStats());
+        stats.put("popularProducts", popularityLeaderboard.size());
+        stats.put("writeBehind", interactionWriteBuffer.getStats());
+        stats.put("profiles", userProfileStore.getStats());
+        stats.put("precomputed", precomputedStore.getStats());
+        return stats;
+    }
 }
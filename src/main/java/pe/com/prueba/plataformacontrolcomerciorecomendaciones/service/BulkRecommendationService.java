@@ -0,0 +1,303 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend.RecommendationBlender;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationRequest;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationResult;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationSummary;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedRecommendationStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+/**
+ * Recomendaciones para muchos usuarios en un solo request. Los usuarios se
+ * calculan en paralelo con un máximo de `concurrency` en vuelo y cada
+ * resultado se escribe como una línea NDJSON apenas termina, sin acumular la
+ * respuesta. Las listas de candidatos compartidas (populares) se calculan una
+ * sola vez por request y no se pasa por el cache de Redis; el slice
+ * precalculado sí se usa, igual que en generateRecommendations. Si el request
+ * termina antes (cliente desconectado, timeout), se cancelan los usuarios en
+ * vuelo.
+ */
+@Service
+@Slf4j
+public class BulkRecommendationService
+{
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final IAIRecommendationService aiRecommendationService;
+
+    private final RecommendationBlender recommendationBlender;
+
+    private final InteractionMatrix interactionMatrix;
+
+    private final PrecomputedRecommendationStore precomputedStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final Executor bulkExecutor;
+
+    @Value("${ai.recommendation.min-interactions:3}")
+    private int minInteractions;
+
+    private final int concurrency;
+
+    @Value("${ai.recommendation.bulk.max-users:1000000}")
+    private long maxUsers;
+
+    @Value("${ai.recommendation.bulk.max-limit:100}")
+    private int maxLimit;
+
+    public BulkRecommendationService(
+            IAIRecommendationService aiRecommendationService,
+            RecommendationBlender recommendationBlender,
+            InteractionMatrix interactionMatrix,
+            PrecomputedRecommendationStore precomputedStore,
+            ObjectMapper objectMapper,
+            @Qualifier("bulkRecommendationExecutor") Executor bulkExecutor,
+            @Value("${ai.recommendation.bulk.concurrency:8}") int concurrency)
+    {
+        if (concurrency <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "ai.recommendation.bulk.concurrency debe ser mayor que 0");
+        }
+        this.aiRecommendationService = aiRecommendationService;
+        this.recommendationBlender = recommendationBlender;
+        this.interactionMatrix = interactionMatrix;
+        this.precomputedStore = precomputedStore;
+        this.objectMapper = objectMapper;
+        this.bulkExecutor = bulkExecutor;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Valida el request y devuelve los usuarios a procesar; lanza
+     * IllegalArgumentException si no hay usuarios o son demasiados.
+     */
+    public PrimitiveIterator.OfLong userIdsOf(BulkRecommendationRequest request)
+    {
+        boolean hasList = request.getUserIds() != null;
+        boolean hasRange = request.getFromUserId() != null
+                || request.getToUserId() != null;
+        if (hasList == hasRange)
+        {
+            throw new IllegalArgumentException(
+                    "Indicar userIds o fromUserId/toUserId");
+        }
+
+        if (hasList)
+        {
+            if (request.getUserIds().size() > maxUsers)
+            {
+                throw new IllegalArgumentException(
+                        "Máximo " + maxUsers + " usuarios por request");
+            }
+            return request.getUserIds().stream().mapToLong(Long::longValue)
+                    .iterator();
+        }
+
+        if (request.getFromUserId() == null || request.getToUserId() == null
+                || request.getToUserId() < request.getFromUserId())
+        {
+            throw new IllegalArgumentException("Rango de usuarios inválido");
+        }
+        if (request.getToUserId() - request.getFromUserId() + 1 > maxUsers)
+        {
+            throw new IllegalArgumentException(
+                    "Máximo " + maxUsers + " usuarios por request");
+        }
+        return LongStream.rangeClosed(request.getFromUserId(),
+                request.getToUserId()).iterator();
+    }
+
+    /**
+     * Recomendaciones por usuario pedidas; 10 si no se indica. Lanza
+     * IllegalArgumentException fuera de [1, max-limit].
+     */
+    public int limitOf(BulkRecommendationRequest request)
+    {
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        checkLimit(limit);
+        return limit;
+    }
+
+    public void writeRecommendations(PrimitiveIterator.OfLong userIds, int limit,
+            OutputStream out) throws IOException
+    {
+        BulkRecommendationSummary summary = process(userIds, limit,
+                new ResultSink()
+                {
+                    @Override
+                    public void accept(BulkRecommendationResult result)
+                            throws IOException
+                    {
+                        writeLine(out, result);
+                    }
+
+                    // Se vacía el buffer solo cuando no hay otro resultado listo
+                    @Override
+                    public void idle() throws IOException
+                    {
+                        out.flush();
+                    }
+                });
+        writeLine(out, Map.of("summary", summary));
+        out.flush();
+    }
+
+    /**
+     * Calcula las recomendaciones de cada usuario con concurrencia acotada y
+     * entrega cada resultado al sink, desde el hilo que llama y en orden de
+     * finalización. Si el sink falla o el hilo se interrumpe, cancela las
+     * tareas pendientes antes de salir.
+     */
+    public BulkRecommendationSummary process(PrimitiveIterator.OfLong userIds,
+            int limit, ResultSink sink) throws IOException
+    {
+        checkLimit(limit);
+        long start = System.currentTimeMillis();
+        List<ProductRecommendation> popular = aiRecommendationService.getPopularityBasedRecommendations(
+                limit);
+
+        CompletionService<BulkRecommendationResult> completion = new ExecutorCompletionService<>(
+                bulkExecutor);
+        Set<Future<BulkRecommendationResult>> inFlight = new HashSet<>();
+        long users = 0;
+        long failed = 0;
+        try
+        {
+            while (userIds.hasNext() || !inFlight.isEmpty())
+            {
+                while (inFlight.size() < concurrency && userIds.hasNext())
+                {
+                    long userId = userIds.nextLong();
+                    inFlight.add(completion.submit(
+                            () -> recommend(userId, limit, popular)));
+                }
+
+                Future<BulkRecommendationResult> done = completion.poll();
+                if (done == null)
+                {
+                    sink.idle();
+                    done = completion.take();
+                }
+                inFlight.remove(done);
+
+                BulkRecommendationResult result = done.get();
+                if (result.getError() != null)
+                {
+                    failed++;
+                }
+                users++;
+                sink.accept(result);
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk interrumpido", e);
+        } catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        } finally
+        {
+            // Vacío si terminó bien; si no, nadie va a leer estos resultados
+            for (Future<BulkRecommendationResult> pending : inFlight)
+            {
+                pending.cancel(true);
+            }
+        }
+
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - start);
+        BulkRecommendationSummary summary = new BulkRecommendationSummary(users,
+                failed, elapsedMs, users * 1000.0 / elapsedMs);
+        log.info("Bulk de recomendaciones: {} usuarios ({} con error) en {} ms, {} usuarios/s",
+                users, failed, elapsedMs,
+                String.format("%.1f", summary.getUsersPerSecond()));
+        return summary;
+    }
+
+    private void checkLimit(int limit)
+    {
+        if (limit <= 0 || limit > maxLimit)
+        {
+            throw new IllegalArgumentException(
+                    "limit debe estar entre 1 y " + maxLimit);
+        }
+    }
+
+    private BulkRecommendationResult recommend(long userId, int limit,
+            List<ProductRecommendation> popular)
+    {
+        try
+        {
+            return new BulkRecommendationResult(userId,
+                    compute(userId, limit, popular), null);
+        } catch (Exception e)
+        {
+            log.warn("Bulk: falló el usuario {}: {}", userId, e.getMessage());
+            return new BulkRecommendationResult(userId, null, e.getMessage());
+        }
+    }
+
+    // Mismo criterio que generateRecommendations, con las fuentes en secuencia
+    private List<ProductRecommendation> compute(long userId, int limit,
+            List<ProductRecommendation> popular)
+    {
+        List<ProductRecommendation> precomputed = precomputedStore.lookup(userId,
+                limit);
+        if (precomputed != null)
+        {
+            return precomputed;
+        }
+        if (!interactionMatrix.isReady())
+        {
+            return aiRecommendationService.generateRecommendations(userId, limit);
+        }
+        if (interactionMatrix.eventCount(userId) < minInteractions)
+        {
+            return popular;
+        }
+        return recommendationBlender.blend(
+                aiRecommendationService.getCollaborativeFilteringRecommendations(
+                        userId, limit),
+                aiRecommendationService.getContentBasedRecommendations(userId,
+                        limit),
+                aiRecommendationService.getLocalProducerRecommendations(userId,
+                        limit), limit);
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException
+    {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write(NEWLINE);
+    }
+
+    public interface ResultSink
+    {
+        void accept(BulkRecommendationResult result) throws IOException;
+
+        // Llamado antes de esperar al próximo resultado
+        default void idle() throws IOException
+        {
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
 
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionBatchResponse;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionRequest;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.RecommendationType;
 
 import java.util.List;
 import java.util.Map;
@@ -11,6 +13,9 @@ public interface IAIRecommendationService
     public List<ProductRecommendation> generateRecommendations(Long userId,
             int limit);
 
+    public List<ProductRecommendation> generateRecommendations(Long userId,
+            int limit, RecommendationType type);
+
     public List<ProductRecommendation> getCollaborativeFilteringRecommendations(
             Long userId, int limit);
 
@@ -25,9 +30,20 @@ public interface IAIRecommendationService
 
     public void trackUserInteraction(InteractionRequest request);
 
+    public InteractionBatchResponse trackUserInteractions(
+            List<InteractionRequest> requests);
+
     public Map<String, Object> analyzeUserProfile(Long userId);
+
+    public Map<String, Object> getUserProfile(Long userId);
+
     public Long getTotalInteractionsByType(Long userId, String actionType);
 
     public String getMostFrequentCategory(Long userId);
 
+    public Map<String, Object> getCacheStatistics();
+
+    public Map<String, Object> getIndexStatistics();
+
+
 }
@@ -1,25 +1,50 @@
 package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.InteractionRequest;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.CandidateBatch;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.CustomKMeansClusterer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.CustomNeuralNetwork;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.KMeansMode;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.KMeansOptions;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.MiniBatchTrainer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.NeuralCandidateScorer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ProductScore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.TrainingDataset;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.VectorKernels;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StreamingJdbc;
 import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserInteractionRepository;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,25 +53,104 @@ public class MLRecommendationService
 {
     private final UserInteractionRepository interactionRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RecommendationCache recommendationCache;
+    private final RecommendationMetrics metrics;
+    private final ForkJoinPool trainingPool;
+    private final InteractionMatrix interactionMatrix;
     private final long RETRAIN_INTERVAL = 24 * 60 * 60 * 1000; // 30 minutos
+    private static final int USER_EMBEDDING_SIZE = 8;
+    private static final int PRODUCT_EMBEDDING_SIZE = 6;
     @Value("${ai.recommendation.min-interactions:5}")
     private int minInteractionsForPersonalized;
+    // mini-batch (paralelo, ver MiniBatchTrainer) o sgd (por muestra)
+    @Value("${ai.recommendation.ml.training.mode:mini-batch}")
+    private String trainingMode;
+    @Value("${ai.recommendation.ml.training.epochs:100}")
+    private int trainingEpochs;
+    @Value("${ai.recommendation.ml.training.batch-size:256}")
+    private int trainingBatchSize;
+    @Value("${ai.recommendation.ml.training.shard-size:64}")
+    private int trainingShardSize;
+    @Value("${ai.recommendation.ml.training.learning-rate:0.5}")
+    private double trainingLearningRate;
+    @Value("${ai.recommendation.ml.training.seed:42}")
+    private long trainingSeed;
+    // Positivas que entran al dataset (reservoir sampling sobre el historial)
+    @Value("${ai.recommendation.ml.training.max-samples:500000}")
+    private int trainingMaxSamples;
+    @Value("${ai.recommendation.ml.training.negatives-per-positive:1}")
+    private int trainingNegativesPerPositive;
+    // Bits del filtro de positivas fuera del reservoir (2^27 = 16 MB)
+    @Value("${ai.recommendation.ml.training.positive-filter-bits:134217728}")
+    private int trainingPositiveFilterBits;
+    @Value("${ai.recommendation.matrix.fetch-size:-2147483648}")
+    private int fetchSize;
+    // Candidatos por página del scoring; se puntúa todo el catálogo elegible
+    @Value("${ai.recommendation.ml.candidate-page-size:5000}")
+    private int candidatePageSize;
+    @Value("${ai.recommendation.algorithms.k-means.max-clusters:8}")
+    private int maxClusters;
+    @Value("${ai.recommendation.algorithms.k-means.min-cluster-size:5}")
+    private int minClusterSize;
+    // AUTO pasa a MINI_BATCH desde mini-batch-threshold usuarios
+    @Value("${ai.recommendation.algorithms.k-means.mode:AUTO}")
+    private KMeansMode kMeansMode;
+    @Value("${ai.recommendation.algorithms.k-means.max-iterations:50}")
+    private int kMeansMaxIterations;
+    @Value("${ai.recommendation.algorithms.k-means.mini-batch-size:1024}")
+    private int kMeansMiniBatchSize;
+    @Value("${ai.recommendation.algorithms.k-means.mini-batch-iterations:200}")
+    private int kMeansMiniBatchIterations;
+    @Value("${ai.recommendation.algorithms.k-means.mini-batch-threshold:100000}")
+    private int kMeansMiniBatchThreshold;
+    @Value("${ai.recommendation.algorithms.k-means.seed:42}")
+    private long kMeansSeed;
     // Modelos de IA implementados desde cero
-    private CustomNeuralNetwork neuralNetwork;
-    private CustomKMeansClusterer clusterer;
-    private Map<Long, double[]> userEmbeddings;
-    private Map<Long, double[]> productEmbeddings;
-    private Map<Long, Integer> userSegments;
+    private final CustomNeuralNetwork neuralNetwork;
+    private final VectorKernels vectorKernels;
+    private final Map<Long, double[]> userEmbeddings = new ConcurrentHashMap<>();
+    private final Map<Long, double[]> productEmbeddings = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> userSegments = new ConcurrentHashMap<>();
+    private final NeuralCandidateScorer candidateScorer;
+    private final ProductCatalog productCatalog;
     // Estado del modelo
-    private boolean modelTrained = false;
-    private long lastTrainingTime = 0;
+    private volatile boolean modelTrained = false;
+    private volatile long lastTrainingTime = 0;
+    // Evita lanzar un entrenamiento por request mientras hay uno en curso
+    private final AtomicBoolean training = new AtomicBoolean();
+    // Datos del último entrenamiento completo, para ai-model-status
+    private volatile long modelVersion = 0;
+    private volatile long lastTrainingDurationMs = 0;
+    private volatile int trainingSamples = 0;
+    private volatile int trainedUsers = 0;
+    private volatile int trainedProducts = 0;
+    private volatile double lastTrainingLoss = 0.0;
+    private volatile Map<Integer, Integer> segmentSizes = Map.of();
+    private volatile CustomKMeansClusterer.Stats clusteringStats;
 
     public MLRecommendationService(
             UserInteractionRepository interactionRepository,
-            JdbcTemplate jdbcTemplate)
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            RecommendationCache recommendationCache,
+            RecommendationMetrics metrics,
+            @Qualifier("aiTrainingPool") ForkJoinPool trainingPool,
+            VectorKernels vectorKernels, InteractionMatrix interactionMatrix,
+            ProductCatalog productCatalog)
     {
         this.interactionRepository = interactionRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.recommendationCache = recommendationCache;
+        this.metrics = metrics;
+        this.trainingPool = trainingPool;
+        this.neuralNetwork = new CustomNeuralNetwork(vectorKernels);
+        this.vectorKernels = vectorKernels;
+        this.interactionMatrix = interactionMatrix;
+        this.productCatalog = productCatalog;
+        this.candidateScorer = new NeuralCandidateScorer(neuralNetwork,
+                productEmbeddings);
     }
 
     private static double sigmoid(double x)
@@ -60,16 +164,24 @@ public class MLRecommendationService
         log.info("Generating Zero-Dependency AI recommendations for user {}",
                 userId);
 
+        List<ProductRecommendation> cached = recommendationCache.get(userId,
+                "ML", limit);
+        if (cached != null)
+        {
+            return cached;
+        }
+
         try
         {
             ensureModelTrained();
-            List<ProductRecommendation> aiRecommendations = generateAIRecommendations(
-                    userId, limit);
+            List<ProductRecommendation> aiRecommendations = metrics.timeStrategy(
+                    "ml", "model", () -> generateAIRecommendations(userId, limit));
 
             if (!aiRecommendations.isEmpty())
             {
                 log.info("Custom AI generated {} recommendations",
                         aiRecommendations.size());
+                recommendationCache.put(userId, "ML", limit, aiRecommendations);
                 return aiRecommendations;
             }
 
@@ -101,10 +213,10 @@ public class MLRecommendationService
 
             // 3. Generar recomendaciones usando red neuronal
             List<ProductScore> scores = generateNeuralRecommendations(userId,
-                    userProfile, userSegment);
+                    userProfile, userSegment, limit);
 
             // 4. Convertir a DTOs
-            return scores.stream().limit(limit)
+            return scores.stream()
                     .map(this::createRecommendationFromScore)
                     .filter(Objects::nonNull).collect(Collectors.toList());
 
@@ -124,6 +236,11 @@ public class MLRecommendationService
             return;
         }
 
+        if (!training.compareAndSet(false, true))
+        {
+            return;
+        }
+
         log.info("Iniciando entrenamiento de IA custom...");
 
         CompletableFuture.runAsync(() -> {
@@ -136,6 +253,9 @@ public class MLRecommendationService
             } catch (Exception e)
             {
                 log.error("❌ Error entrenando IA custom: {}", e.getMessage());
+            } finally
+            {
+                training.set(false);
             }
         });
     }
@@ -148,23 +268,33 @@ public class MLRecommendationService
         log.info("📚 Entrenando modelos IA desde cero...");
 
         // 1. Obtener datos de entrenamiento
-        TrainingDataset dataset = prepareTrainingDataset();
+        TrainingDataset dataset = metrics.time(RecommendationMetrics.ML_TRAINING,
+                this::prepareTrainingDataset, "phase", "dataset");
 
         if (dataset.isEmpty())
         {
             log.warn("⚠️ Datos insuficientes para entrenar IA");
             return;
         }
+        long start = System.currentTimeMillis();
 
         // 2. Entrenar red neuronal custom
-        trainCustomNeuralNetwork(dataset);
+        metrics.time(RecommendationMetrics.ML_TRAINING,
+                () -> trainCustomNeuralNetwork(dataset), "phase", "network");
 
         // 3. Entrenar clustering custom
-        trainCustomClustering(dataset);
+        metrics.time(RecommendationMetrics.ML_TRAINING,
+                () -> trainCustomClustering(dataset), "phase", "clustering");
 
         // 4. Generar embeddings
-        generateCustomEmbeddings(dataset);
-
+        metrics.time(RecommendationMetrics.ML_TRAINING,
+                () -> generateCustomEmbeddings(dataset), "phase", "embeddings");
+
+        trainingSamples = dataset.size();
+        trainedUsers = dataset.getUserIds().size();
+        trainedProducts = dataset.getProductIds().size();
+        lastTrainingDurationMs = System.currentTimeMillis() - start;
+        modelVersion++;
         log.info("🎯 Entrenamiento IA custom completado");
     }
 
@@ -177,12 +307,22 @@ public class MLRecommendationService
 
         try
         {
-            double[][] inputs = dataset.getInputMatrix();
-            double[][] targets = dataset.getTargetMatrix();
-
-            neuralNetwork.train(inputs, targets, 100); // 100 epochs
+            if ("sgd".equalsIgnoreCase(trainingMode))
+            {
+                neuralNetwork.train(dataset.getInputMatrix(),
+                        dataset.getTargetMatrix(), trainingEpochs);
+            } else
+            {
+                lastTrainingLoss = new MiniBatchTrainer(trainingPool,
+                        trainingBatchSize, trainingShardSize,
+                        trainingLearningRate, trainingSeed).train(neuralNetwork,
+                        dataset.getPackedInputs(), TrainingDataset.INPUT_WIDTH,
+                        dataset.getPackedTargets(), dataset.size(),
+                        trainingEpochs);
+            }
 
-            log.info("✅ Red neuronal entrenada con {} muestras", inputs.length);
+            log.info("✅ Red neuronal entrenada con {} muestras (modo {})",
+                    dataset.size(), trainingMode);
 
         } catch (Exception e)
         {
@@ -200,14 +340,22 @@ public class MLRecommendationService
         try
         {
             double[][] userFeatures = dataset.getUserFeatures();
-            int numClusters = Math.min(5,
-                    Math.max(2, userFeatures.length / 10));
-
+            // Tantos clusters como quepan con min-cluster-size usuarios cada uno
+            int numClusters = Math.min(maxClusters, Math.max(2,
+                    userFeatures.length / Math.max(1, minClusterSize)));
+
+            CustomKMeansClusterer clusterer = new CustomKMeansClusterer(
+                    vectorKernels, trainingPool, new KMeansOptions(kMeansMode,
+                    kMeansMaxIterations, minClusterSize, kMeansMiniBatchSize,
+                    kMeansMiniBatchIterations, kMeansMiniBatchThreshold,
+                    kMeansSeed));
             Map<Integer, List<Long>> clusters = clusterer.cluster(userFeatures,
                     dataset.getUserIds(), numClusters);
+            clusteringStats = clusterer.getLastStats();
 
             // Asignar segmentos a usuarios
             userSegments.clear();
+            Map<Integer, Integer> sizes = new TreeMap<>();
             for (Map.Entry<Integer, List<Long>> entry : clusters.entrySet())
             {
                 int segment = entry.getKey();
@@ -215,9 +363,12 @@ public class MLRecommendationService
                 {
                     userSegments.put(userId, segment);
                 }
+                sizes.put(segment, entry.getValue().size());
             }
+            segmentSizes = Collections.unmodifiableMap(sizes);
 
-            log.info("✅ Clustering completado con {} clusters", numClusters);
+            log.info("✅ Clustering completado con {} clusters ({})",
+                    clusters.size(), clusteringStats);
 
         } catch (Exception e)
         {
@@ -258,7 +409,7 @@ public class MLRecommendationService
     private double[] createUserEmbedding(double[] features)
     {
         // Transformación no lineal para crear embedding
-        double[] embedding = new double[8];
+        double[] embedding = new double[USER_EMBEDDING_SIZE];
 
         for (int i = 0; i < Math.min(features.length, embedding.length); i++)
         {
@@ -281,7 +432,7 @@ public class MLRecommendationService
 
     private double[] createProductEmbedding(double[] features)
     {
-        double[] embedding = new double[6];
+        double[] embedding = new double[PRODUCT_EMBEDDING_SIZE];
 
         for (int i = 0; i < Math.min(features.length, embedding.length); i++)
         {
@@ -327,7 +478,7 @@ public class MLRecommendationService
 
             Map<String, Object> data = result.get(0);
 
-            double[] profile = new double[8];
+            double[] profile = new double[USER_EMBEDDING_SIZE];
             profile[0] = normalizeValue(
                     ((Number) data.get("total_orders")).doubleValue(), 0, 50);
             profile[1] = normalizeValue(
@@ -385,133 +536,69 @@ public class MLRecommendationService
     }
 
     private List<ProductScore> generateNeuralRecommendations(Long userId,
-            double[] userProfile, int userSegment)
+            double[] userProfile, int userSegment, int limit)
     {
-        List<ProductScore> scores = new ArrayList<>();
-
+        // Solo lo que usa el modelo; los textos del top-K salen del catálogo.
+        // Paginado por id (keyset) para recorrer todos los candidatos elegibles
         String sql = """
-                SELECT DISTINCT p.id, p.name, p.description, p.price, pr.business_name,
-                       'General' as category, p.quantity
+                SELECT p.id, p.price, p.quantity
                 FROM product p
                 JOIN producers pr ON p.producer_id = pr.id
-                WHERE p.quantity > 0 
+                WHERE p.quantity > 0
                   AND pr.approved = true
                   AND p.id NOT IN (
-                      SELECT DISTINCT oi.product_id FROM order_items oi 
-                      JOIN orders o ON oi.order_id = o.id 
+                      SELECT DISTINCT oi.product_id FROM order_items oi
+                      JOIN orders o ON oi.order_id = o.id
                       WHERE o.user_id = ?
                   )
-                LIMIT 100
+                  AND p.id > ?
+                ORDER BY p.id
+                LIMIT ?
                 """;
 
-        List<Map<String, Object>> products = jdbcTemplate.queryForList(sql,
-                userId);
-
-        for (Map<String, Object> product : products)
-        {
-            Long productId = (Long) product.get("id");
-            double[] productVector = productEmbeddings.get(productId);
-
-            if (productVector == null)
+        // Top-K acumulado entre páginas
+        List<ProductScore> best = new ArrayList<>();
+        long after = Long.MIN_VALUE;
+        while (true)
+        {
+            long lastId = after;
+            // Directo a arreglos, sin un Map por fila
+            CandidateBatch candidates = metrics.time(
+                    RecommendationMetrics.ML_CANDIDATES, () -> {
+                        CandidateBatch batch = new CandidateBatch(256);
+                        jdbcTemplate.query(sql, rs -> {
+                            batch.add(rs.getLong("id"), rs.getDouble("price"),
+                                    rs.getInt("quantity"));
+                        }, userId, lastId, candidatePageSize);
+                        return batch;
+                    });
+            if (candidates.size() == 0)
             {
-                // Crear vector dinámico del producto
-                productVector = createDynamicProductVector(product);
+                break;
             }
 
-            // Calcular score usando red neuronal
-            double[] input = combineVectors(userProfile, productVector);
-            double aiScore = neuralNetwork.predict(input) * 100;
-
-            // Aplicar boost por segmento
-            aiScore = applySegmentBoost(aiScore, userSegment, product);
-
-            scores.add(new ProductScore(productId, (String) product.get("name"),
-                    (String) product.get("description"),
-                    (Double) product.get("price"),
-                    (String) product.get("business_name"),
-                    (String) product.get("category"), aiScore,
-                    "AI Neural Network Prediction (Custom)"));
-        }
-
-        scores.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-        return scores;
-    }
-
-    private double[] createDynamicProductVector(Map<String, Object> product)
-    {
-        double[] vector = new double[6];
-
-        double price = (Double) product.get("price");
-        int quantity = ((Number) product.get("quantity")).intValue();
-
-        vector[0] = normalizeValue(price, 0, 2000);
-        vector[1] = normalizeValue(quantity, 0, 100);
-        vector[2] = Math.log(price + 1) / 10; // Característica logarítmica
-        vector[3] = Math.sqrt(quantity) / 10; // Característica raíz
-        vector[4] = Math.sin(price / 100); // Patrón cíclico
-        vector[5] = Math.random() * 0.1; // Ruido para diversidad
-
-        return vector;
-    }
-
-    private double[] combineVectors(double[] userVector, double[] productVector)
-    {
-        int combinedSize = userVector.length + productVector.length + 2;
-        double[] combined = new double[combinedSize];
-
-        // Copiar vectores originales
-        System.arraycopy(userVector, 0, combined, 0, userVector.length);
-        System.arraycopy(productVector, 0, combined, userVector.length,
-                productVector.length);
-
-        // Agregar características de interacción
-        int idx = userVector.length + productVector.length;
-        combined[idx] = dotProduct(userVector, productVector); // Similitud
-        combined[idx + 1] = euclideanDistance(userVector,
-                productVector); // Distancia
-
-        return combined;
-    }
-
-    private double dotProduct(double[] a, double[] b)
-    {
-        double sum = 0;
-        int minLength = Math.min(a.length, b.length);
-        for (int i = 0; i < minLength; i++)
-        {
-            sum += a[i] * b[i];
-        }
-        return sum / minLength;
-    }
-
-    private double euclideanDistance(double[] a, double[] b)
-    {
-        double sum = 0;
-        int minLength = Math.min(a.length, b.length);
-        for (int i = 0; i < minLength; i++)
-        {
-            double diff = a[i] - b[i];
-            sum += diff * diff;
-        }
-        return Math.sqrt(sum / minLength);
-    }
-
-    private double applySegmentBoost(double baseScore, int userSegment,
-            Map<String, Object> product)
-    {
-        double price = (Double) product.get("price");
-
-        switch (userSegment)
-        {
-        case 0: // Usuario casual - productos económicos
-            return price < 200 ? baseScore * 1.2 : baseScore * 0.8;
-        case 1: // Productor - herramientas y equipos
-            return price > 100 ? baseScore * 1.3 : baseScore;
-        case 2: // Comprador premium - productos de calidad
-            return price > 500 ? baseScore * 1.4 : baseScore * 0.9;
-        default: // Usuario general
-            return baseScore;
+            long scoringStart = System.nanoTime();
+            NeuralCandidateScorer.ScoredCandidates scored = candidateScorer.score(
+                    userProfile, userSegment, candidates, limit);
+            best.addAll(candidateScorer.toProductScores(candidates, scored,
+                    productCatalog::get));
+            metrics.record(RecommendationMetrics.ML_SCORING,
+                    System.nanoTime() - scoringStart, "success");
+
+            // Orden estable: a igual score gana el de menor id, como en topK
+            best.sort(Comparator.comparingDouble(ProductScore::getScore)
+                    .reversed());
+            if (best.size() > limit)
+            {
+                best.subList(limit, best.size()).clear();
+            }
+            if (candidates.size() < candidatePageSize)
+            {
+                break;
+            }
+            after = candidates.id(candidates.size() - 1);
         }
+        return best;
     }
 
     private ProductRecommendation createRecommendationFromScore(
@@ -555,6 +642,7 @@ public class MLRecommendationService
                 request.getActionType().getDefaultScore());
         interaction.setSessionId(request.getSessionId());
         interactionRepository.save(interaction);
+        eventPublisher.publishEvent(new InteractionTrackedEvent(interaction));
 
         log.info(
                 "🎯 Custom AI: Interacción registrada - Usuario {} {} Producto {}",
@@ -592,6 +680,45 @@ public class MLRecommendationService
         return profile;
     }
 
+    /**
+     * Estado del modelo para el endpoint ai-model-status. Solo lee campos
+     * volátiles y tamaños de mapas, así que es barato de consultar seguido.
+     * La memoria es una estimación: entrada de ConcurrentHashMap (~32 B),
+     * Long (16 B) y double[] (16 B de header + 8 B por componente).
+     */
+    public Map<String, Object> getModelStatus()
+    {
+        int users = userEmbeddings.size();
+        int products = productEmbeddings.size();
+        int segments = userSegments.size();
+        long networkBytes = neuralNetwork.parameterCount() * 8L;
+        long memoryBytes = users * (64L + USER_EMBEDDING_SIZE * 8L)
+                + products * (64L + PRODUCT_EMBEDDING_SIZE * 8L)
+                + segments * 64L + networkBytes;
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("modelVersion", modelVersion);
+        status.put("trained", modelTrained);
+        status.put("training", training.get());
+        status.put("lastTrainingTime", lastTrainingTime > 0 ?
+                new Date(lastTrainingTime) :
+                null);
+        status.put("lastTrainingDurationMs", lastTrainingDurationMs);
+        status.put("trainingSamples", trainingSamples);
+        status.put("trainedUsers", trainedUsers);
+        status.put("trainedProducts", trainedProducts);
+        status.put("userEmbeddings", users);
+        status.put("productEmbeddings", products);
+        status.put("segmentedUsers", segments);
+        status.put("segmentSizes", segmentSizes);
+        status.put("clustering", clusteringStats);
+        status.put("networkParameters", neuralNetwork.parameterCount());
+        status.put("trainingMode", trainingMode);
+        status.put("lastTrainingLoss", lastTrainingLoss);
+        status.put("estimatedMemoryBytes", memoryBytes);
+        return status;
+    }
+
     private double calculatePurchaseFrequency(
             List<UserInteraction> interactions)
     {
@@ -619,530 +746,185 @@ public class MLRecommendationService
         return "Electrónicos";
     }
 
-    // Preparación de dataset
+    /**
+     * Preparación de dataset: lecturas forward-only que escriben directo en
+     * las columnas del TrainingDataset.Builder. Las positivas son los pares
+     * usuario-producto con compras (5 c/u) o carrito (3 c/u) más el score de
+     * user_interactions, que sale de InteractionMatrix (por SQL, 1 por
+     * interacción, solo si la matriz no cargó); las negativas se muestrean en
+     * memoria al construir y no repiten ningún par positivo: los de la matriz
+     * se consultan en ella y el Builder marca en un filtro de Bloom los que
+     * solo vienen del SQL.
+     */
     private TrainingDataset prepareTrainingDataset()
     {
-        String sql = """
-                SELECT 
-                    u.id as user_id, u.role,
-                    p.id as product_id, p.price, p.quantity,
-                    COUNT(DISTINCT o.id) as orders,
-                    COALESCE(AVG(o.total_amount), 0) as avg_amount,
-                    SUM(CASE WHEN oi.id IS NOT NULL THEN 5 
-                             WHEN ci.id IS NOT NULL THEN 3 ELSE 1 END) as score
+        String usersSql = """
+                SELECT u.id AS user_id, u.role,
+                       COUNT(o.id) AS orders,
+                       COALESCE(AVG(o.total_amount), 0) AS avg_amount
                 FROM users u
-                CROSS JOIN product p
-                LEFT JOIN orders o ON u.id = o.user_id
-                LEFT JOIN order_items oi ON o.id = oi.order_id AND p.id = oi.product_id
-                LEFT JOIN cart_items ci ON u.id = ci.user_id AND p.id = ci.product_id
-                WHERE u.verified = true AND p.quantity > 0
-                GROUP BY u.id, u.role, p.id, p.price, p.quantity
-                HAVING score > 0
-                LIMIT 2000
+                LEFT JOIN orders o ON o.user_id = u.id
+                WHERE u.verified = true
+                GROUP BY u.id, u.role
+                ORDER BY u.id
                 """;
-
-        List<Map<String, Object>> rawData = jdbcTemplate.queryForList(sql);
-        return new TrainingDataset(rawData);
-    }
-
-    // Clases auxiliares para IA implementada desde cero
-
-    /**
-     * RED NEURONAL CUSTOM
-     */
-    private static class CustomNeuralNetwork
-    {
-        private double[][] weights1; // Capa oculta
-        private double[][] weights2; // Capa salida
-        private double[] bias1;
-        private double[] bias2;
-        private int inputSize = 14; // userVector(8) + productVector(6)
-        private int hiddenSize = 10;
-        private int outputSize = 1;
-        private double learningRate = 0.01;
-
-        public CustomNeuralNetwork()
-        {
-            initializeWeights();
-        }
-
-        private void initializeWeights()
-        {
-            Random random = new Random();
-
-            weights1 = new double[inputSize][hiddenSize];
-            bias1 = new double[hiddenSize];
-            weights2 = new double[hiddenSize][outputSize];
-            bias2 = new double[outputSize];
-
-            // Inicialización Xavier
-            double limit1 = Math.sqrt(6.0 / (inputSize + hiddenSize));
-            double limit2 = Math.sqrt(6.0 / (hiddenSize + outputSize));
-
-            for (int i = 0; i < inputSize; i++)
-            {
-                for (int j = 0; j < hiddenSize; j++)
-                {
-                    weights1[i][j] = (random.nextDouble() - 0.5) * 2 * limit1;
-                }
-            }
-
-            for (int i = 0; i < hiddenSize; i++)
-            {
-                for (int j = 0; j < outputSize; j++)
-                {
-                    weights2[i][j] = (random.nextDouble() - 0.5) * 2 * limit2;
-                }
-            }
-        }
-
-        public void train(double[][] inputs, double[][] targets, int epochs)
-        {
-            for (int epoch = 0; epoch < epochs; epoch++)
-            {
-                double totalLoss = 0;
-
-                for (int i = 0; i < inputs.length; i++)
-                {
-                    // Forward pass
-                    double[] hidden = forward(inputs[i], weights1, bias1);
-                    double[] output = forward(hidden, weights2, bias2);
-
-                    // Calcular loss
-                    double loss = 0;
-                    for (int j = 0; j < output.length; j++)
-                    {
-                        double error = targets[i][j] - output[j];
-                        loss += error * error;
-                    }
-                    totalLoss += loss;
-
-                    // Backpropagation (simplificado)
-                    backpropagate(inputs[i], hidden, output, targets[i]);
-                }
-
-                if (epoch % 20 == 0)
-                {
-                    log.debug("Epoch {}: Loss = {}", epoch,
-                            totalLoss / inputs.length);
-                }
-            }
-        }
-
-        private double[] forward(double[] input, double[][] weights,
-                double[] bias)
-        {
-            double[] output = new double[weights[0].length];
-
-            for (int j = 0; j < output.length; j++)
-            {
-                output[j] = bias[j];
-                for (int i = 0; i < input.length && i < weights.length; i++)
-                {
-                    output[j] += input[i] * weights[i][j];
-                }
-                output[j] = Math.tanh(output[j]); // Función de activación
-            }
-
-            return output;
-        }
-
-        private void backpropagate(double[] input, double[] hidden,
-                double[] output, double[] target)
-        {
-            // Gradientes de salida
-            double[] outputGradients = new double[output.length];
-            for (int i = 0; i < output.length; i++)
-            {
-                double error = target[i] - output[i];
-                outputGradients[i] = error * (1 - output[i] * output[i]); // Derivada tanh
-            }
-
-            // Actualizar pesos capa de salida
-            for (int i = 0; i < hiddenSize; i++)
-            {
-                for (int j = 0; j < outputSize; j++)
-                {
-                    weights2[i][j] += learningRate * outputGradients[j] * hidden[i];
-                }
-            }
-
-            // Gradientes capa oculta
-            double[] hiddenGradients = new double[hiddenSize];
-            for (int i = 0; i < hiddenSize; i++)
-            {
-                double error = 0;
-                for (int j = 0; j < outputSize; j++)
-                {
-                    error += outputGradients[j] * weights2[i][j];
-                }
-                hiddenGradients[i] = error * (1 - hidden[i] * hidden[i]);
-            }
-
-            // Actualizar pesos capa oculta
-            for (int i = 0; i < Math.min(input.length, inputSize); i++)
-            {
-                for (int j = 0; j < hiddenSize; j++)
-                {
-                    weights1[i][j] += learningRate * hiddenGradients[j] * input[i];
-                }
-            }
-        }
-
-        public double predict(double[] input)
-        {
-            double[] hidden = forward(input, weights1, bias1);
-            double[] output = forward(hidden, weights2, bias2);
-            return Math.max(0,
-                    Math.min(1, output[0])); // Normalizar entre 0 y 1
-        }
+        String productsSql = """
+                SELECT id, price, quantity
+                FROM product
+                WHERE quantity > 0
+                ORDER BY id
+                """;
+        String purchaseEvents = """
+                    SELECT o.user_id, oi.product_id, 5 AS weight
+                    FROM order_items oi
+                    JOIN orders o ON o.id = oi.order_id
+                    UNION ALL
+                    SELECT user_id, product_id, 3 FROM cart_items
+                """;
+        String interactionEvents = """
+                    UNION ALL
+                    SELECT user_id, product_id, 1 FROM user_interactions
+                """;
+        boolean fromMatrix = interactionMatrix.isReady();
+        String positivesSql = """
+                SELECT user_id, product_id, SUM(weight) AS score
+                FROM (
+                %s) events
+                GROUP BY user_id, product_id
+                ORDER BY user_id, product_id
+                """.formatted(fromMatrix ?
+                purchaseEvents :
+                purchaseEvents + interactionEvents);
+
+        TrainingDataset.Builder builder = new TrainingDataset.Builder(
+                trainingMaxSamples, trainingSeed, trainingPositiveFilterBits);
+        StreamingJdbc.stream(jdbcTemplate, usersSql, fetchSize,
+                rs -> builder.addUser(rs.getLong("user_id"),
+                        "PRODUCER".equals(rs.getString("role")),
+                        rs.getLong("orders"), rs.getDouble("avg_amount")));
+        StreamingJdbc.stream(jdbcTemplate, productsSql, fetchSize,
+                rs -> builder.addProduct(rs.getLong("id"),
+                        rs.getDouble("price"), rs.getInt("quantity")));
+        if (fromMatrix)
+        {
+            MatrixPositiveMerge merge = new MatrixPositiveMerge(builder,
+                    interactionMatrix);
+            StreamingJdbc.stream(jdbcTemplate, positivesSql, fetchSize, merge);
+            merge.finish();
+        } else
+        {
+            StreamingJdbc.stream(jdbcTemplate, positivesSql, fetchSize,
+                    rs -> builder.addPositive(rs.getLong("user_id"),
+                            rs.getLong("product_id"), rs.getDouble("score")));
+        }
+
+        TrainingDataset dataset = fromMatrix ?
+                builder.build(trainingNegativesPerPositive,
+                        interactionMatrix::contains) :
+                builder.build(trainingNegativesPerPositive);
+        log.info("Dataset de entrenamiento: {} positivas leídas ({} descartadas por usuario o producto fuera del dataset), {} muestras, {} KB, falsos positivos del filtro {}",
+                builder.seenPositives(), builder.unknownPositives(),
+                dataset.size(), dataset.memoryBytes() / 1024,
+                String.format("%.4f", builder.filterFalsePositiveRate()));
+        return dataset;
     }
 
     /**
-     * CLUSTERING K-MEANS CUSTOM
+     * Une las positivas de compras y carrito (ordenadas por usuario y
+     * producto) con las filas de InteractionMatrix, también ordenadas, y
+     * manda al Builder un solo score por par: el de compras/carrito más el
+     * score acumulado de interacciones de esa celda.
      */
-    private static class CustomKMeansClusterer
+    private static final class MatrixPositiveMerge implements RowCallbackHandler
     {
+        private final TrainingDataset.Builder builder;
+        private final InteractionMatrix matrix;
+        private final long[] matrixUsers;
+        private int nextUser;
+        private long currentUser;
+        private InteractionMatrix.UserRow row;
+        private int position;
 
-        public Map<Integer, List<Long>> cluster(double[][] data,
-                List<Long> userIds, int k)
+        MatrixPositiveMerge(TrainingDataset.Builder builder,
+                InteractionMatrix matrix)
         {
-            if (data.length < k)
-            {
-                k = Math.max(1, data.length);
-            }
-
-            int dimensions = data[0].length;
-            double[][] centroids = initializeCentroids(data, k, dimensions);
-            int[] assignments = new int[data.length];
-
-            // Iteraciones K-Means
-            for (int iter = 0; iter < 50; iter++)
-            {
-                boolean changed = false;
-
-                // Asignar puntos a centroides
-                for (int i = 0; i < data.length; i++)
-                {
-                    int newAssignment = findClosestCentroid(data[i], centroids);
-                    if (assignments[i] != newAssignment)
-                    {
-                        assignments[i] = newAssignment;
-                        changed = true;
-                    }
-                }
-
-                if (!changed)
-                    break;
-
-                // Actualizar centroides
-                updateCentroids(data, assignments, centroids, k);
-            }
-
-            // Crear mapa de clusters
-            Map<Integer, List<Long>> clusters = new HashMap<>();
-            for (int i = 0; i < k; i++)
-            {
-                clusters.put(i, new ArrayList<>());
-            }
-
-            for (int i = 0; i < assignments.length; i++)
-            {
-                clusters.get(assignments[i]).add(userIds.get(i));
-            }
-
-            return clusters;
+            this.builder = builder;
+            this.matrix = matrix;
+            this.matrixUsers = matrix.userIds();
         }
 
-        private double[][] initializeCentroids(double[][] data, int k,
-                int dimensions)
+        @Override
+        public void processRow(ResultSet rs) throws SQLException
         {
-            Random random = new Random();
-            double[][] centroids = new double[k][dimensions];
-
-            // Inicialización K-Means++
-            for (int i = 0; i < k; i++)
+            long userId = rs.getLong("user_id");
+            long productId = rs.getLong("product_id");
+            double score = rs.getDouble("score");
+            if (row == null || userId != currentUser)
             {
-                int randomIndex = random.nextInt(data.length);
-                System.arraycopy(data[randomIndex], 0, centroids[i], 0,
-                        dimensions);
+                finishUser();
+                startUser(userId);
             }
 
-            return centroids;
-        }
-
-        private int findClosestCentroid(double[] point, double[][] centroids)
-        {
-            int closest = 0;
-            double minDistance = calculateDistance(point, centroids[0]);
-
-            for (int i = 1; i < centroids.length; i++)
+            long[] products = row.productIds();
+            while (position < products.length && products[position] < productId)
             {
-                double distance = calculateDistance(point, centroids[i]);
-                if (distance < minDistance)
-                {
-                    minDistance = distance;
-                    closest = i;
-                }
+                emitCell(position++);
             }
-
-            return closest;
-        }
-
-        private double calculateDistance(double[] a, double[] b)
-        {
-            double sum = 0;
-            for (int i = 0; i < a.length; i++)
+            boolean indexed = position < products.length
+                    && products[position] == productId;
+            if (indexed)
             {
-                double diff = a[i] - b[i];
-                sum += diff * diff;
+                score += row.scores()[position++];
             }
-            return Math.sqrt(sum);
+            builder.addPositive(userId, productId, score, indexed);
         }
 
-        private void updateCentroids(double[][] data, int[] assignments,
-                double[][] centroids, int k)
+        // Al terminar la consulta quedan los usuarios que solo tienen interacciones
+        void finish()
         {
-            int[] counts = new int[k];
-
-            // Reinicializar centroides
-            for (int i = 0; i < k; i++)
-            {
-                Arrays.fill(centroids[i], 0);
-            }
-
-            // Sumar puntos por cluster
-            for (int i = 0; i < data.length; i++)
-            {
-                int cluster = assignments[i];
-                counts[cluster]++;
-                for (int j = 0; j < data[i].length; j++)
-                {
-                    centroids[cluster][j] += data[i][j];
-                }
-            }
-
-            // Promediar
-            for (int i = 0; i < k; i++)
+            finishUser();
+            row = null;
+            while (nextUser < matrixUsers.length)
             {
-                if (counts[i] > 0)
-                {
-                    for (int j = 0; j < centroids[i].length; j++)
-                    {
-                        centroids[i][j] /= counts[i];
-                    }
-                }
+                emitUser(matrixUsers[nextUser++]);
             }
         }
-    }
-
-    /**
-     * DATASET DE ENTRENAMIENTO
-     */
-    private static class TrainingDataset
-    {
-        private final List<Map<String, Object>> rawData;
-        private final Map<Long, List<Map<String, Object>>> userGrouped;
-        private final Map<Long, List<Map<String, Object>>> productGrouped;
-
-        public TrainingDataset(List<Map<String, Object>> rawData)
-        {
-            this.rawData = rawData;
-            this.userGrouped = rawData.stream().collect(
-                    Collectors.groupingBy(r -> (Long) r.get("user_id")));
-            this.productGrouped = rawData.stream().collect(
-                    Collectors.groupingBy(r -> (Long) r.get("product_id")));
-        }
-
-        public boolean isEmpty()
-        {
-            return rawData.isEmpty();
-        }
-
-        public List<Long> getUserIds()
-        {
-            return new ArrayList<>(userGrouped.keySet());
-        }
-
-        public List<Long> getProductIds()
-        {
-            return new ArrayList<>(productGrouped.keySet());
-        }
 
-        public double[][] getInputMatrix()
+        private void startUser(long userId)
         {
-            List<double[]> inputs = new ArrayList<>();
-
-            for (Map<String, Object> record : rawData)
+            while (nextUser < matrixUsers.length && matrixUsers[nextUser] < userId)
             {
-                double[] input = new double[5];
-                input[0] = ((Number) record.get("orders")).doubleValue() / 10.0;
-                input[1] = ((Number) record.get(
-                        "avg_amount")).doubleValue() / 1000.0;
-                input[2] = ((Number) record.get(
-                        "price")).doubleValue() / 1000.0;
-                input[3] = "PRODUCER".equals(record.get("role")) ? 1.0 : 0.0;
-                input[4] = ((Number) record.get("score")).doubleValue() / 10.0;
-
-                inputs.add(input);
+                emitUser(matrixUsers[nextUser++]);
             }
-
-            return inputs.toArray(new double[0][]);
-        }
-
-        public double[][] getTargetMatrix()
-        {
-            List<double[]> targets = new ArrayList<>();
-
-            for (Map<String, Object> record : rawData)
+            if (nextUser < matrixUsers.length && matrixUsers[nextUser] == userId)
             {
-                double[] target = new double[1];
-                double score = ((Number) record.get("score")).doubleValue();
-                target[0] = Math.min(1.0, score / 10.0); // Normalizar
-
-                targets.add(target);
+                nextUser++;
             }
-
-            return targets.toArray(new double[0][]);
+            currentUser = userId;
+            row = matrix.row(userId);
+            position = 0;
         }
 
-        public double[][] getUserFeatures()
+        private void finishUser()
         {
-            List<double[]> features = new ArrayList<>();
-
-            for (Long userId : getUserIds())
+            while (row != null && position < row.size())
             {
-                List<Map<String, Object>> userRecords = userGrouped.get(userId);
-                if (!userRecords.isEmpty())
-                {
-                    Map<String, Object> record = userRecords.get(0);
-                    double[] feature = new double[4];
-
-                    feature[0] = ((Number) record.get("orders")).doubleValue();
-                    feature[1] = ((Number) record.get(
-                            "avg_amount")).doubleValue();
-                    feature[2] = "PRODUCER".equals(record.get("role")) ?
-                            1.0 :
-                            0.0;
-                    feature[3] = userRecords.stream().mapToDouble(
-                                    r -> ((Number) r.get("score")).doubleValue())
-                            .average().orElse(0);
-
-                    features.add(feature);
-                }
+                emitCell(position++);
             }
-
-            return features.toArray(new double[0][]);
-        }
-
-        public double[] getUserFeatures(Long userId)
-        {
-            List<Map<String, Object>> userRecords = userGrouped.get(userId);
-            if (userRecords == null || userRecords.isEmpty())
-                return null;
-
-            Map<String, Object> record = userRecords.get(0);
-            double[] features = new double[4];
-
-            features[0] = ((Number) record.get("orders")).doubleValue() / 10.0;
-            features[1] = ((Number) record.get(
-                    "avg_amount")).doubleValue() / 1000.0;
-            features[2] = "PRODUCER".equals(record.get("role")) ? 1.0 : 0.0;
-            features[3] = userRecords.stream()
-                    .mapToDouble(r -> ((Number) r.get("score")).doubleValue())
-                    .average().orElse(0) / 10.0;
-
-            return features;
-        }
-
-        public double[] getProductFeatures(Long productId)
-        {
-            List<Map<String, Object>> productRecords = productGrouped.get(
-                    productId);
-            if (productRecords == null || productRecords.isEmpty())
-                return null;
-
-            Map<String, Object> record = productRecords.get(0);
-            double[] features = new double[3];
-
-            features[0] = ((Number) record.get("price")).doubleValue() / 1000.0;
-            features[1] = ((Number) record.get(
-                    "quantity")).doubleValue() / 100.0;
-            features[2] = productRecords.stream()
-                    .mapToDouble(r -> ((Number) r.get("score")).doubleValue())
-                    .average().orElse(0) / 10.0;
-
-            return features;
-        }
-    }
-
-    /**
-     * SCORE DE PRODUCTOS
-     */
-    private static class ProductScore
-    {
-        private final Long productId;
-        private final String name;
-        private final String description;
-        private final Double price;
-        private final String producerName;
-        private final String category;
-        private final Double score;
-        private final String reason;
-
-        public ProductScore(Long productId, String name, String description,
-                Double price, String producerName, String category,
-                Double score, String reason)
-        {
-            this.productId = productId;
-            this.name = name;
-            this.description = description;
-            this.price = price;
-            this.producerName = producerName;
-            this.category = category;
-            this.score = score;
-            this.reason = reason;
-        }
-
-        // Getters
-        public Long getProductId()
-        {
-            return productId;
-        }
-
-        public String getName()
-        {
-            return name;
-        }
-
-        public String getDescription()
-        {
-            return description;
-        }
-
-        public Double getPrice()
-        {
-            return price;
-        }
-
-        public String getProducerName()
-        {
-            return producerName;
-        }
-
-        public String getCategory()
-        {
-            return category;
         }
 
-        public Double getScore()
+        private void emitUser(long userId)
         {
-            return score;
+            currentUser = userId;
+            row = matrix.row(userId);
+            position = 0;
+            finishUser();
         }
 
-        public String getReason()
+        private void emitCell(int index)
         {
-            return reason;
+            builder.addPositive(currentUser, row.productIds()[index],
+                    row.scores()[index], true);
         }
     }
 }
@@ -0,0 +1,54 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlendTableTest
+{
+    @Test
+    void growKeepsScoresFlagsAndPositions()
+    {
+        BlendTable table = new BlendTable(2, 4);
+        for (int i = 0; i < 100; i++)
+        {
+            table.add(1000L + i, 0, i, 1.0);
+        }
+        table.add(1050L, 1, 7, 0.5);
+        table.add(1050L, 1, 9, 0.25);
+
+        assertThat(table.size()).isEqualTo(100);
+        int slot = slotOf(table, 1050L);
+        assertThat(table.score(slot)).isEqualTo(1.75);
+        assertThat(table.flags(slot)).isEqualTo(0b11);
+        assertThat(table.position(0, slot)).isEqualTo(50);
+        // La posición recordada es la primera vez que la fuente trae el producto
+        assertThat(table.position(1, slot)).isEqualTo(7);
+    }
+
+    @Test
+    void clearLeavesNoScoreBehindForReuse()
+    {
+        BlendTable table = new BlendTable(1, 16);
+        table.add(5L, 0, 0, 2.0);
+        table.clear();
+        table.add(5L, 0, 3, 1.0);
+
+        assertThat(table.size()).isEqualTo(1);
+        int slot = table.slotAt(0);
+        assertThat(table.score(slot)).isEqualTo(1.0);
+        assertThat(table.position(0, slot)).isEqualTo(3);
+    }
+
+    private static int slotOf(BlendTable table, long key)
+    {
+        for (int i = 0; i < table.size(); i++)
+        {
+            if (table.key(table.slotAt(i)) == key)
+            {
+                return table.slotAt(i);
+            }
+        }
+        throw new AssertionError("sin slot para " + key);
+    }
+}
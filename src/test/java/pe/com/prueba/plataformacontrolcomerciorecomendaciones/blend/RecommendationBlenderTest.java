@@ -0,0 +1,83 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend;
+
+import org.junit.jupiter.api.Test;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class RecommendationBlenderTest
+{
+    private final RecommendationBlender blender = new RecommendationBlender(0.4,
+            0.4, 0.2);
+
+    @Test
+    void sumsWeightedScoresAndJoinsReasons()
+    {
+        List<ProductRecommendation> collaborative = List.of(
+                rec(1L, 10.0, "Usuarios similares lo compraron"),
+                rec(2L, 5.0, "Usuarios similares lo vieron"));
+        List<ProductRecommendation> contentBased = List.of(
+                rec(1L, 5.0, "Es de tu categoría favorita"));
+        List<ProductRecommendation> localProducer = List.of(
+                rec(1L, 10.0, "Productor cercano"),
+                rec(3L, 10.0, "Productor cercano"));
+
+        List<ProductRecommendation> result = blender.blend(collaborative,
+                contentBased, localProducer, 10);
+
+        assertThat(result).extracting(ProductRecommendation::getProductId)
+                .containsExactly(1L, 2L, 3L);
+        assertThat(result.get(0).getRecommendationScore()).isCloseTo(8.0,
+                offset(1e-9));
+        assertThat(result.get(0).getReason()).isEqualTo(
+                "Usuarios similares lo compraron y es de tu categoría favorita (productor local)");
+        assertThat(result.get(2).getReason()).isEqualTo("Productor cercano");
+    }
+
+    @Test
+    void keepsTopKWithTiesByAscendingProductId()
+    {
+        List<ProductRecommendation> collaborative = new ArrayList<>();
+        for (long id = 20; id >= 1; id--)
+        {
+            collaborative.add(rec(id, id <= 10 ? 1.0 : 0.5, "r"));
+        }
+
+        List<ProductRecommendation> result = blender.blend(collaborative,
+                List.of(), List.of(), 3);
+
+        assertThat(result).extracting(ProductRecommendation::getProductId)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void doesNotModifyInputs()
+    {
+        ProductRecommendation input = rec(1L, 10.0, "Usuarios similares");
+        List<ProductRecommendation> result = blender.blend(List.of(input),
+                List.of(rec(1L, 10.0, "Contenido")), List.of(), 5);
+
+        assertThat(result.get(0)).isNotSameAs(input);
+        assertThat(input.getRecommendationScore()).isEqualTo(10.0);
+        assertThat(input.getReason()).isEqualTo("Usuarios similares");
+    }
+
+    @Test
+    void emptySourcesOrZeroLimitGiveEmptyResult()
+    {
+        assertThat(blender.blend(List.of(), List.of(), List.of(), 5)).isEmpty();
+        assertThat(blender.blend(List.of(rec(1L, 1.0, "r")), List.of(),
+                List.of(), 0)).isEmpty();
+    }
+
+    private static ProductRecommendation rec(long productId, double score,
+            String reason)
+    {
+        return new ProductRecommendation(productId, "Producto " + productId,
+                "desc", 10.0, "Productor", "Categoría", score, reason);
+    }
+}
@@ -0,0 +1,97 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecommendationCacheTest
+{
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private RecommendationCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp()
+    {
+        redisTemplate = mock(RedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+
+        cache = new RecommendationCache(redisTemplate);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(cache, "retryAfterMs", 60000L);
+    }
+
+    @Test
+    void interactionDeletesOneKeyPerDistinctUser()
+    {
+        cache.onInteractionTracked(new InteractionTrackedEvent(List.of(
+                new UserInteraction(1L, 10L, InteractionType.VIEW, 0.1),
+                new UserInteraction(1L, 11L, InteractionType.VIEW, 0.1),
+                new UserInteraction(2L, 10L, InteractionType.PURCHASE, 1.0))));
+
+        verify(redisTemplate).delete(List.of("ai:recommendations:user:1",
+                "ai:recommendations:user:2"));
+        assertThat(cache.getStats()).containsEntry("invalidations", 2L);
+    }
+
+    @Test
+    void missOnUnknownField()
+    {
+        assertThat(cache.get(1L, "hybrid", 10)).isNull();
+
+        verify(hashOperations).get("ai:recommendations:user:1", "hybrid:10");
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void profileSharesTheUserKeyButNotTheRecommendationCounters()
+    {
+        when(hashOperations.get("ai:recommendations:user:1", "profile"))
+                .thenReturn(null);
+
+        assertThat(cache.getProfile(1L)).isNull();
+        cache.onInteractionTracked(new InteractionTrackedEvent(
+                new UserInteraction(1L, 10L, InteractionType.VIEW, 0.1)));
+
+        // El DEL del usuario borra también el campo del perfil
+        verify(redisTemplate).delete(List.of("ai:recommendations:user:1"));
+        assertThat(cache.getStats())
+                .containsEntry("profileMisses", 1L)
+                .containsEntry("misses", 0L);
+    }
+
+    @Test
+    void redisErrorBacksOffInsteadOfRetryingEveryLookup()
+    {
+        when(hashOperations.get(any(), any()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        assertThat(cache.get(1L, "hybrid", 10)).isNull();
+        assertThat(cache.get(1L, "hybrid", 10)).isNull();
+        assertThat(cache.get(2L, "hybrid", 5)).isNull();
+
+        verify(hashOperations, times(1)).get(any(), any());
+        assertThat(cache.getStats())
+                .containsEntry("available", false)
+                .containsEntry("errors", 1L);
+    }
+}
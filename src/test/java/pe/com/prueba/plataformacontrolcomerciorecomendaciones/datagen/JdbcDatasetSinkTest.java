@@ -0,0 +1,42 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class JdbcDatasetSinkTest
+{
+    @Test
+    void childBatchGoesAfterPendingParentRows()
+    {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        JdbcDatasetSink sink = new JdbcDatasetSink(jdbcTemplate, 2, false);
+
+        sink.write(DatagenTable.ORDERS, 1L, 1L, 10.0, null);
+        sink.write(DatagenTable.ORDER_ITEMS, 1L, 1L, 5L, 1, 10.0);
+        sink.write(DatagenTable.ORDER_ITEMS, 2L, 1L, 6L, 1, 10.0);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).batchUpdate(
+                eq(DatagenTable.ORDERS.insertSql()), anyList());
+        order.verify(jdbcTemplate).batchUpdate(
+                eq(DatagenTable.ORDER_ITEMS.insertSql()), anyList());
+    }
+
+    @Test
+    void schemaIsOnlyCreatedWhenAsked()
+    {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        new JdbcDatasetSink(jdbcTemplate, 10, false);
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,81 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.datagen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ZipfSamplerTest
+{
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void frequenciesFollowThePowerLaw()
+    {
+        int n = 100;
+        double exponent = 1.1;
+        long[] counts = histogram(new ZipfSampler(n, exponent), n, 42);
+
+        double norm = 0;
+        for (int k = 1; k <= n; k++)
+        {
+            norm += Math.pow(k, -exponent);
+        }
+        for (int k : new int[] {1, 2, 5, 10})
+        {
+            double expected = Math.pow(k, -exponent) / norm;
+            assertThat(counts[k] / (double) SAMPLES).isCloseTo(expected,
+                    within(0.01));
+        }
+    }
+
+    @Test
+    void exponentZeroIsUniformAndStaysInRange()
+    {
+        int n = 10;
+        long[] counts = histogram(new ZipfSampler(n, 0.0), n, 7);
+
+        assertThat(counts[0]).isZero();
+        for (int k = 1; k <= n; k++)
+        {
+            assertThat(counts[k] / (double) SAMPLES).isCloseTo(0.1, within(0.01));
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameSequence()
+    {
+        ZipfSampler sampler = new ZipfSampler(1_000_000, 0.8);
+        SplittableRandom a = new SplittableRandom(99);
+        SplittableRandom b = new SplittableRandom(99);
+        for (int i = 0; i < 1000; i++)
+        {
+            assertThat(sampler.sample(a)).isEqualTo(sampler.sample(b));
+        }
+    }
+
+    @Test
+    void rejectsInvalidParameters()
+    {
+        assertThatThrownBy(() -> new ZipfSampler(0, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ZipfSampler(10, -0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long[] histogram(ZipfSampler sampler, int n, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] counts = new long[n + 1];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            long k = sampler.sample(random);
+            assertThat(k).isBetween(1L, (long) n);
+            counts[(int) k]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,102 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StubJdbc;
+
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CategoryIndexTest
+{
+    private StubJdbc jdbc;
+
+    private InteractionMatrix matrix;
+
+    private CategoryIndex index;
+
+    @BeforeEach
+    void setUp()
+    {
+        jdbc = new StubJdbc();
+        RecommendationMetrics metrics = new RecommendationMetrics(
+                new SimpleMeterRegistry(), 60000, 6);
+        matrix = spy(new InteractionMatrix(jdbc.jdbcTemplate(), metrics));
+        ReflectionTestUtils.setField(matrix, "fetchSize", 100);
+        ReflectionTestUtils.setField(matrix, "compactMinEntries", 50000);
+        ReflectionTestUtils.setField(matrix, "compactRatio", 0.05);
+        ReflectionTestUtils.setField(matrix, "overlapMillis", 120000L);
+
+        // Productos 100 y 101 en la categoría 1
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (long productId = 100; productId <= 101; productId++)
+            {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("product_id")).thenReturn(productId);
+                when(rs.getLong("category_id")).thenReturn(1L);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbc.jdbcTemplate()).query(
+                eq("SELECT product_id, category_id FROM product_categories"),
+                any(RowCallbackHandler.class));
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.isAvailable(anyLong())).thenReturn(true);
+
+        index = new CategoryIndex(jdbc.jdbcTemplate(), catalog, matrix, metrics);
+        ReflectionTestUtils.setField(index, "maxCachedAffinities", 10);
+        index.rebuild();
+    }
+
+    @Test
+    void affinityIsRecomputedOnlyForUsersWithNewInteractions()
+    {
+        long now = System.currentTimeMillis();
+        jdbc.interaction(1, 10, 100, "VIEW", 0.1, now)
+                .interaction(2, 20, 100, "VIEW", 0.1, now);
+        matrix.load();
+        index.recommend(10L, 5);
+        clearInvocations(matrix);
+
+        jdbc.interaction(3, 20, 101, "VIEW", 0.1, now);
+        matrix.refresh();
+        index.recommend(10L, 5);
+        verify(matrix, never()).row(10L);
+
+        // El evento ajusta la afinidad cacheada y cuenta como una interacción
+        UserInteraction tracked = new UserInteraction(10L, 101L,
+                InteractionType.VIEW, 0.1);
+        index.onInteractionTracked(new InteractionTrackedEvent(tracked));
+        jdbc.interaction(4, 10, 101, "VIEW", 0.1, now);
+        matrix.refresh();
+        index.recommend(10L, 5);
+        verify(matrix, never()).row(10L);
+
+        // Una interacción que llegó solo por la matriz (otra instancia)
+        jdbc.interaction(5, 10, 100, "VIEW", 0.1, now);
+        matrix.refresh();
+        index.recommend(10L, 5);
+        verify(matrix, times(1)).row(10L);
+        assertThat(index.getStats()).containsEntry("cachedAffinities", 1);
+    }
+}
@@ -0,0 +1,87 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StubJdbc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class InteractionMatrixTest
+{
+    private StubJdbc jdbc;
+
+    private InteractionMatrix matrix;
+
+    @BeforeEach
+    void setUp()
+    {
+        jdbc = new StubJdbc();
+        matrix = new InteractionMatrix(jdbc.jdbcTemplate(),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6));
+        ReflectionTestUtils.setField(matrix, "fetchSize", 100);
+        ReflectionTestUtils.setField(matrix, "compactMinEntries", 50000);
+        ReflectionTestUtils.setField(matrix, "compactRatio", 0.05);
+        ReflectionTestUtils.setField(matrix, "overlapMillis", 120000L);
+    }
+
+    @Test
+    void loadBuildsSortedRowsAndColumns()
+    {
+        long now = System.currentTimeMillis();
+        jdbc.interaction(1, 10, 300, "VIEW", 0.1, now)
+                .interaction(2, 10, 100, "PURCHASE", 1.0, now)
+                .interaction(3, 10, 300, "ADD_TO_CART", 0.5, now)
+                .interaction(4, 20, 100, "VIEW", 0.1, now);
+
+        matrix.load();
+
+        InteractionMatrix.UserRow row = matrix.row(10);
+        assertThat(row.productIds()).containsExactly(100L, 300L);
+        assertThat(row.scores()[1]).isEqualTo(0.6f, within(1e-6f));
+        assertThat(row.masks()[1]).isEqualTo((byte) (
+                InteractionMatrix.maskOf(InteractionType.VIEW)
+                        | InteractionMatrix.maskOf(InteractionType.ADD_TO_CART)));
+        assertThat(row.events()).isEqualTo(3);
+        assertThat(matrix.column(100).userIds()).containsExactly(10L, 20L);
+        assertThat(matrix.userIds()).containsExactly(10L, 20L);
+        assertThat(matrix.getWatermark()).isEqualTo(4);
+    }
+
+    @Test
+    void refreshAppliesLateCommittedIdsOnce()
+    {
+        long now = System.currentTimeMillis();
+        jdbc.interaction(1, 10, 100, "VIEW", 0.1, now)
+                .interaction(3, 10, 100, "VIEW", 0.1, now);
+        matrix.load();
+
+        // El id 2 confirma después de que la marca de agua pasó a 3
+        jdbc.interaction(2, 10, 200, "PURCHASE", 1.0, now)
+                .interaction(4, 30, 100, "VIEW", 0.1, now);
+        matrix.refresh();
+        matrix.refresh();
+
+        assertThat(matrix.row(10).productIds()).containsExactly(100L, 200L);
+        assertThat(matrix.eventCount(10)).isEqualTo(3);
+        assertThat(matrix.userIds()).containsExactly(10L, 30L);
+        assertThat(matrix.getWatermark()).isEqualTo(4);
+    }
+
+    @Test
+    void rowOfUnknownUserIsEmptyBeforeAndAfterLoad()
+    {
+        assertThat(matrix.row(10).size()).isZero();
+        assertThat(matrix.isReady()).isFalse();
+
+        matrix.load();
+
+        assertThat(matrix.isReady()).isTrue();
+        assertThat(matrix.row(10).size()).isZero();
+        assertThat(matrix.userIds()).isEmpty();
+    }
+}
@@ -0,0 +1,296 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StubJdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemCooccurrenceIndexTest
+{
+    private StubJdbc jdbc;
+
+    private InteractionMatrix matrix;
+
+    private ProductCatalog catalog;
+
+    private ItemCooccurrenceIndex index;
+
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp()
+    {
+        jdbc = new StubJdbc();
+        matrix = new InteractionMatrix(jdbc.jdbcTemplate(),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6));
+        ReflectionTestUtils.setField(matrix, "fetchSize", 100);
+        ReflectionTestUtils.setField(matrix, "compactMinEntries", 50000);
+        ReflectionTestUtils.setField(matrix, "compactRatio", 0.05);
+        ReflectionTestUtils.setField(matrix, "overlapMillis", 120000L);
+
+        catalog = mock(ProductCatalog.class);
+        when(catalog.toRecommendation(anyLong(), anyDouble(), anyString()))
+                .thenAnswer(invocation -> new ProductRecommendation(
+                        invocation.getArgument(0), "p", "d", 1.0, "prod", "cat",
+                        (Double) invocation.getArgument(1), "r"));
+
+        index = newIndex();
+    }
+
+    @Test
+    void weightsAreCosineOverCooccurrenceCounts()
+    {
+        // A=1 y B=2 juntos en dos usuarios, A y C=3 en uno, B solo en otro
+        purchase(10, 1).purchase(10, 2)
+                .purchase(11, 1).purchase(11, 2)
+                .purchase(12, 1).purchase(12, 3)
+                .purchase(13, 2);
+        build();
+
+        track(20, 1);
+
+        // Soporte A = 4 con el usuario nuevo, B = 3, C = 1
+        List<ProductRecommendation> recs = index.recommend(20L, 10);
+        assertThat(recs).extracting(ProductRecommendation::getProductId)
+                .containsExactly(2L, 3L);
+        assertThat(recs.get(0).getRecommendationScore())
+                .isCloseTo(2 / Math.sqrt(4 * 3), within(1e-9));
+        assertThat(recs.get(1).getRecommendationScore())
+                .isCloseTo(1 / Math.sqrt(4 * 1), within(1e-9));
+    }
+
+    @Test
+    void trackedInteractionsUpdateCachedNeighbours()
+    {
+        purchase(10, 1).purchase(10, 2)
+                .purchase(11, 1).purchase(11, 2)
+                .purchase(12, 1).purchase(12, 3);
+        build();
+        track(20, 1);
+        assertThat(index.recommend(20L, 1)).extracting(
+                ProductRecommendation::getProductId).containsExactly(2L);
+
+        // Dos usuarios nuevos con A y C: C pasa a B en los vecinos cacheados de A
+        track(21, 3);
+        track(21, 1);
+        track(22, 3);
+        track(22, 1);
+
+        List<ProductRecommendation> recs = index.recommend(20L, 10);
+        assertThat(recs).extracting(ProductRecommendation::getProductId)
+                .containsExactly(3L, 2L);
+        assertThat(recs.get(0).getRecommendationScore())
+                .isCloseTo(3 / Math.sqrt(6 * 3), within(1e-9));
+    }
+
+    @Test
+    void newUsersOfANeighbourRefreshItsCachedWeight()
+    {
+        purchase(10, 1).purchase(10, 2);
+        build();
+        track(20, 1);
+        assertThat(index.recommend(20L, 1).get(0).getRecommendationScore())
+                .isCloseTo(1 / Math.sqrt(2 * 1), within(1e-9));
+
+        // B gana un usuario sin A: la lista cacheada de A no cambia de versión
+        track(21, 2);
+
+        assertThat(index.recommend(20L, 1).get(0).getRecommendationScore())
+                .isCloseTo(1 / Math.sqrt(2 * 2), within(1e-9));
+    }
+
+    @Test
+    void countsPerProductArePrunedToTheMostFrequent()
+    {
+        ReflectionTestUtils.setField(index, "topK", 2);
+        ReflectionTestUtils.setField(index, "maxPairsPerProduct", 2);
+        // 1 y 2 juntos en tres usuarios; 1 con otros 20 productos una vez
+        purchase(10, 1).purchase(10, 2)
+                .purchase(11, 1).purchase(11, 2)
+                .purchase(12, 1).purchase(12, 2);
+        for (long product = 100; product < 120; product++)
+        {
+            purchase(product, 1).purchase(product, product);
+        }
+        build();
+
+        track(20, 1);
+
+        assertThat(index.recommend(20L, 1)).extracting(
+                ProductRecommendation::getProductId).containsExactly(2L);
+        // Producto 1 con a lo sumo 2 * 2 pares; cada producto nuevo con el suyo
+        assertThat((Long) index.getStats().get("pairs"))
+                .isLessThanOrEqualTo(4 + 1 + 20);
+        assertThat((Long) index.getStats().get("prunedPairs")).isPositive();
+    }
+
+    @Test
+    void concurrentTrackingBuildAndReadsMatchASequentialIndex() throws Exception
+    {
+        Random random = new Random(7);
+        for (long userId = 1; userId <= 40; userId++)
+        {
+            for (int i = 0; i < 3; i++)
+            {
+                purchase(userId, 1 + random.nextInt(30));
+            }
+        }
+        matrix.load();
+
+        // Cada hilo registra la mitad de sus eventos mientras otro construye y
+        // la otra mitad, ya construido, mientras otros leen
+        int writers = 4;
+        int perWriter = 1000;
+        List<List<long[]>> events = new ArrayList<>();
+        for (int w = 0; w < writers; w++)
+        {
+            List<long[]> own = new ArrayList<>();
+            for (int i = 0; i < perWriter; i++)
+            {
+                own.add(new long[] {1 + random.nextInt(150), 1 + random.nextInt(80)});
+            }
+            events.add(own);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 3);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CompletableFuture<Void> builder = CompletableFuture.runAsync(() -> {
+            awaitQuietly(start);
+            index.build();
+        }, pool);
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (List<long[]> own : events)
+        {
+            writes.add(CompletableFuture.runAsync(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < own.size(); i++)
+                {
+                    if (i == own.size() / 2)
+                    {
+                        builder.join();
+                    }
+                    track(own.get(i)[0], own.get(i)[1]);
+                }
+            }, pool));
+        }
+        List<CompletableFuture<Void>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++)
+        {
+            long seed = r;
+            readers.add(CompletableFuture.runAsync(() -> {
+                Random users = new Random(seed);
+                while (running.get())
+                {
+                    index.recommend(1L + users.nextInt(150), 10);
+                }
+            }, pool));
+        }
+        start.countDown();
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new))
+                .get(30, TimeUnit.SECONDS);
+        builder.get(30, TimeUnit.SECONDS);
+        running.set(false);
+        CompletableFuture.allOf(readers.toArray(CompletableFuture[]::new))
+                .get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        // Referencia: la misma matriz y los mismos eventos, en un solo hilo
+        ItemCooccurrenceIndex reference = newIndex();
+        reference.build();
+        for (List<long[]> own : events)
+        {
+            for (long[] event : own)
+            {
+                reference.onInteractionTracked(new InteractionTrackedEvent(
+                        interaction(event[0], event[1])));
+            }
+        }
+
+        assertThat(index.getStats()).isEqualTo(reference.getStats());
+        for (long userId = 1; userId <= 150; userId++)
+        {
+            List<ProductRecommendation> expected = reference.recommend(userId, 50);
+            List<ProductRecommendation> actual = index.recommend(userId, 50);
+            assertThat(actual).as("usuario %d", userId)
+                    .extracting(ProductRecommendation::getProductId)
+                    .containsExactlyElementsOf(expected.stream()
+                            .map(ProductRecommendation::getProductId).toList());
+            for (int i = 0; i < actual.size(); i++)
+            {
+                assertThat(actual.get(i).getRecommendationScore()).isCloseTo(
+                        expected.get(i).getRecommendationScore(), within(1e-9));
+            }
+        }
+    }
+
+    private ItemCooccurrenceIndex newIndex()
+    {
+        ItemCooccurrenceIndex created = new ItemCooccurrenceIndex(matrix, catalog);
+        ReflectionTestUtils.setField(created, "topK", 50);
+        ReflectionTestUtils.setField(created, "maxItemsPerUser", 200);
+        ReflectionTestUtils.setField(created, "maxPairsPerProduct", 500);
+        return created;
+    }
+
+    private ItemCooccurrenceIndexTest purchase(long userId, long productId)
+    {
+        jdbc.interaction(nextId++, userId, productId, "PURCHASE", 1.0,
+                System.currentTimeMillis());
+        return this;
+    }
+
+    private void build()
+    {
+        matrix.load();
+        index.build();
+        assertThat(index.isReady()).isTrue();
+    }
+
+    private void track(long userId, long productId)
+    {
+        index.onInteractionTracked(new InteractionTrackedEvent(
+                interaction(userId, productId)));
+    }
+
+    private static UserInteraction interaction(long userId, long productId)
+    {
+        return new UserInteraction(userId, productId, InteractionType.PURCHASE,
+                InteractionType.PURCHASE.getDefaultScore());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
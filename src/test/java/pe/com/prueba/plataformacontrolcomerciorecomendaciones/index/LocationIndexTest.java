@@ -0,0 +1,121 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.StubJdbc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocationIndexTest
+{
+    private StubJdbc jdbc;
+
+    private InteractionMatrix matrix;
+
+    private LocationIndex index;
+
+    @BeforeEach
+    void setUp()
+    {
+        jdbc = new StubJdbc();
+        matrix = spy(new InteractionMatrix(jdbc.jdbcTemplate(),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6)));
+        ReflectionTestUtils.setField(matrix, "fetchSize", 100);
+        ReflectionTestUtils.setField(matrix, "compactMinEntries", 50000);
+        ReflectionTestUtils.setField(matrix, "compactRatio", 0.05);
+        ReflectionTestUtils.setField(matrix, "overlapMillis", 120000L);
+
+        Map<Long, ProductCatalog.ProductInfo> products = Map.of(
+                100L, product(100, "Lima"), 101L, product(101, "Lima"),
+                200L, product(200, "Cusco"), 201L, product(201, "Cusco"));
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.all()).thenReturn(products.values());
+        when(catalog.get(anyLong())).thenAnswer(
+                invocation -> products.get((Long) invocation.getArgument(0)));
+        when(catalog.toRecommendation(anyLong(), anyDouble(), anyString()))
+                .thenAnswer(invocation -> new ProductRecommendation(
+                        invocation.getArgument(0), "p", "d", 1.0, "prod", "cat",
+                        (Double) invocation.getArgument(1), "r"));
+
+        index = new LocationIndex(catalog, matrix);
+        ReflectionTestUtils.setField(index, "maxCachedUsers", 2);
+        index.rebuild();
+    }
+
+    @Test
+    void otherUsersActivityKeepsTheCachedEntry()
+    {
+        long now = System.currentTimeMillis();
+        jdbc.interaction(1, 10, 100, "PURCHASE", 1.0, now)
+                .interaction(2, 20, 200, "PURCHASE", 1.0, now);
+        matrix.load();
+
+        assertThat(ids(index.recommend(10L, 5))).containsExactly(101L);
+        clearInvocations(matrix);
+
+        // Interacciones de otro usuario: cambia la versión global, no la del 10
+        jdbc.interaction(3, 20, 201, "VIEW", 0.1, now);
+        matrix.refresh();
+        assertThat(ids(index.recommend(10L, 5))).containsExactly(101L);
+        verify(matrix, never()).row(10L);
+
+        // Una interacción del propio usuario sí lo recalcula
+        jdbc.interaction(4, 10, 200, "PURCHASE", 1.0, now);
+        matrix.refresh();
+        assertThat(ids(index.recommend(10L, 5)))
+                .containsExactlyInAnyOrder(101L, 201L);
+        verify(matrix, times(1)).row(10L);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedUser()
+    {
+        long now = System.currentTimeMillis();
+        jdbc.interaction(1, 10, 100, "PURCHASE", 1.0, now)
+                .interaction(2, 20, 200, "PURCHASE", 1.0, now)
+                .interaction(3, 30, 101, "PURCHASE", 1.0, now);
+        matrix.load();
+
+        index.recommend(10L, 5);
+        index.recommend(20L, 5);
+        index.recommend(10L, 5);
+        // Tope 2: entra el 30 y sale el 20, no todo el cache
+        index.recommend(30L, 5);
+        clearInvocations(matrix);
+
+        index.recommend(10L, 5);
+        verify(matrix, never()).row(10L);
+        index.recommend(20L, 5);
+        verify(matrix, times(1)).row(20L);
+        assertThat(index.getStats()).containsEntry("cachedUsers", 2);
+    }
+
+    private static List<Long> ids(List<ProductRecommendation> recommendations)
+    {
+        return recommendations.stream().map(ProductRecommendation::getProductId)
+                .toList();
+    }
+
+    private static ProductCatalog.ProductInfo product(long id, String location)
+    {
+        return new ProductCatalog.ProductInfo(id, "p", "d", 10.0, 5, 1, "prod",
+                location, true, "cat");
+    }
+}
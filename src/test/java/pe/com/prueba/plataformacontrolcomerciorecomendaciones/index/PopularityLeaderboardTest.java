@@ -0,0 +1,246 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityLeaderboardTest
+{
+    // user_interactions confirmadas, en orden de id
+    private final List<UserInteraction> table = new CopyOnWriteArrayList<>();
+
+    private PopularityLeaderboard leaderboard;
+
+    private InteractionBatchWriter writer;
+
+    // Escrituras que corren en otro hilo mientras la reconciliación consulta
+    private Runnable beforeMaxId = () -> {};
+
+    private Runnable duringSnapshot = () -> {};
+
+    @BeforeEach
+    void setUp()
+    {
+        RecommendationMetrics metrics = new RecommendationMetrics(
+                new SimpleMeterRegistry(), 60000, 6);
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.toRecommendation(anyLong(), anyDouble(), anyString()))
+                .thenAnswer(invocation -> new ProductRecommendation(
+                        invocation.getArgument(0), "p", "d", 1.0, "prod", "cat",
+                        (Double) invocation.getArgument(1), "r"));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenAnswer(invocation -> {
+                    CompletableFuture.runAsync(beforeMaxId).join();
+                    return table.isEmpty() ? 0L :
+                            table.get(table.size() - 1).getId();
+                });
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(duringSnapshot).join();
+            RowCallbackHandler handler = invocation.getArgument(1);
+            long snapshotId = invocation.getArgument(2);
+            for (ResultSet rs : aggregate(snapshotId))
+            {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class),
+                any(Object.class));
+        doAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keys = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++)
+            {
+                keys.getKeyList().add(Map.of("GENERATED_KEY",
+                        (long) table.size() + keys.getKeyList().size() + 1));
+            }
+            return new int[setter.getBatchSize()];
+        }).when(jdbcTemplate).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+
+        leaderboard = new PopularityLeaderboard(jdbcTemplate, catalog, metrics);
+        writer = new InteractionBatchWriter(jdbcTemplate,
+                mock(PlatformTransactionManager.class), metrics, 100);
+    }
+
+    @Test
+    void batchWritesRacingReconcileAreCountedOnce()
+    {
+        write(1L, 1L);
+        leaderboard.reconcile();
+
+        // Confirmada antes de la foto pero notificada durante la reconciliación
+        beforeMaxId = () -> write(1L);
+        // Confirmada después de la foto: solo llega por el evento
+        duringSnapshot = () -> write(2L, 2L);
+        leaderboard.reconcile();
+
+        assertThat(scores()).containsOnlyKeys(1L, 2L);
+        assertThat(scores().get(1L)).isCloseTo(
+                PopularityLeaderboard.score(3, 3 * score()), within(1e-9));
+        assertThat(scores().get(2L)).isCloseTo(
+                PopularityLeaderboard.score(2, 2 * score()), within(1e-9));
+    }
+
+    @Test
+    void eventArrivingAfterTheReconcileThatCountedItIsIgnored()
+    {
+        leaderboard.reconcile();
+
+        // Confirmada antes de la foto, notificada cuando la reconciliación ya terminó
+        UserInteraction late = commit(1L);
+        leaderboard.reconcile();
+        leaderboard.onInteractionTracked(new InteractionTrackedEvent(late));
+        UserInteraction next = commit(1L);
+        leaderboard.onInteractionTracked(new InteractionTrackedEvent(next));
+
+        assertThat(scores().get(1L)).isCloseTo(
+                PopularityLeaderboard.score(2, 2 * score()), within(1e-9));
+    }
+
+    @Test
+    void concurrentWritesAndReconcilesCountEachRowOnce() throws Exception
+    {
+        int writers = 4;
+        int perWriter = 500;
+        leaderboard.reconcile();
+
+        // Se reconcilia durante las primeras tres cuartas partes de las escrituras;
+        // las últimas reconciliaciones quedan con eventos aún por llegar
+        CompletableFuture<Void> reconciles = CompletableFuture.runAsync(() -> {
+            while (table.size() < writers * perWriter * 3 / 4)
+            {
+                leaderboard.reconcile();
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int w = 0; w < writers; w++)
+        {
+            writes.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perWriter; i++)
+                {
+                    UserInteraction row = commit(1L + i % 5);
+                    // El evento llega después de confirmar, a veces tras una reconciliación
+                    Thread.yield();
+                    leaderboard.onInteractionTracked(new InteractionTrackedEvent(row));
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new))
+                .get(30, TimeUnit.SECONDS);
+        reconciles.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        // Sin reconciliar de nuevo: cada fila se contó una sola vez
+        long perProduct = writers * perWriter / 5;
+        assertThat(scores()).hasSize(5).allSatisfy((productId, value) ->
+                assertThat(value).isCloseTo(PopularityLeaderboard.score(
+                        perProduct, perProduct * score()), within(1e-9)));
+    }
+
+    // Confirma una fila con el siguiente id, en orden de confirmación
+    private UserInteraction commit(long productId)
+    {
+        UserInteraction interaction = new UserInteraction(1L, productId,
+                InteractionType.VIEW, score());
+        interaction.setCreatedAt(LocalDateTime.now());
+        synchronized (table)
+        {
+            interaction.setId((long) table.size() + 1);
+            table.add(interaction);
+        }
+        return interaction;
+    }
+
+    // Inserta por el writer (que asigna ids) y publica como InteractionWriteBuffer
+    private void write(long... productIds)
+    {
+        List<UserInteraction> rows = new ArrayList<>();
+        for (long productId : productIds)
+        {
+            UserInteraction interaction = new UserInteraction(1L, productId,
+                    InteractionType.VIEW, score());
+            interaction.setCreatedAt(LocalDateTime.now());
+            rows.add(interaction);
+        }
+        writer.insertAll(rows);
+        table.addAll(rows);
+        leaderboard.onInteractionTracked(new InteractionTrackedEvent(rows));
+    }
+
+    private List<ResultSet> aggregate(long snapshotId) throws Exception
+    {
+        Map<Long, long[]> counts = new TreeMap<>();
+        for (UserInteraction interaction : table)
+        {
+            if (interaction.getId() <= snapshotId)
+            {
+                counts.computeIfAbsent(interaction.getProductId(),
+                        id -> new long[1])[0]++;
+            }
+        }
+        List<ResultSet> rows = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : counts.entrySet())
+        {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("product_id")).thenReturn(entry.getKey());
+            when(rs.getLong("interactions")).thenReturn(entry.getValue()[0]);
+            when(rs.getDouble("score_sum")).thenReturn(
+                    entry.getValue()[0] * score());
+            rows.add(rs);
+        }
+        return rows;
+    }
+
+    private Map<Long, Double> scores()
+    {
+        Map<Long, Double> scores = new TreeMap<>();
+        for (ProductRecommendation rec : leaderboard.top(10))
+        {
+            scores.put(rec.getProductId(), rec.getRecommendationScore());
+        }
+        return scores;
+    }
+
+    private static double score()
+    {
+        return InteractionType.VIEW.getDefaultScore();
+    }
+}
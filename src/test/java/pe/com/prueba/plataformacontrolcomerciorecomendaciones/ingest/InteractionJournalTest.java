@@ -0,0 +1,202 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InteractionJournalTest
+{
+    @TempDir
+    Path directory;
+
+    private final List<InteractionTrackedEvent> events = new ArrayList<>();
+
+    private final ApplicationEventPublisher publisher = event -> events.add(
+            (InteractionTrackedEvent) event);
+
+    @Test
+    void replayPublishesEachCommittedChunkAndAdvancesCheckpoint()
+            throws IOException
+    {
+        InteractionJournal first = journal(mock(InteractionBatchWriter.class));
+        first.open();
+        first.append(interaction(1L, 10L));
+        first.append(interaction(2L, 20L));
+        first.close();
+
+        InteractionBatchWriter writer = writer();
+        when(writer.insertAll(anyList())).thenReturn(List.of(
+                new InteractionBatchWriter.ChunkResult(0, 1, true, false),
+                new InteractionBatchWriter.ChunkResult(1, 2, true, false)));
+        InteractionJournal second = journal(writer);
+        second.open();
+        second.replay();
+        second.close();
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getInteractions().get(0).getUserId())
+                .isEqualTo(1L);
+        assertThat(events.get(1).getInteractions().get(0).getProductId())
+                .isEqualTo(20L);
+
+        // Tras el replay el checkpoint pasó los registros: nada que reinsertar
+        InteractionBatchWriter idle = mock(InteractionBatchWriter.class);
+        InteractionJournal third = journal(idle);
+        third.open();
+        third.replay();
+        verify(idle, never()).insertAll(anyList());
+        assertThat(segments(directory)).hasSize(1);
+    }
+
+    @Test
+    void failedChunkIsQuarantinedAndRetriedOnNextStart() throws IOException
+    {
+        InteractionJournal first = journal(mock(InteractionBatchWriter.class));
+        first.open();
+        first.append(interaction(1L, 10L));
+        first.append(interaction(2L, 20L));
+        first.close();
+
+        InteractionBatchWriter writer = writer();
+        when(writer.insertAll(anyList())).thenReturn(List.of(
+                new InteractionBatchWriter.ChunkResult(0, 1, true, false),
+                new InteractionBatchWriter.ChunkResult(1, 2, false, true)));
+        InteractionJournal second = journal(writer);
+        second.open();
+        second.replay();
+        second.close();
+
+        assertThat(events).hasSize(1);
+        assertThat(segments(directory.resolve("quarantine"))).hasSize(1);
+
+        InteractionBatchWriter retry = writer();
+        when(retry.insertAll(anyList())).thenReturn(List.of(
+                new InteractionBatchWriter.ChunkResult(0, 1, true, false)));
+        InteractionJournal third = journal(retry);
+        third.open();
+        third.replay();
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(1).getInteractions().get(0).getUserId())
+                .isEqualTo(2L);
+        assertThat(segments(directory.resolve("quarantine"))).isEmpty();
+    }
+
+    @Test
+    void rowsCommittedBeforeTheCheckpointAreNotInsertedAgain() throws IOException
+    {
+        // Caída entre el commit del lote y el checkpoint: 1 y 2 ya están en la base
+        InteractionJournal first = journal(mock(InteractionBatchWriter.class));
+        first.open();
+        first.append(interaction(1L, 10L));
+        first.append(interaction(2L, 20L));
+        first.append(interaction(3L, 30L));
+        first.close();
+
+        InteractionBatchWriter writer = mock(InteractionBatchWriter.class);
+        when(writer.findPersisted(anyList())).thenAnswer(invocation -> {
+            List<UserInteraction> rows = invocation.getArgument(0);
+            boolean[] persisted = new boolean[rows.size()];
+            for (int i = 0; i < rows.size(); i++)
+            {
+                persisted[i] = rows.get(i).getUserId() < 3;
+            }
+            return persisted;
+        });
+        List<UserInteraction> inserted = new ArrayList<>();
+        when(writer.insertAll(anyList())).thenAnswer(invocation -> {
+            List<UserInteraction> rows = invocation.getArgument(0);
+            inserted.addAll(rows);
+            return List.of(new InteractionBatchWriter.ChunkResult(0, rows.size(),
+                    true, false));
+        });
+        InteractionJournal second = journal(writer);
+        second.open();
+        second.replay();
+        second.close();
+
+        assertThat(inserted).extracting(UserInteraction::getUserId)
+                .containsExactly(3L);
+        assertThat(events).hasSize(1);
+        assertThat(second.getStats()).containsEntry("alreadyPersisted", 2L)
+                .containsEntry("replayed", 1L);
+    }
+
+    @Test
+    void uncheckedRowsAreQuarantinedWhenTheLookupFails() throws IOException
+    {
+        InteractionJournal first = journal(mock(InteractionBatchWriter.class));
+        first.open();
+        first.append(interaction(1L, 10L));
+        first.close();
+
+        InteractionBatchWriter writer = mock(InteractionBatchWriter.class);
+        when(writer.findPersisted(anyList())).thenThrow(
+                new DataAccessResourceFailureException("sin conexión"));
+        InteractionJournal second = journal(writer);
+        second.open();
+        second.replay();
+        second.close();
+
+        verify(writer, never()).insertAll(anyList());
+        assertThat(segments(directory.resolve("quarantine"))).hasSize(1);
+    }
+
+    // Writer sin filas previas en la base
+    private static InteractionBatchWriter writer()
+    {
+        InteractionBatchWriter writer = mock(InteractionBatchWriter.class);
+        doAnswer(invocation -> new boolean[((List<?>) invocation.getArgument(0))
+                .size()]).when(writer).findPersisted(anyList());
+        return writer;
+    }
+
+    private InteractionJournal journal(InteractionBatchWriter writer)
+    {
+        InteractionJournal journal = new InteractionJournal(writer, publisher);
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeBytes",
+                InteractionJournal.RECORD_SIZE * 16);
+        ReflectionTestUtils.setField(journal, "fsyncPolicy", FsyncPolicy.ALWAYS);
+        return journal;
+    }
+
+    private static UserInteraction interaction(long userId, long productId)
+    {
+        UserInteraction interaction = new UserInteraction(userId, productId,
+                InteractionType.VIEW, InteractionType.VIEW.getDefaultScore());
+        interaction.setCreatedAt(LocalDateTime.now());
+        return interaction;
+    }
+
+    private static List<Path> segments(Path dir) throws IOException
+    {
+        try (Stream<Path> files = Files.list(dir))
+        {
+            return files.filter(p -> p.toString().endsWith(".journal")).toList();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InteractionWriteBufferTest
+{
+    // Filas que el writer confirmó y filas publicadas, en orden de llegada
+    private final List<UserInteraction> inserted = new CopyOnWriteArrayList<>();
+
+    private final List<UserInteraction> published = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger inserts = new AtomicInteger();
+
+    // Cada cuántas llamadas el lote se revierte por un error transitorio (0: nunca)
+    private volatile int failEvery;
+
+    private InteractionBatchWriter batchWriter;
+
+    private InteractionWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp()
+    {
+        batchWriter = mock(InteractionBatchWriter.class);
+        when(batchWriter.insertAll(anyList())).thenAnswer(invocation -> {
+            List<UserInteraction> rows = invocation.getArgument(0);
+            int call = inserts.incrementAndGet();
+            if (failEvery > 0 && call % failEvery == 0)
+            {
+                return List.of(new InteractionBatchWriter.ChunkResult(0,
+                        rows.size(), false, true));
+            }
+            inserted.addAll(rows);
+            return List.of(new InteractionBatchWriter.ChunkResult(0,
+                    rows.size(), true, false));
+        });
+        ApplicationEventPublisher publisher = event -> published.addAll(
+                ((InteractionTrackedEvent) event).getInteractions());
+
+        buffer = new InteractionWriteBuffer(batchWriter, publisher,
+                mock(InteractionJournal.class));
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "capacity", 1000);
+        ReflectionTestUtils.setField(buffer, "flushSize", 10);
+        // Intervalo largo: solo el umbral o el apagado disparan el flush
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 60000L);
+        ReflectionTestUtils.setField(buffer, "backpressure",
+                BackpressurePolicy.BLOCK);
+        ReflectionTestUtils.setField(buffer, "viewWatermark", 0.8);
+        ReflectionTestUtils.setField(buffer, "blockTimeoutMs", 10000L);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        buffer.shutdown();
+    }
+
+    @Test
+    void reachingTheFlushSizeWritesWithoutWaitingForTheInterval()
+    {
+        buffer.start();
+        for (int i = 0; i < 10; i++)
+        {
+            buffer.submit(interaction(1L, i));
+        }
+
+        verify(batchWriter, timeout(5000)).insertAll(
+                argThat(rows -> rows.size() == 10));
+        assertThat(inserted).hasSize(10);
+    }
+
+    @Test
+    void shutdownDrainsWhatIsStillQueued()
+    {
+        buffer.start();
+        for (int i = 0; i < 7; i++)
+        {
+            buffer.submit(interaction(1L, i));
+        }
+
+        // Menos que flush-size y el intervalo no vence: solo el apagado escribe
+        buffer.shutdown();
+
+        assertThat(inserted).extracting(UserInteraction::getProductId)
+                .containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(published).hasSize(7);
+        assertThat(buffer.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void concurrentSubmitsAreWrittenExactlyOnce() throws Exception
+    {
+        int threads = 8;
+        int perThread = 250;
+        // Capacidad chica y lotes revertidos: los productores esperan y se reintenta
+        ReflectionTestUtils.setField(buffer, "capacity", 64);
+        ReflectionTestUtils.setField(buffer, "flushSize", 16);
+        ReflectionTestUtils.setField(buffer, "flushIntervalMs", 1L);
+        failEvery = 5;
+        buffer.start();
+
+        ExecutorService producers = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            long userId = t;
+            done.add(CompletableFuture.runAsync(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++)
+                {
+                    buffer.submit(interaction(userId, i));
+                }
+            }, producers));
+        }
+        start.countDown();
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new))
+                .get(30, TimeUnit.SECONDS);
+        producers.shutdown();
+        buffer.shutdown();
+
+        List<String> keys = inserted.stream()
+                .map(row -> row.getUserId() + ":" + row.getProductId())
+                .toList();
+        assertThat(keys).hasSize(threads * perThread).doesNotHaveDuplicates();
+        assertThat(published).hasSize(threads * perThread);
+        assertThat(buffer.getQueueDepth()).isZero();
+        assertThat(buffer.getStats())
+                .containsEntry("written", (long) threads * perThread)
+                .containsEntry("rejected", 0L);
+        assertThat((Long) buffer.getStats().get("failedWrites")).isPositive();
+    }
+
+    private static UserInteraction interaction(long userId, long productId)
+    {
+        return new UserInteraction(userId, productId, InteractionType.PURCHASE,
+                InteractionType.PURCHASE.getDefaultScore());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecommendationMetricsTest
+{
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RecommendationMetrics metrics = new RecommendationMetrics(
+            registry, 60000, 6);
+
+    @Test
+    void reusesOneTimerPerNameTagsAndOutcome()
+    {
+        metrics.record(RecommendationMetrics.QUERY, 1_000, "success", "query", "a");
+        metrics.record(RecommendationMetrics.QUERY, 3_000, "success", "query", "a");
+        metrics.record(RecommendationMetrics.QUERY, 2_000, "error", "query", "a");
+        metrics.record(RecommendationMetrics.QUERY, 2_000, "success", "query", "b");
+
+        assertThat(registry.find(RecommendationMetrics.QUERY)
+                .tags("query", "a", "outcome", "success").timer().count())
+                .isEqualTo(2);
+        assertThat(registry.find(RecommendationMetrics.QUERY)
+                .tags("query", "a", "outcome", "error").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.find(RecommendationMetrics.QUERY).timers()).hasSize(3);
+    }
+
+    @Test
+    void requestFeedsTimerAndWindowPerType()
+    {
+        metrics.recordRequest("HYBRID", 5_000_000, false);
+        metrics.recordRequest("HYBRID", 5_000_000, true);
+
+        assertThat(registry.find(RecommendationMetrics.REQUEST)
+                .tags("type", "HYBRID").timers()).hasSize(2);
+        assertThat(metrics.requestSnapshots()).containsOnlyKeys("HYBRID");
+    }
+}
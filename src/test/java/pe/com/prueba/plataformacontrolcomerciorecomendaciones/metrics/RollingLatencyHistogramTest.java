@@ -0,0 +1,42 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingLatencyHistogramTest
+{
+    @Test
+    void throughputDividesByElapsedTimeNotTheFullWindow() throws Exception
+    {
+        RollingLatencyHistogram histogram = new RollingLatencyHistogram(60_000, 6);
+        for (int i = 0; i < 100; i++)
+        {
+            histogram.record(2_000_000);
+        }
+        Thread.sleep(20);
+
+        RollingLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.count()).isEqualTo(100);
+        // Con la ventana completa serían 100 / 60 s ~ 1.7/s
+        assertThat(snapshot.throughputPerSecond()).isGreaterThan(100.0);
+    }
+
+    @Test
+    void percentilesUseTheBucketUpperBound()
+    {
+        RollingLatencyHistogram histogram = new RollingLatencyHistogram(60_000, 6);
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(1_000_000);
+        }
+        histogram.record(100_000_000);
+
+        RollingLatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.p50Ms()).isBetween(1.0, 1.25);
+        assertThat(snapshot.p99Ms()).isBetween(1.0, 1.25);
+        assertThat(snapshot.maxMs()).isEqualTo(100.0);
+    }
+}
@@ -0,0 +1,129 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomKMeansClustererTest
+{
+    private static final KMeansOptions FULL = new KMeansOptions(KMeansMode.FULL,
+            200, 1, 1024, 200, 100_000, 42);
+
+    @Test
+    void hamerlyConvergesToLloydFixedPoint()
+    {
+        double[][] data = blobs(5000, 4, 6);
+        List<Long> ids = ids(data.length);
+
+        CustomKMeansClusterer clusterer = new CustomKMeansClusterer(
+                ScalarKernels.INSTANCE, null, FULL);
+        Map<Integer, List<Long>> clusters = clusterer.cluster(data, ids, 6);
+
+        // Un paso más de Lloyd (medias y luego el más cercano) no cambia nada
+        int d = data[0].length;
+        double[][] centroids = new double[clusters.size()][d];
+        int[] assign = new int[data.length];
+        for (Map.Entry<Integer, List<Long>> entry : clusters.entrySet())
+        {
+            assertThat(entry.getValue()).isNotEmpty();
+            for (long id : entry.getValue())
+            {
+                assign[(int) id] = entry.getKey();
+                for (int j = 0; j < d; j++)
+                {
+                    centroids[entry.getKey()][j] += data[(int) id][j]
+                            / entry.getValue().size();
+                }
+            }
+        }
+        for (int i = 0; i < data.length; i++)
+        {
+            double own = squaredDistance(data[i], centroids[assign[i]]);
+            for (double[] centroid : centroids)
+            {
+                assertThat(own).isLessThanOrEqualTo(
+                        squaredDistance(data[i], centroid) + 1e-9);
+            }
+        }
+
+        CustomKMeansClusterer.Stats stats = clusterer.getLastStats();
+        assertThat(stats.mode()).isEqualTo(KMeansMode.FULL);
+        assertThat(stats.iterations()).isLessThan(FULL.maxIterations());
+        assertThat(stats.prunedFraction()).isGreaterThan(0.0);
+    }
+
+    @Test
+    void sameClustersAcrossRunsAndPoolSizes()
+    {
+        double[][] data = blobs(5000, 4, 6);
+        List<Long> ids = ids(data.length);
+
+        Map<Integer, List<Long>> first = new CustomKMeansClusterer(
+                ScalarKernels.INSTANCE, null, FULL).cluster(data, ids, 6);
+        Map<Integer, List<Long>> second = new CustomKMeansClusterer(
+                ScalarKernels.INSTANCE, null, FULL).cluster(data, ids, 6);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            Map<Integer, List<Long>> parallel = new CustomKMeansClusterer(
+                    ScalarKernels.INSTANCE, pool, FULL).cluster(data, ids, 6);
+            assertThat(parallel).isEqualTo(first);
+        } finally
+        {
+            pool.shutdown();
+        }
+        assertThat(second).isEqualTo(first);
+    }
+
+    // Nubes gaussianas alrededor de centros al azar, con semilla fija
+    private static double[][] blobs(int n, int d, int centers)
+    {
+        Random random = new Random(7);
+        double[][] means = new double[centers][d];
+        for (double[] mean : means)
+        {
+            for (int j = 0; j < d; j++)
+            {
+                mean[j] = random.nextDouble() * 10;
+            }
+        }
+        double[][] data = new double[n][d];
+        for (int i = 0; i < n; i++)
+        {
+            double[] mean = means[random.nextInt(centers)];
+            for (int j = 0; j < d; j++)
+            {
+                data[i][j] = mean[j] + random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+    private static List<Long> ids(int n)
+    {
+        List<Long> ids = new ArrayList<>(n);
+        for (long i = 0; i < n; i++)
+        {
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private static double squaredDistance(double[] a, double[] b)
+    {
+        double sum = 0;
+        for (int j = 0; j < a.length; j++)
+        {
+            double diff = a[j] - b[j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CustomNeuralNetworkTest
+{
+    @Test
+    void predictBatchMatchesPredictPerCandidate()
+    {
+        CustomNeuralNetwork network = new CustomNeuralNetwork();
+        Random random = new Random(7);
+        double[] profile = new double[8];
+        for (int i = 0; i < profile.length; i++)
+        {
+            profile[i] = random.nextDouble();
+        }
+        int count = 37;
+        double[][] columns = new double[6][count];
+        for (double[] column : columns)
+        {
+            for (int c = 0; c < count; c++)
+            {
+                column[c] = random.nextDouble();
+            }
+        }
+
+        double[] batch = new double[count];
+        network.predictBatch(profile, columns, count, batch);
+
+        for (int c = 0; c < count; c++)
+        {
+            double[] input = new double[14];
+            System.arraycopy(profile, 0, input, 0, 8);
+            for (int f = 0; f < 6; f++)
+            {
+                input[8 + f] = columns[f][c];
+            }
+            // predictBatch usa la tanh aproximada de VectorKernels
+            assertThat(batch[c]).isCloseTo(network.predict(input), within(1e-4));
+        }
+    }
+
+    @Test
+    void predictionStaysBetweenZeroAndOne()
+    {
+        CustomNeuralNetwork network = new CustomNeuralNetwork();
+        double[] input = new double[14];
+        Arrays.fill(input, 50.0);
+
+        assertThat(network.predict(input)).isBetween(0.0, 1.0);
+    }
+}
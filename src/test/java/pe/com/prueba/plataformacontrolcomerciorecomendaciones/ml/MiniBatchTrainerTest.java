@@ -0,0 +1,52 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MiniBatchTrainerTest
+{
+    @Test
+    void sameWeightsWithOneOrFourWorkers()
+    {
+        double[][] inputs = new double[500][5];
+        double[][] targets = new double[500][1];
+        Random random = new Random(11);
+        for (int s = 0; s < inputs.length; s++)
+        {
+            for (int f = 0; f < inputs[s].length; f++)
+            {
+                inputs[s][f] = random.nextDouble();
+            }
+            targets[s][0] = random.nextDouble() < 0.3 ? 1.0 : 0.0;
+        }
+
+        CustomNeuralNetwork initial = new CustomNeuralNetwork();
+        double[] single = trainWith(1, initial, inputs, targets);
+        double[] parallel = trainWith(4, initial, inputs, targets);
+
+        assertThat(parallel).containsExactly(single);
+        assertThat(single).isNotEqualTo(initial.copyParams());
+    }
+
+    private static double[] trainWith(int workers, CustomNeuralNetwork initial,
+            double[][] inputs, double[][] targets)
+    {
+        CustomNeuralNetwork network = new CustomNeuralNetwork();
+        network.publish(initial.copyParams());
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try
+        {
+            // 128 por batch en shards de 16: 8 gradientes parciales por paso
+            new MiniBatchTrainer(pool, 128, 16, 0.05, 42L).train(network, inputs,
+                    targets, 5);
+        } finally
+        {
+            pool.shutdown();
+        }
+        return network.copyParams();
+    }
+}
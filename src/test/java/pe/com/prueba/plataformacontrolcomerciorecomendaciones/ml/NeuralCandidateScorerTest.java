@@ -0,0 +1,63 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.Test;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NeuralCandidateScorerTest
+{
+    @Test
+    void topKIsBestFirstWithTiesByBatchOrder()
+    {
+        double[] scores = {0.3, 0.9, 0.5, 0.9, 0.1};
+
+        assertThat(NeuralCandidateScorer.topK(scores, scores.length, 3))
+                .containsExactly(1, 3, 2);
+        assertThat(NeuralCandidateScorer.topK(scores, scores.length, 10))
+                .containsExactly(1, 3, 2, 0, 4);
+        assertThat(NeuralCandidateScorer.topK(scores, scores.length, 0)).isEmpty();
+    }
+
+    @Test
+    void materializesOnlyTheTopCandidatesInScoreOrder()
+    {
+        CandidateBatch batch = new CandidateBatch(4);
+        Map<Long, double[]> embeddings = new HashMap<>();
+        Map<Long, ProductCatalog.ProductInfo> catalog = new HashMap<>();
+        for (long id = 1; id <= 4; id++)
+        {
+            batch.add(id, 50.0 * id, (int) id);
+            embeddings.put(id, new double[] {id / 4.0, 0.2, 0.1, 0.3, 0.0, 0.5});
+            catalog.put(id, new ProductCatalog.ProductInfo(id, "p" + id, "d",
+                    50.0 * id, (int) id, 1, "prod", "Lima", true, "cat"));
+        }
+        NeuralCandidateScorer scorer = new NeuralCandidateScorer(
+                new CustomNeuralNetwork(), embeddings);
+
+        NeuralCandidateScorer.ScoredCandidates scored = scorer.score(
+                new double[8], 3, batch, 2);
+        List<ProductScore> top = scorer.toProductScores(batch, scored,
+                catalog::get);
+
+        assertThat(top).hasSize(2);
+        assertThat(top.get(0).getScore()).isGreaterThanOrEqualTo(
+                top.get(1).getScore());
+        for (ProductScore score : top)
+        {
+            int index = (int) (score.getProductId() - 1);
+            assertThat(score.getScore()).isEqualTo(scored.scores()[index]);
+            assertThat(score.getName()).isEqualTo("p" + score.getProductId());
+            assertThat(score.getCategory()).isEqualTo("cat");
+        }
+
+        // Sin entrada en el catálogo el candidato no se materializa
+        catalog.remove(top.get(0).getProductId());
+        assertThat(scorer.toProductScores(batch, scored, catalog::get))
+                .hasSize(1);
+    }
+}
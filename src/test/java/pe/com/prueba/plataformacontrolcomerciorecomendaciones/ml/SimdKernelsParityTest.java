@@ -0,0 +1,204 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SimdKernelsParityTest
+{
+    // Ninguna es múltiplo del ancho de vector: siempre queda cola escalar
+    private static final int[] LENGTHS = {1, 3, 5, 7, 13, 31, 67, 1001};
+
+    // Desplazamiento en los arreglos para no alinear el inicio
+    private static final int OFFSET = 3;
+
+    private static final ScalarKernels SCALAR = ScalarKernels.INSTANCE;
+
+    private final Random random = new Random(42);
+
+    private VectorKernels simd;
+
+    @BeforeEach
+    void setUp()
+    {
+        // surefire agrega el módulo; si falta, el test no debe pasar en silencio
+        assertThat(ModuleLayer.boot().findModule("jdk.incubator.vector"))
+                .isPresent();
+        simd = VectorKernels.select(true);
+        // Solo se omite en CPUs sin vectores de más de un double
+        assumeTrue(simd instanceof VectorKernels.SimdCapable);
+    }
+
+    @Test
+    void dotMatchesScalar()
+    {
+        for (int length : LENGTHS)
+        {
+            double[] a = doubles(length, 1.0);
+            double[] b = doubles(length, 1.0);
+            assertThat(simd.dot(a, OFFSET, b, OFFSET, length)).isCloseTo(
+                    SCALAR.dot(a, OFFSET, b, OFFSET, length),
+                    within(1e-12 * magnitude(a, b, length)));
+
+            float[] fa = floats(a);
+            float[] fb = floats(b);
+            assertThat((double) simd.dot(fa, OFFSET, fb, OFFSET, length))
+                    .isCloseTo(SCALAR.dot(fa, OFFSET, fb, OFFSET, length),
+                            within(1e-5 * magnitude(a, b, length)));
+        }
+    }
+
+    @Test
+    void squaredDistanceMatchesScalar()
+    {
+        for (int length : LENGTHS)
+        {
+            double[] a = doubles(length, 1.0);
+            double[] b = doubles(length, 1.0);
+            double expected = SCALAR.squaredDistance(a, OFFSET, b, OFFSET, length);
+            assertThat(simd.squaredDistance(a, OFFSET, b, OFFSET, length))
+                    .isCloseTo(expected, within(1e-12 * expected));
+
+            float[] fa = floats(a);
+            float[] fb = floats(b);
+            assertThat((double) simd.squaredDistance(fa, OFFSET, fb, OFFSET,
+                    length)).isCloseTo(SCALAR.squaredDistance(fa, OFFSET, fb,
+                    OFFSET, length), within(1e-5 * expected));
+        }
+    }
+
+    @Test
+    void matVecMatchesScalar()
+    {
+        for (int cols : LENGTHS)
+        {
+            int rows = 5;
+            int stride = cols + 2;
+            double[] matrix = doubles(rows * stride, 1.0);
+            double[] x = doubles(cols, 1.0);
+            double[] expected = new double[rows];
+            double[] actual = new double[rows];
+            SCALAR.matVec(matrix, OFFSET, rows, cols, stride, x, OFFSET, expected);
+            simd.matVec(matrix, OFFSET, rows, cols, stride, x, OFFSET, actual);
+            for (int r = 0; r < rows; r++)
+            {
+                assertThat(actual[r]).isCloseTo(expected[r], within(1e-12 * magnitude(
+                        matrix, OFFSET + r * stride, x, cols)));
+            }
+        }
+    }
+
+    @Test
+    void axpyMatchesScalarAndLeavesTheRestUntouched()
+    {
+        for (int length : LENGTHS)
+        {
+            double a = random.nextDouble() * 4 - 2;
+            double[] x = doubles(length, 1.0);
+            double[] expected = doubles(length, 1.0);
+            double[] actual = expected.clone();
+            SCALAR.axpy(a, x, OFFSET, expected, OFFSET, length);
+            simd.axpy(a, x, OFFSET, actual, OFFSET, length);
+            // FMA redondea una vez menos que a * x + y
+            for (int i = 0; i < actual.length; i++)
+            {
+                assertThat(actual[i]).isCloseTo(expected[i], within(1e-12));
+            }
+
+            float[] fx = floats(x);
+            float[] fExpected = floats(doubles(length, 1.0));
+            float[] fActual = fExpected.clone();
+            SCALAR.axpy((float) a, fx, OFFSET, fExpected, OFFSET, length);
+            simd.axpy((float) a, fx, OFFSET, fActual, OFFSET, length);
+            for (int i = 0; i < fActual.length; i++)
+            {
+                assertThat(fActual[i]).isCloseTo(fExpected[i], within(1e-5f));
+            }
+        }
+    }
+
+    @Test
+    void tanhMatchesScalarWithinTheApproximationError()
+    {
+        for (int length : LENGTHS)
+        {
+            // Incluye valores fuera del rango de recorte
+            double[] input = doubles(length, 12.0);
+            double[] expected = input.clone();
+            double[] actual = input.clone();
+            SCALAR.tanh(expected, OFFSET, length);
+            simd.tanh(actual, OFFSET, length);
+            for (int i = 0; i < actual.length; i++)
+            {
+                assertThat(actual[i]).isCloseTo(expected[i], within(1e-12));
+                if (i >= OFFSET && i < OFFSET + length)
+                {
+                    assertThat(actual[i]).isCloseTo(Math.tanh(input[i]),
+                            within(1e-4));
+                }
+                else
+                {
+                    assertThat(actual[i]).isEqualTo(input[i]);
+                }
+            }
+
+            float[] fInput = floats(input);
+            float[] fExpected = fInput.clone();
+            float[] fActual = fInput.clone();
+            SCALAR.tanh(fExpected, OFFSET, length);
+            simd.tanh(fActual, OFFSET, length);
+            for (int i = 0; i < fActual.length; i++)
+            {
+                assertThat(fActual[i]).isCloseTo(fExpected[i], within(1e-6f));
+                if (i >= OFFSET && i < OFFSET + length)
+                {
+                    assertThat((double) fActual[i]).isCloseTo(
+                            Math.tanh(fInput[i]), within(1e-4));
+                }
+            }
+        }
+    }
+
+    // length valores en [-range, range) tras OFFSET, más un margen al final
+    private double[] doubles(int length, double range)
+    {
+        double[] values = new double[OFFSET + length + OFFSET];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = (random.nextDouble() * 2 - 1) * range;
+        }
+        return values;
+    }
+
+    private static float[] floats(double[] values)
+    {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    // Suma de |a_i * b_i|: escala del error de redondeo del producto punto
+    private static double magnitude(double[] a, double[] b, int length)
+    {
+        return magnitude(a, OFFSET, b, length);
+    }
+
+    private static double magnitude(double[] a, int aOffset, double[] b,
+            int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            sum += Math.abs(a[aOffset + i] * b[OFFSET + i]);
+        }
+        return Math.max(sum, Double.MIN_NORMAL);
+    }
+}
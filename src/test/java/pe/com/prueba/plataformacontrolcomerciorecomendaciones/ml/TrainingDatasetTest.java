@@ -0,0 +1,103 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingDatasetTest
+{
+    @Test
+    void inputsDoNotIncludeTheTargetScore()
+    {
+        TrainingDataset.Builder builder = builder(10, 1);
+        builder.addPositive(1, 10, 8.0);
+        builder.addPositive(2, 20, 2.0);
+        TrainingDataset dataset = builder.build(0);
+
+        double[][] inputs = dataset.getInputMatrix();
+        for (double[] row : inputs)
+        {
+            assertThat(row).hasSize(TrainingDataset.INPUT_WIDTH);
+        }
+        // Mismo usuario y producto con otro score: mismas entradas
+        TrainingDataset.Builder other = builder(10, 1);
+        other.addPositive(1, 10, 1.0);
+        other.addPositive(2, 20, 9.0);
+        assertThat(other.build(0).getInputMatrix()).isDeepEqualTo(inputs);
+    }
+
+    @Test
+    void negativesSkipPositivesOutsideTheReservoir()
+    {
+        for (long seed = 0; seed < 20; seed++)
+        {
+            // Reservoir de 2: (1, 20) desplaza a otra positiva o se descarta
+            TrainingDataset.Builder builder = builder(2, seed);
+            builder.addPositive(1, 10, 5.0);
+            builder.addPositive(2, 20, 5.0);
+            builder.addPositive(1, 20, 5.0);
+            // (2, 10) la conoce solo el filtro, como una celda de la matriz
+            builder.addPositive(2, 10, 1.0, true);
+            TrainingDataset dataset = builder.build(4,
+                    (userId, productId) -> userId == 2 && productId == 10);
+
+            // Los cuatro pares son positivos: no queda ninguna negativa válida
+            assertThat(dataset.size()).isEqualTo(dataset.positiveCount());
+        }
+    }
+
+    @Test
+    void boundedFilterNeverLetsAPositiveBecomeANegative()
+    {
+        // Usuario u positivo en los productos de su misma paridad; reservoir chico
+        TrainingDataset.Builder builder = new TrainingDataset.Builder(100, 7,
+                1 << 14);
+        for (int u = 1; u <= 50; u++)
+        {
+            builder.addUser(u, false, u, 0);
+        }
+        for (int p = 1; p <= 40; p++)
+        {
+            builder.addProduct(p, p, 5);
+        }
+        for (int u = 1; u <= 50; u++)
+        {
+            for (int p = 1; p <= 40; p++)
+            {
+                if ((u + p) % 2 == 0)
+                {
+                    builder.addPositive(u, p, 1.0);
+                }
+            }
+        }
+        TrainingDataset dataset = builder.build(2);
+
+        double[] inputs = dataset.getPackedInputs();
+        double[] targets = dataset.getPackedTargets();
+        int negatives = 0;
+        for (int s = dataset.positiveCount(); s < dataset.size(); s++)
+        {
+            // Entradas: pedidos / 10 (= usuario) y precio / 1000 (= producto)
+            long user = Math.round(inputs[s * TrainingDataset.INPUT_WIDTH] * 10);
+            long product = Math.round(
+                    inputs[s * TrainingDataset.INPUT_WIDTH + 2] * 1000);
+            assertThat(targets[s]).isZero();
+            assertThat((user + product) % 2).isEqualTo(1);
+            negatives++;
+        }
+        assertThat(negatives).isGreaterThan(100);
+        assertThat(builder.filterFalsePositiveRate()).isLessThan(0.05);
+    }
+
+    // Usuarios 1 y 2, productos 10 y 20
+    private static TrainingDataset.Builder builder(int maxPositives, long seed)
+    {
+        TrainingDataset.Builder builder = new TrainingDataset.Builder(
+                maxPositives, seed);
+        builder.addUser(1, false, 1, 0);
+        builder.addUser(2, false, 2, 0);
+        builder.addProduct(10, 100, 5);
+        builder.addProduct(20, 200, 5);
+        return builder;
+    }
+}
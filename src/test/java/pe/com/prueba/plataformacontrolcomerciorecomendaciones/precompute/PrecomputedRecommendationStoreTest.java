@@ -0,0 +1,158 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationResult;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationSummary;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.service.BulkRecommendationService;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PrecomputedRecommendationStoreTest
+{
+    @TempDir
+    Path directory;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final InteractionMatrix matrix = mock(InteractionMatrix.class);
+
+    private PrecomputedRecommendationStore store;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        Path file = directory.resolve("recommendations.bin");
+        when(matrix.isReady()).thenReturn(true);
+        when(matrix.eventCount(1L)).thenReturn(4);
+        writeFile(file);
+
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.toRecommendation(anyLong(), anyDouble(), anyString()))
+                .thenAnswer(invocation -> new ProductRecommendation(
+                        invocation.getArgument(0), "p", "d", 1.0, "prod", "cat",
+                        (Double) invocation.getArgument(1),
+                        invocation.getArgument(2)));
+
+        store = new PrecomputedRecommendationStore(catalog, matrix);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "file", file.toString());
+        store.reload();
+    }
+
+    @Test
+    void readsBackWhatTheJobWrote()
+    {
+        List<ProductRecommendation> slice = store.lookup(1L, 2);
+
+        assertThat(slice).extracting(ProductRecommendation::getProductId)
+                .containsExactly(10L, 11L);
+        assertThat(slice).extracting(ProductRecommendation::getReason)
+                .containsExactly("Similares", "Popular");
+        assertThat(slice.get(0).getRecommendationScore()).isEqualTo(0.5);
+        assertThat(store.lookup(1L, 3)).isNull();
+    }
+
+    @Test
+    void readsAcrossSegmentBoundaries()
+    {
+        // Segmentos de 16 bytes: header, entradas e índice cruzan los bordes
+        ReflectionTestUtils.setField(store, "segmentBytes", 16);
+        ReflectionTestUtils.setField(store, "snapshot", null);
+        store.reload();
+
+        List<ProductRecommendation> slice = store.lookup(1L, 2);
+
+        assertThat(slice).extracting(ProductRecommendation::getProductId)
+                .containsExactly(10L, 11L);
+        assertThat(slice).extracting(ProductRecommendation::getReason)
+                .containsExactly("Similares", "Popular");
+        assertThat(slice.get(1).getRecommendationScore()).isEqualTo(0.25);
+    }
+
+    @Test
+    void usersWithoutCandidatesOrWithErrorsAreMisses()
+    {
+        assertThat(store.lookup(2L, 1)).isNull();
+        assertThat(store.lookup(3L, 1)).isNull();
+        assertThat(store.lookup(4L, 1)).isNull();
+        assertThat(store.getStats()).containsEntry("users", 1)
+                .containsEntry("misses", 3L);
+    }
+
+    @Test
+    void activityAfterTheFileIsReadFromTheMatrix()
+    {
+        // Una interacción más que al correr el job, sin consultar la base
+        clearInvocations(jdbcTemplate);
+        when(matrix.eventCount(1L)).thenReturn(5);
+
+        assertThat(store.lookup(1L, 2)).isNull();
+        assertThat(store.getStats()).containsEntry("staleUsers", 1L);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void writeFile(Path file) throws Exception
+    {
+        // Usuarios activos 1, 2 y 3: 2 sin candidatos, 3 con error
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (long userId = 1; userId <= 3; userId++)
+            {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("user_id")).thenReturn(userId);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class),
+                any(RowCallbackHandler.class));
+
+        BulkRecommendationService bulk = mock(BulkRecommendationService.class);
+        when(bulk.process(any(), anyInt(), any())).thenAnswer(invocation -> {
+            BulkRecommendationService.ResultSink sink = invocation.getArgument(2);
+            sink.accept(new BulkRecommendationResult(3L, null, "falló"));
+            sink.accept(new BulkRecommendationResult(1L, List.of(
+                    rec(10L, 0.5, "Similares"), rec(11L, 0.25, "Popular")),
+                    null));
+            sink.accept(new BulkRecommendationResult(2L, List.of(), null));
+            return new BulkRecommendationSummary(3, 1, 1, 3000.0);
+        });
+
+        RecommendationPrecomputeJob job = new RecommendationPrecomputeJob(bulk,
+                matrix, jdbcTemplate);
+        ReflectionTestUtils.setField(job, "file", file.toString());
+        ReflectionTestUtils.setField(job, "topN", 2);
+        ReflectionTestUtils.setField(job, "activeDays", 90);
+        job.run();
+        assertThat(file).exists();
+    }
+
+    private static ProductRecommendation rec(long productId, double score,
+            String reason)
+    {
+        return new ProductRecommendation(productId, "p", "d", 1.0, "prod", "cat",
+                score, reason);
+    }
+}
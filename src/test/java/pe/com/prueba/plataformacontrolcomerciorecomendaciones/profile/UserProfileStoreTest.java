@@ -0,0 +1,336 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.profile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.event.InteractionTrackedEvent;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.CategoryIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserProfileAggregateRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserProfileStoreTest
+{
+    private static final long PRODUCT = 100L;
+
+    private static final double PRICE = 10.0;
+
+    // Filas de user_interactions confirmadas en orden de id, como las ve HISTORY_SQL
+    private final List<UserInteraction> committed = new CopyOnWriteArrayList<>();
+
+    // user_profile_aggregates: view, cart, purchase, favorite, spend_sum, spend_count
+    private final Map<Long, double[]> aggregates = new ConcurrentHashMap<>();
+
+    private UserProfileStore store;
+
+    @BeforeEach
+    void setUp()
+    {
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.get(PRODUCT)).thenReturn(new ProductCatalog.ProductInfo(
+                PRODUCT, "p", "d", PRICE, 5, 1, "prod", "Lima", true, "cat"));
+        CategoryIndex categories = mock(CategoryIndex.class);
+        when(categories.categoriesOf(anyLong())).thenReturn(new long[0]);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, this::database);
+        store = new UserProfileStore(mock(UserProfileAggregateRepository.class),
+                jdbcTemplate, mock(PlatformTransactionManager.class), catalog,
+                categories, Runnable::run,
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6));
+        ReflectionTestUtils.setField(store, "maxCachedProfiles", 1000);
+        ReflectionTestUtils.setField(store, "reconcileIdleMs", 600000L);
+        ReflectionTestUtils.setField(store, "reconcileBatchSize", 500);
+        ReflectionTestUtils.setField(store, "lateEventWindowMs", 60000L);
+    }
+
+    @Test
+    void firstFlushSeedsHistoryThenAddsDeltas()
+    {
+        commit(7L, InteractionType.VIEW);
+        commit(7L, InteractionType.VIEW);
+        commit(7L, InteractionType.VIEW);
+        commit(7L, InteractionType.PURCHASE);
+
+        track(7L, InteractionType.VIEW);
+        store.flush();
+
+        // Historial completo, no solo el evento que disparó el flush
+        assertThat(aggregates.get(7L)).containsExactly(4, 0, 1, 0, PRICE, 1);
+
+        track(7L, InteractionType.PURCHASE);
+        store.flush();
+
+        assertThat(aggregates.get(7L)).containsExactly(4, 0, 2, 0, 2 * PRICE, 2);
+    }
+
+    @Test
+    void eventArrivingAfterTheReconcileThatCountedItIsIgnored()
+    {
+        ReflectionTestUtils.setField(store, "reconcileIdleMs", 0L);
+        track(7L, InteractionType.VIEW);
+        store.flush();
+
+        // Confirmada antes de la reconciliación, notificada cuando ya terminó
+        UserInteraction late = commit(7L, InteractionType.PURCHASE);
+        store.reconcile();
+        store.onInteractionTracked(new InteractionTrackedEvent(late));
+        track(7L, InteractionType.VIEW);
+        store.flush();
+
+        assertThat(aggregates.get(7L)).containsExactly(2, 0, 1, 0, PRICE, 1);
+    }
+
+    @Test
+    void concurrentTrackingFlushesAndReconcilesCountEachInteractionOnce()
+            throws Exception
+    {
+        int writers = 4;
+        int perWriter = 300;
+        long users = 6;
+        // Sin ventana de inactividad: cada vuelta reconcilia a todos los usuarios
+        ReflectionTestUtils.setField(store, "reconcileIdleMs", 0L);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<Void> maintenance = CompletableFuture.runAsync(() -> {
+            while (writing.get())
+            {
+                store.flush();
+                store.reconcile();
+            }
+        });
+        InteractionType[] types = {InteractionType.VIEW,
+                InteractionType.ADD_TO_CART, InteractionType.PURCHASE};
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int w = 0; w < writers; w++)
+        {
+            writes.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perWriter; i++)
+                {
+                    UserInteraction row = commit(1 + i % users, types[i % 3]);
+                    // El evento llega después de confirmar, a veces tras una reconciliación
+                    Thread.yield();
+                    store.onInteractionTracked(new InteractionTrackedEvent(row));
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new))
+                .get(30, TimeUnit.SECONDS);
+        writing.set(false);
+        maintenance.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        store.flush();
+        assertThat((Long) store.getStats().get("reconciledProfiles")).isPositive();
+
+        for (long userId = 1; userId <= users; userId++)
+        {
+            long[] counts = new long[InteractionType.values().length];
+            for (UserInteraction interaction : committed)
+            {
+                if (interaction.getUserId() == userId)
+                {
+                    counts[interaction.getActionType().ordinal()]++;
+                }
+            }
+            long purchases = counts[InteractionType.PURCHASE.ordinal()];
+            assertThat(aggregates.get(userId)).as("usuario %d", userId)
+                    .containsExactly(counts[InteractionType.VIEW.ordinal()],
+                            counts[InteractionType.ADD_TO_CART.ordinal()],
+                            purchases, 0, purchases * PRICE, purchases);
+        }
+    }
+
+    // La fila se confirma antes de publicar el evento, como en los writers
+    private void track(long userId, InteractionType type)
+    {
+        store.onInteractionTracked(new InteractionTrackedEvent(
+                commit(userId, type)));
+    }
+
+    // Confirma una fila con el siguiente id, en orden de confirmación
+    private UserInteraction commit(long userId, InteractionType type)
+    {
+        UserInteraction interaction = new UserInteraction(userId, PRODUCT, type,
+                type.getDefaultScore());
+        interaction.setCreatedAt(LocalDateTime.now());
+        synchronized (committed)
+        {
+            interaction.setId((long) committed.size() + 1);
+            committed.add(interaction);
+        }
+        return interaction;
+    }
+
+    /**
+     * JdbcTemplate en memoria para las consultas del store: existencia de
+     * filas, candidatos a reconciliar, id máximo, historial y las escrituras
+     * por lotes (aditiva o absoluta según el SQL). Lo demás devuelve valores
+     * por defecto.
+     */
+    private Object database(InvocationOnMock invocation) throws Throwable
+    {
+        String method = invocation.getMethod().getName();
+        Object[] args = invocation.getArguments();
+        String sql = args.length > 0 && args[0] instanceof String s ? s : "";
+
+        if (method.equals("queryForObject") && sql.contains("MAX(id)"))
+        {
+            return (long) committed.size();
+        }
+        if (method.equals("queryForList") && sql.contains("updated_at <"))
+        {
+            long cursor = (Long) args[2];
+            int limit = (Integer) args[5];
+            return aggregates.keySet().stream().filter(id -> id > cursor)
+                    .sorted().limit(limit).toList();
+        }
+        if (method.equals("queryForList") && sql.contains("user_profile_aggregates"))
+        {
+            List<Long> existing = new ArrayList<>();
+            for (int i = 2; i < args.length; i++)
+            {
+                if (aggregates.containsKey((Long) args[i]))
+                {
+                    existing.add((Long) args[i]);
+                }
+            }
+            return existing;
+        }
+        if (method.equals("query") && args[1] instanceof RowCallbackHandler handler)
+        {
+            if (sql.contains("view_count"))
+            {
+                // Con tope de id, el último parámetro es el id máximo de la foto
+                boolean bounded = sql.contains("ui.id <= ?");
+                int users = bounded ? args.length - 1 : args.length;
+                long snapshotId = bounded ? (Long) args[args.length - 1] :
+                        Long.MAX_VALUE;
+                for (int i = 2; i < users; i++)
+                {
+                    ResultSet row = history((Long) args[i], snapshotId);
+                    if (row != null)
+                    {
+                        handler.processRow(row);
+                    }
+                }
+            }
+            return null;
+        }
+        if (method.equals("batchUpdate") && args.length == 4
+                && sql.contains("user_profile_aggregates"))
+        {
+            boolean additive = sql.contains("view_count + VALUES");
+            // RECONCILE_SQL: conteos desde 1 y el usuario al final
+            boolean update = sql.strip().startsWith("UPDATE");
+            @SuppressWarnings("unchecked")
+            ParameterizedPreparedStatementSetter<Object> setter =
+                    (ParameterizedPreparedStatementSetter<Object>) args[3];
+            for (Object item : (Collection<?>) args[1])
+            {
+                Object[] values = new Object[10];
+                PreparedStatement ps = mock(PreparedStatement.class, call -> {
+                    if (call.getMethod().getName().startsWith("set"))
+                    {
+                        values[(int) call.getArgument(0)] = call.getArgument(1);
+                    }
+                    return null;
+                });
+                setter.setValues(ps, item);
+                if (update)
+                {
+                    System.arraycopy(values, 1, values, 2, 7);
+                    values[1] = values[9];
+                }
+                write((Long) values[1], values, additive);
+            }
+            return new int[0][];
+        }
+        return RETURNS_DEFAULTS.answer(invocation);
+    }
+
+    private void write(long userId, Object[] values, boolean additive)
+    {
+        double[] row = new double[] {
+                ((Number) values[2]).doubleValue(), ((Number) values[3]).doubleValue(),
+                ((Number) values[4]).doubleValue(), ((Number) values[5]).doubleValue(),
+                ((Number) values[7]).doubleValue(), ((Number) values[8]).doubleValue()};
+        aggregates.merge(userId, row, (old, delta) -> {
+            if (!additive)
+            {
+                return delta;
+            }
+            double[] sum = old.clone();
+            for (int i = 0; i < sum.length; i++)
+            {
+                sum[i] += delta[i];
+            }
+            return sum;
+        });
+    }
+
+    private ResultSet history(long userId, long snapshotId) throws Exception
+    {
+        long[] counts = new long[InteractionType.values().length];
+        LocalDateTime last = null;
+        for (UserInteraction interaction : committed)
+        {
+            if (interaction.getUserId() == userId
+                    && interaction.getId() <= snapshotId)
+            {
+                counts[interaction.getActionType().ordinal()]++;
+                last = interaction.getCreatedAt();
+            }
+        }
+        if (last == null)
+        {
+            return null;
+        }
+        long purchases = counts[InteractionType.PURCHASE.ordinal()];
+        Map<String, Object> columns = Map.of("user_id", userId,
+                "view_count", counts[InteractionType.VIEW.ordinal()],
+                "cart_count", counts[InteractionType.ADD_TO_CART.ordinal()],
+                "purchase_count", purchases,
+                "favorite_count", counts[InteractionType.FAVORITE.ordinal()],
+                "spend_sum", purchases * PRICE,
+                "spend_count", purchases);
+        ResultSet rs = mock(ResultSet.class);
+        for (Map.Entry<String, Object> column : columns.entrySet())
+        {
+            Number value = (Number) column.getValue();
+            when(rs.getLong(column.getKey())).thenReturn(value.longValue());
+            when(rs.getDouble(column.getKey())).thenReturn(value.doubleValue());
+        }
+        when(rs.getTimestamp("last_activity")).thenReturn(Timestamp.valueOf(last));
+        return rs;
+    }
+}
@@ -0,0 +1,119 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.InteractionType;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.entity.UserInteraction;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InteractionBatchWriterTest
+{
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final InteractionBatchWriter writer = new InteractionBatchWriter(
+            jdbcTemplate, mock(PlatformTransactionManager.class),
+            new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6), 2);
+
+    @Test
+    void generatedKeysBecomeEntityIds()
+    {
+        doAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keys = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++)
+            {
+                keys.getKeyList().add(Map.of("GENERATED_KEY",
+                        (long) (keys.getKeyList().size() + 100)));
+            }
+            return new int[setter.getBatchSize()];
+        }).when(jdbcTemplate).batchUpdate(any(PreparedStatementCreator.class),
+                any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+
+        List<UserInteraction> rows = List.of(interaction(), interaction(),
+                interaction());
+        writer.insertAll(rows);
+
+        // Dos lotes (2 + 1): cada uno con sus claves en orden
+        assertThat(rows).extracting(UserInteraction::getId)
+                .containsExactly(100L, 101L, 100L);
+    }
+
+    @Test
+    void rolledBackChunkKeepsNoIds()
+    {
+        doThrow(new QueryTimeoutException("timeout")).when(jdbcTemplate)
+                .batchUpdate(any(PreparedStatementCreator.class),
+                        any(BatchPreparedStatementSetter.class),
+                        any(KeyHolder.class));
+
+        UserInteraction row = interaction();
+        row.setId(5L);
+        List<InteractionBatchWriter.ChunkResult> results = writer.insertAll(
+                List.of(row));
+
+        assertThat(results.get(0).committed()).isFalse();
+        assertThat(row.getId()).isNull();
+    }
+
+    @Test
+    void persistedRowsAreMatchedOncePerStoredCopy() throws Exception
+    {
+        LocalDateTime at = LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_456_000);
+        // La base tiene una copia, guardada con microsegundos
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("user_id")).thenReturn(1L);
+            when(rs.getLong("product_id")).thenReturn(10L);
+            when(rs.getString("action_type")).thenReturn("VIEW");
+            when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(at));
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class),
+                any(Object[].class));
+
+        // El journal guarda milisegundos: dos eventos iguales y uno de otro instante
+        LocalDateTime journaled = at.withNano(123_000_000);
+        boolean[] persisted = writer.findPersisted(List.of(
+                interaction(journaled), interaction(journaled),
+                interaction(journaled.plusNanos(1_000_000))));
+
+        assertThat(persisted).containsExactly(true, false, false);
+    }
+
+    private static UserInteraction interaction(LocalDateTime createdAt)
+    {
+        UserInteraction interaction = interaction();
+        interaction.setCreatedAt(createdAt);
+        return interaction;
+    }
+
+    private static UserInteraction interaction()
+    {
+        UserInteraction interaction = new UserInteraction(1L, 10L,
+                InteractionType.VIEW, InteractionType.VIEW.getDefaultScore());
+        interaction.setCreatedAt(LocalDateTime.now());
+        return interaction;
+    }
+}
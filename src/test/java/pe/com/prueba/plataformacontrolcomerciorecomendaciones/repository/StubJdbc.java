@@ -0,0 +1,110 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * JdbcTemplate de prueba para las lecturas de StreamingJdbc: devuelve las
+ * filas cargadas en orden de id y, si la consulta trae un parámetro, solo las
+ * de id mayor (el patrón "WHERE id > ?" de las cargas incrementales).
+ */
+public final class StubJdbc
+{
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    public StubJdbc()
+    {
+        doAnswer(invocation -> {
+            PreparedStatementCreator creator = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = new Object[1];
+            creator.createPreparedStatement(connection(args));
+
+            List<Map<String, Object>> result = new ArrayList<>(rows);
+            result.sort(Comparator.comparingLong(row -> id(row)));
+            for (Map<String, Object> row : result)
+            {
+                if (args[0] == null || id(row) > ((Number) args[0]).longValue())
+                {
+                    handler.processRow(resultSet(row));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class),
+                any(RowCallbackHandler.class));
+    }
+
+    public JdbcTemplate jdbcTemplate()
+    {
+        return jdbcTemplate;
+    }
+
+    public StubJdbc interaction(long id, long userId, long productId,
+            String actionType, double score, long createdAtMillis)
+    {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", id);
+        row.put("user_id", userId);
+        row.put("product_id", productId);
+        row.put("action_type", actionType);
+        row.put("interaction_score", score);
+        row.put("created_at", new Timestamp(createdAtMillis));
+        rows.add(row);
+        return this;
+    }
+
+    private static long id(Map<String, Object> row)
+    {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    private static Connection connection(Object[] args) throws Exception
+    {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(invocation -> {
+            args[(int) invocation.getArgument(0) - 1] = invocation.getArgument(1);
+            return null;
+        }).when(statement).setObject(anyInt(), any());
+
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt()))
+                .thenReturn(statement);
+        return connection;
+    }
+
+    private static ResultSet resultSet(Map<String, Object> row) throws Exception
+    {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(anyString())).thenAnswer(invocation ->
+                ((Number) row.get(invocation.getArgument(0))).longValue());
+        when(rs.getFloat(anyString())).thenAnswer(invocation ->
+                ((Number) row.get(invocation.getArgument(0))).floatValue());
+        when(rs.getDouble(anyString())).thenAnswer(invocation ->
+                ((Number) row.get(invocation.getArgument(0))).doubleValue());
+        when(rs.getString(anyString())).thenAnswer(invocation ->
+                String.valueOf(row.get(invocation.getArgument(0))));
+        when(rs.getTimestamp(anyString())).thenAnswer(invocation ->
+                (Timestamp) row.get(invocation.getArgument(0)));
+        return rs;
+    }
+}
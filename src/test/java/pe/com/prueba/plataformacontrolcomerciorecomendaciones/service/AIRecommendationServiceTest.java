@@ -0,0 +1,92 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend.RecommendationBlender;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.CategoryIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ItemCooccurrenceIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.LocationIndex;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.PopularityLeaderboard;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ingest.InteractionWriteBuffer;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedRecommendationStore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.profile.UserProfileStore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.InteractionBatchWriter;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserInteractionRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AIRecommendationServiceTest
+{
+    private final UserInteractionRepository repository = mock(
+            UserInteractionRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(
+            PlatformTransactionManager.class);
+
+    @Test
+    void fallbackQueriesRunWithTheSourceTimeoutAsQueryTimeout()
+    {
+        when(transactionManager.getTransaction(any()))
+                .thenReturn(new SimpleTransactionStatus());
+        AIRecommendationService service = service(1500);
+
+        // Índices sin construir: las tres fuentes van a la consulta
+        service.getCollaborativeFilteringRecommendations(1L, 5);
+        service.getContentBasedRecommendations(1L, 5);
+        service.getLocalProducerRecommendations(1L, 5);
+
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(
+                TransactionDefinition.class);
+        verify(transactionManager, times(3)).getTransaction(
+                definitions.capture());
+        // 1500 ms se redondea hacia arriba: el timeout JDBC es en segundos
+        assertThat(definitions.getAllValues()).allSatisfy(definition -> {
+            assertThat(definition.getTimeout()).isEqualTo(2);
+            assertThat(definition.isReadOnly()).isTrue();
+        });
+
+        InOrder order = inOrder(transactionManager, repository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(repository).findCollaborativeRecommendations(eq(1L),
+                any(Pageable.class));
+        order.verify(transactionManager).commit(any());
+    }
+
+    private AIRecommendationService service(long sourceTimeoutMs)
+    {
+        AIRecommendationService service = new AIRecommendationService(
+                repository, mock(JdbcTemplate.class), transactionManager,
+                mock(AsyncTaskExecutor.class), mock(ItemCooccurrenceIndex.class),
+                mock(InteractionMatrix.class), mock(RecommendationCache.class),
+                mock(PopularityLeaderboard.class), mock(CategoryIndex.class),
+                mock(LocationIndex.class), mock(InteractionBatchWriter.class),
+                mock(InteractionWriteBuffer.class), mock(UserProfileStore.class),
+                new RecommendationBlender(0.4, 0.4, 0.2),
+                mock(PrecomputedRecommendationStore.class),
+                mock(MLRecommendationService.class),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6),
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "sourceTimeoutMs", sourceTimeoutMs);
+        return service;
+    }
+}
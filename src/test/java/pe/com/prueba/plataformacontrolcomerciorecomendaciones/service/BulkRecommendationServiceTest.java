@@ -0,0 +1,152 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.blend.RecommendationBlender;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationRequest;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.BulkRecommendationResult;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.dto.ProductRecommendation;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.precompute.PrecomputedRecommendationStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkRecommendationServiceTest
+{
+    private final IAIRecommendationService aiService = mock(
+            IAIRecommendationService.class);
+
+    private final InteractionMatrix matrix = mock(InteractionMatrix.class);
+
+    private final PrecomputedRecommendationStore precomputedStore = mock(
+            PrecomputedRecommendationStore.class);
+
+    @BeforeEach
+    void setUp()
+    {
+        // Sin slice salvo que el test lo indique, como un store sin archivo
+        when(precomputedStore.lookup(anyLong(), anyInt())).thenReturn(null);
+    }
+
+    @Test
+    void rejectsNonPositiveConcurrency()
+    {
+        assertThatThrownBy(() -> service(0, Runnable::run))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void limitMustBeWithinOneAndMaxLimit()
+    {
+        BulkRecommendationService service = service(4, Runnable::run);
+        BulkRecommendationRequest request = new BulkRecommendationRequest();
+
+        request.setLimit(null);
+        assertThat(service.limitOf(request)).isEqualTo(10);
+        request.setLimit(0);
+        assertThatThrownBy(() -> service.limitOf(request))
+                .isInstanceOf(IllegalArgumentException.class);
+        request.setLimit(101);
+        assertThatThrownBy(() -> service.limitOf(request))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.process(
+                LongStream.of(1L).iterator(), -1, result -> {
+                }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void precomputedSliceIsServedBeforeTheEngines() throws IOException
+    {
+        List<ProductRecommendation> slice = List.of(new ProductRecommendation(
+                5L, "p", "d", 1.0, "prod", "cat", 0.9, "precalculado"));
+        when(precomputedStore.lookup(1L, 3)).thenReturn(slice);
+        when(matrix.isReady()).thenReturn(true);
+        when(matrix.eventCount(anyLong())).thenReturn(10);
+
+        List<BulkRecommendationResult> results = new ArrayList<>();
+        service(2, Runnable::run).process(LongStream.of(1L, 2L).iterator(), 3,
+                results::add);
+
+        assertThat(results).extracting(BulkRecommendationResult::getUserId)
+                .containsExactly(1L, 2L);
+        assertThat(results.get(0).getRecommendations()).isEqualTo(slice);
+        verify(aiService, never()).getCollaborativeFilteringRecommendations(
+                eq(1L), anyInt());
+        verify(aiService).getCollaborativeFilteringRecommendations(2L, 3);
+    }
+
+    @Test
+    void failingSinkCancelsTheUsersStillInFlight() throws Exception
+    {
+        when(matrix.isReady()).thenReturn(true);
+        when(matrix.eventCount(anyLong())).thenReturn(10);
+        // El usuario 2 queda calculando hasta que lo interrumpan; el 1 termina
+        // recién cuando el 2 ya empezó
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(aiService.getCollaborativeFilteringRecommendations(1L, 3))
+                .thenAnswer(invocation -> {
+                    started.await();
+                    return List.of();
+                });
+        when(aiService.getCollaborativeFilteringRecommendations(2L, 3))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    try
+                    {
+                        never.await();
+                    } catch (InterruptedException e)
+                    {
+                        interrupted.countDown();
+                    }
+                    return List.of();
+                });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            // El cliente se desconecta al recibir el primer resultado
+            assertThatThrownBy(() -> service(2, executor).process(
+                    LongStream.of(1L, 2L).iterator(), 3, result -> {
+                        throw new IOException("Broken pipe");
+                    }))
+                    .isInstanceOf(IOException.class);
+
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private BulkRecommendationService service(int concurrency, Executor executor)
+    {
+        BulkRecommendationService service = new BulkRecommendationService(
+                aiService, new RecommendationBlender(0.4, 0.4, 0.2), matrix,
+                precomputedStore, new ObjectMapper(), executor, concurrency);
+        ReflectionTestUtils.setField(service, "maxLimit", 100);
+        return service;
+    }
+}
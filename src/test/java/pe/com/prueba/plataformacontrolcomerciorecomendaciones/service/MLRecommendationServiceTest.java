@@ -0,0 +1,132 @@
+package pe.com.prueba.plataformacontrolcomerciorecomendaciones.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.cache.RecommendationCache;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.InteractionMatrix;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.index.ProductCatalog;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.metrics.RecommendationMetrics;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ProductScore;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.ml.ScalarKernels;
+import pe.com.prueba.plataformacontrolcomerciorecomendaciones.repository.UserInteractionRepository;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MLRecommendationServiceTest
+{
+    private static final int PRODUCTS = 23;
+
+    // Ids después de los que pidió cada página
+    private final List<Long> pagesAfter = new ArrayList<>();
+
+    private MLRecommendationService service;
+
+    @BeforeEach
+    void setUp()
+    {
+        ProductCatalog catalog = mock(ProductCatalog.class);
+        when(catalog.get(anyLong())).thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return new ProductCatalog.ProductInfo(id, "p" + id, "d", price(id),
+                    5, 1, "prod", "Lima", true, "cat");
+        });
+
+        service = new MLRecommendationService(
+                mock(UserInteractionRepository.class),
+                mock(JdbcTemplate.class, this::database),
+                mock(ApplicationEventPublisher.class),
+                mock(RecommendationCache.class),
+                new RecommendationMetrics(new SimpleMeterRegistry(), 60000, 6),
+                ForkJoinPool.commonPool(), ScalarKernels.INSTANCE,
+                mock(InteractionMatrix.class), catalog);
+
+        // Embeddings fijos: sin el ruido del vector dinámico
+        @SuppressWarnings("unchecked")
+        Map<Long, double[]> embeddings = (Map<Long, double[]>)
+                ReflectionTestUtils.getField(service, "productEmbeddings");
+        Random random = new Random(3);
+        for (long id = 1; id <= PRODUCTS; id++)
+        {
+            double[] embedding = new double[6];
+            for (int f = 0; f < embedding.length; f++)
+            {
+                embedding[f] = random.nextDouble();
+            }
+            embeddings.put(id, embedding);
+        }
+    }
+
+    @Test
+    void pagesCoverTheWholeCatalog()
+    {
+        double[] profile = {0.2, 0.4, 0.1, 0.9, 0.0, 0.3, 0.5, 0.7};
+
+        ReflectionTestUtils.setField(service, "candidatePageSize", 100);
+        List<ProductScore> single = neural(profile);
+        assertThat(pagesAfter).containsExactly(Long.MIN_VALUE);
+
+        pagesAfter.clear();
+        ReflectionTestUtils.setField(service, "candidatePageSize", 5);
+        List<ProductScore> paged = neural(profile);
+
+        // 23 candidatos en páginas de 5: la última, incompleta, corta el recorrido
+        assertThat(pagesAfter).containsExactly(Long.MIN_VALUE, 5L, 10L, 15L, 20L);
+        assertThat(paged).extracting(ProductScore::getProductId)
+                .containsExactlyElementsOf(single.stream()
+                        .map(ProductScore::getProductId).toList());
+        assertThat(paged).hasSize(4);
+    }
+
+    private List<ProductScore> neural(double[] profile)
+    {
+        return ReflectionTestUtils.invokeMethod(service,
+                "generateNeuralRecommendations", 7L, profile, 3, 4);
+    }
+
+    private static double price(long id)
+    {
+        return 10.0 * id;
+    }
+
+    // Consulta de candidatos paginada por id sobre los productos 1..PRODUCTS
+    private Object database(InvocationOnMock invocation) throws Throwable
+    {
+        Object[] args = invocation.getArguments();
+        if (invocation.getMethod().getName().equals("query")
+                && args.length == 5 && args[1] instanceof RowCallbackHandler handler)
+        {
+            long after = (Long) args[3];
+            int pageSize = (Integer) args[4];
+            pagesAfter.add(after);
+            int rows = 0;
+            for (long id = Math.max(1, after + 1); id <= PRODUCTS && rows < pageSize;
+                    id++, rows++)
+            {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(id);
+                when(rs.getDouble("price")).thenReturn(price(id));
+                when(rs.getInt("quantity")).thenReturn(5);
+                handler.processRow(rs);
+            }
+            return null;
+        }
+        return RETURNS_DEFAULTS.answer(invocation);
+    }
+}